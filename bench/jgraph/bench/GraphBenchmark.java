@@ -0,0 +1,505 @@
+package jgraph.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import jgraph.AdjList.AdjacencyList;
+import jgraph.AdjMatrix.AdjacencyMatrix;
+import jgraph.graph.Edge;
+import jgraph.graph.Graph;
+import jgraph.graph.IndexedGraph;
+import jgraph.graph.Vertex;
+
+/**
+ * Measures the operations of AdjacencyList and AdjacencyMatrix over random
+ * graphs of several sizes, densities and weightings, and writes the average
+ * time of each operation as JSON in the layout JMH uses for its results, so
+ * the same tools can read and compare them.
+ *
+ * Each benchmark is warmed up then measured for a number of iterations. An
+ * iteration runs the operation until it has taken the iteration time. An
+ * operation that changes the graph is timed in batches, each batch on a
+ * fresh copy of the graph that is built outside the timed part. The score is
+ * the mean time of one operation over the measured iterations, the error is
+ * half of its 99.9% confidence interval.
+ *
+ * Options are given as --name=value:
+ * <pre>
+ *   --out=results.json        where the results are written
+ *   --baseline=old.json       results to compare against, slower scores are
+ *                             listed as regressions
+ *   --sizes=64,256,1024       numbers of vertices
+ *   --densities=0.02,0.2      fractions of the possible edges present
+ *   --weighted=false,true     weightings
+ *   --representations=AdjacencyList,AdjacencyMatrix
+ *   --include=regex           only the operations whose names match
+ *   --warmup=3 --iterations=5 --time=100   iterations and milliseconds each
+ * </pre>
+ */
+public final class GraphBenchmark {
+
+    /**
+     * The operations that change the graph run this many times on each copy.
+     */
+    private static final int BATCH = 64;
+
+    /**
+     * The number of random vertices and pairs queries are drawn from.
+     */
+    private static final int SAMPLES = 1024;
+
+    /**
+     * An iteration ends once it has taken this many times the iteration
+     * time, the untimed copies of the graph included.
+     */
+    private static final int SETUP_LIMIT = 5;
+
+    /**
+     * Quantiles of the t distribution at 99.95% for 1 to 10 degrees of
+     * freedom, the normal quantile is used past that.
+     */
+    private static final double[] T_QUANTILES = {636.62, 31.60, 12.92, 8.61,
+        6.87, 5.96, 5.41, 5.04, 4.78, 4.59};
+
+    private static final double Z_QUANTILE = 3.29;
+
+    /**
+     * Keeps results alive so the work that made them isn't optimized away.
+     */
+    private static long sink;
+
+    private enum Operation {
+        ADD_VERTEX("addVertex", true),
+        ADD_EDGE("addEdge", true),
+        HAS_EDGE("hasEdge", false),
+        GET_EDGE("getEdge", false),
+        DELETE_EDGE("deleteEdge", true),
+        DELETE_VERTEX("deleteVertex", true),
+        IS_CONNECTED("isConnected", false),
+        HAS_CIRCUIT("hasCircuit", false),
+        SHORTEST_PATHS("shortestPaths", false),
+        SHORTEST_PATH("shortestPath", false),
+        READ_GRAPH("readGraph", false);
+
+        private final String name;
+        private final boolean changesGraph;
+
+        Operation(String name, boolean changesGraph) {
+            this.name = name;
+            this.changesGraph = changesGraph;
+        }
+    }
+
+    /**
+     * One random graph and the samples the operations use on it.
+     */
+    private static final class Fixture {
+
+        private final String representation;
+        private final IndexedGraph<Integer> indexed;
+        private final int n;
+        private final int[] vertices, pairs, missing, present;
+        private final String file;
+        private Graph<Integer> graph;
+
+        private Fixture(String representation, int n, double density, boolean weighted,
+                File dataFile) throws IOException {
+            this.representation = representation;
+            this.n = n;
+            Random random = new Random(n * 31 + (weighted ? 1 : 0));
+            long possible = (long) n * (n - 1) / 2;
+            int m = (int) Math.min(possible, Math.round(density * possible));
+            HashSet<Long> edges = new HashSet<>();
+            int[] from = new int[m], to = new int[m];
+            float[] weight = new float[m];
+            int[] degree = new int[n + 1];
+            for (int e = 0; e < m;) {
+                int u = random.nextInt(n), v = random.nextInt(n);
+                if (u != v && edges.add(key(Math.min(u, v), Math.max(u, v)))) {
+                    from[e] = u;
+                    to[e] = v;
+                    weight[e] = weighted ? 1 + random.nextInt(100) : 1;
+                    degree[u + 1]++;
+                    degree[v + 1]++;
+                    e++;
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                degree[v + 1] += degree[v];
+            }
+            int[] targets = new int[2 * m], next = Arrays.copyOf(degree, n);
+            float[] weights = new float[2 * m];
+            for (int e = 0; e < m; e++) {
+                int slot = next[from[e]]++;
+                targets[slot] = to[e];
+                weights[slot] = weight[e];
+                slot = next[to[e]]++;
+                targets[slot] = from[e];
+                weights[slot] = weight[e];
+            }
+            Vertex<Integer>[] list = new Vertex[n];
+            for (int v = 0; v < n; v++) {
+                list[v] = new Vertex<>(v);
+            }
+            indexed = new IndexedGraph<>(list, degree, targets, weights, false, weighted);
+
+            vertices = new int[SAMPLES];
+            pairs = new int[2 * SAMPLES];
+            for (int i = 0; i < SAMPLES; i++) {
+                vertices[i] = random.nextInt(n);
+                pairs[2 * i] = random.nextInt(n);
+                pairs[2 * i + 1] = random.nextInt(n);
+            }
+            int[] absent = new int[2 * BATCH];
+            int count = 0;
+            for (; count < BATCH && edges.size() < possible;) {
+                int u = random.nextInt(n), v = random.nextInt(n);
+                if (u != v && edges.add(key(Math.min(u, v), Math.max(u, v)))) {
+                    absent[2 * count] = u;
+                    absent[2 * count + 1] = v;
+                    count++;
+                }
+            }
+            missing = Arrays.copyOf(absent, 2 * count);
+            present = new int[2 * Math.min(BATCH, m)];
+            for (int i = 0; i < present.length / 2; i++) {
+                int e = random.nextInt(m);
+                present[2 * i] = from[e];
+                present[2 * i + 1] = to[e];
+            }
+
+            file = dataFile.getPath();
+            writeDataFile(dataFile, from, to, weight, weighted);
+            reset();
+        }
+
+        private static long key(int u, int v) {
+            return ((long) u << 32) | v;
+        }
+
+        private Graph<Integer> newGraph() {
+            return representation.equals("AdjacencyList")
+                    ? new AdjacencyList<>(indexed) : new AdjacencyMatrix<>(indexed);
+        }
+
+        private void reset() {
+            graph = newGraph();
+        }
+
+        private void writeDataFile(File dataFile, int[] from, int[] to, float[] weight,
+                boolean weighted) throws IOException {
+            try (PrintStream out = new PrintStream(dataFile, "UTF-8")) {
+                out.println(weighted ? "weighted" : "unweighted");
+                out.println("undirected");
+                out.println();
+                out.println("begin");
+                out.println();
+                StringBuilder line = new StringBuilder();
+                for (int v = 0; v < n; v++) {
+                    line.append(v).append(' ');
+                }
+                out.println(line);
+                out.println();
+                for (int e = 0; e < from.length; e++) {
+                    out.print(from[e] + " " + to[e]);
+                    out.println(weighted ? " " + (int) weight[e] : "");
+                }
+                out.println();
+                out.println("end");
+            }
+        }
+
+        /**
+         * Runs an operation a number of times.
+         *
+         * @param first Where in the samples to start
+         * @return The number of operations run
+         */
+        private int run(Operation operation, int first) {
+            long result = 0;
+            int count = 1;
+            switch (operation) {
+                case ADD_VERTEX:
+                    for (int i = 0; i < BATCH; i++) {
+                        result += graph.addVertex(new Vertex<>(n + i)) ? 1 : 0;
+                    }
+                    count = BATCH;
+                    break;
+                case ADD_EDGE:
+                    for (int i = 0; i < missing.length; i += 2) {
+                        result += graph.addEdge(missing[i], missing[i + 1], new Edge(1)) ? 1 : 0;
+                    }
+                    count = missing.length / 2;
+                    break;
+                case HAS_EDGE:
+                    for (int i = 0; i < SAMPLES; i++) {
+                        result += graph.hasEdge(pairs[2 * i], pairs[2 * i + 1]) ? 1 : 0;
+                    }
+                    count = SAMPLES;
+                    break;
+                case GET_EDGE:
+                    for (int i = 0; i < SAMPLES; i++) {
+                        result += graph.getEdge(pairs[2 * i], pairs[2 * i + 1]) != null ? 1 : 0;
+                    }
+                    count = SAMPLES;
+                    break;
+                case DELETE_EDGE:
+                    for (int i = 0; i < present.length; i += 2) {
+                        result += graph.deleteEdge(present[i], present[i + 1]) ? 1 : 0;
+                    }
+                    count = present.length / 2;
+                    break;
+                case DELETE_VERTEX:
+                    // Half of the vertices at most so the graph never empties
+                    count = Math.min(BATCH, n / 2);
+                    for (int i = 0; i < count; i++) {
+                        result += graph.deleteVertex(i * 2) ? 1 : 0;
+                    }
+                    break;
+                case IS_CONNECTED:
+                    result = graph.isConnected() ? 1 : 0;
+                    break;
+                case HAS_CIRCUIT:
+                    result = graph.hasCircuit(vertices[first % SAMPLES]) ? 1 : 0;
+                    break;
+                case SHORTEST_PATHS:
+                    result = graph.shortestPaths(vertices[first % SAMPLES]) ? 1 : 0;
+                    break;
+                case SHORTEST_PATH:
+                    int i = first % SAMPLES;
+                    ArrayList path = graph.shortestPath(pairs[2 * i], pairs[2 * i + 1]);
+                    result = (path == null) ? 0 : path.size();
+                    break;
+                case READ_GRAPH:
+                    Graph<Integer> read = representation.equals("AdjacencyList")
+                            ? new AdjacencyList<>() : new AdjacencyMatrix<>();
+                    Graph.readGraph(file, read, DISCARD,
+                            (String name) -> Integer.valueOf(name));
+                    result = read.getEdgeCount();
+                    break;
+            }
+            sink += result;
+            return count;
+        }
+    }
+
+    /**
+     * The output readGraph prints while it reads a file.
+     */
+    private static final PrintStream DISCARD = new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    });
+
+    private final HashMap<String, String> options;
+    private final int warmup, iterations;
+    private final long iterationNanos;
+
+    private GraphBenchmark(HashMap<String, String> options) {
+        this.options = options;
+        warmup = Integer.parseInt(option("warmup", "3"));
+        iterations = Integer.parseInt(option("iterations", "5"));
+        iterationNanos = Long.parseLong(option("time", "100")) * 1000000;
+        if (iterations < 2) {
+            throw new IllegalArgumentException("At least two iterations are needed for an error");
+        }
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    /**
+     * Measures one operation, each iteration's score is in nanoseconds per
+     * operation.
+     */
+    private double[] measure(Fixture fixture, Operation operation) {
+        double[] scores = new double[iterations];
+        for (int it = -warmup; it < iterations; it++) {
+            long elapsed = 0, count = 0, began = System.nanoTime();
+            // Copying a large graph can take far longer than the batch run
+            // on it, the copies count towards a limit of their own
+            while (elapsed < iterationNanos
+                    && (count == 0 || System.nanoTime() - began < SETUP_LIMIT * iterationNanos)) {
+                if (operation.changesGraph) {
+                    fixture.reset();
+                }
+                long start = System.nanoTime();
+                count += fixture.run(operation, (int) count);
+                elapsed += System.nanoTime() - start;
+            }
+            if (it >= 0) {
+                scores[it] = (double) elapsed / count;
+            }
+        }
+        if (operation.changesGraph) {
+            fixture.reset();
+        }
+        return scores;
+    }
+
+    private void run() throws IOException {
+        String[] representations = option("representations", "AdjacencyList,AdjacencyMatrix").split(",");
+        String[] sizes = option("sizes", "64,256,1024").split(",");
+        String[] densities = option("densities", "0.02,0.2").split(",");
+        String[] weightings = option("weighted", "false,true").split(",");
+        Pattern include = Pattern.compile(option("include", ".*"));
+        File out = new File(option("out", "results.json"));
+
+        ArrayList<String> results = new ArrayList<>();
+        File dataFile = File.createTempFile("benchmark", ".txt");
+        dataFile.deleteOnExit();
+        for (String representation : representations) {
+            for (String size : sizes) {
+                for (String density : densities) {
+                    for (String weighted : weightings) {
+                        Fixture fixture = new Fixture(representation, Integer.parseInt(size),
+                                Double.parseDouble(density), Boolean.parseBoolean(weighted), dataFile);
+                        for (Operation operation : Operation.values()) {
+                            if (!include.matcher(operation.name).matches()) {
+                                continue;
+                            }
+                            double[] scores;
+                            try {
+                                scores = measure(fixture, operation);
+                            } catch (RuntimeException | StackOverflowError e) {
+                                // The recursive searches of AdjacencyList run
+                                // out of stack on large graphs, the other
+                                // benchmarks still run
+                                System.out.printf(Locale.ROOT, "%-14s %-16s n=%-5s d=%-5s w=%-5s FAILED %s%n",
+                                        operation.name, representation, size, density, weighted, e);
+                                fixture.reset();
+                                continue;
+                            }
+                            String params = String.format(Locale.ROOT,
+                                    "{\"representation\":\"%s\",\"size\":\"%s\",\"density\":\"%s\",\"weighted\":\"%s\"}",
+                                    representation, size, density, weighted);
+                            String result = json(operation, params, scores);
+                            results.add(result);
+                            System.out.printf(Locale.ROOT, "%-14s %-16s n=%-5s d=%-5s w=%-5s %14.1f ns/op%n",
+                                    operation.name, representation, size, density, weighted, mean(scores));
+                        }
+                    }
+                }
+            }
+        }
+        Files.write(out.toPath(), ("[\n" + String.join(",\n", results) + "\n]\n")
+                .getBytes(StandardCharsets.UTF_8));
+        System.out.println("Results written to " + out.getAbsolutePath());
+        if (options.containsKey("baseline")) {
+            compare(results, new String(Files.readAllBytes(Paths.get(option("baseline", ""))),
+                    StandardCharsets.UTF_8).split("\n"));
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    /**
+     * Writes one result on a single line so results can be compared a line
+     * at a time.
+     */
+    private String json(Operation operation, String params, double[] scores) {
+        double mean = mean(scores), error = error(scores);
+        StringBuilder raw = new StringBuilder();
+        for (double score : scores) {
+            raw.append(raw.length() == 0 ? "" : ",").append(String.format(Locale.ROOT, "%.3f", score));
+        }
+        return String.format(Locale.ROOT, "  {\"benchmark\":\"jgraph.bench.GraphBenchmark.%s\","
+                + "\"mode\":\"avgt\",\"threads\":1,\"forks\":1,"
+                + "\"warmupIterations\":%d,\"warmupTime\":\"%d ms\","
+                + "\"measurementIterations\":%d,\"measurementTime\":\"%d ms\",\"params\":%s,"
+                + "\"primaryMetric\":{\"score\":%.3f,\"scoreError\":%.3f,"
+                + "\"scoreConfidence\":[%.3f,%.3f],\"scoreUnit\":\"ns/op\",\"rawData\":[[%s]]},"
+                + "\"secondaryMetrics\":{}}",
+                operation.name, warmup, iterationNanos / 1000000, iterations, iterationNanos / 1000000,
+                params, mean, error, mean - error, mean + error, raw);
+    }
+
+    private static final Pattern RESULT = Pattern.compile(
+            "\"benchmark\":\"([^\"]*)\".*\"params\":(\\{[^}]*\\}).*\"score\":([-0-9.Ee]+),\"scoreError\":([-0-9.Ee]+)");
+
+    /**
+     * Lists the benchmarks whose confidence interval lies wholly above the
+     * baseline's.
+     */
+    private static void compare(ArrayList<String> results, String[] baseline) {
+        HashMap<String, double[]> old = new HashMap<>();
+        for (String line : baseline) {
+            Matcher m = RESULT.matcher(line);
+            if (m.find()) {
+                old.put(m.group(1) + m.group(2), new double[]{
+                    Double.parseDouble(m.group(3)), Double.parseDouble(m.group(4))});
+            }
+        }
+        int regressions = 0;
+        for (String line : results) {
+            Matcher m = RESULT.matcher(line);
+            if (!m.find() || !old.containsKey(m.group(1) + m.group(2))) {
+                continue;
+            }
+            double[] before = old.get(m.group(1) + m.group(2));
+            double score = Double.parseDouble(m.group(3)), error = Double.parseDouble(m.group(4));
+            if (score - error > before[0] + before[1]) {
+                regressions++;
+                System.out.printf(Locale.ROOT, "REGRESSION %s %s %.1f -> %.1f ns/op (%+.0f%%)%n",
+                        m.group(1), m.group(2), before[0], score, 100 * (score / before[0] - 1));
+            }
+        }
+        System.out.println(regressions + " regressions against the baseline");
+    }
+
+    private static double mean(double[] scores) {
+        double total = 0;
+        for (double score : scores) {
+            total += score;
+        }
+        return total / scores.length;
+    }
+
+    private static double error(double[] scores) {
+        double mean = mean(scores), squares = 0;
+        for (double score : scores) {
+            squares += (score - mean) * (score - mean);
+        }
+        int freedom = scores.length - 1;
+        double t = (freedom <= T_QUANTILES.length) ? T_QUANTILES[freedom - 1] : Z_QUANTILE;
+        return t * Math.sqrt(squares / freedom / scores.length);
+    }
+
+    public static void main(String[] args) throws IOException {
+        HashMap<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.isEmpty()) {
+                continue;
+            }
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options are given as --name=value: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        try {
+            new GraphBenchmark(options).run();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
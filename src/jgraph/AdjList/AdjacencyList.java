@@ -1,10 +1,19 @@
 package jgraph.AdjList;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Stack;
+import jgraph.graph.Checkpoint;
 import jgraph.graph.Edge;
+import jgraph.graph.EdgeVisitor;
 import jgraph.graph.Graph;
+import jgraph.graph.IndexedGraph;
 import jgraph.graph.Vertex;
 import priorityqueue.PriorityQueue;
 
@@ -120,12 +129,184 @@ public class AdjacencyList<Data extends Comparable> extends Graph<Data> {
     }
     
     public AdjacencyList() {
-        super();
+        this(false, false);
+    }
+    
+    /**
+     * Creates an empty list for the given kind of graph.
+     * @param directed If this graph is directed
+     * @param weighted If this graph is weighted
+     */
+    public AdjacencyList(boolean directed, boolean weighted) {
+        super(directed, weighted);
         vertexListHead = null;
         dijkstrasApplied = false;
         state = -1;
     }
     
+    /**
+     * Creates a list holding the vertices and edges of an indexed graph. The
+     * nodes are linked directly instead of being added one edge at a time,
+     * which is the fast way to load a large graph.
+     *
+     * @param graph The graph being copied
+     */
+    public AdjacencyList(IndexedGraph<Data> graph) {
+        this(graph.isDirected(), graph.isWeighted());
+        int n = graph.getVertexCount();
+        if (n == 0) {
+            return;
+        }
+        // The tail of each edge list starts at the vertex node itself
+        Node[] nodes = new AdjacencyList.Node[n], tails = new AdjacencyList.Node[n];
+        for (int v = 0; v < n; v++) {
+            nodes[v] = tails[v] = new Node(new Vertex<>(graph.getData(v)));
+            if (v > 0) {
+                nodes[v - 1].nextVertex = nodes[v];
+            }
+        }
+        vertexListHead = nodes[0];
+        numVertices = n;
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int v = graph.target(e);
+                // Like addEdge a vertex is never its own neighbor
+                if (u != v && (isDirected || u < v)) {
+                    Edge edge = isWeighted ? new Edge(graph.weight(e)) : new Edge();
+                    tails[u] = tails[u].nextEdge = new Node(nodes[v], edge);
+                    if (!isDirected) {
+                        tails[v] = tails[v].nextEdge = new Node(nodes[u], edge);
+                    }
+                    numEdges++;
+                }
+            }
+        }
+        markConnected(graph, nodes);
+    }
+    
+    /**
+     * Writes the whole list to a checkpoint file: the vertices and every
+     * edge list in the order they are stored, the weights, the modifiers and
+     * which vertices are connected. Shortest path results are not kept. The
+     * vertex data must be Serializable and the graph must not change while
+     * it is being written.
+     *
+     * @param fileName The checkpoint file
+     * @throws UncheckedIOException If the checkpoint can't be written
+     */
+    public void checkpoint(String fileName) {
+        IdentityHashMap<Node, Integer> indices = new IdentityHashMap<>();
+        List<Node> order = new ArrayList<>();
+        for (Node vert = vertexListHead; vert != null; vert = vert.nextVertex) {
+            indices.put(vert, order.size());
+            order.add(vert);
+        }
+        int n = order.size(), arcs = 0;
+        // Deleting a vertex of a directed graph leaves the edges coming into
+        // it, the nodes they point to are kept after the vertex list so the
+        // restored list behaves the same
+        for (int v = 0; v < order.size(); v++) {
+            for (Node edge = order.get(v).nextEdge; edge != null; edge = edge.nextEdge) {
+                if (!indices.containsKey(edge.self)) {
+                    indices.put(edge.self, order.size());
+                    order.add(edge.self);
+                }
+                arcs++;
+            }
+        }
+        int total = order.size();
+        Comparable[] data = new Comparable[total];
+        boolean[] connected = new boolean[total];
+        int[] offsets = new int[total + 1];
+        for (int v = 0; v < total; v++) {
+            Node vert = order.get(v);
+            data[v] = vert.vertex.getData();
+            connected[v] = vert.vertex.isConnected();
+            offsets[v + 1] = offsets[v];
+            for (Node edge = vert.nextEdge; edge != null; edge = edge.nextEdge) {
+                offsets[v + 1]++;
+            }
+        }
+
+        // An undirected edge is one object shared by two nodes, each edge
+        // object is written once and the nodes refer to it by number
+        IdentityHashMap<Edge, Integer> edgeIds = new IdentityHashMap<>();
+        int[] targets = new int[arcs], ids = new int[arcs];
+        float[] weights = new float[arcs];
+        boolean shared = false;
+        int arc = 0;
+        for (Node vert : order) {
+            for (Node edge = vert.nextEdge; edge != null; edge = edge.nextEdge, arc++) {
+                targets[arc] = indices.get(edge.self);
+                Integer id = edgeIds.get(edge.edge);
+                if (id == null || edge.edge == null) {
+                    id = edgeIds.size();
+                    edgeIds.put(edge.edge, id);
+                    weights[id] = (edge.edge == null) ? Float.NaN : edge.edge.getWeight();
+                }
+                ids[arc] = id;
+                shared |= id != arc;
+            }
+        }
+
+        try (Checkpoint.Writer out = new Checkpoint.Writer(fileName, Checkpoint.ADJACENCY_LIST)) {
+            out.writeBoolean(isDirected);
+            out.writeBoolean(isWeighted);
+            out.writeInt(numVertices);
+            out.writeInt(numEdges);
+            out.writeInt(state);
+            out.writeInt(n);
+            out.writeInt(total);
+            out.writeObject(data);
+            out.writeBooleans(connected, total);
+            out.writeInts(offsets, total + 1);
+            out.writeInts(targets, arcs);
+            out.writeInt(edgeIds.size());
+            out.writeBoolean(shared);
+            if (shared) {
+                out.writeInts(ids, arcs);
+            }
+            out.writeFloats(weights, edgeIds.size());
+            out.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads a list back from a checkpoint file. The arrays are read whole
+     * and the nodes are linked directly, nothing is searched for.
+     *
+     * @param <Data> The type of data representing each vertex
+     * @param fileName The checkpoint file
+     * @return The list as it was when the checkpoint was written
+     * @throws UncheckedIOException If the checkpoint can't be read
+     */
+    public static <Data extends Comparable> AdjacencyList<Data> restore(String fileName) {
+        try (Checkpoint.Reader in = new Checkpoint.Reader(fileName, Checkpoint.ADJACENCY_LIST)) {
+            boolean directed = in.readBoolean(), weighted = in.readBoolean();
+            AdjacencyList<Data> graph = new AdjacencyList<>(directed, weighted);
+            graph.numVertices = in.readInt();
+            graph.numEdges = in.readInt();
+            graph.state = in.readInt();
+            int n = in.readInt(), total = in.readInt();
+            Object[] data = (Object[]) in.readObject();
+            boolean[] connected = in.readBooleans(total);
+            int[] offsets = in.readInts(total + 1);
+            int[] targets = in.readInts(offsets[total]);
+            int edgeCount = in.readInt();
+            int[] ids = in.readBoolean() ? in.readInts(offsets[total]) : null;
+            float[] weights = in.readFloats(edgeCount);
+            if (data.length != total || n > total) {
+                throw new IOException("The checkpoint is damaged");
+            }
+            graph.load(n, data, connected, offsets, targets, ids, weights);
+            return graph;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
     @Override
     public boolean hasEdge(Data a, Data b) {
         return (getEdge(a, b) != null);
@@ -169,6 +350,42 @@ public class AdjacencyList<Data extends Comparable> extends Graph<Data> {
         return (vert != null) ? vert.vertex: null;
     }
     
+    @Override
+    public ArrayList<Vertex> getVertices(){
+        ArrayList<Vertex> vertices = new ArrayList<>(numVertices);
+        Node current = vertexListHead;
+        while (current != null){
+            vertices.add(current.vertex);
+            current = current.nextVertex;
+        }
+        return vertices;
+    }
+    
+    /**
+     * Visits every edge. Deleting a vertex of a directed graph leaves the
+     * edges coming into it in the lists of the other vertices, those edges
+     * are skipped.
+     */
+    @Override
+    public void forEachEdge(EdgeVisitor<Data, Edge> visitor){
+        IdentityHashMap<Node, Boolean> live = new IdentityHashMap<>();
+        for (Node node = vertexListHead; node != null; node = node.nextVertex){
+            live.put(node, Boolean.TRUE);
+        }
+        Node vertex = vertexListHead, edge;
+        while (vertex != null){
+            edge = vertex.nextEdge;
+            while (edge != null){
+                if (edge.edge != null && live.containsKey(edge.self)){
+                    visitor.visit(vertex.vertex.getData(), 
+                            edge.vertex.getData(), edge.edge);
+                }
+                edge = edge.nextEdge;
+            }
+            vertex = vertex.nextVertex;
+        }
+    }
+    
     public boolean permuteShortestPaths(Data a, PrintStream stream){
         Node from = getVertexNode(a);
         
@@ -182,13 +399,11 @@ public class AdjacencyList<Data extends Comparable> extends Graph<Data> {
             }
         }
         
-        ArrayList<Vertex> path;
+        ArrayList<Vertex> path = new ArrayList<>();
         Node to = vertexListHead;
-        Data r1 = from.vertex.getData(), r2;
         
         while(to != null){
-            r2 = to.vertex.getData();
-            path = shortestPath(r1, r2);
+            pathTo(to, path);
             stream.println("shortestPath " + from + " to " + to);
             Graph.printPath(stream, path);
     
@@ -202,7 +417,6 @@ public class AdjacencyList<Data extends Comparable> extends Graph<Data> {
     public ArrayList<Vertex> shortestPath(Data a, Data b){
         
         ArrayList<Vertex> path = new ArrayList<>();
-        Stack<Vertex> predStack = new Stack<>();
         
         Node from = getVertexNode(a);
         
@@ -219,21 +433,29 @@ public class AdjacencyList<Data extends Comparable> extends Graph<Data> {
         Node to = getVertexNode(b);
         
         if (to != null){
-            predStack.push(to.vertex);
-            Node pred = (Node)to.vertex.dijkstra().getPredecessor();
-            while(pred != null){
-                predStack.push(pred.vertex);
-                pred = (Node) pred.vertex.dijkstra().getPredecessor();
-            }
-        }
-        
-        while (!predStack.isEmpty()){
-            path.add(predStack.pop());
+            pathTo(to, path);
         }
         
         return path;
     }
     
+    /**
+     * Fills the list with the vertices from the source of the last search
+     * to the given vertex by following the predecessors left by Dijkstra's
+     * algorithm, without looking any vertex up.
+     * @param to The last vertex of the path
+     * @param path The list being filled, it is cleared first
+     */
+    private void pathTo(Node to, ArrayList<Vertex> path){
+        path.clear();
+        Node pred = to;
+        while(pred != null){
+            path.add(pred.vertex);
+            pred = (Node) pred.vertex.dijkstra().getPredecessor();
+        }
+        Collections.reverse(path);
+    }
+    
     @Override
     public boolean shortestPaths(Data a) {
         
@@ -303,7 +525,9 @@ public class AdjacencyList<Data extends Comparable> extends Graph<Data> {
         } 
         boolean b1;
         Node vertA = getVertexNode(a), vertB = getVertexNode(b), node;
-        if (vertA != null && vertB != null) {
+        // An undirected loop would go in the same list twice and the second
+        // put always fails, don't leave half of it behind
+        if (vertA != null && vertB != null && (isDirected || vertA != vertB)) {
             if (!hasChild(vertA, vertB)) {
                 node = new Node(vertB, edge);
                 b1 = putLast(vertA, node);
@@ -331,6 +555,7 @@ public class AdjacencyList<Data extends Comparable> extends Graph<Data> {
                     
                     numEdges++;
                     dijkstrasApplied = false;
+                    edgeAdded(a, b, edge);
                     return true;
                 }
             }
@@ -363,6 +588,7 @@ public class AdjacencyList<Data extends Comparable> extends Graph<Data> {
                     current.nextVertex = new Node(nvert);
                     numVertices++;
                     state++;
+                    vertexAdded(r2);
                     return true;
                 }
             } else {
@@ -377,6 +603,7 @@ public class AdjacencyList<Data extends Comparable> extends Graph<Data> {
             nvert.setConnection(true);
             numVertices++;
             state++;
+            vertexAdded((Data) nvert.getData());
             return true;
         }
 
@@ -389,28 +616,36 @@ public class AdjacencyList<Data extends Comparable> extends Graph<Data> {
         Node vertexA = getVertexNode(a), vertexB = getVertexNode(b);
         if (vertexA != null && vertexB != null) {
             boolean b1, b2;
+            // Only a deleted edge can disconnect anything, a delete that
+            // finds no edge leaves the graph as it was
             if (isDirected) {
                 b1 = removeFrom(vertexA, vertexB);
                 
-                if (!connectedToRoot(vertexA)){
-                    vertexA.vertex.setConnection(false);
-                    state++;
+                if (b1){
+                    if (!connectedToRoot(vertexA)){
+                        vertexA.vertex.setConnection(false);
+                        state++;
+                    }
+                    edgeDeleted(a, b);
                 }
-                
                 return b1;
             } else {
-                numEdges++;
                 b1 = removeFrom(vertexA, vertexB);
                 b2 = removeFrom(vertexB, vertexA);
                 
-                if (!connectedToRoot(vertexA)){
-                    vertexA.vertex.setConnection(false);
-                    state++;
-                }else {
-                    if (!connectedToRoot(vertexB)){
-                        vertexB.vertex.setConnection(false);
+                if (b1 && b2){
+                    // Both removals counted the one edge
+                    numEdges++;
+                    if (!connectedToRoot(vertexA)){
+                        vertexA.vertex.setConnection(false);
                         state++;
+                    }else {
+                        if (!connectedToRoot(vertexB)){
+                            vertexB.vertex.setConnection(false);
+                            state++;
+                        }
                     }
+                    edgeDeleted(a, b);
                 }
                 return b1 && b2;
             }
@@ -429,7 +664,7 @@ public class AdjacencyList<Data extends Comparable> extends Graph<Data> {
             if (vertexListHead == null){
                 state = -1;
             }
-            
+            vertexDeleted(vert);
             return true;
         }
         
@@ -442,6 +677,7 @@ public class AdjacencyList<Data extends Comparable> extends Graph<Data> {
                 removeAllEdgesTo(toDelete);
                 toDelete = null;
                 numVertices--;
+                vertexDeleted(vert);
                 return true;
             }
             prev = toDelete;
@@ -499,13 +735,17 @@ public class AdjacencyList<Data extends Comparable> extends Graph<Data> {
 
     @Override
     public void printGraph(PrintStream stream) {
+        // Each row is printed once it is built so the text of a large graph
+        // is never held whole
         StringBuilder graph = new StringBuilder();
 
         graph.append(isWeighted ? "Weighted\n" : "Unweighted\n");
         graph.append(isDirected ? "Digraph\n" : "Undigraph\n");
+        stream.print(graph);
 
         Node vertex = vertexListHead, edge;
         while (vertex != null) {
+            graph.setLength(0);
             edge = vertex.nextEdge;
             graph.append(vertex.vertex.getData()).append(" -> ");
             while (edge != null) {
@@ -531,9 +771,10 @@ public class AdjacencyList<Data extends Comparable> extends Graph<Data> {
                 edge = edge.nextEdge;
             }
             graph.append("\n");
+            stream.print(graph);
             vertex = vertex.nextVertex;
         }
-        stream.println(graph.toString());
+        stream.println();
     }
 
 /*************************************************************************
@@ -739,6 +980,97 @@ public class AdjacencyList<Data extends Comparable> extends Graph<Data> {
         }
     }
     
+    /**
+     * Links the nodes of a list read from a checkpoint.
+     *
+     * @param listed The number of nodes in the vertex list, the rest are only
+     * reached through edges
+     * @param ids The edge object of each node, null if no edge is shared
+     */
+    private void load(int listed, Object[] data, boolean[] connected, int[] offsets,
+            int[] targets, int[] ids, float[] weights) throws IOException {
+        int n = data.length;
+        Edge[] edges = new Edge[weights.length];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = Float.isNaN(weights[i]) ? null : new Edge(weights[i]);
+        }
+        Node[] nodes = new AdjacencyList.Node[n];
+        for (int v = 0; v < n; v++) {
+            nodes[v] = new Node(new Vertex<>((Data) data[v]));
+            nodes[v].vertex.setConnection(connected[v]);
+            if (v > 0 && v < listed) {
+                nodes[v - 1].nextVertex = nodes[v];
+            }
+        }
+        vertexListHead = (listed == 0) ? null : nodes[0];
+        for (int u = 0; u < n; u++) {
+            Node tail = nodes[u];
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int id = (ids == null) ? e : ids[e];
+                if (targets[e] < 0 || targets[e] >= n || id < 0 || id >= edges.length) {
+                    throw new IOException("The checkpoint is damaged");
+                }
+                tail = tail.nextEdge = new Node(nodes[targets[e]], edges[id]);
+            }
+        }
+    }
+    
+    /**
+     * Marks the vertices of a list built in one go the way adding its edges
+     * one at a time would have: the vertices with a path to the root vertex
+     * and every vertex that can be reached from those.
+     *
+     * @param graph The graph the list was built from
+     * @param nodes The vertex nodes in index order
+     */
+    private void markConnected(IndexedGraph<Data> graph, Node[] nodes) {
+        int n = nodes.length, tail = 0;
+        boolean[] marked = new boolean[n];
+        int[] queue = new int[n];
+        marked[0] = true;
+        queue[tail++] = 0;
+        if (isDirected) {
+            // Walk the edges backwards to find the vertices with a path to
+            // the root
+            int[] offsets = new int[n + 1], sources = new int[graph.getArcCount()];
+            for (int e = 0; e < sources.length; e++) {
+                offsets[graph.target(e) + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] next = Arrays.copyOf(offsets, n);
+            for (int u = 0; u < n; u++) {
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    sources[next[graph.target(e)]++] = u;
+                }
+            }
+            for (int head = 0; head < tail; head++) {
+                int v = queue[head];
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    if (!marked[sources[e]]) {
+                        marked[sources[e]] = true;
+                        queue[tail++] = sources[e];
+                    }
+                }
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int u = queue[head];
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int v = graph.target(e);
+                if (!marked[v]) {
+                    marked[v] = true;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            nodes[v].vertex.setConnection(marked[v]);
+        }
+        state = n - tail;
+    }
+    
     /**
      * Walks the graph making sure not to visit vertices already visited. If
      * the algorithm can get from start to finish then this method will return
@@ -1,13 +1,18 @@
 
 package jgraph.AdjList;
 
+import java.io.Serializable;
+
 /**
  * When using vertex representations other than String (Built in) then
  * you need to implement Comparable. Comparable tells the
- * graph API how to compare your objects.
+ * graph API how to compare your objects. Serializable lets a graph of
+ * cities be written to a checkpoint.
  * @author Richard DeSilvey
  */
-public class City implements Comparable<City>{
+public class City implements Comparable<City>, Serializable{
+
+    private static final long serialVersionUID = 1L;
 
     private String name;
     private float population; 
@@ -0,0 +1,906 @@
+package jgraph.AdjList;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Stack;
+import java.util.TreeMap;
+import jgraph.graph.Edge;
+import jgraph.graph.EdgeVisitor;
+import jgraph.graph.Graph;
+import jgraph.graph.IndexedGraph;
+import jgraph.graph.Vertex;
+import priorityqueue.PriorityQueue;
+
+/**
+ * A read only adjacency list that keeps the neighbors of each vertex
+ * compressed the way WebGraph does. Neighbors are sorted by index and stored
+ * as the gaps between them, each gap a variable length integer of seven bits
+ * per byte, so a neighbor close to the one before it takes a single byte.
+ * Runs of consecutive neighbors are stored as intervals, and a list can be
+ * stored as the parts it shares with the list of one of the few vertices just
+ * before it, which is common when similar vertices are numbered close
+ * together.
+ *
+ * Vertices keep the indices of the indexed graph the list is made from. The
+ * index methods decode neighbors straight from the compressed bytes and are
+ * the fast way to walk a large graph. Edge objects are made when they are
+ * asked for, so the two directions of an undirected edge are equal but not
+ * the same object. Every change method throws an
+ * UnsupportedOperationException.
+ *
+ * @param <Data> The type of data being used to represent each vertex of this
+ * graph.
+ */
+public class CompressedAdjacencyList<Data extends Comparable> extends Graph<Data> {
+
+    /**
+     * How many vertices back a list may look for a list to copy from.
+     */
+    public static final int DEFAULT_WINDOW = 7;
+
+    /**
+     * The longest chain of copies decoding one list may need.
+     */
+    public static final int DEFAULT_MAX_REF_COUNT = 3;
+
+    /**
+     * The shortest run of consecutive neighbors stored as an interval.
+     */
+    private static final int MIN_INTERVAL = 3;
+
+    /**
+     * The bytes are kept in pages of at most 2^30 bytes and no list is split
+     * between two pages.
+     */
+    private static final int PAGE_BITS = 30, PAGE_SIZE = 1 << PAGE_BITS;
+
+    private final byte[][] pages;
+
+    /**
+     * The page of each list in the high bits and where it starts in the
+     * page in the low bits.
+     */
+    private final long[] offsets;
+
+    private final Vertex<Data>[] vertices;
+    private final TreeMap<Data, Integer> indices;
+    private final int window, maxRefCount, arcCount;
+
+    /**
+     * True if every weight is a whole number and is stored as a variable
+     * length integer instead of a float.
+     */
+    private final boolean integralWeights;
+
+    /**
+     * Compresses a graph.
+     *
+     * @param graph The graph being compressed
+     */
+    public CompressedAdjacencyList(Graph<Data> graph) {
+        this(new IndexedGraph<>(graph));
+    }
+
+    /**
+     * Compresses an indexed graph.
+     *
+     * @param graph The graph being compressed
+     */
+    public CompressedAdjacencyList(IndexedGraph<Data> graph) {
+        this(graph, DEFAULT_WINDOW, DEFAULT_MAX_REF_COUNT);
+    }
+
+    /**
+     * Compresses an indexed graph. A larger window finds more lists to copy
+     * from and a longer chain of copies compresses better, both at the cost
+     * of slower compression and a longer chain makes reading slower too.
+     *
+     * @param graph The graph being compressed
+     * @param window How many vertices back to look for a list to copy, zero
+     * turns copying off
+     * @param maxRefCount The longest chain of copies
+     */
+    public CompressedAdjacencyList(IndexedGraph<Data> graph, int window, int maxRefCount) {
+        super(graph.isDirected(), graph.isWeighted());
+        if (window < 0 || maxRefCount < 0) {
+            throw new IllegalArgumentException("The window and the chain length can't be negative");
+        }
+        int n = graph.getVertexCount();
+        vertices = new Vertex[n];
+        indices = new TreeMap<>();
+        for (int v = 0; v < n; v++) {
+            vertices[v] = new Vertex<>(graph.getData(v));
+            indices.put(graph.getData(v), v);
+        }
+        this.window = (maxRefCount == 0) ? 0 : window;
+        this.maxRefCount = maxRefCount;
+
+        boolean integral = isWeighted;
+        int loops = 0;
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                float w = graph.weight(e);
+                integral &= (w >= 0 && w == (int) w);
+                if (graph.target(e) == u) {
+                    loops++;
+                }
+            }
+        }
+        integralWeights = integral;
+        arcCount = graph.getArcCount();
+        numVertices = n;
+        numEdges = isDirected ? graph.getArcCount() : (graph.getArcCount() + loops) / 2;
+
+        Encoder encoder = new Encoder(graph);
+        offsets = new long[n];
+        for (int v = 0; v < n; v++) {
+            offsets[v] = encoder.encode(v);
+        }
+        pages = encoder.finish();
+    }
+
+    /**
+     * Gets the number of bytes the compressed lists take up.
+     * @return The size of the lists in bytes
+     */
+    public long getByteSize() {
+        long size = 0;
+        for (byte[] page : pages) {
+            size += page.length;
+        }
+        return size;
+    }
+
+    /**
+     * Gets the average number of bits used for each stored edge, including
+     * its weight.
+     * @return The bits per edge
+     */
+    public double getBitsPerEdge() {
+        return (arcCount == 0) ? 0 : 8.0 * getByteSize() / arcCount;
+    }
+
+    /**
+     * Gets the index of a vertex.
+     * @param v The data of the vertex
+     * @return The index of the vertex or -1 if it isn't in this graph
+     */
+    public int indexOf(Data v) {
+        Integer index = indices.get(v);
+        return (index == null) ? -1 : index;
+    }
+
+    public Data getData(int v) {
+        return vertices[v].getData();
+    }
+
+    /**
+     * Gets the number of edges leaving a vertex, only the start of its list
+     * is read.
+     * @param v The vertex index
+     * @return The out degree
+     */
+    public int degree(int v) {
+        Decoder decoder = new Decoder();
+        decoder.seek(v);
+        return decoder.readVarint();
+    }
+
+    /**
+     * Decodes the neighbors of a vertex.
+     * @param v The vertex index
+     * @return The indices of the neighbors in increasing order
+     */
+    public int[] neighbors(int v) {
+        Decoder decoder = new Decoder();
+        int d = decoder.decode(v, 0);
+        return Arrays.copyOf(decoder.lists[0], d);
+    }
+
+    /**
+     * Decodes the weights of the edges leaving a vertex.
+     * @param v The vertex index
+     * @return The weights in the order of the neighbors, all zero if this
+     * graph isn't weighted
+     */
+    public float[] weights(int v) {
+        Decoder decoder = new Decoder();
+        int d = decoder.decode(v, 0);
+        return Arrays.copyOf(decoder.weights(d), d);
+    }
+
+    /**
+     * Walks the graph breadth first from a vertex decoding each list once.
+     *
+     * @param source The index of the vertex to start from
+     * @return The number of edges on the shortest path to each vertex, -1
+     * for vertices that can't be reached
+     */
+    public int[] breadthFirst(int source) {
+        int n = vertices.length;
+        int[] hops = new int[n], queue = new int[n];
+        Arrays.fill(hops, -1);
+        hops[source] = 0;
+        queue[0] = source;
+        int tail = 1;
+        Decoder decoder = new Decoder();
+        for (int head = 0; head < tail; head++) {
+            int u = queue[head];
+            int d = decoder.decode(u, 0);
+            int[] list = decoder.lists[0];
+            for (int i = 0; i < d; i++) {
+                int v = list[i];
+                if (hops[v] < 0) {
+                    hops[v] = hops[u] + 1;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return hops;
+    }
+
+    @Override
+    public boolean hasEdge(Data a, Data b) {
+        return findEdge(a, b) >= 0;
+    }
+
+    @Override
+    public Edge getEdge(Data a, Data b) {
+        int from = indexOf(a), to = indexOf(b);
+        if (from < 0 || to < 0) {
+            return null;
+        }
+        Decoder decoder = new Decoder();
+        int d = decoder.decode(from, 0);
+        int i = Arrays.binarySearch(decoder.lists[0], 0, d, to);
+        if (i < 0) {
+            return null;
+        }
+        return isWeighted ? new Edge(decoder.weights(d)[i]) : new Edge();
+    }
+
+    private int findEdge(Data a, Data b) {
+        int from = indexOf(a), to = indexOf(b);
+        if (from < 0 || to < 0) {
+            return -1;
+        }
+        Decoder decoder = new Decoder();
+        int d = decoder.decode(from, 0);
+        return Arrays.binarySearch(decoder.lists[0], 0, d, to);
+    }
+
+    @Override
+    public boolean hasVertex(Data vert) {
+        return indices.containsKey(vert);
+    }
+
+    @Override
+    public Vertex getVertex(Data v) {
+        Integer index = indices.get(v);
+        return (index == null) ? null : vertices[index];
+    }
+
+    @Override
+    public ArrayList<Vertex> getVertices() {
+        return new ArrayList<>(Arrays.asList(vertices));
+    }
+
+    @Override
+    public void forEachEdge(EdgeVisitor<Data, Edge> visitor) {
+        Decoder decoder = new Decoder();
+        for (int u = 0; u < vertices.length; u++) {
+            int d = decoder.decode(u, 0);
+            int[] list = decoder.lists[0];
+            float[] weights = decoder.weights(d);
+            for (int i = 0; i < d; i++) {
+                visitor.visit(vertices[u].getData(), vertices[list[i]].getData(),
+                        isWeighted ? new Edge(weights[i]) : new Edge());
+            }
+        }
+    }
+
+    @Override
+    public boolean addEdge(Data a, Data b, Edge edge) {
+        throw new UnsupportedOperationException("Compressed lists are read only");
+    }
+
+    @Override
+    public boolean addVertex(Vertex nvert) {
+        throw new UnsupportedOperationException("Compressed lists are read only");
+    }
+
+    @Override
+    public boolean deleteEdge(Data a, Data b) {
+        throw new UnsupportedOperationException("Compressed lists are read only");
+    }
+
+    @Override
+    public boolean deleteVertex(Data vert) {
+        throw new UnsupportedOperationException("Compressed lists are read only");
+    }
+
+    private float maxEdges() {
+        float denom = numVertices * (numVertices - 1);
+        return (isDirected ? denom : denom / 2f);
+    }
+
+    @Override
+    public boolean isSparse() {
+        if (numVertices == 1) {
+            return false;
+        }
+        return (numEdges / maxEdges()) <= AdjacencyList.SPARSE_RATIO;
+    }
+
+    @Override
+    public boolean isDense() {
+        if (numVertices == 1) {
+            return true;
+        }
+        return (numEdges / maxEdges()) >= AdjacencyList.DENSE_RATIO;
+    }
+
+    @Override
+    public boolean isFullyConnected() {
+        if (numVertices == 0) {
+            return false;
+        }
+        return numEdges == maxEdges();
+    }
+
+    /**
+     * A graph is connected when every vertex can be reached from the first
+     * one ignoring the direction of the edges. The lists are read once in
+     * order, joining the ends of each edge in a union find.
+     * @return True if the graph is connected
+     */
+    @Override
+    public boolean isConnected() {
+        int n = vertices.length, components = n;
+        int[] parent = new int[n];
+        for (int v = 0; v < n; v++) {
+            parent[v] = v;
+        }
+        Decoder decoder = new Decoder();
+        for (int u = 0; u < n; u++) {
+            int d = decoder.decode(u, 0);
+            int[] list = decoder.lists[0];
+            for (int i = 0; i < d; i++) {
+                int a = find(parent, u), b = find(parent, list[i]);
+                if (a != b) {
+                    parent[a] = b;
+                    components--;
+                }
+            }
+        }
+        return components <= 1;
+    }
+
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    @Override
+    public boolean hasCircuit(Data start) {
+        int from = indexOf(start);
+        if (from < 0) {
+            return false;
+        }
+        boolean[] seen = new boolean[vertices.length];
+        int[] next = new int[vertices.length];
+        int top = 0;
+        next[top++] = from;
+        Decoder decoder = new Decoder();
+        while (top > 0) {
+            int d = decoder.decode(next[--top], 0);
+            int[] list = decoder.lists[0];
+            for (int i = 0; i < d; i++) {
+                if (list[i] == from) {
+                    return true;
+                }
+                if (!seen[list[i]]) {
+                    seen[list[i]] = true;
+                    next[top++] = list[i];
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean shortestPaths(Data a) {
+        int from = indexOf(a);
+
+        if (!isConnected() || !isWeighted() || from < 0) {
+            return false;
+        }
+        for (Vertex<Data> vertex : vertices) {
+            vertex.dijkstra().setup();
+        }
+        PriorityQueue<Integer> queue = new PriorityQueue<>();
+        vertices[from].dijkstra().setDistance(0);
+        queue.enqueue(from, 0);
+
+        Decoder decoder = new Decoder();
+        while (!queue.isEmpty()) {
+            int current = queue.dequeue();
+            Vertex<Data> vertex = vertices[current];
+            if (vertex.dijkstra().isVisited()) {
+                continue;
+            }
+            float dist = vertex.dijkstra().getDistance();
+            int d = decoder.decode(current, 0);
+            int[] list = decoder.lists[0];
+            float[] weights = decoder.weights(d);
+            for (int i = 0; i < d; i++) {
+                Vertex<Data> other = vertices[list[i]];
+                if (!other.dijkstra().isVisited()) {
+                    float p = weights[i] + dist;
+                    if (p < other.dijkstra().getDistance()) {
+                        other.dijkstra().setDistance(p);
+                        other.dijkstra().setPred(current);
+                        queue.enqueue(list[i], p);
+                    }
+                }
+            }
+            vertex.dijkstra().setVisited(true);
+        }
+        return true;
+    }
+
+    @Override
+    public ArrayList<Vertex> shortestPath(Data a, Data b) {
+        int from = indexOf(a);
+        if (from < 0) {
+            return null;
+        }
+        if (vertices[from].dijkstra().getDistance() != 0) {
+            if (!shortestPaths(a)) {
+                return null;
+            }
+        }
+        ArrayList<Vertex> path = new ArrayList<>();
+        Stack<Vertex> predStack = new Stack<>();
+        int to = indexOf(b);
+        if (to >= 0) {
+            predStack.push(vertices[to]);
+            Integer pred = (Integer) vertices[to].dijkstra().getPredecessor();
+            while (pred != null) {
+                predStack.push(vertices[pred]);
+                pred = (Integer) vertices[pred].dijkstra().getPredecessor();
+            }
+        }
+        while (!predStack.isEmpty()) {
+            path.add(predStack.pop());
+        }
+        return path;
+    }
+
+    @Override
+    public boolean permuteShortestPaths(Data a, PrintStream stream) {
+        int from = indexOf(a);
+        if (from < 0 || !shortestPaths(a)) {
+            return false;
+        }
+        for (Vertex<Data> to : vertices) {
+            stream.println("shortestPath " + vertices[from] + " to " + to);
+            Graph.printPath(stream, shortestPath(a, to.getData()));
+        }
+        return true;
+    }
+
+    @Override
+    public void printGraph(PrintStream stream) {
+        StringBuilder graph = new StringBuilder();
+
+        graph.append(isWeighted ? "Weighted\n" : "Unweighted\n");
+        graph.append(isDirected ? "Digraph\n" : "Undigraph\n");
+
+        Decoder decoder = new Decoder();
+        for (int u = 0; u < vertices.length; u++) {
+            graph.append(vertices[u].getData()).append(" -> ");
+            int d = decoder.decode(u, 0);
+            int[] list = decoder.lists[0];
+            float[] weights = decoder.weights(d);
+            for (int i = 0; i < d; i++) {
+                if (i > 0) {
+                    graph.append(" ");
+                }
+                graph.append(vertices[list[i]].getData());
+                if (isWeighted) {
+                    graph.append("-").append(weights[i]);
+                }
+            }
+            graph.append("\n");
+        }
+        stream.println(graph.toString());
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * A growing array of bytes.
+     */
+    private static final class Output {
+
+        private byte[] bytes = new byte[64];
+        private int size;
+
+        private void write(int b) {
+            if (size == bytes.length) {
+                if (size == PAGE_SIZE) {
+                    throw new IllegalArgumentException("A list is too large to compress");
+                }
+                bytes = Arrays.copyOf(bytes, (int) Math.min(2L * size, PAGE_SIZE));
+            }
+            bytes[size++] = (byte) b;
+        }
+
+        /**
+         * Writes an unsigned integer seven bits at a time, the high bit of a
+         * byte is set when more bytes follow.
+         */
+        private void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        private void writeFloat(float value) {
+            int bits = Float.floatToRawIntBits(value);
+            write(bits >>> 24);
+            write(bits >>> 16);
+            write(bits >>> 8);
+            write(bits);
+        }
+
+        private void append(Output other) {
+            while (bytes.length - size < other.size) {
+                bytes = Arrays.copyOf(bytes, (int) Math.min(2L * bytes.length, PAGE_SIZE));
+            }
+            System.arraycopy(other.bytes, 0, bytes, size, other.size);
+            size += other.size;
+        }
+    }
+
+    /**
+     * Writes the lists one vertex at a time. Each list is written once for
+     * each list in the window it could copy from and the shortest one is
+     * kept.
+     *
+     * A list is its degree, then if copying is on the distance back to the
+     * list it copies from, zero for none, followed by the number of copy
+     * blocks and their lengths. The blocks take turns copying and skipping
+     * neighbors of the other list starting with copying, anything after the
+     * last block is skipped. Then comes the number of intervals with the
+     * start and length of each, and last the remaining neighbors as gaps.
+     * The first interval and the first remaining neighbor are stored as
+     * their distance from the vertex itself. Weights follow the neighbors.
+     */
+    private final class Encoder {
+
+        private final IndexedGraph<Data> graph;
+        private final ArrayList<byte[]> sealed = new ArrayList<>();
+        private Output page = new Output(), best = new Output(), trial = new Output();
+
+        /**
+         * The length of the chain of copies behind each list.
+         */
+        private final int[] chain;
+
+        private int[] rest = new int[16], blocks = new int[16];
+
+        private Encoder(IndexedGraph<Data> graph) {
+            this.graph = graph;
+            chain = new int[graph.getVertexCount()];
+        }
+
+        private long encode(int v) {
+            int d = graph.degree(v), ref = 0;
+            best.size = 0;
+            write(v, 0, best);
+            for (int r = 1; r <= window && r <= v && d > 0; r++) {
+                if (chain[v - r] >= maxRefCount || graph.degree(v - r) == 0) {
+                    continue;
+                }
+                trial.size = 0;
+                write(v, r, trial);
+                if (trial.size < best.size) {
+                    Output swap = best;
+                    best = trial;
+                    trial = swap;
+                    ref = r;
+                }
+            }
+            chain[v] = (ref == 0) ? 0 : chain[v - ref] + 1;
+            if (isWeighted) {
+                for (int e = graph.begin(v); e < graph.end(v); e++) {
+                    if (integralWeights) {
+                        best.varint((int) graph.weight(e));
+                    } else {
+                        best.writeFloat(graph.weight(e));
+                    }
+                }
+            }
+            if (PAGE_SIZE - page.size < best.size) {
+                sealed.add(Arrays.copyOf(page.bytes, page.size));
+                page = new Output();
+            }
+            long offset = ((long) sealed.size() << PAGE_BITS) | page.size;
+            page.append(best);
+            return offset;
+        }
+
+        private void write(int v, int r, Output out) {
+            int from = graph.begin(v), d = graph.degree(v);
+            out.varint(d);
+            if (d == 0) {
+                return;
+            }
+            if (window > 0) {
+                out.varint(r);
+            }
+            if (rest.length < d) {
+                rest = new int[d];
+            }
+            int count = 0, j = 0;
+            if (r > 0) {
+                // Walk the other list marking which of its neighbors are
+                // copied, the runs of copied and skipped become the blocks
+                int u = v - r, blockCount = 0, length = 0;
+                boolean copying = true;
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    int x = graph.target(e);
+                    while (j < d && graph.target(from + j) < x) {
+                        rest[count++] = graph.target(from + j++);
+                    }
+                    boolean copied = j < d && graph.target(from + j) == x;
+                    if (copied) {
+                        j++;
+                    }
+                    if (copied == copying) {
+                        length++;
+                    } else {
+                        blocks = addBlock(blocks, blockCount++, length);
+                        copying = copied;
+                        length = 1;
+                    }
+                }
+                if (copying) {
+                    blocks = addBlock(blocks, blockCount++, length);
+                }
+                out.varint(blockCount);
+                for (int b = 0; b < blockCount; b++) {
+                    out.varint((b == 0) ? blocks[b] : blocks[b] - 1);
+                }
+            }
+            while (j < d) {
+                rest[count++] = graph.target(from + j++);
+            }
+
+            // Runs long enough become intervals, the others stay in rest
+            int intervals = 0;
+            for (int i = 0; i < count;) {
+                int end = run(i, count);
+                if (end - i >= MIN_INTERVAL) {
+                    intervals++;
+                }
+                i = end;
+            }
+            out.varint(intervals);
+            int previous = 0, singles = 0;
+            boolean first = true;
+            for (int i = 0; i < count;) {
+                int end = run(i, count);
+                if (end - i >= MIN_INTERVAL) {
+                    out.varint(first ? zigzag(rest[i] - v) : rest[i] - previous - 1);
+                    out.varint(end - i - MIN_INTERVAL);
+                    previous = rest[end - 1] + 1;
+                    first = false;
+                } else {
+                    while (i < end) {
+                        rest[singles++] = rest[i++];
+                    }
+                }
+                i = end;
+            }
+            for (int i = 0; i < singles; i++) {
+                out.varint((i == 0) ? zigzag(rest[i] - v) : rest[i] - rest[i - 1] - 1);
+            }
+        }
+
+        /**
+         * Finds the end of the run of consecutive indices starting at i.
+         */
+        private int run(int i, int count) {
+            int end = i + 1;
+            while (end < count && rest[end] == rest[end - 1] + 1) {
+                end++;
+            }
+            return end;
+        }
+
+        private int[] addBlock(int[] blocks, int index, int length) {
+            if (index == blocks.length) {
+                blocks = Arrays.copyOf(blocks, index * 2);
+            }
+            blocks[index] = length;
+            return blocks;
+        }
+
+        private byte[][] finish() {
+            sealed.add(Arrays.copyOf(page.bytes, page.size));
+            return sealed.toArray(new byte[sealed.size()][]);
+        }
+    }
+
+    /**
+     * Reads lists back. A list that copies from another decodes that one
+     * first one level deeper, so each level has its own arrays. A decoder is
+     * not shared between threads but any number of them can read the lists
+     * at once.
+     */
+    private final class Decoder {
+
+        /**
+         * The decoded list at each level.
+         */
+        private final int[][] lists = new int[maxRefCount + 1][];
+        private final int[][] copies = new int[maxRefCount + 1][];
+        private final int[][] intervals = new int[maxRefCount + 1][];
+        private final int[][] singles = new int[maxRefCount + 1][];
+        private float[] weights = new float[16];
+
+        private byte[] page;
+        private int at;
+
+        private Decoder() {
+            for (int level = 0; level <= maxRefCount; level++) {
+                lists[level] = new int[16];
+                copies[level] = new int[16];
+                intervals[level] = new int[16];
+                singles[level] = new int[16];
+            }
+        }
+
+        private void seek(int v) {
+            long offset = offsets[v];
+            page = pages[(int) (offset >>> PAGE_BITS)];
+            at = (int) offset & (PAGE_SIZE - 1);
+        }
+
+        private int readVarint() {
+            byte b = page[at++];
+            if (b >= 0) {
+                return b;
+            }
+            int value = b & 0x7F, shift = 7;
+            do {
+                b = page[at++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        /**
+         * Decodes the list of a vertex into lists[level], afterwards the
+         * position is at the weights of the list.
+         *
+         * @return The degree of the vertex
+         */
+        private int decode(int v, int level) {
+            seek(v);
+            int d = readVarint();
+            if (lists[level].length < d) {
+                lists[level] = new int[d];
+                copies[level] = new int[d];
+                intervals[level] = new int[d];
+                singles[level] = new int[d];
+            }
+            if (d == 0) {
+                return 0;
+            }
+            int r = (window > 0) ? readVarint() : 0;
+            int[] copy = copies[level];
+            int copied = 0;
+            if (r > 0) {
+                byte[] savedPage = page;
+                int savedAt = at;
+                decode(v - r, level + 1);
+                int[] ref = lists[level + 1];
+                page = savedPage;
+                at = savedAt;
+                int blockCount = readVarint(), k = 0;
+                for (int b = 0; b < blockCount; b++) {
+                    int length = readVarint() + ((b == 0) ? 0 : 1);
+                    if ((b & 1) == 0) {
+                        System.arraycopy(ref, k, copy, copied, length);
+                        copied += length;
+                    }
+                    k += length;
+                }
+            }
+            int[] interval = intervals[level];
+            int count = 0, previous = 0;
+            int intervalCount = readVarint();
+            for (int i = 0; i < intervalCount; i++) {
+                int left = (i == 0) ? v + unzigzag(readVarint()) : previous + 1 + readVarint();
+                int length = readVarint() + MIN_INTERVAL;
+                for (int x = 0; x < length; x++) {
+                    interval[count++] = left + x;
+                }
+                previous = left + length;
+            }
+            int[] single = singles[level];
+            int singleCount = d - copied - count;
+            for (int i = 0; i < singleCount; i++) {
+                single[i] = (i == 0) ? v + unzigzag(readVarint()) : single[i - 1] + 1 + readVarint();
+            }
+
+            if (copied == 0 && count == 0) {
+                // Only gaps were stored, the list is already in order
+                singles[level] = lists[level];
+                lists[level] = single;
+                return d;
+            }
+
+            // Merge the three sorted parts
+            int[] list = lists[level];
+            int a = 0, b = 0, c = 0;
+            for (int o = 0; o < d; o++) {
+                int x = (a < copied) ? copy[a] : Integer.MAX_VALUE;
+                int y = (b < count) ? interval[b] : Integer.MAX_VALUE;
+                int z = (c < singleCount) ? single[c] : Integer.MAX_VALUE;
+                if (x < y && x < z) {
+                    list[o] = x;
+                    a++;
+                } else if (y < z) {
+                    list[o] = y;
+                    b++;
+                } else {
+                    list[o] = z;
+                    c++;
+                }
+            }
+            return d;
+        }
+
+        /**
+         * Reads the weights of the list decoded last at level zero.
+         */
+        private float[] weights(int d) {
+            if (weights.length < d) {
+                weights = new float[d];
+            }
+            if (!isWeighted) {
+                Arrays.fill(weights, 0, d, 0);
+                return weights;
+            }
+            for (int i = 0; i < d; i++) {
+                if (integralWeights) {
+                    weights[i] = readVarint();
+                } else {
+                    weights[i] = Float.intBitsToFloat(((page[at] & 0xFF) << 24)
+                            | ((page[at + 1] & 0xFF) << 16)
+                            | ((page[at + 2] & 0xFF) << 8) | (page[at + 3] & 0xFF));
+                    at += 4;
+                }
+            }
+            return weights;
+        }
+    }
+}
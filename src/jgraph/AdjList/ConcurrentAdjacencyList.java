@@ -0,0 +1,606 @@
+package jgraph.AdjList;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Stack;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import jgraph.graph.Edge;
+import jgraph.graph.EdgeVisitor;
+import jgraph.graph.Graph;
+import jgraph.graph.Vertex;
+import priorityqueue.PriorityQueue;
+
+/**
+ * An adjacency list that can be changed and read by many threads at once.
+ * The vertices and the edge list of each vertex are concurrent skip lists
+ * ordered by the data of the vertex, so lookups and walking neighbors never
+ * lock and never see a half linked list.
+ *
+ * Changes that touch an edge lock the stripes of both of its vertices, always
+ * in the same order, so writers on unrelated vertices don't block each other.
+ * The vertex and edge counts are atomic. Shortest path searches still keep
+ * their results in each vertex, so only one search runs at a time.
+ *
+ * @param <Data> The type of data being used to represent each vertex of this
+ * graph.
+ */
+public class ConcurrentAdjacencyList<Data extends Comparable> extends Graph<Data> {
+
+    /**
+     * A vertex and its edges. A directed graph also keeps the edges coming
+     * in so a vertex can be deleted without scanning every other vertex.
+     */
+    private class Entry {
+
+        private final Vertex<Data> vertex;
+
+        /**
+         * Picks the lock stripe of this vertex.
+         */
+        private final int id;
+
+        private final ConcurrentSkipListMap<Data, Link> out;
+        private final ConcurrentSkipListMap<Data, Link> in;
+
+        /**
+         * Set under the stripe lock once the vertex is deleted, after that
+         * no edge can be added to it.
+         */
+        private volatile boolean removed;
+
+        private Entry(Vertex<Data> vertex, int id) {
+            this.vertex = vertex;
+            this.id = id;
+            out = new ConcurrentSkipListMap<>();
+            in = new ConcurrentSkipListMap<>();
+        }
+
+        public String toString() {
+            return vertex.toString();
+        }
+    }
+
+    /**
+     * An edge held in an edge list along with the vertex it leads to, so a
+     * vertex that was deleted and added again is never confused with the
+     * old one.
+     */
+    private class Link {
+
+        private final Entry target;
+        private final Edge edge;
+
+        private Link(Entry target, Edge edge) {
+            this.target = target;
+            this.edge = edge;
+        }
+    }
+
+    private final ConcurrentSkipListMap<Data, Entry> vertices;
+    private final ReentrantLock[] stripes;
+    private final AtomicInteger vertexCount, edgeCount, nextId;
+
+    /**
+     * Only one shortest path search can store its results at a time.
+     */
+    private final Object searchLock;
+
+    /**
+     * Counts the changes made to this graph. A search remembers the count it
+     * started at, its results are only reused while the count is the same.
+     */
+    private final AtomicLong changes;
+    private long searchedAt;
+
+    public ConcurrentAdjacencyList() {
+        this(false, false);
+    }
+
+    /**
+     * Creates an empty graph with a lock stripe count based on the number
+     * of processors.
+     * @param directed If this graph is directed
+     * @param weighted If this graph is weighted
+     */
+    public ConcurrentAdjacencyList(boolean directed, boolean weighted) {
+        this(directed, weighted, Runtime.getRuntime().availableProcessors() * 16);
+    }
+
+    /**
+     * Creates an empty graph.
+     * @param directed If this graph is directed
+     * @param weighted If this graph is weighted
+     * @param stripeCount The number of locks shared by the vertices, rounded
+     * up to a power of two
+     */
+    public ConcurrentAdjacencyList(boolean directed, boolean weighted, int stripeCount) {
+        super(directed, weighted);
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        vertices = new ConcurrentSkipListMap<>();
+        vertexCount = new AtomicInteger();
+        edgeCount = new AtomicInteger();
+        nextId = new AtomicInteger();
+        searchLock = new Object();
+        changes = new AtomicLong();
+        searchedAt = -1;
+    }
+
+    @Override
+    public boolean hasEdge(Data a, Data b) {
+        return getEdge(a, b) != null;
+    }
+
+    @Override
+    public Edge getEdge(Data a, Data b) {
+        Entry from = vertices.get(a);
+        if (from == null) {
+            return null;
+        }
+        Link link = from.out.get(b);
+        return (link == null) ? null : link.edge;
+    }
+
+    @Override
+    public boolean hasVertex(Data vert) {
+        return vertices.containsKey(vert);
+    }
+
+    @Override
+    public Vertex getVertex(Data v) {
+        Entry entry = vertices.get(v);
+        return (entry == null) ? null : entry.vertex;
+    }
+
+    @Override
+    public ArrayList<Vertex> getVertices() {
+        ArrayList<Vertex> list = new ArrayList<>(vertexCount.get());
+        for (Entry entry : vertices.values()) {
+            list.add(entry.vertex);
+        }
+        return list;
+    }
+
+    /**
+     * Gets the vertices that vertex v has an edge to without locking.
+     * @param v The vertex
+     * @return The neighbors of v, empty if v isn't in the graph
+     */
+    public ArrayList<Vertex> getNeighbors(Data v) {
+        ArrayList<Vertex> list = new ArrayList<>();
+        Entry entry = vertices.get(v);
+        if (entry != null) {
+            for (Link link : entry.out.values()) {
+                list.add(link.target.vertex);
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void forEachEdge(EdgeVisitor<Data, Edge> visitor) {
+        for (Entry entry : vertices.values()) {
+            for (Link link : entry.out.values()) {
+                visitor.visit(entry.vertex.getData(),
+                        link.target.vertex.getData(), link.edge);
+            }
+        }
+    }
+
+    /**
+     * Helper method for adding a new vertex without needing to pass
+     * a new vertex object.
+     * @param v The new vertex being added
+     * @return True if the vertex was added, false otherwise.
+     */
+    public boolean addVertex(Data v) {
+        return addVertex(new Vertex(v));
+    }
+
+    @Override
+    public boolean addVertex(Vertex nvert) {
+        Entry entry = new Entry(nvert, nextId.getAndIncrement());
+        // Holding the stripe keeps the edges of this vertex from being
+        // published before the vertex itself
+        ReentrantLock lock = stripe(entry);
+        lock.lock();
+        try {
+            if (vertices.putIfAbsent((Data) nvert.getData(), entry) == null) {
+                vertexCount.incrementAndGet();
+                changes.incrementAndGet();
+                vertexAdded((Data) nvert.getData());
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean addEdge(Data a, Data b, Edge edge) {
+
+        if (isWeighted && edge.getWeight() < 1) {
+            throw new RuntimeException("Can't add a non-weighted edge to a "
+                    + "weighted graph");
+        }
+        Entry from = vertices.get(a), to = vertices.get(b);
+        if (from == null || to == null || from == to) {
+            return false;
+        }
+        lock(from, to);
+        try {
+            if (from.removed || to.removed || from.out.containsKey(b)) {
+                return false;
+            }
+            from.out.put(b, new Link(to, edge));
+            if (isDirected) {
+                to.in.put(a, new Link(from, edge));
+            } else {
+                to.out.put(a, new Link(from, edge));
+            }
+            edgeCount.incrementAndGet();
+            changes.incrementAndGet();
+            edgeAdded(a, b, edge);
+            return true;
+        } finally {
+            unlock(from, to);
+        }
+    }
+
+    /**
+     * Swaps the edge from A to B while holding the stripes of both vertices,
+     * so no other change to the edge can land in between.
+     */
+    @Override
+    public boolean updateEdge(Data a, Data b, Edge edge) {
+
+        if (isWeighted && edge.getWeight() < 1) {
+            throw new RuntimeException("Can't add a non-weighted edge to a "
+                    + "weighted graph");
+        }
+        Entry from = vertices.get(a), to = vertices.get(b);
+        if (from == null || to == null) {
+            return false;
+        }
+        lock(from, to);
+        try {
+            Link link = from.out.get(b);
+            if (from.removed || to.removed || link == null || link.target != to) {
+                return false;
+            }
+            from.out.put(b, new Link(to, edge));
+            if (isDirected) {
+                to.in.put(a, new Link(from, edge));
+            } else {
+                to.out.put(a, new Link(from, edge));
+            }
+            changes.incrementAndGet();
+            edgeReweighted(a, b, edge, link.edge);
+            return true;
+        } finally {
+            unlock(from, to);
+        }
+    }
+
+    @Override
+    public boolean deleteEdge(Data a, Data b) {
+        Entry from = vertices.get(a), to = vertices.get(b);
+        if (from == null || to == null) {
+            return false;
+        }
+        lock(from, to);
+        try {
+            if (unlink(from, to)) {
+                edgeDeleted(a, b);
+                return true;
+            }
+            return false;
+        } finally {
+            unlock(from, to);
+        }
+    }
+
+    @Override
+    public boolean deleteVertex(Data vert) {
+        Entry entry = vertices.get(vert);
+        if (entry == null) {
+            return false;
+        }
+        ReentrantLock lock = stripe(entry);
+        lock.lock();
+        try {
+            if (entry.removed) {
+                return false;
+            }
+            entry.removed = true;
+            vertices.remove(vert, entry);
+            vertexCount.decrementAndGet();
+            changes.incrementAndGet();
+            vertexDeleted(vert);
+        } finally {
+            lock.unlock();
+        }
+
+        ArrayList<Link> adjacent = new ArrayList<>(entry.out.values());
+        adjacent.addAll(entry.in.values());
+        for (Link link : adjacent) {
+            Entry other = link.target;
+            lock(entry, other);
+            try {
+                unlink(entry, other);
+                unlink(other, entry);
+            } finally {
+                unlock(entry, other);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the edge from one vertex to another. Both stripes must be
+     * held.
+     */
+    private boolean unlink(Entry from, Entry to) {
+        Data a = from.vertex.getData(), b = to.vertex.getData();
+        Link link = from.out.get(b);
+        if (link == null || link.target != to) {
+            return false;
+        }
+        from.out.remove(b);
+        ConcurrentSkipListMap<Data, Link> back = isDirected ? to.in : to.out;
+        Link mirror = back.get(a);
+        if (mirror != null && mirror.target == from) {
+            back.remove(a);
+        }
+        edgeCount.decrementAndGet();
+        changes.incrementAndGet();
+        return true;
+    }
+
+    private ReentrantLock stripe(Entry entry) {
+        return stripes[entry.id & (stripes.length - 1)];
+    }
+
+    /**
+     * Locks the stripes of two vertices, the lower stripe first so two
+     * writers can't wait on each other.
+     */
+    private void lock(Entry a, Entry b) {
+        int i = a.id & (stripes.length - 1), j = b.id & (stripes.length - 1);
+        if (i == j) {
+            stripes[i].lock();
+        } else {
+            stripes[Math.min(i, j)].lock();
+            stripes[Math.max(i, j)].lock();
+        }
+    }
+
+    private void unlock(Entry a, Entry b) {
+        int i = a.id & (stripes.length - 1), j = b.id & (stripes.length - 1);
+        stripes[i].unlock();
+        if (i != j) {
+            stripes[j].unlock();
+        }
+    }
+
+    @Override
+    public int getVertexCount() {
+        return vertexCount.get();
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return edgeCount.get();
+    }
+
+    private float maxEdges() {
+        float n = vertexCount.get();
+        float denom = n * (n - 1);
+        return (isDirected ? denom : denom / 2f);
+    }
+
+    @Override
+    public boolean isSparse() {
+        if (vertexCount.get() == 1) {
+            return false;
+        }
+        return (edgeCount.get() / maxEdges()) <= AdjacencyList.SPARSE_RATIO;
+    }
+
+    @Override
+    public boolean isDense() {
+        if (vertexCount.get() == 1) {
+            return true;
+        }
+        return (edgeCount.get() / maxEdges()) >= AdjacencyList.DENSE_RATIO;
+    }
+
+    @Override
+    public boolean isFullyConnected() {
+        if (vertexCount.get() == 0) {
+            return false;
+        }
+        return edgeCount.get() == maxEdges();
+    }
+
+    /**
+     * A graph is connected when every vertex can be reached from the first
+     * one ignoring the direction of the edges.
+     * @return True if the graph is connected
+     */
+    @Override
+    public boolean isConnected() {
+        Map.Entry<Data, Entry> first = vertices.firstEntry();
+        if (first == null) {
+            return true;
+        }
+        Set<Entry> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<Entry> next = new ArrayDeque<>();
+        seen.add(first.getValue());
+        next.add(first.getValue());
+        while (!next.isEmpty()) {
+            Entry entry = next.poll();
+            visitAll(entry.out, seen, next);
+            visitAll(entry.in, seen, next);
+        }
+        return seen.size() >= vertices.size();
+    }
+
+    private void visitAll(Map<Data, Link> edges, Set<Entry> seen,
+            ArrayDeque<Entry> next) {
+        for (Link link : edges.values()) {
+            if (!link.target.removed && seen.add(link.target)) {
+                next.add(link.target);
+            }
+        }
+    }
+
+    @Override
+    public boolean hasCircuit(Data start) {
+        Entry entry = vertices.get(start);
+        if (entry == null) {
+            return false;
+        }
+        Set<Entry> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Stack<Entry> next = new Stack<>();
+        next.push(entry);
+        while (!next.isEmpty()) {
+            Entry current = next.pop();
+            for (Link link : current.out.values()) {
+                if (link.target == entry) {
+                    return true;
+                }
+                if (seen.add(link.target)) {
+                    next.push(link.target);
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean shortestPaths(Data a) {
+        Entry from = vertices.get(a);
+
+        if (!isConnected() || !isWeighted() || from == null) {
+            return false;
+        }
+        synchronized (searchLock) {
+            searchedAt = changes.get();
+            for (Entry entry : vertices.values()) {
+                entry.vertex.dijkstra().setup();
+            }
+            PriorityQueue<Entry> queue = new PriorityQueue<>();
+            from.vertex.dijkstra().setDistance(0);
+            queue.enqueue(from, 0);
+
+            while (!queue.isEmpty()) {
+                Entry current = queue.dequeue();
+                if (current.vertex.dijkstra().isVisited()) {
+                    continue;
+                }
+                float dist = current.vertex.dijkstra().getDistance();
+                for (Link link : current.out.values()) {
+                    Entry other = link.target;
+                    if (other.removed || other.vertex.dijkstra().isVisited()) {
+                        continue;
+                    }
+                    float p = link.edge.getWeight() + dist;
+                    if (p < other.vertex.dijkstra().getDistance()) {
+                        other.vertex.dijkstra().setDistance(p);
+                        other.vertex.dijkstra().setPred(current);
+                        queue.enqueue(other, p);
+                    }
+                }
+                current.vertex.dijkstra().setVisited(true);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public ArrayList<Vertex> shortestPath(Data a, Data b) {
+        Entry from = vertices.get(a);
+        if (from == null) {
+            return null;
+        }
+        synchronized (searchLock) {
+            if (from.vertex.dijkstra().getDistance() != 0
+                    || searchedAt != changes.get()) {
+                if (!shortestPaths(a)) {
+                    return null;
+                }
+            }
+            ArrayList<Vertex> path = new ArrayList<>();
+            Stack<Vertex> predStack = new Stack<>();
+            Entry to = vertices.get(b);
+            if (to != null) {
+                predStack.push(to.vertex);
+                Entry pred = (Entry) to.vertex.dijkstra().getPredecessor();
+                while (pred != null) {
+                    predStack.push(pred.vertex);
+                    pred = (Entry) pred.vertex.dijkstra().getPredecessor();
+                }
+            }
+            while (!predStack.isEmpty()) {
+                path.add(predStack.pop());
+            }
+            return path;
+        }
+    }
+
+    @Override
+    public boolean permuteShortestPaths(Data a, PrintStream stream) {
+        Entry from = vertices.get(a);
+        if (from == null) {
+            return false;
+        }
+        synchronized (searchLock) {
+            if (!shortestPaths(a)) {
+                return false;
+            }
+            for (Entry to : vertices.values()) {
+                stream.println("shortestPath " + from + " to " + to);
+                Graph.printPath(stream, shortestPath(a, to.vertex.getData()));
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void printGraph(PrintStream stream) {
+        StringBuilder graph = new StringBuilder();
+
+        graph.append(isWeighted ? "Weighted\n" : "Unweighted\n");
+        graph.append(isDirected ? "Digraph\n" : "Undigraph\n");
+
+        for (Entry entry : vertices.values()) {
+            graph.append(entry.vertex.getData()).append(" -> ");
+            boolean first = true;
+            for (Link link : entry.out.values()) {
+                if (!first) {
+                    graph.append(" ");
+                }
+                graph.append(link.target.vertex.getData());
+                if (isWeighted) {
+                    graph.append("-").append(link.edge.getWeight());
+                }
+                first = false;
+            }
+            graph.append("\n");
+        }
+        stream.println(graph.toString());
+    }
+}
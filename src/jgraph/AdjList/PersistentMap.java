@@ -0,0 +1,197 @@
+package jgraph.AdjList;
+
+import java.util.ArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable sorted map backed by an AVL tree. Putting or removing a key
+ * returns a new map that shares every node with the old map except the ones
+ * on the path to the key, so old versions stay valid and cost nothing until
+ * they are dropped.
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+final class PersistentMap<K extends Comparable, V> {
+
+    private static final PersistentMap EMPTY = new PersistentMap(null, 0);
+
+    private static final class Node<K, V> {
+
+        private final K key;
+        private final V value;
+        private final Node<K, V> left, right;
+        private final int height;
+
+        private Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    private final Node<K, V> root;
+    private final int size;
+
+    private PersistentMap(Node<K, V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    static <K extends Comparable, V> PersistentMap<K, V> empty() {
+        return EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int c = key.compareTo(node.key);
+            if (c == 0) {
+                return node.value;
+            }
+            node = (c < 0) ? node.left : node.right;
+        }
+        return null;
+    }
+
+    boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Gets the entry with the smallest key.
+     * @return The first value or null if the map is empty
+     */
+    V first() {
+        Node<K, V> node = root;
+        if (node == null) {
+            return null;
+        }
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.value;
+    }
+
+    PersistentMap<K, V> put(K key, V value) {
+        boolean[] added = new boolean[1];
+        Node<K, V> node = put(root, key, value, added);
+        return new PersistentMap<>(node, added[0] ? size + 1 : size);
+    }
+
+    PersistentMap<K, V> remove(K key) {
+        if (get(key) == null) {
+            return this;
+        }
+        return new PersistentMap<>(remove(root, key), size - 1);
+    }
+
+    /**
+     * Hands every entry to the consumer in key order.
+     * @param consumer The consumer of each key and value
+     */
+    void forEach(BiConsumer<K, V> consumer) {
+        forEach(root, consumer);
+    }
+
+    /**
+     * Gets the keys in order.
+     * @return A new list of the keys
+     */
+    ArrayList<K> keys() {
+        ArrayList<K> keys = new ArrayList<>(size);
+        forEach((K key, V value) -> keys.add(key));
+        return keys;
+    }
+
+    /**
+     * Gets the values in key order.
+     * @return A new list of the values
+     */
+    ArrayList<V> values() {
+        ArrayList<V> values = new ArrayList<>(size);
+        forEach((K key, V value) -> values.add(value));
+        return values;
+    }
+
+    private static <K, V> void forEach(Node<K, V> node, BiConsumer<K, V> consumer) {
+        while (node != null) {
+            forEach(node.left, consumer);
+            consumer.accept(node.key, node.value);
+            node = node.right;
+        }
+    }
+
+    private static <K extends Comparable, V> Node<K, V> put(Node<K, V> node,
+            K key, V value, boolean[] added) {
+        if (node == null) {
+            added[0] = true;
+            return new Node<>(key, value, null, null);
+        }
+        int c = key.compareTo(node.key);
+        if (c == 0) {
+            return new Node<>(key, value, node.left, node.right);
+        } else if (c < 0) {
+            return balance(node.key, node.value, put(node.left, key, value, added), node.right);
+        } else {
+            return balance(node.key, node.value, node.left, put(node.right, key, value, added));
+        }
+    }
+
+    private static <K extends Comparable, V> Node<K, V> remove(Node<K, V> node, K key) {
+        int c = key.compareTo(node.key);
+        if (c < 0) {
+            return balance(node.key, node.value, remove(node.left, key), node.right);
+        } else if (c > 0) {
+            return balance(node.key, node.value, node.left, remove(node.right, key));
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node<K, V> min = node.right;
+        while (min.left != null) {
+            min = min.left;
+        }
+        return balance(min.key, min.value, node.left, remove(node.right, min.key));
+    }
+
+    private static int height(Node node) {
+        return (node == null) ? 0 : node.height;
+    }
+
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int diff = height(left) - height(right);
+        if (diff > 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.key, left.value, left.left,
+                        new Node<>(key, value, left.right, right));
+            }
+            return new Node<>(left.right.key, left.right.value,
+                    new Node<>(left.key, left.value, left.left, left.right.left),
+                    new Node<>(key, value, left.right.right, right));
+        }
+        if (diff < -1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(right.key, right.value,
+                        new Node<>(key, value, left, right.left), right.right);
+            }
+            return new Node<>(right.left.key, right.left.value,
+                    new Node<>(key, value, left, right.left.left),
+                    new Node<>(right.key, right.value, right.left.right, right.right));
+        }
+        return new Node<>(key, value, left, right);
+    }
+}
@@ -0,0 +1,342 @@
+package jgraph.AdjList;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Stack;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import jgraph.AdjList.VersionedAdjacencyList.State;
+import jgraph.AdjList.VersionedAdjacencyList.VertexNode;
+import jgraph.graph.Edge;
+import jgraph.graph.EdgeVisitor;
+import jgraph.graph.Graph;
+import jgraph.graph.Vertex;
+import priorityqueue.PriorityQueue;
+
+/**
+ * A read only version of a VersionedAdjacencyList. Nothing a writer does to
+ * the graph after the snapshot was taken is seen here. Every change method
+ * throws an UnsupportedOperationException.
+ *
+ * A snapshot gives out its own copies of the vertices, made the first time
+ * they are asked for, so a shortest path search on the snapshot never
+ * disturbs a search on the graph or on another snapshot.
+ *
+ * @param <Data> The type of data being used to represent each vertex of this
+ * graph.
+ */
+public class Snapshot<Data extends Comparable> extends Graph<Data> implements AutoCloseable {
+
+    private final VersionedAdjacencyList<Data> owner;
+    private final State<Data> state;
+
+    /**
+     * True if the vertex objects of the graph are used instead of copies.
+     * Their search results may come from another version, so a shared view
+     * searches again for every path and the graph runs one search at a
+     * time.
+     */
+    private final boolean shared;
+
+    private final TreeMap<Data, Vertex<Data>> copies;
+    private boolean released;
+
+    Snapshot(VersionedAdjacencyList<Data> owner, State<Data> state,
+            boolean directed, boolean weighted, boolean shared) {
+        super(directed, weighted);
+        this.owner = owner;
+        this.state = state;
+        this.shared = shared;
+        numVertices = state.numVertices;
+        numEdges = state.numEdges;
+        copies = shared ? null : new TreeMap<>();
+    }
+
+    /**
+     * Gets the version of the graph this snapshot holds.
+     * @return The version number
+     */
+    public long getVersion() {
+        return state.version;
+    }
+
+    /**
+     * Tells the graph this snapshot is no longer being read. Releasing twice
+     * does nothing.
+     */
+    public void release() {
+        if (owner != null && !released) {
+            released = true;
+            owner.release(state.version);
+        }
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+    private Vertex<Data> vertexOf(VertexNode<Data> node) {
+        if (shared) {
+            return node.vertex;
+        }
+        Data data = node.vertex.getData();
+        Vertex<Data> copy = copies.get(data);
+        if (copy == null) {
+            copy = new Vertex<>(data);
+            copies.put(data, copy);
+        }
+        return copy;
+    }
+
+    @Override
+    public boolean hasEdge(Data a, Data b) {
+        return getEdge(a, b) != null;
+    }
+
+    @Override
+    public Edge getEdge(Data a, Data b) {
+        VertexNode<Data> from = state.vertices.get(a);
+        return (from == null) ? null : from.out.get(b);
+    }
+
+    @Override
+    public boolean hasVertex(Data vert) {
+        return state.vertices.containsKey(vert);
+    }
+
+    @Override
+    public Vertex getVertex(Data v) {
+        VertexNode<Data> node = state.vertices.get(v);
+        return (node == null) ? null : vertexOf(node);
+    }
+
+    @Override
+    public ArrayList<Vertex> getVertices() {
+        ArrayList<Vertex> vertices = new ArrayList<>(state.numVertices);
+        for (VertexNode<Data> node : state.vertices.values()) {
+            vertices.add(vertexOf(node));
+        }
+        return vertices;
+    }
+
+    @Override
+    public void forEachEdge(EdgeVisitor<Data, Edge> visitor) {
+        state.vertices.forEach((Data from, VertexNode<Data> node) -> {
+            node.out.forEach((Data to, Edge edge) -> visitor.visit(from, to, edge));
+        });
+    }
+
+    @Override
+    public boolean addEdge(Data a, Data b, Edge edge) {
+        throw new UnsupportedOperationException("Snapshots are read only");
+    }
+
+    @Override
+    public boolean addVertex(Vertex nvert) {
+        throw new UnsupportedOperationException("Snapshots are read only");
+    }
+
+    @Override
+    public boolean deleteEdge(Data a, Data b) {
+        throw new UnsupportedOperationException("Snapshots are read only");
+    }
+
+    @Override
+    public boolean deleteVertex(Data vert) {
+        throw new UnsupportedOperationException("Snapshots are read only");
+    }
+
+    private float maxEdges() {
+        float denom = numVertices * (numVertices - 1);
+        return (isDirected ? denom : denom / 2f);
+    }
+
+    @Override
+    public boolean isSparse() {
+        if (numVertices == 1) {
+            return false;
+        }
+        return (numEdges / maxEdges()) <= AdjacencyList.SPARSE_RATIO;
+    }
+
+    @Override
+    public boolean isDense() {
+        if (numVertices == 1) {
+            return true;
+        }
+        return (numEdges / maxEdges()) >= AdjacencyList.DENSE_RATIO;
+    }
+
+    @Override
+    public boolean isFullyConnected() {
+        if (numVertices == 0) {
+            return false;
+        }
+        return numEdges == maxEdges();
+    }
+
+    /**
+     * A graph is connected when every vertex can be reached from the first
+     * one ignoring the direction of the edges.
+     * @return True if the graph is connected
+     */
+    @Override
+    public boolean isConnected() {
+        VertexNode<Data> first = state.vertices.first();
+        if (first == null) {
+            return true;
+        }
+        TreeSet<Data> seen = new TreeSet<>();
+        ArrayDeque<VertexNode<Data>> next = new ArrayDeque<>();
+        seen.add(first.vertex.getData());
+        next.add(first);
+        while (!next.isEmpty()) {
+            VertexNode<Data> node = next.poll();
+            for (Data data : node.out.keys()) {
+                if (seen.add(data)) {
+                    next.add(state.vertices.get(data));
+                }
+            }
+            for (Data data : node.in.keys()) {
+                if (seen.add(data)) {
+                    next.add(state.vertices.get(data));
+                }
+            }
+        }
+        return seen.size() == state.numVertices;
+    }
+
+    @Override
+    public boolean hasCircuit(Data start) {
+        VertexNode<Data> node = state.vertices.get(start);
+        if (node == null) {
+            return false;
+        }
+        TreeSet<Data> seen = new TreeSet<>();
+        Stack<VertexNode<Data>> next = new Stack<>();
+        next.push(node);
+        while (!next.isEmpty()) {
+            for (Data data : next.pop().out.keys()) {
+                if (data.compareTo(start) == 0) {
+                    return true;
+                }
+                if (seen.add(data)) {
+                    next.push(state.vertices.get(data));
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean shortestPaths(Data a) {
+        VertexNode<Data> from = state.vertices.get(a);
+
+        if (!isConnected() || !isWeighted() || from == null) {
+            return false;
+        }
+        for (VertexNode<Data> node : state.vertices.values()) {
+            vertexOf(node).dijkstra().setup();
+        }
+        PriorityQueue<VertexNode<Data>> queue = new PriorityQueue<>();
+        vertexOf(from).dijkstra().setDistance(0);
+        queue.enqueue(from, 0);
+
+        while (!queue.isEmpty()) {
+            VertexNode<Data> current = queue.dequeue();
+            Vertex<Data> vertex = vertexOf(current);
+            if (vertex.dijkstra().isVisited()) {
+                continue;
+            }
+            float dist = vertex.dijkstra().getDistance();
+            current.out.forEach((Data data, Edge edge) -> {
+                VertexNode<Data> node = state.vertices.get(data);
+                Vertex<Data> other = vertexOf(node);
+                if (!other.dijkstra().isVisited()) {
+                    float p = edge.getWeight() + dist;
+                    if (p < other.dijkstra().getDistance()) {
+                        other.dijkstra().setDistance(p);
+                        other.dijkstra().setPred(current);
+                        queue.enqueue(node, p);
+                    }
+                }
+            });
+            vertex.dijkstra().setVisited(true);
+        }
+        return true;
+    }
+
+    @Override
+    public ArrayList<Vertex> shortestPath(Data a, Data b) {
+        VertexNode<Data> from = state.vertices.get(a);
+        if (from == null) {
+            return null;
+        }
+        if (shared || vertexOf(from).dijkstra().getDistance() != 0) {
+            if (!shortestPaths(a)) {
+                return null;
+            }
+        }
+        return pathTo(b);
+    }
+
+    /**
+     * Follows the predecessors left by the last search back from B.
+     */
+    private ArrayList<Vertex> pathTo(Data b) {
+        ArrayList<Vertex> path = new ArrayList<>();
+        Stack<Vertex> predStack = new Stack<>();
+        VertexNode<Data> to = state.vertices.get(b);
+        if (to != null) {
+            predStack.push(vertexOf(to));
+            VertexNode<Data> pred = (VertexNode<Data>) vertexOf(to).dijkstra().getPredecessor();
+            while (pred != null) {
+                predStack.push(vertexOf(pred));
+                pred = (VertexNode<Data>) vertexOf(pred).dijkstra().getPredecessor();
+            }
+        }
+        while (!predStack.isEmpty()) {
+            path.add(predStack.pop());
+        }
+        return path;
+    }
+
+    @Override
+    public boolean permuteShortestPaths(Data a, PrintStream stream) {
+        VertexNode<Data> from = state.vertices.get(a);
+        if (from == null || !shortestPaths(a)) {
+            return false;
+        }
+        for (VertexNode<Data> to : state.vertices.values()) {
+            stream.println("shortestPath " + from.vertex + " to " + to.vertex);
+            Graph.printPath(stream, pathTo(to.vertex.getData()));
+        }
+        return true;
+    }
+
+    @Override
+    public void printGraph(PrintStream stream) {
+        StringBuilder graph = new StringBuilder();
+
+        graph.append(isWeighted ? "Weighted\n" : "Unweighted\n");
+        graph.append(isDirected ? "Digraph\n" : "Undigraph\n");
+
+        state.vertices.forEach((Data data, VertexNode<Data> node) -> {
+            graph.append(data).append(" -> ");
+            ArrayList<Data> targets = node.out.keys();
+            for (int i = 0; i < targets.size(); i++) {
+                if (i > 0) {
+                    graph.append(" ");
+                }
+                graph.append(targets.get(i));
+                if (isWeighted) {
+                    graph.append("-").append(node.out.get(targets.get(i)).getWeight());
+                }
+            }
+            graph.append("\n");
+        });
+        stream.println(graph.toString());
+    }
+}
@@ -0,0 +1,388 @@
+package jgraph.AdjList;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.TreeMap;
+import jgraph.graph.Edge;
+import jgraph.graph.EdgeVisitor;
+import jgraph.graph.Graph;
+import jgraph.graph.Vertex;
+
+/**
+ * An adjacency list that keeps every version of itself. The vertex list and
+ * the edge list of each vertex are persistent maps, so a change copies only
+ * the few tree nodes on the path to what changed and publishes the result as
+ * a new version. Taking a snapshot just grabs the current version, which
+ * costs the same no matter how large the graph is.
+ *
+ * A snapshot is a read only graph that never changes, so long running
+ * searches can run against it while writers keep changing this graph.
+ * Versions nobody holds are reclaimed by the garbage collector, releasing a
+ * snapshot drops this graph's record of the reader.
+ *
+ * @param <Data> The type of data being used to represent each vertex of this
+ * graph.
+ */
+public class VersionedAdjacencyList<Data extends Comparable> extends Graph<Data> {
+
+    /**
+     * A vertex and its edges at one version. A directed graph also keeps the
+     * edges coming in so a vertex can be deleted without scanning every
+     * other vertex.
+     */
+    static final class VertexNode<Data extends Comparable> {
+
+        final Vertex<Data> vertex;
+        final PersistentMap<Data, Edge> out, in;
+
+        VertexNode(Vertex<Data> vertex, PersistentMap<Data, Edge> out,
+                PersistentMap<Data, Edge> in) {
+            this.vertex = vertex;
+            this.out = out;
+            this.in = in;
+        }
+    }
+
+    /**
+     * One version of the whole graph.
+     */
+    static final class State<Data extends Comparable> {
+
+        final PersistentMap<Data, VertexNode<Data>> vertices;
+        final int numVertices, numEdges;
+        final long version;
+
+        State(PersistentMap<Data, VertexNode<Data>> vertices, int numVertices,
+                int numEdges, long version) {
+            this.vertices = vertices;
+            this.numVertices = numVertices;
+            this.numEdges = numEdges;
+            this.version = version;
+        }
+    }
+
+    private volatile State<Data> state;
+
+    /**
+     * The number of open snapshots at each version.
+     */
+    private final TreeMap<Long, Integer> readers;
+
+    private final Object writeLock;
+
+    /**
+     * Searches on the graph leave their results in the shared vertex
+     * objects, so only one runs at a time.
+     */
+    private final Object searchLock;
+
+    public VersionedAdjacencyList() {
+        this(false, false);
+    }
+
+    /**
+     * Creates an empty graph at version zero.
+     * @param directed If this graph is directed
+     * @param weighted If this graph is weighted
+     */
+    public VersionedAdjacencyList(boolean directed, boolean weighted) {
+        super(directed, weighted);
+        state = new State<>(PersistentMap.<Data, VertexNode<Data>>empty(), 0, 0, 0);
+        readers = new TreeMap<>();
+        writeLock = new Object();
+        searchLock = new Object();
+    }
+
+    /**
+     * Takes a read only snapshot of the current version. The snapshot should
+     * be released when the reader is done with it.
+     *
+     * @return The snapshot
+     */
+    public Snapshot<Data> snapshot() {
+        synchronized (readers) {
+            State<Data> current = state;
+            readers.merge(current.version, 1, Integer::sum);
+            return new Snapshot<>(this, current, isDirected, isWeighted, false);
+        }
+    }
+
+    /**
+     * Drops the record of a released snapshot.
+     * @param version The version of the snapshot
+     */
+    void release(long version) {
+        synchronized (readers) {
+            Integer count = readers.get(version);
+            if (count != null) {
+                if (count == 1) {
+                    readers.remove(version);
+                } else {
+                    readers.put(version, count - 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the current version, each change to the graph adds one.
+     * @return The current version
+     */
+    public long getVersion() {
+        return state.version;
+    }
+
+    /**
+     * Gets the oldest version that still has an open snapshot. Every version
+     * older than this one can be reclaimed.
+     * @return The oldest version being read
+     */
+    public long getOldestReadVersion() {
+        synchronized (readers) {
+            return readers.isEmpty() ? state.version : readers.firstKey();
+        }
+    }
+
+    /**
+     * Gets the number of snapshots that haven't been released.
+     * @return The number of open snapshots
+     */
+    public int getOpenSnapshotCount() {
+        synchronized (readers) {
+            int count = 0;
+            for (int c : readers.values()) {
+                count += c;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * A view of the current version that shares the vertex objects of this
+     * graph so searches leave their results where readGraph expects them.
+     */
+    private Snapshot<Data> view() {
+        return new Snapshot<>(null, state, isDirected, isWeighted, true);
+    }
+
+    @Override
+    public boolean hasEdge(Data a, Data b) {
+        return getEdge(a, b) != null;
+    }
+
+    @Override
+    public Edge getEdge(Data a, Data b) {
+        return view().getEdge(a, b);
+    }
+
+    @Override
+    public boolean hasVertex(Data vert) {
+        return state.vertices.containsKey(vert);
+    }
+
+    @Override
+    public Vertex getVertex(Data v) {
+        VertexNode<Data> node = state.vertices.get(v);
+        return (node == null) ? null : node.vertex;
+    }
+
+    @Override
+    public ArrayList<Vertex> getVertices() {
+        return view().getVertices();
+    }
+
+    @Override
+    public void forEachEdge(EdgeVisitor<Data, Edge> visitor) {
+        view().forEachEdge(visitor);
+    }
+
+    @Override
+    public int getVertexCount() {
+        return state.numVertices;
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return state.numEdges;
+    }
+
+    @Override
+    public boolean hasCircuit(Data vert) {
+        return view().hasCircuit(vert);
+    }
+
+    @Override
+    public boolean shortestPaths(Data a) {
+        synchronized (searchLock) {
+            return view().shortestPaths(a);
+        }
+    }
+
+    @Override
+    public ArrayList shortestPath(Data a, Data b) {
+        synchronized (searchLock) {
+            return view().shortestPath(a, b);
+        }
+    }
+
+    @Override
+    public boolean permuteShortestPaths(Data a, PrintStream stream) {
+        synchronized (searchLock) {
+            return view().permuteShortestPaths(a, stream);
+        }
+    }
+
+    @Override
+    public boolean isSparse() {
+        return view().isSparse();
+    }
+
+    @Override
+    public boolean isDense() {
+        return view().isDense();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return view().isConnected();
+    }
+
+    @Override
+    public boolean isFullyConnected() {
+        return view().isFullyConnected();
+    }
+
+    @Override
+    public void printGraph(PrintStream stream) {
+        view().printGraph(stream);
+    }
+
+    /**
+     * Helper method for adding a new vertex without needing to pass
+     * a new vertex object.
+     * @param v The new vertex being added
+     * @return True if the vertex was added, false otherwise.
+     */
+    public boolean addVertex(Data v) {
+        return addVertex(new Vertex(v));
+    }
+
+    @Override
+    public boolean addVertex(Vertex nvert) {
+        Data data = (Data) nvert.getData();
+        synchronized (writeLock) {
+            State<Data> s = state;
+            if (s.vertices.containsKey(data)) {
+                return false;
+            }
+            VertexNode<Data> node = new VertexNode<>(nvert,
+                    PersistentMap.<Data, Edge>empty(), PersistentMap.<Data, Edge>empty());
+            state = new State<>(s.vertices.put(data, node), s.numVertices + 1,
+                    s.numEdges, s.version + 1);
+            vertexAdded(data);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean addEdge(Data a, Data b, Edge edge) {
+
+        if (isWeighted && edge.getWeight() < 1) {
+            throw new RuntimeException("Can't add a non-weighted edge to a "
+                    + "weighted graph");
+        }
+        synchronized (writeLock) {
+            State<Data> s = state;
+            VertexNode<Data> from = s.vertices.get(a), to = s.vertices.get(b);
+            if (from == null || to == null || a.compareTo(b) == 0
+                    || from.out.containsKey(b)) {
+                return false;
+            }
+            from = new VertexNode<>(from.vertex, from.out.put(b, edge), from.in);
+            to = isDirected
+                    ? new VertexNode<>(to.vertex, to.out, to.in.put(a, edge))
+                    : new VertexNode<>(to.vertex, to.out.put(a, edge), to.in);
+            state = new State<>(s.vertices.put(a, from).put(b, to),
+                    s.numVertices, s.numEdges + 1, s.version + 1);
+            edgeAdded(a, b, edge);
+            return true;
+        }
+    }
+
+    /**
+     * Swaps the edge from A to B in one new version.
+     */
+    @Override
+    public boolean updateEdge(Data a, Data b, Edge edge) {
+
+        if (isWeighted && edge.getWeight() < 1) {
+            throw new RuntimeException("Can't add a non-weighted edge to a "
+                    + "weighted graph");
+        }
+        synchronized (writeLock) {
+            State<Data> s = state;
+            VertexNode<Data> from = s.vertices.get(a), to = s.vertices.get(b);
+            Edge old = (from == null) ? null : from.out.get(b);
+            if (old == null || to == null) {
+                return false;
+            }
+            from = new VertexNode<>(from.vertex, from.out.put(b, edge), from.in);
+            to = isDirected
+                    ? new VertexNode<>(to.vertex, to.out, to.in.put(a, edge))
+                    : new VertexNode<>(to.vertex, to.out.put(a, edge), to.in);
+            state = new State<>(s.vertices.put(a, from).put(b, to),
+                    s.numVertices, s.numEdges, s.version + 1);
+            edgeReweighted(a, b, edge, old);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean deleteEdge(Data a, Data b) {
+        synchronized (writeLock) {
+            State<Data> s = state;
+            VertexNode<Data> from = s.vertices.get(a), to = s.vertices.get(b);
+            if (from == null || to == null || !from.out.containsKey(b)) {
+                return false;
+            }
+            from = new VertexNode<>(from.vertex, from.out.remove(b), from.in);
+            to = isDirected
+                    ? new VertexNode<>(to.vertex, to.out, to.in.remove(a))
+                    : new VertexNode<>(to.vertex, to.out.remove(a), to.in);
+            state = new State<>(s.vertices.put(a, from).put(b, to),
+                    s.numVertices, s.numEdges - 1, s.version + 1);
+            edgeDeleted(a, b);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean deleteVertex(Data vert) {
+        synchronized (writeLock) {
+            State<Data> s = state;
+            VertexNode<Data> node = s.vertices.get(vert);
+            if (node == null) {
+                return false;
+            }
+            PersistentMap<Data, VertexNode<Data>> vertices = s.vertices.remove(vert);
+            int edges = s.numEdges;
+            for (Data b : node.out.keys()) {
+                VertexNode<Data> to = vertices.get(b);
+                to = isDirected
+                        ? new VertexNode<>(to.vertex, to.out, to.in.remove(vert))
+                        : new VertexNode<>(to.vertex, to.out.remove(vert), to.in);
+                vertices = vertices.put(b, to);
+                edges--;
+            }
+            for (Data a : node.in.keys()) {
+                VertexNode<Data> from = vertices.get(a);
+                from = new VertexNode<>(from.vertex, from.out.remove(vert), from.in);
+                vertices = vertices.put(a, from);
+                edges--;
+            }
+            state = new State<>(vertices, s.numVertices - 1, edges, s.version + 1);
+            vertexDeleted(vert);
+            return true;
+        }
+    }
+}
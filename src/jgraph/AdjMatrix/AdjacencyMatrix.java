@@ -1,10 +1,16 @@
 package jgraph.AdjMatrix;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Stack;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import jgraph.graph.Checkpoint;
 import jgraph.graph.Edge;
+import jgraph.graph.EdgeVisitor;
 import jgraph.graph.Graph;
+import jgraph.graph.IndexedGraph;
 import jgraph.graph.Vertex;
 import priorityqueue.PriorityQueue;
 
@@ -107,11 +113,168 @@ public class AdjacencyMatrix<Data extends Comparable> extends Graph<Data> {
      * @param initSize The size of the matrix when it is first initialized.
      */
     public AdjacencyMatrix(int expansionRate, int initSize) {
-        super();
+        this(expansionRate, initSize, false, false);
+    }
+    
+    /**
+     * Creates a new matrix for the given kind of graph.
+     *
+     * @param expansionRate The rate at which the matrix expands when the number
+     * of vertices reaches the maximum size or length.
+     * @param initSize The size of the matrix when it is first initialized.
+     * @param directed If this graph is directed
+     * @param weighted If this graph is weighted
+     */
+    public AdjacencyMatrix(int expansionRate, int initSize, 
+                            boolean directed, boolean weighted) {
+        super(directed, weighted);
         matrix = new Object[initSize][initSize];
         this.expansionRate = expansionRate;
     }
 
+    /**
+     * Creates a matrix holding a copy of an indexed graph. Vertex v of the
+     * indexed graph is placed at matrix[0][v + 1] and the edges are written
+     * straight into the matrix instead of searching for both vertices of
+     * each edge.
+     *
+     * @param graph The graph being copied
+     */
+    public AdjacencyMatrix(IndexedGraph<Data> graph) {
+        this(DEFAULT_RATE, graph.getVertexCount() + 1,
+                graph.isDirected(), graph.isWeighted());
+        int n = graph.getVertexCount();
+        Node node;
+        for (int v = 0; v < n; v++) {
+            node = new Node(new Vertex<>(graph.getData(v)), v + 1);
+            matrix[0][v + 1] = node;
+            matrix[v + 1][0] = node;
+        }
+        numVertices = n;
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int v = graph.target(e);
+                if (isDirected || u < v) {
+                    node = new Node(isWeighted ? new Edge(graph.weight(e)) : new Edge());
+                    matrix[u + 1][v + 1] = node;
+                    if (!isDirected) {
+                        matrix[v + 1][u + 1] = node;
+                    }
+                    numEdges++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the whole matrix to a checkpoint file: its size and expansion
+     * rate, the slot of every vertex and the filled cells of each vertex
+     * row, so a restored matrix has the same layout. Shortest path results
+     * are not kept. The vertex data must be Serializable and the graph must
+     * not change while it is being written.
+     *
+     * @param fileName The checkpoint file
+     * @throws UncheckedIOException If the checkpoint can't be written
+     */
+    public void checkpoint(String fileName) {
+        int size = matrix.length, n = 0;
+        int[] slots = new int[size];
+        for (int i = 1; i < size; i++) {
+            if (matrix[0][i] != null) {
+                slots[n++] = i;
+            }
+        }
+        Comparable[] data = new Comparable[n];
+        int[] offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            data[v] = ((Node) matrix[0][slots[v]]).vertex.getData();
+            int count = 0;
+            for (int j = 1; j < size; j++) {
+                if (matrix[slots[v]][j] != null) {
+                    count++;
+                }
+            }
+            offsets[v + 1] = offsets[v] + count;
+        }
+
+        // An undirected edge is one node in two cells, each node is written
+        // once and the cells refer to it by number
+        int cells = offsets[n];
+        IdentityHashMap<Object, Integer> nodeIds = new IdentityHashMap<>();
+        int[] columns = new int[cells], ids = new int[cells];
+        float[] weights = new float[cells];
+        int cell = 0;
+        for (int v = 0; v < n; v++) {
+            Object[] row = matrix[slots[v]];
+            for (int j = 1; j < size; j++) {
+                if (row[j] != null) {
+                    Integer id = nodeIds.get(row[j]);
+                    if (id == null) {
+                        id = nodeIds.size();
+                        nodeIds.put(row[j], id);
+                        Edge edge = ((Node) row[j]).edge;
+                        weights[id] = (edge == null) ? Float.NaN : edge.getWeight();
+                    }
+                    columns[cell] = j;
+                    ids[cell++] = id;
+                }
+            }
+        }
+
+        try (Checkpoint.Writer out = new Checkpoint.Writer(fileName, Checkpoint.ADJACENCY_MATRIX)) {
+            out.writeBoolean(isDirected);
+            out.writeBoolean(isWeighted);
+            out.writeInt(numVertices);
+            out.writeInt(numEdges);
+            out.writeInt(expansionRate);
+            out.writeInt(size);
+            out.writeInt(n);
+            out.writeObject(data);
+            out.writeInts(slots, n);
+            out.writeInts(offsets, n + 1);
+            out.writeInts(columns, cells);
+            out.writeInts(ids, cells);
+            out.writeInt(nodeIds.size());
+            out.writeFloats(weights, nodeIds.size());
+            out.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads a matrix back from a checkpoint file. The arrays are read whole
+     * and the cells are filled directly, nothing is searched for.
+     *
+     * @param <Data> The type of data representing each vertex
+     * @param fileName The checkpoint file
+     * @return The matrix as it was when the checkpoint was written
+     * @throws UncheckedIOException If the checkpoint can't be read
+     */
+    public static <Data extends Comparable> AdjacencyMatrix<Data> restore(String fileName) {
+        try (Checkpoint.Reader in = new Checkpoint.Reader(fileName, Checkpoint.ADJACENCY_MATRIX)) {
+            boolean directed = in.readBoolean(), weighted = in.readBoolean();
+            int numVertices = in.readInt(), numEdges = in.readInt();
+            int expansionRate = in.readInt(), size = in.readInt(), n = in.readInt();
+            Object[] data = (Object[]) in.readObject();
+            int[] slots = in.readInts(n);
+            int[] offsets = in.readInts(n + 1);
+            int[] columns = in.readInts(offsets[n]);
+            int[] ids = in.readInts(offsets[n]);
+            float[] weights = in.readFloats(in.readInt());
+            if (data.length != n) {
+                throw new IOException("The checkpoint is damaged");
+            }
+            AdjacencyMatrix<Data> graph = new AdjacencyMatrix<>(expansionRate, size, directed, weighted);
+            graph.numVertices = numVertices;
+            graph.numEdges = numEdges;
+            graph.load(data, slots, offsets, columns, ids, weights);
+            return graph;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @Override
     public boolean hasEdge(Data a, Data b) {
         return (getEdge(a, b) != null);
@@ -138,6 +301,41 @@ public class AdjacencyMatrix<Data extends Comparable> extends Graph<Data> {
         return getVertexNode(v).vertex;
     }
 
+    @Override
+    public ArrayList<Vertex> getVertices() {
+        ArrayList<Vertex> vertices = new ArrayList<>(numVertices);
+        for (int i = 1; i < matrix[0].length; i++) {
+            if (matrix[0][i] != null) {
+                vertices.add(((Node) matrix[0][i]).vertex);
+            }
+        }
+        return vertices;
+    }
+
+    @Override
+    public void forEachEdge(EdgeVisitor<Data, Edge> visitor) {
+        Node from, to, edge;
+        // Rows and columns past the last vertex are unused capacity
+        int last = matrix[0].length - 1;
+        while (last > 0 && matrix[0][last] == null) {
+            last--;
+        }
+        for (int i = 1; i <= last; i++) {
+            from = (Node) matrix[i][0];
+            if (from == null) {
+                continue;
+            }
+            for (int j = 1; j <= last; j++) {
+                to = (Node) matrix[0][j];
+                edge = (Node) matrix[i][j];
+                if (to != null && edge != null && edge.edge != null) {
+                    visitor.visit(from.vertex.getData(), 
+                            to.vertex.getData(), edge.edge);
+                }
+            }
+        }
+    }
+
     @Override
     public boolean hasCircuit(Data vert) {
         return false;
@@ -158,12 +356,10 @@ public class AdjacencyMatrix<Data extends Comparable> extends Graph<Data> {
             }
         }
 
-        ArrayList<Vertex> path;
+        ArrayList<Vertex> path = new ArrayList<>();
         Node to = (Node) matrix[0][1];
-        Data r1 = from.vertex.getData(), r2;
         while (to != null) {
-            r2 = to.vertex.getData();
-            path = shortestPath(r1, r2);
+            pathTo(to, path);
             stream.println("shortestPath " + from + " to " + to);
             Graph.printPath(stream, path);
 
@@ -233,7 +429,6 @@ public class AdjacencyMatrix<Data extends Comparable> extends Graph<Data> {
     public ArrayList shortestPath(Data a, Data b) {
 
         ArrayList<Vertex> path = new ArrayList<>();
-        Stack<Vertex> predStack = new Stack<>();
 
         Node from = getVertexNode(a);
 
@@ -250,21 +445,30 @@ public class AdjacencyMatrix<Data extends Comparable> extends Graph<Data> {
         Node to = getVertexNode(b);
 
         if (to != null) {
-            predStack.push(to.vertex);
-            Node pred = (Node) to.vertex.dijkstra().getPredecessor();
-            while (pred != null) {
-                predStack.push(pred.vertex);
-                pred = (Node) pred.vertex.dijkstra().getPredecessor();
-            }
-        }
-
-        while (!predStack.isEmpty()) {
-            path.add(predStack.pop());
+            pathTo(to, path);
         }
 
         return path;
     }
 
+    /**
+     * Fills the list with the vertices from the source of the last search
+     * to the given vertex by following the predecessors left by Dijkstra's
+     * algorithm, without looking any vertex up.
+     *
+     * @param to The last vertex of the path
+     * @param path The list being filled, it is cleared first
+     */
+    private void pathTo(Node to, ArrayList<Vertex> path) {
+        path.clear();
+        Node pred = to;
+        while (pred != null) {
+            path.add(pred.vertex);
+            pred = (Node) pred.vertex.dijkstra().getPredecessor();
+        }
+        Collections.reverse(path);
+    }
+
     @Override
     public boolean addEdge(Data a, Data b, Edge edge) {
 
@@ -284,6 +488,7 @@ public class AdjacencyMatrix<Data extends Comparable> extends Graph<Data> {
                 matrix[indexB][indexA] = node;
             }
             numEdges++;
+            edgeAdded(a, b, edge);
             return true;
         }
 
@@ -315,6 +520,7 @@ public class AdjacencyMatrix<Data extends Comparable> extends Graph<Data> {
         matrix[0][nIndex] = node;
         matrix[nIndex][0] = node;
         numVertices++;
+        vertexAdded((Data) nvert.getData());
         return true;
     }
 
@@ -322,7 +528,11 @@ public class AdjacencyMatrix<Data extends Comparable> extends Graph<Data> {
     public boolean deleteEdge(Data a, Data b) {
         Node vertA = getVertexNode(a), vertB = getVertexNode(b);
 
-        return deleteEdge(vertA, vertB);
+        if (deleteEdge(vertA, vertB)) {
+            edgeDeleted(a, b);
+            return true;
+        }
+        return false;
     }
 
     @Override
@@ -340,7 +550,7 @@ public class AdjacencyMatrix<Data extends Comparable> extends Graph<Data> {
                         matrix[i][j] = null;
                         numEdges--;
                     }
-
+                    vertexDeleted(vert);
                     return true;
                 }
             }
@@ -414,14 +624,18 @@ public class AdjacencyMatrix<Data extends Comparable> extends Graph<Data> {
 
     @Override
     public void printGraph(PrintStream stream) {
+        // Each row of the matrix is printed once it is built so the text is
+        // never held whole
         StringBuilder graph = new StringBuilder();
 
         graph.append(isWeighted ? "Weighted\n" : "Unweighted\n");
         graph.append(isDirected ? "Digraph\n" : "Undigraph\n");
+        stream.print(graph);
         Node node;
         String nodeStr;
         
         for (Object[] outer : matrix){
+            graph.setLength(0);
             for (Object inner : outer){
                 node = (Node) inner;
                 if (node == null){
@@ -429,19 +643,18 @@ public class AdjacencyMatrix<Data extends Comparable> extends Graph<Data> {
                 }else{
                     nodeStr = node.toString();
                     if (isWeighted) {
-                        graph.append(node == null ? "   "
-                                : nodeStr.charAt(0) + ""
-                                + (nodeStr.charAt(1) != '.' ? nodeStr.charAt(1) : ' ')
-                                + "" + (nodeStr.charAt(2) != '.' ? nodeStr.charAt(2) : ' '));
+                        graph.append(nodeStr.charAt(0))
+                                .append(nodeStr.charAt(1) != '.' ? nodeStr.charAt(1) : ' ')
+                                .append(nodeStr.charAt(2) != '.' ? nodeStr.charAt(2) : ' ');
                     } else {
-                        graph.append(node == null ? "   "
-                                : nodeStr.charAt(0) + "  ");
+                        graph.append(nodeStr.charAt(0)).append("  ");
                     }
                 }
             }
             graph.append("\n");
+            stream.print(graph);
         }
-        stream.println(graph.toString());
+        stream.println();
     }
 
     private int getNext(int startFrom) {
@@ -464,6 +677,33 @@ public class AdjacencyMatrix<Data extends Comparable> extends Graph<Data> {
         return false;
     }
 
+    /**
+     * Fills the cells of a matrix read from a checkpoint.
+     */
+    private void load(Object[] data, int[] slots, int[] offsets, int[] columns,
+            int[] ids, float[] weights) throws IOException {
+        Node[] nodes = new AdjacencyMatrix.Node[weights.length];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new Node(Float.isNaN(weights[i]) ? null : new Edge(weights[i]));
+        }
+        for (int v = 0; v < slots.length; v++) {
+            int slot = slots[v];
+            if (slot < 1 || slot >= matrix.length) {
+                throw new IOException("The checkpoint is damaged");
+            }
+            Node node = new Node(new Vertex<>((Data) data[v]), slot);
+            matrix[0][slot] = node;
+            matrix[slot][0] = node;
+            for (int c = offsets[v]; c < offsets[v + 1]; c++) {
+                if (columns[c] < 1 || columns[c] >= matrix.length
+                        || ids[c] < 0 || ids[c] >= nodes.length) {
+                    throw new IOException("The checkpoint is damaged");
+                }
+                matrix[slot][columns[c]] = nodes[ids[c]];
+            }
+        }
+    }
+
     /**
      * Expands the matrix by a specified size.
      *
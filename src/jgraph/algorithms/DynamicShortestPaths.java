@@ -0,0 +1,600 @@
+package jgraph.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Stack;
+import java.util.TreeMap;
+import jgraph.graph.Edge;
+import jgraph.graph.Graph;
+import jgraph.graph.Vertex;
+
+/**
+ * Shortest paths from one source that are kept up to date while the graph
+ * changes. Changes go through this object which passes them on to the graph
+ * and then repairs the shortest path tree instead of running Dijkstra's
+ * algorithm again from scratch.
+ *
+ * A cheaper or new edge only spreads its improvement outward from the vertex
+ * it leads to. A dearer or deleted edge that was part of the tree cuts off
+ * the subtree below it, the vertices of that subtree that still have another
+ * shortest path keep their distance (Ramalingam and Reps) and only the rest
+ * are searched again from their neighbors outside the cut. Either way the
+ * work is bounded by the vertices whose distance really changes and their
+ * edges.
+ *
+ * Edges of an unweighted graph count as a weight of one.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public class DynamicShortestPaths<Data extends Comparable> {
+
+    /**
+     * The distance of a vertex that can't be reached, the same value
+     * Dijkstra's algorithm leaves on an unreached vertex.
+     */
+    public static final float UNREACHABLE = Float.MAX_VALUE;
+
+    private final Graph<Data> graph;
+    private final boolean directed, weighted;
+
+    private final TreeMap<Data, Integer> indices;
+    private Vertex<Data>[] vertices;
+    private int size;
+
+    /**
+     * The edges leaving and entering each vertex.
+     */
+    private int[][] outTo, inFrom;
+    private float[][] outWeight, inWeight;
+    private int[] outDegree, inDegree;
+
+    private final int source;
+    private float[] dist;
+
+    /**
+     * The shortest path tree. Each vertex keeps its parent and a doubly
+     * linked list of its children so a subtree can be walked.
+     */
+    private int[] parent, firstChild, nextSibling, prevSibling;
+
+    private boolean[] affected;
+    private final Heap heap;
+    private int touched;
+
+    /**
+     * Builds the shortest path tree of the graph from the source.
+     *
+     * @param graph The graph, every later change should go through this
+     * object
+     * @param source The source of every path
+     */
+    public DynamicShortestPaths(Graph<Data> graph, Data source) {
+        if (!graph.hasVertex(source)) {
+            throw new IllegalArgumentException("The source isn't in the graph");
+        }
+        this.graph = graph;
+        directed = graph.isDirected();
+        weighted = graph.isWeighted();
+        indices = new TreeMap<>();
+
+        ArrayList<Vertex> list = graph.getVertices();
+        int capacity = Math.max(16, list.size());
+        vertices = new Vertex[capacity];
+        outTo = new int[capacity][];
+        inFrom = new int[capacity][];
+        outWeight = new float[capacity][];
+        inWeight = new float[capacity][];
+        outDegree = new int[capacity];
+        inDegree = new int[capacity];
+        dist = new float[capacity];
+        parent = new int[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        prevSibling = new int[capacity];
+        affected = new boolean[capacity];
+        heap = new Heap(capacity);
+
+        for (Vertex vertex : list) {
+            add(vertex);
+        }
+        graph.forEachEdge((Data from, Data to, Edge edge) -> {
+            insertArc(indices.get(from), indices.get(to), weightOf(edge));
+        });
+
+        this.source = indices.get(source);
+        dist[this.source] = 0;
+        heap.update(this.source, 0);
+        propagate();
+    }
+
+    /**
+     * Adds a vertex to the graph. A new vertex has no edges so it can't be
+     * reached yet.
+     *
+     * @param vertex The new vertex
+     * @return True if the graph added the vertex
+     */
+    public boolean addVertex(Vertex<Data> vertex) {
+        if (!graph.addVertex(vertex)) {
+            return false;
+        }
+        add(vertex);
+        touched = 0;
+        return true;
+    }
+
+    /**
+     * Deletes a vertex and its edges from the graph and repairs the paths
+     * that went through it.
+     *
+     * @param data The vertex being deleted
+     * @return True if the graph deleted the vertex
+     */
+    public boolean deleteVertex(Data data) {
+        Integer v = indices.get(data);
+        if (v == null) {
+            return false;
+        }
+        if (v == source) {
+            throw new IllegalArgumentException("The source can't be deleted");
+        }
+        if (!graph.deleteVertex(data)) {
+            return false;
+        }
+        while (outDegree[v] > 0) {
+            removeArc(v, outTo[v][outDegree[v] - 1]);
+        }
+        while (inDegree[v] > 0) {
+            removeArc(inFrom[v][inDegree[v] - 1], v);
+        }
+        indices.remove(data);
+
+        heap.clear();
+        for (int c = firstChild[v]; c != -1; c = nextSibling[c]) {
+            heap.update(c, dist[c]);
+        }
+        setParent(v, -1);
+        dist[v] = UNREACHABLE;
+        repair();
+        return true;
+    }
+
+    /**
+     * Adds an edge to the graph and spreads the shorter paths it makes.
+     *
+     * @param a The vertex the edge leaves
+     * @param b The vertex the edge enters
+     * @param edge The new edge
+     * @return True if the graph added the edge
+     */
+    public boolean addEdge(Data a, Data b, Edge edge) {
+        if (!graph.addEdge(a, b, edge)) {
+            return false;
+        }
+        int u = indices.get(a), v = indices.get(b);
+        float w = weightOf(edge);
+        insertArc(u, v, w);
+        if (!directed) {
+            insertArc(v, u, w);
+        }
+        touched = 0;
+        heap.clear();
+        relax(u, v, w);
+        if (!directed) {
+            relax(v, u, w);
+        }
+        propagate();
+        return true;
+    }
+
+    /**
+     * Deletes an edge from the graph and repairs the paths that used it.
+     *
+     * @param a The vertex the edge leaves
+     * @param b The vertex the edge enters
+     * @return True if the graph deleted the edge
+     */
+    public boolean deleteEdge(Data a, Data b) {
+        Integer u = indices.get(a), v = indices.get(b);
+        if (u == null || v == null || !graph.deleteEdge(a, b)) {
+            return false;
+        }
+        removeArc(u, v);
+        if (!directed) {
+            removeArc(v, u);
+        }
+        heap.clear();
+        cut(u, v);
+        if (!directed) {
+            cut(v, u);
+        }
+        repair();
+        return true;
+    }
+
+    /**
+     * Replaces an edge of the graph with one of a different weight and
+     * repairs the paths.
+     *
+     * @param a The vertex the edge leaves
+     * @param b The vertex the edge enters
+     * @param edge The edge replacing the old one
+     * @return True if the edge was replaced
+     */
+    public boolean updateEdge(Data a, Data b, Edge edge) {
+        Integer u = indices.get(a), v = indices.get(b);
+        if (u == null || v == null || !graph.updateEdge(a, b, edge)) {
+            return false;
+        }
+        float w = weightOf(edge), old = outWeight[u][find(u, v)];
+        setWeight(u, v, w);
+        if (!directed) {
+            setWeight(v, u, w);
+        }
+        heap.clear();
+        if (w < old) {
+            touched = 0;
+            relax(u, v, w);
+            if (!directed) {
+                relax(v, u, w);
+            }
+            propagate();
+        } else if (w > old) {
+            cut(u, v);
+            if (!directed) {
+                cut(v, u);
+            }
+            repair();
+        } else {
+            touched = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the source of every path.
+     * @return The source vertex
+     */
+    public Vertex<Data> getSource() {
+        return vertices[source];
+    }
+
+    /**
+     * Gets the length of the shortest path from the source.
+     *
+     * @param data The vertex at the end of the path
+     * @return The distance or UNREACHABLE if there is no path
+     */
+    public float getDistance(Data data) {
+        Integer v = indices.get(data);
+        return (v == null) ? UNREACHABLE : dist[v];
+    }
+
+    /**
+     * Tells if there is a path from the source.
+     * @param data The vertex at the end of the path
+     * @return True if the vertex can be reached
+     */
+    public boolean hasPath(Data data) {
+        return getDistance(data) != UNREACHABLE;
+    }
+
+    /**
+     * Gets the shortest path from the source.
+     *
+     * @param data The vertex at the end of the path
+     * @return The vertices of the path starting at the source, empty if
+     * there is no path
+     */
+    public ArrayList<Vertex<Data>> getPath(Data data) {
+        ArrayList<Vertex<Data>> path = new ArrayList<>();
+        Integer v = indices.get(data);
+        if (v == null || dist[v] == UNREACHABLE) {
+            return path;
+        }
+        Stack<Vertex<Data>> predStack = new Stack<>();
+        for (int p = v; p != -1; p = parent[p]) {
+            predStack.push(vertices[p]);
+        }
+        while (!predStack.isEmpty()) {
+            path.add(predStack.pop());
+        }
+        return path;
+    }
+
+    /**
+     * Gets the number of vertices the last change had to look at, which
+     * shows how much of the tree a repair touched.
+     * @return The number of vertices touched
+     */
+    public int getLastRepairSize() {
+        return touched;
+    }
+
+    private float weightOf(Edge edge) {
+        return weighted ? edge.getWeight() : 1;
+    }
+
+    /**
+     * Offers the path through the arc u to v and queues v if it got shorter.
+     */
+    private void relax(int u, int v, float w) {
+        if (dist[u] == UNREACHABLE) {
+            return;
+        }
+        float p = dist[u] + w;
+        if (p < dist[v]) {
+            dist[v] = p;
+            setParent(v, u);
+            heap.update(v, p);
+        }
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from the queued vertices.
+     */
+    private void propagate() {
+        while (!heap.isEmpty()) {
+            int u = heap.pop();
+            touched++;
+            for (int i = 0; i < outDegree[u]; i++) {
+                relax(u, outTo[u][i], outWeight[u][i]);
+            }
+        }
+    }
+
+    /**
+     * Queues v when the arc from u was its tree edge.
+     */
+    private void cut(int u, int v) {
+        if (parent[v] == u) {
+            heap.update(v, dist[v]);
+        }
+    }
+
+    /**
+     * Repairs the tree after the queued vertices lost their tree edge. The
+     * cut vertices are visited by their old distance, so every vertex that
+     * could still give one of them a path of the same length has already
+     * been settled when it is checked. The vertices left without such a
+     * path are affected, their children are cut in turn and all of them are
+     * searched again from the unaffected vertices around them.
+     */
+    private void repair() {
+        touched = 0;
+        ArrayList<Integer> cut = new ArrayList<>();
+        while (!heap.isEmpty()) {
+            int v = heap.pop();
+            touched++;
+            int other = tightParent(v);
+            if (other != -1) {
+                setParent(v, other);
+                continue;
+            }
+            affected[v] = true;
+            cut.add(v);
+            for (int c = firstChild[v]; c != -1; c = nextSibling[c]) {
+                heap.update(c, dist[c]);
+            }
+            setParent(v, -1);
+        }
+
+        for (int v : cut) {
+            float best = UNREACHABLE;
+            int from = -1;
+            for (int i = 0; i < inDegree[v]; i++) {
+                int u = inFrom[v][i];
+                if (!affected[u] && dist[u] != UNREACHABLE && dist[u] + inWeight[v][i] < best) {
+                    best = dist[u] + inWeight[v][i];
+                    from = u;
+                }
+            }
+            dist[v] = best;
+            if (from != -1) {
+                setParent(v, from);
+                heap.update(v, best);
+            }
+        }
+        for (int v : cut) {
+            affected[v] = false;
+        }
+        propagate();
+    }
+
+    /**
+     * Finds an unaffected vertex that still gives v a path of its current
+     * length.
+     */
+    private int tightParent(int v) {
+        for (int i = 0; i < inDegree[v]; i++) {
+            int u = inFrom[v][i];
+            if (!affected[u] && dist[u] != UNREACHABLE && parent[u] != v
+                    && dist[u] + inWeight[v][i] == dist[v]) {
+                return u;
+            }
+        }
+        return -1;
+    }
+
+    private void setParent(int v, int p) {
+        int old = parent[v];
+        if (old == p) {
+            return;
+        }
+        if (old != -1) {
+            if (prevSibling[v] == -1) {
+                firstChild[old] = nextSibling[v];
+            } else {
+                nextSibling[prevSibling[v]] = nextSibling[v];
+            }
+            if (nextSibling[v] != -1) {
+                prevSibling[nextSibling[v]] = prevSibling[v];
+            }
+        }
+        parent[v] = p;
+        prevSibling[v] = -1;
+        nextSibling[v] = -1;
+        if (p != -1) {
+            nextSibling[v] = firstChild[p];
+            if (firstChild[p] != -1) {
+                prevSibling[firstChild[p]] = v;
+            }
+            firstChild[p] = v;
+        }
+    }
+
+    private void add(Vertex<Data> vertex) {
+        if (size == vertices.length) {
+            grow();
+        }
+        int v = size++;
+        indices.put(vertex.getData(), v);
+        vertices[v] = vertex;
+        outTo[v] = new int[2];
+        inFrom[v] = new int[2];
+        outWeight[v] = new float[2];
+        inWeight[v] = new float[2];
+        dist[v] = UNREACHABLE;
+        parent[v] = firstChild[v] = nextSibling[v] = prevSibling[v] = -1;
+    }
+
+    private void grow() {
+        int capacity = vertices.length * 2;
+        vertices = Arrays.copyOf(vertices, capacity);
+        outTo = Arrays.copyOf(outTo, capacity);
+        inFrom = Arrays.copyOf(inFrom, capacity);
+        outWeight = Arrays.copyOf(outWeight, capacity);
+        inWeight = Arrays.copyOf(inWeight, capacity);
+        outDegree = Arrays.copyOf(outDegree, capacity);
+        inDegree = Arrays.copyOf(inDegree, capacity);
+        dist = Arrays.copyOf(dist, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        prevSibling = Arrays.copyOf(prevSibling, capacity);
+        affected = Arrays.copyOf(affected, capacity);
+        heap.grow(capacity);
+    }
+
+    private void insertArc(int u, int v, float w) {
+        if (outDegree[u] == outTo[u].length) {
+            outTo[u] = Arrays.copyOf(outTo[u], outDegree[u] * 2);
+            outWeight[u] = Arrays.copyOf(outWeight[u], outDegree[u] * 2);
+        }
+        outTo[u][outDegree[u]] = v;
+        outWeight[u][outDegree[u]++] = w;
+        if (inDegree[v] == inFrom[v].length) {
+            inFrom[v] = Arrays.copyOf(inFrom[v], inDegree[v] * 2);
+            inWeight[v] = Arrays.copyOf(inWeight[v], inDegree[v] * 2);
+        }
+        inFrom[v][inDegree[v]] = u;
+        inWeight[v][inDegree[v]++] = w;
+    }
+
+    private void removeArc(int u, int v) {
+        int i = find(u, v), last = --outDegree[u];
+        outTo[u][i] = outTo[u][last];
+        outWeight[u][i] = outWeight[u][last];
+        for (i = 0; inFrom[v][i] != u; i++) {
+        }
+        last = --inDegree[v];
+        inFrom[v][i] = inFrom[v][last];
+        inWeight[v][i] = inWeight[v][last];
+    }
+
+    private void setWeight(int u, int v, float w) {
+        outWeight[u][find(u, v)] = w;
+        int i = 0;
+        while (inFrom[v][i] != u) {
+            i++;
+        }
+        inWeight[v][i] = w;
+    }
+
+    private int find(int u, int v) {
+        int i = 0;
+        while (outTo[u][i] != v) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * A binary min heap of vertices that can lower the key of a vertex
+     * already in it.
+     */
+    private static final class Heap {
+
+        private int[] heap, position;
+        private float[] key;
+        private int size;
+
+        private Heap(int capacity) {
+            heap = new int[capacity];
+            position = new int[capacity];
+            key = new float[capacity];
+            Arrays.fill(position, -1);
+        }
+
+        private void grow(int capacity) {
+            int old = position.length;
+            heap = Arrays.copyOf(heap, capacity);
+            position = Arrays.copyOf(position, capacity);
+            key = Arrays.copyOf(key, capacity);
+            Arrays.fill(position, old, capacity, -1);
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void clear() {
+            while (size > 0) {
+                position[heap[--size]] = -1;
+            }
+        }
+
+        /**
+         * Adds the vertex or lowers its key.
+         */
+        private void update(int v, float k) {
+            int i = position[v];
+            if (i == -1) {
+                i = size++;
+            } else if (k >= key[v]) {
+                return;
+            }
+            key[v] = k;
+            while (i > 0 && key[heap[(i - 1) / 2]] > k) {
+                heap[i] = heap[(i - 1) / 2];
+                position[heap[i]] = i;
+                i = (i - 1) / 2;
+            }
+            heap[i] = v;
+            position[v] = i;
+        }
+
+        private int pop() {
+            int top = heap[0], last = heap[--size];
+            position[top] = -1;
+            if (size > 0) {
+                int i = 0;
+                while (2 * i + 1 < size) {
+                    int c = 2 * i + 1;
+                    if (c + 1 < size && key[heap[c + 1]] < key[heap[c]]) {
+                        c++;
+                    }
+                    if (key[heap[c]] >= key[last]) {
+                        break;
+                    }
+                    heap[i] = heap[c];
+                    position[heap[i]] = i;
+                    i = c;
+                }
+                heap[i] = last;
+                position[last] = i;
+            }
+            return top;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package jgraph.algorithms;
+
+import java.util.ArrayList;
+import jgraph.graph.IndexedGraph;
+import jgraph.graph.Vertex;
+
+/**
+ * The answer to a maximum flow problem. Holds the value of the flow, the
+ * flow carried by each edge and the two sides of the minimum cut.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public class FlowResult<Data extends Comparable> {
+
+    private final IndexedGraph<Data> graph;
+    private final double value;
+
+    /**
+     * The flow on each edge of the indexed graph.
+     */
+    private final double[] flows;
+
+    /**
+     * True for each vertex on the source side of the minimum cut.
+     */
+    private final boolean[] sourceSide;
+
+    public FlowResult(IndexedGraph<Data> graph, double value, double[] flows,
+            boolean[] sourceSide) {
+        this.graph = graph;
+        this.value = value;
+        this.flows = flows;
+        this.sourceSide = sourceSide;
+    }
+
+    /**
+     * Gets the maximum flow, which is also the capacity of the minimum cut.
+     * @return The value of the flow
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Gets the flow going from A to B. For an undirected graph this is the
+     * net flow, a negative value means the flow goes from B to A.
+     *
+     * @param a From vertex
+     * @param b To vertex
+     * @return The flow from A to B, zero if there is no edge
+     */
+    public double getFlow(Data a, Data b) {
+        int u = graph.indexOf(a), v = graph.indexOf(b);
+        if (u < 0 || v < 0) {
+            return 0;
+        }
+        int forward = graph.find(u, v);
+        double flow = (forward < 0) ? 0 : flows[forward];
+        if (!graph.isDirected()) {
+            int backward = graph.find(v, u);
+            flow -= (backward < 0) ? 0 : flows[backward];
+        }
+        return flow;
+    }
+
+    /**
+     * Gets the flow on an edge of the indexed graph the flow was solved on.
+     * @param e The edge index
+     * @return The flow carried by the edge
+     */
+    public double getFlow(int e) {
+        return flows[e];
+    }
+
+    public boolean isSourceSide(Data v) {
+        int index = graph.indexOf(v);
+        return index >= 0 && sourceSide[index];
+    }
+
+    /**
+     * Gets the vertices that can still be reached from the source once the
+     * flow is applied.
+     * @return The source side of the minimum cut
+     */
+    public ArrayList<Vertex<Data>> getSourceSide() {
+        return side(true);
+    }
+
+    /**
+     * Gets the vertices that can't be reached from the source once the flow
+     * is applied.
+     * @return The sink side of the minimum cut
+     */
+    public ArrayList<Vertex<Data>> getSinkSide() {
+        return side(false);
+    }
+
+    private ArrayList<Vertex<Data>> side(boolean source) {
+        ArrayList<Vertex<Data>> vertices = new ArrayList<>();
+        for (int v = 0; v < sourceSide.length; v++) {
+            if (sourceSide[v] == source) {
+                vertices.add(graph.getVertex(v));
+            }
+        }
+        return vertices;
+    }
+}
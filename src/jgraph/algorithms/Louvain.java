@@ -0,0 +1,478 @@
+package jgraph.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+import jgraph.graph.Graph;
+import jgraph.graph.IndexedGraph;
+import jgraph.graph.Vertex;
+
+/**
+ * Finds communities in an undirected graph by maximizing modularity with the
+ * Louvain method. Each level moves vertices into the neighboring community
+ * with the best modularity gain until no move helps, then collapses every
+ * community into a single vertex of a coarser graph and repeats on that
+ * graph. An unweighted graph gives every edge a weight of one.
+ *
+ * The moving phase of large graphs is done in batches, the best move of each
+ * vertex in a batch is found in parallel and the moves are then applied
+ * together. A pass that lowers modularity is undone and ends the level.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public class Louvain<Data extends Comparable> {
+
+    /**
+     * Levels with fewer vertices than this are moved one vertex at a time.
+     */
+    public static final int PARALLEL_THRESHOLD = 2048;
+
+    /**
+     * The most moving passes made over a single level.
+     */
+    public static final int MAX_PASSES = 32;
+
+    /**
+     * A pass must raise modularity by at least this much for another pass
+     * to be made.
+     */
+    public static final double MIN_GAIN = 1e-7;
+
+    private final IndexedGraph<Data> graph;
+
+    /**
+     * The community of each vertex of the original graph.
+     */
+    private final int[] community;
+    private int communityCount;
+    private double modularity;
+
+    /**
+     * The coarsened graph made at the end of each level.
+     */
+    private final ArrayList<IndexedGraph<Integer>> levels;
+
+    public Louvain(Graph<Data> graph) {
+        this(new IndexedGraph<>(graph));
+    }
+
+    /**
+     * Finds the communities of the graph.
+     *
+     * @param graph An undirected graph
+     */
+    public Louvain(IndexedGraph<Data> graph) {
+        if (graph.isDirected()) {
+            throw new IllegalArgumentException("Communities are only found on undirected graphs");
+        }
+        this.graph = graph;
+        levels = new ArrayList<>();
+
+        int n = graph.getVertexCount();
+        community = new int[n];
+        for (int v = 0; v < n; v++) {
+            community[v] = v;
+        }
+        Level level = new Level(graph);
+        modularity = level.modularity(community.clone());
+        communityCount = n;
+
+        while (level.n > 0) {
+            int[] moved = level.moveVertices();
+            int count = renumber(moved);
+            if (count == level.n) {
+                break;
+            }
+            for (int v = 0; v < n; v++) {
+                community[v] = moved[community[v]];
+            }
+            communityCount = count;
+            modularity = level.modularity(moved);
+            level = level.aggregate(moved, count);
+            levels.add(level.toIndexedGraph());
+        }
+    }
+
+    /**
+     * Gets the community a vertex was placed in. Communities are numbered
+     * from zero up to the number of communities.
+     *
+     * @param v The vertex
+     * @return The community id of v
+     */
+    public int getCommunity(Data v) {
+        int index = graph.indexOf(v);
+        if (index < 0) {
+            throw new IllegalArgumentException("Vertex not found: " + v);
+        }
+        return community[index];
+    }
+
+    public int getCommunityCount() {
+        return communityCount;
+    }
+
+    /**
+     * Gets the modularity of the communities that were found.
+     * @return A value from -0.5 to 1, higher is better
+     */
+    public double getModularity() {
+        return modularity;
+    }
+
+    /**
+     * Gets the vertices of each community.
+     * @return The members of each community in community id order
+     */
+    public ArrayList<ArrayList<Vertex<Data>>> getCommunities() {
+        ArrayList<ArrayList<Vertex<Data>>> communities = new ArrayList<>(communityCount);
+        for (int c = 0; c < communityCount; c++) {
+            communities.add(new ArrayList<>());
+        }
+        for (int v = 0; v < community.length; v++) {
+            communities.get(community[v]).add(graph.getVertex(v));
+        }
+        return communities;
+    }
+
+    /**
+     * Gets the coarsened graph made at the end of each level. Vertex c of a
+     * level is community c of that level and holds the integer c. The edge
+     * from c to itself holds the weight inside the community counted in
+     * both directions.
+     *
+     * @return The coarsened graphs from the finest to the coarsest
+     */
+    public ArrayList<IndexedGraph<Integer>> getLevels() {
+        return levels;
+    }
+
+    /**
+     * Numbers the communities in the array from zero in the order they
+     * first appear.
+     *
+     * @return The number of communities
+     */
+    private static int renumber(int[] communities) {
+        int[] ids = new int[communities.length];
+        Arrays.fill(ids, -1);
+        int count = 0;
+        for (int v = 0; v < communities.length; v++) {
+            int c = communities[v];
+            if (ids[c] < 0) {
+                ids[c] = count++;
+            }
+            communities[v] = ids[c];
+        }
+        return count;
+    }
+
+    /**
+     * One level of the method. A vertex of a coarse level carries the weight
+     * inside its community as a loop, and its strength is the sum of the
+     * weights of its edges plus that loop.
+     */
+    private static class Level {
+
+        private final int n;
+        private final int[] offsets, targets;
+        private final double[] weights;
+        private final double[] loops, strength;
+
+        /**
+         * The sum of all strengths, twice the total edge weight.
+         */
+        private final double total;
+
+        private final ThreadLocal<Scratch> scratch;
+
+        private Level(IndexedGraph graph) {
+            n = graph.getVertexCount();
+            offsets = new int[n + 1];
+            targets = new int[graph.getArcCount()];
+            weights = new double[targets.length];
+            for (int u = 0; u < n; u++) {
+                offsets[u + 1] = graph.end(u);
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    targets[e] = graph.target(e);
+                    weights[e] = graph.isWeighted() ? graph.weight(e) : 1;
+                }
+            }
+            loops = new double[n];
+            strength = new double[n];
+            total = strengths();
+            scratch = ThreadLocal.withInitial(() -> new Scratch(n));
+        }
+
+        private Level(int n, int[] offsets, int[] targets, double[] weights, double[] loops) {
+            this.n = n;
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+            this.loops = loops;
+            strength = new double[n];
+            total = strengths();
+            scratch = ThreadLocal.withInitial(() -> new Scratch(n));
+        }
+
+        private double strengths() {
+            double sum = 0;
+            for (int u = 0; u < n; u++) {
+                double k = loops[u];
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    k += weights[e];
+                }
+                strength[u] = k;
+                sum += k;
+            }
+            return sum;
+        }
+
+        /**
+         * Moves vertices between communities until modularity stops
+         * improving.
+         *
+         * @return The community of each vertex
+         */
+        private int[] moveVertices() {
+            int[] communities = new int[n];
+            for (int v = 0; v < n; v++) {
+                communities[v] = v;
+            }
+            if (total == 0) {
+                return communities;
+            }
+            double[] totals = strength.clone();
+            int[] order = shuffledOrder();
+            int[] targetOf = new int[n];
+            int batch = (n < PARALLEL_THRESHOLD) ? 1 : Math.max(512, n / 256);
+            double current = modularity(communities);
+
+            for (int pass = 0; pass < MAX_PASSES; pass++) {
+                int[] before = communities.clone();
+                int moves = 0;
+                for (int start = 0; start < n; start += batch) {
+                    int end = Math.min(n, start + batch);
+                    if (batch == 1) {
+                        int v = order[start];
+                        targetOf[v] = bestCommunity(v, communities, totals);
+                    } else {
+                        final int from = start;
+                        IntStream.range(from, end).parallel().forEach((int i) -> {
+                            int v = order[i];
+                            targetOf[v] = bestCommunity(v, communities, totals);
+                        });
+                    }
+                    for (int i = start; i < end; i++) {
+                        int v = order[i], c = communities[v], d = targetOf[v];
+                        if (c != d) {
+                            totals[c] -= strength[v];
+                            totals[d] += strength[v];
+                            communities[v] = d;
+                            moves++;
+                        }
+                    }
+                }
+                if (moves == 0) {
+                    break;
+                }
+                double next = modularity(communities);
+                if (next < current) {
+                    return before;
+                }
+                if (next - current < MIN_GAIN) {
+                    break;
+                }
+                current = next;
+            }
+            return communities;
+        }
+
+        /**
+         * Finds the neighboring community where v gives the best gain. The
+         * gain of joining community d is the weight from v into d less the
+         * weight expected by chance, tot(d) * k(v) / 2m.
+         */
+        private int bestCommunity(int v, int[] communities, double[] totals) {
+            Scratch s = scratch.get();
+            int own = communities[v];
+            double k = strength[v];
+            s.touch(own);
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                int u = targets[e];
+                if (u != v) {
+                    s.add(communities[u], weights[e]);
+                }
+            }
+            int best = own;
+            double bestGain = s.weight[own] - (totals[own] - k) * k / total;
+            for (int i = 0; i < s.size; i++) {
+                int d = s.touched[i];
+                if (d == own) {
+                    continue;
+                }
+                double gain = s.weight[d] - totals[d] * k / total;
+                if (gain > bestGain || (gain == bestGain && d < best)) {
+                    bestGain = gain;
+                    best = d;
+                }
+            }
+            s.clear();
+            return best;
+        }
+
+        private double modularity(int[] communities) {
+            if (total == 0) {
+                return 0;
+            }
+            double[] inside = new double[n], totals = new double[n];
+            for (int u = 0; u < n; u++) {
+                int c = communities[u];
+                inside[c] += loops[u];
+                totals[c] += strength[u];
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    if (communities[targets[e]] == c) {
+                        inside[c] += weights[e];
+                    }
+                }
+            }
+            double q = 0;
+            for (int c = 0; c < n; c++) {
+                double share = totals[c] / total;
+                q += inside[c] / total - share * share;
+            }
+            return q;
+        }
+
+        /**
+         * Collapses each community into one vertex. Edges between two
+         * communities are summed and edges inside a community become its
+         * loop.
+         */
+        private Level aggregate(int[] communities, int count) {
+            int[] members = new int[n], start = new int[count + 1];
+            for (int v = 0; v < n; v++) {
+                start[communities[v] + 1]++;
+            }
+            for (int c = 0; c < count; c++) {
+                start[c + 1] += start[c];
+            }
+            int[] next = Arrays.copyOf(start, count);
+            for (int v = 0; v < n; v++) {
+                members[next[communities[v]]++] = v;
+            }
+
+            double[] newLoops = new double[count];
+            int[] newOffsets = new int[count + 1];
+            int[] newTargets = new int[Math.max(16, targets.length)];
+            double[] newWeights = new double[newTargets.length];
+            Scratch s = new Scratch(count);
+            int arcs = 0;
+            for (int c = 0; c < count; c++) {
+                for (int i = start[c]; i < start[c + 1]; i++) {
+                    int v = members[i];
+                    newLoops[c] += loops[v];
+                    for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                        int d = communities[targets[e]];
+                        if (d == c) {
+                            newLoops[c] += weights[e];
+                        } else {
+                            s.add(d, weights[e]);
+                        }
+                    }
+                }
+                for (int i = 0; i < s.size; i++) {
+                    int d = s.touched[i];
+                    newTargets[arcs] = d;
+                    newWeights[arcs++] = s.weight[d];
+                }
+                s.clear();
+                newOffsets[c + 1] = arcs;
+            }
+            return new Level(count, newOffsets, Arrays.copyOf(newTargets, arcs),
+                    Arrays.copyOf(newWeights, arcs), newLoops);
+        }
+
+        private IndexedGraph<Integer> toIndexedGraph() {
+            Vertex<Integer>[] vertices = new Vertex[n];
+            int[] newOffsets = new int[n + 1];
+            int loopCount = 0;
+            for (int c = 0; c < n; c++) {
+                vertices[c] = new Vertex<>(c);
+                if (loops[c] > 0) {
+                    loopCount++;
+                }
+            }
+            int[] newTargets = new int[targets.length + loopCount];
+            float[] newWeights = new float[newTargets.length];
+            int arcs = 0;
+            for (int c = 0; c < n; c++) {
+                if (loops[c] > 0) {
+                    newTargets[arcs] = c;
+                    newWeights[arcs++] = (float) loops[c];
+                }
+                for (int e = offsets[c]; e < offsets[c + 1]; e++) {
+                    newTargets[arcs] = targets[e];
+                    newWeights[arcs++] = (float) weights[e];
+                }
+                newOffsets[c + 1] = arcs;
+            }
+            return new IndexedGraph<>(vertices, newOffsets, newTargets,
+                    newWeights, false, true);
+        }
+
+        private int[] shuffledOrder() {
+            int[] order = new int[n];
+            for (int v = 0; v < n; v++) {
+                order[v] = v;
+            }
+            Random random = new Random(n);
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = order[i];
+                order[i] = order[j];
+                order[j] = t;
+            }
+            return order;
+        }
+    }
+
+    /**
+     * A sparse accumulator of weight per community. Only the touched
+     * entries are cleared so it can be reused for every vertex.
+     */
+    private static class Scratch {
+
+        private final double[] weight;
+        private final boolean[] used;
+        private final int[] touched;
+        private int size;
+
+        private Scratch(int n) {
+            weight = new double[n];
+            used = new boolean[n];
+            touched = new int[n];
+        }
+
+        private void touch(int c) {
+            if (!used[c]) {
+                used[c] = true;
+                touched[size++] = c;
+            }
+        }
+
+        private void add(int c, double w) {
+            touch(c);
+            weight[c] += w;
+        }
+
+        private void clear() {
+            for (int i = 0; i < size; i++) {
+                weight[touched[i]] = 0;
+                used[touched[i]] = false;
+            }
+            size = 0;
+        }
+    }
+}
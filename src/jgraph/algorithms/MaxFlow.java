@@ -0,0 +1,458 @@
+package jgraph.algorithms;
+
+import java.util.Arrays;
+import jgraph.graph.Graph;
+import jgraph.graph.IndexedGraph;
+
+/**
+ * Computes the maximum flow and minimum cut between two vertices of a graph
+ * where the weight of each edge is its capacity. An unweighted graph gives
+ * every edge a capacity of one and an undirected edge can carry flow in
+ * either direction.
+ *
+ * The residual network is built once when this object is created so many
+ * source and sink pairs can be solved against the same graph. Two algorithms
+ * are offered, push-relabel using highest label selection with the global
+ * relabeling and gap heuristics, and Dinic's blocking flow algorithm.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public class MaxFlow<Data extends Comparable> {
+
+    private final IndexedGraph<Data> graph;
+
+    /**
+     * The number of vertices.
+     */
+    private final int n;
+
+    /**
+     * The residual arcs of vertex v are in the range first[v] to first[v + 1].
+     */
+    private final int[] first;
+
+    /**
+     * The vertex each residual arc goes to.
+     */
+    private final int[] head;
+
+    /**
+     * The residual arc going the opposite way of each residual arc.
+     */
+    private final int[] mate;
+
+    /**
+     * The capacity of each residual arc, reverse arcs have no capacity.
+     */
+    private final double[] capacity;
+
+    /**
+     * Maps each edge in the indexed graph to its forward residual arc.
+     */
+    private final int[] arcOf;
+
+    public MaxFlow(Graph<Data> graph) {
+        this(new IndexedGraph<>(graph));
+    }
+
+    /**
+     * Builds the residual network for the graph. Each edge becomes a forward
+     * arc holding the capacity and a reverse arc with no capacity.
+     *
+     * @param graph The capacity graph
+     */
+    public MaxFlow(IndexedGraph<Data> graph) {
+        this.graph = graph;
+        n = graph.getVertexCount();
+        int m = graph.getArcCount();
+
+        first = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                first[u + 1]++;
+                first[graph.target(e) + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            first[v + 1] += first[v];
+        }
+
+        head = new int[2 * m];
+        mate = new int[2 * m];
+        capacity = new double[2 * m];
+        arcOf = new int[m];
+        int[] next = Arrays.copyOf(first, n);
+
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int v = graph.target(e);
+                int forward = next[u]++, reverse = next[v]++;
+                head[forward] = v;
+                head[reverse] = u;
+                mate[forward] = reverse;
+                mate[reverse] = forward;
+                capacity[forward] = graph.isWeighted() ? graph.weight(e) : 1;
+                arcOf[e] = forward;
+            }
+        }
+    }
+
+    /**
+     * Finds the maximum flow using push-relabel.
+     *
+     * @param source The vertex the flow leaves from
+     * @param sink The vertex the flow arrives at
+     * @return The flow value, the flow on each edge and the minimum cut
+     */
+    public FlowResult<Data> pushRelabel(Data source, Data sink) {
+        int s = checkedIndex(source), t = checkedIndex(sink);
+        if (s == t) {
+            throw new IllegalArgumentException("Source and sink are the same vertex");
+        }
+        double[] residual = capacity.clone();
+        double value = new PushRelabel(s, t, residual).run();
+        return result(s, value, residual);
+    }
+
+    /**
+     * Finds the maximum flow using Dinic's algorithm.
+     *
+     * @param source The vertex the flow leaves from
+     * @param sink The vertex the flow arrives at
+     * @return The flow value, the flow on each edge and the minimum cut
+     */
+    public FlowResult<Data> dinic(Data source, Data sink) {
+        int s = checkedIndex(source), t = checkedIndex(sink);
+        if (s == t) {
+            throw new IllegalArgumentException("Source and sink are the same vertex");
+        }
+        double[] residual = capacity.clone();
+        int[] level = new int[n], current = new int[n], queue = new int[n];
+        int[] path = new int[n];
+        double value = 0;
+
+        while (buildLevels(s, t, residual, level, queue)) {
+            System.arraycopy(first, 0, current, 0, n);
+            int depth = 0, v = s;
+
+            while (true) {
+                if (v == t) {
+                    double f = Double.MAX_VALUE;
+                    for (int i = 0; i < depth; i++) {
+                        f = Math.min(f, residual[path[i]]);
+                    }
+                    for (int i = 0; i < depth; i++) {
+                        residual[path[i]] -= f;
+                        residual[mate[path[i]]] += f;
+                    }
+                    value += f;
+                    // Back up to the tail of the first saturated arc
+                    depth = 0;
+                    while (residual[path[depth]] > 0) {
+                        depth++;
+                    }
+                    v = (depth == 0) ? s : head[path[depth - 1]];
+                    continue;
+                }
+                int end = first[v + 1], a = current[v];
+                while (a < end && (residual[a] <= 0 || level[head[a]] != level[v] + 1)) {
+                    a++;
+                }
+                current[v] = a;
+                if (a < end) {
+                    path[depth++] = a;
+                    v = head[a];
+                } else {
+                    if (v == s) {
+                        break;
+                    }
+                    level[v] = -1;
+                    depth--;
+                    v = (depth == 0) ? s : head[path[depth - 1]];
+                    current[v]++;
+                }
+            }
+        }
+        return result(s, value, residual);
+    }
+
+    /**
+     * Labels each vertex with its breadth first distance from the source in
+     * the residual network.
+     *
+     * @return True if the sink can still be reached
+     */
+    private boolean buildLevels(int s, int t, double[] residual, int[] level, int[] queue) {
+        Arrays.fill(level, -1);
+        int front = 0, back = 0;
+        level[s] = 0;
+        queue[back++] = s;
+        while (front < back) {
+            int u = queue[front++];
+            for (int a = first[u]; a < first[u + 1]; a++) {
+                int v = head[a];
+                if (residual[a] > 0 && level[v] < 0) {
+                    level[v] = level[u] + 1;
+                    queue[back++] = v;
+                }
+            }
+        }
+        return level[t] >= 0;
+    }
+
+    /**
+     * Reads the edge flows out of the residual network and finds the source
+     * side of the minimum cut, which is every vertex still reachable from
+     * the source.
+     */
+    private FlowResult<Data> result(int s, double value, double[] residual) {
+        double[] flows = new double[arcOf.length];
+        for (int e = 0; e < arcOf.length; e++) {
+            flows[e] = capacity[arcOf[e]] - residual[arcOf[e]];
+        }
+        boolean[] sourceSide = new boolean[n];
+        int[] queue = new int[n];
+        int front = 0, back = 0;
+        sourceSide[s] = true;
+        queue[back++] = s;
+        while (front < back) {
+            int u = queue[front++];
+            for (int a = first[u]; a < first[u + 1]; a++) {
+                int v = head[a];
+                if (residual[a] > 0 && !sourceSide[v]) {
+                    sourceSide[v] = true;
+                    queue[back++] = v;
+                }
+            }
+        }
+        return new FlowResult<>(graph, value, flows, sourceSide);
+    }
+
+    private int checkedIndex(Data v) {
+        int index = graph.indexOf(v);
+        if (index < 0) {
+            throw new IllegalArgumentException("Vertex not found: " + v);
+        }
+        return index;
+    }
+
+    /**
+     * Push-relabel state for a single source and sink. Active vertices are
+     * kept in buckets by height and the highest one is always discharged
+     * next. Every vertex below n is also kept in a doubly linked bucket so
+     * an empty height (a gap) can be found in constant time, everything above
+     * a gap can no longer reach the sink and is lifted above n at once.
+     */
+    private class PushRelabel {
+
+        private final int s, t;
+        private final double[] residual;
+        private final double[] excess;
+        private final int[] height, current, queue;
+        private final int[] activeHead, activeNext;
+        private final int[] bucketHead, bucketNext, bucketPrev;
+        private int maxActive, maxBucket, relabels;
+
+        private PushRelabel(int s, int t, double[] residual) {
+            this.s = s;
+            this.t = t;
+            this.residual = residual;
+            excess = new double[n];
+            height = new int[n];
+            current = new int[n];
+            queue = new int[n];
+            activeHead = new int[2 * n + 1];
+            activeNext = new int[n];
+            bucketHead = new int[2 * n + 1];
+            bucketNext = new int[n];
+            bucketPrev = new int[n];
+        }
+
+        private double run() {
+            for (int a = first[s]; a < first[s + 1]; a++) {
+                double c = residual[a];
+                if (c > 0) {
+                    residual[a] = 0;
+                    residual[mate[a]] += c;
+                    excess[head[a]] += c;
+                    excess[s] -= c;
+                }
+            }
+            globalRelabel();
+
+            while (maxActive >= 0) {
+                int v = activeHead[maxActive];
+                if (v < 0) {
+                    maxActive--;
+                    continue;
+                }
+                activeHead[maxActive] = activeNext[v];
+                discharge(v);
+                if (relabels > n) {
+                    globalRelabel();
+                }
+            }
+            return excess[t];
+        }
+
+        /**
+         * Pushes the excess of v along admissible arcs, relabeling whenever
+         * none are left, until v has no excess.
+         */
+        private void discharge(int v) {
+            int a = current[v];
+            while (excess[v] > 0) {
+                if (a == first[v + 1]) {
+                    relabel(v);
+                    if (height[v] >= 2 * n) {
+                        break;
+                    }
+                    a = first[v];
+                    continue;
+                }
+                int w = head[a];
+                if (residual[a] > 0 && height[w] == height[v] - 1) {
+                    double delta = Math.min(excess[v], residual[a]);
+                    if (excess[w] == 0 && w != s && w != t) {
+                        activate(w);
+                    }
+                    residual[a] -= delta;
+                    residual[mate[a]] += delta;
+                    excess[v] -= delta;
+                    excess[w] += delta;
+                    if (excess[v] == 0) {
+                        break;
+                    }
+                }
+                a++;
+            }
+            current[v] = a;
+        }
+
+        private void relabel(int v) {
+            int oldHeight = height[v], newHeight = 2 * n;
+            for (int a = first[v]; a < first[v + 1]; a++) {
+                if (residual[a] > 0) {
+                    newHeight = Math.min(newHeight, height[head[a]] + 1);
+                }
+            }
+            relabels++;
+            unlink(v);
+            if (oldHeight < n && bucketHead[oldHeight] < 0) {
+                gap(oldHeight);
+                newHeight = Math.max(newHeight, n + 1);
+            }
+            height[v] = newHeight;
+            if (newHeight < 2 * n) {
+                link(v);
+            }
+        }
+
+        /**
+         * No vertex is left at the given height so no vertex above it can
+         * reach the sink. They are all lifted to n + 1 which keeps the
+         * labeling valid and lets their excess drain back to the source.
+         */
+        private void gap(int empty) {
+            for (int h = empty + 1; h <= maxBucket; h++) {
+                int v = bucketHead[h];
+                bucketHead[h] = -1;
+                while (v >= 0) {
+                    int next = bucketNext[v];
+                    height[v] = n + 1;
+                    link(v);
+                    v = next;
+                }
+                v = activeHead[h];
+                activeHead[h] = -1;
+                while (v >= 0) {
+                    int next = activeNext[v];
+                    activate(v);
+                    v = next;
+                }
+            }
+            maxBucket = empty - 1;
+        }
+
+        /**
+         * Sets each height to the exact distance to the sink in the residual
+         * network. Vertices that can't reach the sink get n plus their
+         * distance to the source.
+         */
+        private void globalRelabel() {
+            relabels = 0;
+            Arrays.fill(height, 2 * n);
+            height[t] = 0;
+            height[s] = n;
+            bfs(t);
+            bfs(s);
+
+            Arrays.fill(activeHead, -1);
+            Arrays.fill(bucketHead, -1);
+            maxActive = -1;
+            maxBucket = 0;
+            for (int v = 0; v < n; v++) {
+                current[v] = first[v];
+                if (v != s && v != t && height[v] < 2 * n) {
+                    link(v);
+                    if (excess[v] > 0) {
+                        activate(v);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Walks the residual arcs backwards from root giving unlabeled
+         * vertices one more than the height they were reached from.
+         */
+        private void bfs(int root) {
+            int front = 0, back = 0;
+            queue[back++] = root;
+            while (front < back) {
+                int w = queue[front++];
+                for (int a = first[w]; a < first[w + 1]; a++) {
+                    int u = head[a];
+                    if (height[u] == 2 * n && residual[mate[a]] > 0) {
+                        height[u] = height[w] + 1;
+                        queue[back++] = u;
+                    }
+                }
+            }
+        }
+
+        private void activate(int v) {
+            int h = height[v];
+            activeNext[v] = activeHead[h];
+            activeHead[h] = v;
+            if (h > maxActive) {
+                maxActive = h;
+            }
+        }
+
+        private void link(int v) {
+            int h = height[v];
+            bucketPrev[v] = -1;
+            bucketNext[v] = bucketHead[h];
+            if (bucketHead[h] >= 0) {
+                bucketPrev[bucketHead[h]] = v;
+            }
+            bucketHead[h] = v;
+            if (h < n && h > maxBucket) {
+                maxBucket = h;
+            }
+        }
+
+        private void unlink(int v) {
+            int h = height[v];
+            if (bucketPrev[v] >= 0) {
+                bucketNext[bucketPrev[v]] = bucketNext[v];
+            } else {
+                bucketHead[h] = bucketNext[v];
+            }
+            if (bucketNext[v] >= 0) {
+                bucketPrev[bucketNext[v]] = bucketPrev[v];
+            }
+        }
+    }
+}
@@ -0,0 +1,814 @@
+package jgraph.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.PriorityQueue;
+import java.util.Random;
+import jgraph.graph.Graph;
+import jgraph.graph.IndexedGraph;
+import jgraph.graph.Vertex;
+
+/**
+ * Splits a graph into a number of parts of about the same size while cutting
+ * as little edge weight as it can, the multilevel scheme of METIS. The graph
+ * is coarsened by merging each vertex with the neighbor it shares the
+ * heaviest edge with until it is small, the coarsest graph is split by
+ * growing each part from a seed, and the split is carried back down through
+ * every level, refined at each one with Fiduccia-Mattheyses passes.
+ *
+ * A part may hold at most (1 + imbalance) times its share of the vertices.
+ * Edges of a directed graph are cut as if they were undirected, an edge and
+ * its reverse adding up to one undirected edge, and edges of an unweighted
+ * graph have a weight of one. The same graph always gives the same parts.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public class Partitioner<Data extends Comparable> {
+
+    /**
+     * How far past its share of the vertices a part may grow.
+     */
+    public static final double DEFAULT_IMBALANCE = 0.03;
+
+    /**
+     * Coarsening stops once a level has no more than this many vertices for
+     * each part.
+     */
+    public static final int COARSEST_PER_PART = 20;
+
+    /**
+     * The number of initial partitions tried on the coarsest graph, the one
+     * with the smallest cut is kept.
+     */
+    public static final int INITIAL_TRIES = 8;
+
+    /**
+     * The most refinement passes made on one level.
+     */
+    public static final int MAX_PASSES = 8;
+
+    /**
+     * A refinement pass ends after this many moves in a row that did not
+     * give a better partition.
+     */
+    public static final int MAX_UNPRODUCTIVE_MOVES = 256;
+
+    private final IndexedGraph<Data> graph;
+    private final int partCount;
+
+    /**
+     * The part of each vertex of the graph.
+     */
+    private final int[] parts;
+    private final int[] partSizes;
+    private final int maxPartSize;
+    private final double edgeCut;
+    private ArrayList<Shard<Data>> shards;
+
+    public Partitioner(Graph<Data> graph, int partCount) {
+        this(new IndexedGraph<>(graph), partCount, DEFAULT_IMBALANCE);
+    }
+
+    /**
+     * Partitions the graph.
+     *
+     * @param graph The graph to split
+     * @param partCount The number of parts
+     * @param imbalance How far past its share of the vertices a part may
+     * grow, 0.03 lets a part be three percent larger
+     */
+    public Partitioner(IndexedGraph<Data> graph, int partCount, double imbalance) {
+        if (partCount < 1) {
+            throw new IllegalArgumentException("There must be at least one part");
+        }
+        if (imbalance < 0) {
+            throw new IllegalArgumentException("The imbalance can't be negative");
+        }
+        this.graph = graph;
+        this.partCount = partCount;
+        int n = graph.getVertexCount();
+        maxPartSize = Math.max(1, (int) Math.ceil((1 + imbalance) * n / partCount));
+
+        if (partCount == 1) {
+            parts = new int[n];
+            partSizes = new int[]{n};
+            edgeCut = 0;
+            return;
+        }
+        Random random = new Random(n);
+        ArrayList<Level> levels = new ArrayList<>();
+        Level level = new Level(graph);
+        levels.add(level);
+        int coarsest = COARSEST_PER_PART * partCount;
+        int maxVertexWeight = Math.max(1, (int) (1.5 * n / coarsest));
+        while (level.n > coarsest) {
+            Level coarse = level.coarsen(random, maxVertexWeight);
+            if (coarse.n > 0.95 * level.n) {
+                break;
+            }
+            levels.add(coarse);
+            level = coarse;
+        }
+
+        int[] p = level.initialPartition(partCount, maxPartSize, random);
+        for (int i = levels.size() - 2; i >= 0; i--) {
+            Level fine = levels.get(i);
+            p = fine.project(p);
+            fine.refine(p, partCount, maxPartSize, random);
+        }
+        parts = p;
+        partSizes = new int[partCount];
+        for (int v = 0; v < n; v++) {
+            partSizes[parts[v]]++;
+        }
+        edgeCut = levels.get(0).cut(parts);
+    }
+
+    public int getPartCount() {
+        return partCount;
+    }
+
+    /**
+     * Gets the part a vertex was placed in.
+     * @param v The vertex
+     * @return A part id from zero up to the number of parts
+     */
+    public int getPart(Data v) {
+        int index = graph.indexOf(v);
+        if (index < 0) {
+            throw new IllegalArgumentException("Vertex not found: " + v);
+        }
+        return parts[index];
+    }
+
+    /**
+     * Gets the part of every vertex.
+     * @return The part ids in the index order of the indexed graph
+     */
+    public int[] getPartIds() {
+        return parts.clone();
+    }
+
+    public int getPartSize(int part) {
+        return partSizes[part];
+    }
+
+    /**
+     * Gets the most vertices a part was allowed to hold.
+     * @return The size limit of a part
+     */
+    public int getMaxPartSize() {
+        return maxPartSize;
+    }
+
+    /**
+     * Gets the total weight of the edges joining vertices of different
+     * parts.
+     * @return The edge cut
+     */
+    public double getEdgeCut() {
+        return edgeCut;
+    }
+
+    public IndexedGraph<Data> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Gets the vertices of each part.
+     * @return The members of each part in part id order
+     */
+    public ArrayList<ArrayList<Vertex<Data>>> getParts() {
+        ArrayList<ArrayList<Vertex<Data>>> members = new ArrayList<>(partCount);
+        for (int p = 0; p < partCount; p++) {
+            members.add(new ArrayList<>(partSizes[p]));
+        }
+        for (int v = 0; v < parts.length; v++) {
+            members.get(parts[v]).add(graph.getVertex(v));
+        }
+        return members;
+    }
+
+    /**
+     * Gets the induced subgraph and the boundary of each part, made the
+     * first time they are asked for.
+     * @return The shards in part id order
+     */
+    public synchronized ArrayList<Shard<Data>> getShards() {
+        if (shards == null) {
+            shards = makeShards();
+        }
+        return shards;
+    }
+
+    private ArrayList<Shard<Data>> makeShards() {
+        int n = parts.length;
+        int[] local = new int[n];
+        int[][] members = new int[partCount][];
+        for (int p = 0; p < partCount; p++) {
+            members[p] = new int[partSizes[p]];
+        }
+        int[] filled = new int[partCount];
+        boolean[] boundary = new boolean[n];
+        for (int v = 0; v < n; v++) {
+            int p = parts[v];
+            local[v] = filled[p]++;
+            members[p][local[v]] = v;
+            for (int e = graph.begin(v); e < graph.end(v); e++) {
+                if (parts[graph.target(e)] != p) {
+                    boundary[v] = true;
+                    boundary[graph.target(e)] = true;
+                }
+            }
+        }
+
+        ArrayList<Shard<Data>> list = new ArrayList<>(partCount);
+        for (int p = 0; p < partCount; p++) {
+            int size = partSizes[p], inside = 0, cut = 0;
+            for (int v : members[p]) {
+                for (int e = graph.begin(v); e < graph.end(v); e++) {
+                    if (parts[graph.target(e)] == p) {
+                        inside++;
+                    } else {
+                        cut++;
+                    }
+                }
+            }
+            Vertex<Data>[] vertices = new Vertex[size];
+            boolean[] localBoundary = new boolean[size];
+            int[] offsets = new int[size + 1], targets = new int[inside];
+            float[] weights = new float[inside];
+            int[] cutFrom = new int[cut], cutTo = new int[cut], cutPart = new int[cut];
+            float[] cutWeight = new float[cut];
+            inside = 0;
+            cut = 0;
+            for (int i = 0; i < size; i++) {
+                int v = members[p][i];
+                vertices[i] = graph.getVertex(v);
+                localBoundary[i] = boundary[v];
+                for (int e = graph.begin(v); e < graph.end(v); e++) {
+                    int u = graph.target(e);
+                    if (parts[u] == p) {
+                        targets[inside] = local[u];
+                        weights[inside++] = graph.weight(e);
+                    } else {
+                        cutFrom[cut] = i;
+                        cutTo[cut] = u;
+                        cutPart[cut] = parts[u];
+                        cutWeight[cut++] = graph.weight(e);
+                    }
+                }
+                offsets[i + 1] = inside;
+            }
+            IndexedGraph<Data> subgraph = new IndexedGraph<>(vertices, offsets,
+                    targets, weights, graph.isDirected(), graph.isWeighted());
+            list.add(new Shard<>(p, subgraph, graph, members[p], localBoundary,
+                    cutFrom, cutTo, cutPart, cutWeight));
+        }
+        return list;
+    }
+
+    /**
+     * A possible move of a vertex to another part and the cut weight it
+     * saves. Moves with the larger gain come first.
+     */
+    private static class Move implements Comparable<Move> {
+
+        private final int v, to;
+        private final double gain;
+
+        private Move(int v, int to, double gain) {
+            this.v = v;
+            this.to = to;
+            this.gain = gain;
+        }
+
+        @Override
+        public int compareTo(Move other) {
+            int c = Double.compare(other.gain, gain);
+            return (c != 0) ? c : Integer.compare(v, other.v);
+        }
+    }
+
+    /**
+     * One level of the multilevel scheme. The edges are undirected, stored
+     * in both directions without loops or parallel edges, and every vertex
+     * has the weight of the vertices of the graph it stands for.
+     */
+    private static class Level {
+
+        private final int n;
+        private final int[] vertexWeight;
+        private final int[] offsets, targets;
+        private final double[] weights;
+
+        /**
+         * The vertex of the next coarser level each vertex was merged into.
+         */
+        private int[] map;
+
+        private Level(IndexedGraph graph) {
+            n = graph.getVertexCount();
+            vertexWeight = new int[n];
+            Arrays.fill(vertexWeight, 1);
+            boolean directed = graph.isDirected();
+            boolean weighted = graph.isWeighted();
+
+            int[] inOffsets = null, inSources = null;
+            double[] inWeights = null;
+            if (directed) {
+                inOffsets = new int[n + 1];
+                inSources = new int[graph.getArcCount()];
+                inWeights = new double[inSources.length];
+                for (int e = 0; e < inSources.length; e++) {
+                    inOffsets[graph.target(e) + 1]++;
+                }
+                for (int v = 0; v < n; v++) {
+                    inOffsets[v + 1] += inOffsets[v];
+                }
+                int[] next = Arrays.copyOf(inOffsets, n);
+                for (int u = 0; u < n; u++) {
+                    for (int e = graph.begin(u); e < graph.end(u); e++) {
+                        int slot = next[graph.target(e)]++;
+                        inSources[slot] = u;
+                        inWeights[slot] = weighted ? graph.weight(e) : 1;
+                    }
+                }
+            }
+
+            offsets = new int[n + 1];
+            int[] newTargets = new int[graph.getArcCount() * (directed ? 2 : 1)];
+            double[] newWeights = new double[newTargets.length];
+            Scratch s = new Scratch(n);
+            int arcs = 0;
+            for (int u = 0; u < n; u++) {
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    int v = graph.target(e);
+                    if (v != u) {
+                        s.add(v, weighted ? graph.weight(e) : 1);
+                    }
+                }
+                if (directed) {
+                    for (int e = inOffsets[u]; e < inOffsets[u + 1]; e++) {
+                        if (inSources[e] != u) {
+                            s.add(inSources[e], inWeights[e]);
+                        }
+                    }
+                }
+                arcs = s.drain(newTargets, newWeights, arcs);
+                offsets[u + 1] = arcs;
+            }
+            targets = Arrays.copyOf(newTargets, arcs);
+            weights = Arrays.copyOf(newWeights, arcs);
+        }
+
+        private Level(int[] vertexWeight, int[] offsets, int[] targets, double[] weights) {
+            n = vertexWeight.length;
+            this.vertexWeight = vertexWeight;
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+        }
+
+        /**
+         * Merges each vertex with the unmatched neighbor it has the heaviest
+         * edge to, visiting the vertices in a random order. Vertices that
+         * would grow past the weight limit stay on their own.
+         */
+        private Level coarsen(Random random, int maxVertexWeight) {
+            int[] match = new int[n];
+            Arrays.fill(match, -1);
+            map = new int[n];
+            int[] representative = new int[n];
+            int count = 0;
+            for (int u : shuffledOrder(random)) {
+                if (match[u] != -1) {
+                    continue;
+                }
+                int best = u;
+                double heaviest = -1;
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    int v = targets[e];
+                    if (match[v] == -1 && weights[e] > heaviest
+                            && vertexWeight[u] + vertexWeight[v] <= maxVertexWeight) {
+                        heaviest = weights[e];
+                        best = v;
+                    }
+                }
+                match[u] = best;
+                match[best] = u;
+                map[u] = count;
+                map[best] = count;
+                representative[count++] = u;
+            }
+
+            int[] coarseWeight = new int[count];
+            int[] coarseOffsets = new int[count + 1];
+            int[] coarseTargets = new int[targets.length];
+            double[] coarseWeights = new double[targets.length];
+            Scratch s = new Scratch(count);
+            int arcs = 0;
+            for (int c = 0; c < count; c++) {
+                int u = representative[c], v = match[u];
+                coarseWeight[c] = vertexWeight[u] + ((v != u) ? vertexWeight[v] : 0);
+                gather(u, c, s);
+                if (v != u) {
+                    gather(v, c, s);
+                }
+                arcs = s.drain(coarseTargets, coarseWeights, arcs);
+                coarseOffsets[c + 1] = arcs;
+            }
+            return new Level(coarseWeight, coarseOffsets,
+                    Arrays.copyOf(coarseTargets, arcs), Arrays.copyOf(coarseWeights, arcs));
+        }
+
+        private void gather(int u, int c, Scratch s) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int d = map[targets[e]];
+                if (d != c) {
+                    s.add(d, weights[e]);
+                }
+            }
+        }
+
+        /**
+         * Gives every vertex the part of the coarse vertex it was merged
+         * into.
+         */
+        private int[] project(int[] coarseParts) {
+            int[] p = new int[n];
+            for (int v = 0; v < n; v++) {
+                p[v] = coarseParts[map[v]];
+            }
+            return p;
+        }
+
+        /**
+         * Grows several partitions from random seeds and keeps the best one
+         * after refining them.
+         */
+        private int[] initialPartition(int k, int maxPart, Random random) {
+            int[] best = null;
+            long bestOver = 0;
+            double bestCut = 0;
+            for (int i = 0; i < INITIAL_TRIES; i++) {
+                int[] p = grow(k, random);
+                refine(p, k, maxPart, random);
+                long over = overweight(partWeights(p, k), maxPart);
+                double cut = cut(p);
+                if (best == null || over < bestOver || (over == bestOver && cut < bestCut)) {
+                    best = p;
+                    bestOver = over;
+                    bestCut = cut;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Grows the parts one at a time. A part takes the vertex with the
+         * most edge weight into it until the part has its share of the
+         * remaining weight, starting again from a random vertex when it runs
+         * out of neighbors. The last part gets what is left.
+         */
+        private int[] grow(int k, Random random) {
+            int[] p = new int[n];
+            Arrays.fill(p, -1);
+            int[] order = shuffledOrder(random);
+            double[] connection = new double[n];
+            long remaining = 0;
+            for (int v = 0; v < n; v++) {
+                remaining += vertexWeight[v];
+            }
+            int next = 0;
+            for (int q = 0; q < k - 1; q++) {
+                double share = (double) remaining / (k - q);
+                long weight = 0;
+                PriorityQueue<Move> frontier = new PriorityQueue<>();
+                ArrayList<Integer> touched = new ArrayList<>();
+                while (weight < share) {
+                    int v = -1;
+                    while (!frontier.isEmpty() && v == -1) {
+                        Move m = frontier.poll();
+                        if (p[m.v] == -1 && m.gain == connection[m.v]) {
+                            v = m.v;
+                        }
+                    }
+                    while (v == -1 && next < n) {
+                        if (p[order[next]] == -1) {
+                            v = order[next];
+                        }
+                        next++;
+                    }
+                    if (v == -1) {
+                        break;
+                    }
+                    if (weight > 0 && weight + vertexWeight[v] - share > share - weight) {
+                        break;
+                    }
+                    p[v] = q;
+                    weight += vertexWeight[v];
+                    for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                        int u = targets[e];
+                        if (p[u] == -1) {
+                            if (connection[u] == 0) {
+                                touched.add(u);
+                            }
+                            connection[u] += weights[e];
+                            frontier.add(new Move(u, q, connection[u]));
+                        }
+                    }
+                }
+                for (int u : touched) {
+                    connection[u] = 0;
+                }
+                remaining -= weight;
+            }
+            for (int v = 0; v < n; v++) {
+                if (p[v] == -1) {
+                    p[v] = k - 1;
+                }
+            }
+            return p;
+        }
+
+        /**
+         * Refines the partition with Fiduccia-Mattheyses passes until a pass
+         * finds nothing better, first moving vertices out of parts that are
+         * too heavy.
+         */
+        private void refine(int[] p, int k, int maxPart, Random random) {
+            long[] partWeight = partWeights(p, k);
+            Scratch s = new Scratch(k);
+            for (int pass = 0; pass < MAX_PASSES; pass++) {
+                balance(p, partWeight, maxPart, s);
+                if (!improve(p, partWeight, maxPart, s, random)) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * One Fiduccia-Mattheyses pass. The move with the best gain is made
+         * even when the gain is negative and each vertex moves at most once,
+         * then the moves made after the best partition seen are undone. A
+         * partition is better if its parts are less overweight or, being as
+         * balanced, it cuts less.
+         *
+         * @return True if the pass found a better partition
+         */
+        private boolean improve(int[] p, long[] partWeight, int maxPart, Scratch s,
+                Random random) {
+            PriorityQueue<Move> heap = new PriorityQueue<>();
+            for (int v : shuffledOrder(random)) {
+                Move m = bestMove(v, p, partWeight, maxPart, s);
+                if (m != null) {
+                    heap.add(m);
+                }
+            }
+            boolean[] locked = new boolean[n];
+            int[] moved = new int[n], movedFrom = new int[n];
+            int moves = 0, bestMoves = 0;
+            double gain = 0, bestGain = 0;
+            long bestOver = overweight(partWeight, maxPart);
+
+            while (!heap.isEmpty() && moves - bestMoves < MAX_UNPRODUCTIVE_MOVES) {
+                Move m = heap.poll();
+                if (locked[m.v]) {
+                    continue;
+                }
+                Move now = bestMove(m.v, p, partWeight, maxPart, s);
+                if (now == null) {
+                    continue;
+                }
+                if (now.gain != m.gain || now.to != m.to) {
+                    heap.add(now);
+                    continue;
+                }
+                int v = now.v, from = p[v];
+                p[v] = now.to;
+                partWeight[from] -= vertexWeight[v];
+                partWeight[now.to] += vertexWeight[v];
+                locked[v] = true;
+                moved[moves] = v;
+                movedFrom[moves++] = from;
+                gain += now.gain;
+
+                long over = overweight(partWeight, maxPart);
+                if (over < bestOver || (over == bestOver && gain > bestGain + 1e-9)) {
+                    bestOver = over;
+                    bestGain = gain;
+                    bestMoves = moves;
+                }
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    int u = targets[e];
+                    if (!locked[u]) {
+                        Move next = bestMove(u, p, partWeight, maxPart, s);
+                        if (next != null) {
+                            heap.add(next);
+                        }
+                    }
+                }
+            }
+            for (int i = moves - 1; i >= bestMoves; i--) {
+                int v = moved[i];
+                partWeight[p[v]] -= vertexWeight[v];
+                partWeight[movedFrom[i]] += vertexWeight[v];
+                p[v] = movedFrom[i];
+            }
+            return bestMoves > 0;
+        }
+
+        /**
+         * Finds the neighboring part v saves the most cut weight by moving
+         * to. A move may not push a part over the limit unless it takes
+         * weight from a part that is heavier still.
+         *
+         * @return The move or null if v has no neighbor in another part it
+         * may move to
+         */
+        private Move bestMove(int v, int[] p, long[] partWeight, int maxPart, Scratch s) {
+            int own = p[v];
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                s.add(p[targets[e]], weights[e]);
+            }
+            Move best = null;
+            int w = vertexWeight[v];
+            for (int i = 0; i < s.size; i++) {
+                int d = s.touched[i];
+                if (d == own) {
+                    continue;
+                }
+                long after = partWeight[d] + w;
+                if (after > maxPart && after >= partWeight[own]) {
+                    continue;
+                }
+                double gain = s.weight[d] - s.weight[own];
+                if (best == null || gain > best.gain
+                        || (gain == best.gain && partWeight[d] < partWeight[best.to])) {
+                    best = new Move(v, d, gain);
+                }
+            }
+            s.clear();
+            return best;
+        }
+
+        /**
+         * Moves vertices out of parts that are over the limit into parts
+         * with room, the moves that cost the least cut weight first.
+         */
+        private void balance(int[] p, long[] partWeight, int maxPart, Scratch s) {
+            if (overweight(partWeight, maxPart) == 0) {
+                return;
+            }
+            ArrayList<Move> candidates = new ArrayList<>();
+            for (int v = 0; v < n; v++) {
+                int own = p[v];
+                if (partWeight[own] <= maxPart) {
+                    continue;
+                }
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    s.add(p[targets[e]], weights[e]);
+                }
+                int best = lightest(partWeight, own);
+                double bestGain = -s.weight[own];
+                for (int i = 0; i < s.size; i++) {
+                    int d = s.touched[i];
+                    double gain = s.weight[d] - s.weight[own];
+                    if (d != own && gain > bestGain
+                            && partWeight[d] + vertexWeight[v] <= maxPart) {
+                        best = d;
+                        bestGain = gain;
+                    }
+                }
+                s.clear();
+                if (best != own) {
+                    candidates.add(new Move(v, best, bestGain));
+                }
+            }
+            Collections.sort(candidates);
+            for (Move m : candidates) {
+                int v = m.v, from = p[v], w = vertexWeight[v];
+                if (partWeight[from] <= maxPart) {
+                    continue;
+                }
+                int to = m.to;
+                if (partWeight[to] + w > maxPart) {
+                    to = lightest(partWeight, from);
+                    if (to == from || partWeight[to] + w >= partWeight[from]) {
+                        continue;
+                    }
+                }
+                p[v] = to;
+                partWeight[from] -= w;
+                partWeight[to] += w;
+            }
+        }
+
+        private static int lightest(long[] partWeight, int skip) {
+            int best = skip;
+            for (int d = 0; d < partWeight.length; d++) {
+                if (d != skip && (best == skip || partWeight[d] < partWeight[best])) {
+                    best = d;
+                }
+            }
+            return best;
+        }
+
+        private long[] partWeights(int[] p, int k) {
+            long[] partWeight = new long[k];
+            for (int v = 0; v < n; v++) {
+                partWeight[p[v]] += vertexWeight[v];
+            }
+            return partWeight;
+        }
+
+        private static long overweight(long[] partWeight, int maxPart) {
+            long over = 0;
+            for (long w : partWeight) {
+                over += Math.max(0, w - maxPart);
+            }
+            return over;
+        }
+
+        /**
+         * The weight of the edges between different parts, each edge is
+         * stored twice so the sum is halved.
+         */
+        private double cut(int[] p) {
+            double cut = 0;
+            for (int u = 0; u < n; u++) {
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    if (p[targets[e]] != p[u]) {
+                        cut += weights[e];
+                    }
+                }
+            }
+            return cut / 2;
+        }
+
+        private int[] shuffledOrder(Random random) {
+            int[] order = new int[n];
+            for (int v = 0; v < n; v++) {
+                order[v] = v;
+            }
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = order[i];
+                order[i] = order[j];
+                order[j] = t;
+            }
+            return order;
+        }
+    }
+
+    /**
+     * A sparse accumulator of weight per vertex or part. Only the touched
+     * entries are cleared so it can be reused for every vertex.
+     */
+    private static class Scratch {
+
+        private final double[] weight;
+        private final boolean[] used;
+        private final int[] touched;
+        private int size;
+
+        private Scratch(int n) {
+            weight = new double[n];
+            used = new boolean[n];
+            touched = new int[n];
+        }
+
+        private void add(int c, double w) {
+            if (!used[c]) {
+                used[c] = true;
+                touched[size++] = c;
+            }
+            weight[c] += w;
+        }
+
+        /**
+         * Copies the touched entries into the arrays from the given slot on
+         * and clears them.
+         *
+         * @return The slot after the last entry copied
+         */
+        private int drain(int[] targets, double[] weights, int slot) {
+            for (int i = 0; i < size; i++) {
+                targets[slot] = touched[i];
+                weights[slot++] = weight[touched[i]];
+            }
+            clear();
+            return slot;
+        }
+
+        private void clear() {
+            for (int i = 0; i < size; i++) {
+                weight[touched[i]] = 0;
+                used[touched[i]] = false;
+            }
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package jgraph.algorithms;
+
+import java.util.Arrays;
+import jgraph.graph.Graph;
+import jgraph.graph.IndexedGraph;
+
+/**
+ * A precomputed index that answers whether there is a path from one vertex
+ * to another without walking the graph. The strongly connected components of
+ * the graph are collapsed into single vertices which leaves a directed
+ * acyclic graph. Every vertex of that graph is then given two short labels,
+ * the hubs it can reach and the hubs that can reach it, built with pruned
+ * breadth first searches (2-hop labeling). A reaches B exactly when the
+ * labels of A and B share a hub, so a query is a merge of two small sorted
+ * arrays.
+ *
+ * The index is built from the graph when it is created. Adding an edge to
+ * the graph can be patched into the index with addEdge, an edge that closes
+ * a cycle or any other change to the graph needs a rebuild which happens
+ * on the next query.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public class ReachabilityIndex<Data extends Comparable> {
+
+    private final Graph<Data> source;
+    private IndexedGraph<Data> graph;
+
+    /**
+     * The component of each vertex. Components are numbered in the order
+     * they are completed, so an edge between components always goes from a
+     * higher number to a lower one.
+     */
+    private int[] component;
+    private int components;
+
+    /**
+     * False once a patched edge breaks the component numbering order.
+     */
+    private boolean ordered;
+
+    /**
+     * Edges between components.
+     */
+    private int[][] out, in;
+    private int[] outSize, inSize;
+
+    /**
+     * The rank of each component as a hub, and the component at each rank.
+     */
+    private int[] rank, hub;
+
+    /**
+     * The sorted hub ranks reachable from each component and the ranks that
+     * reach each component.
+     */
+    private int[][] labelOut, labelIn;
+    private int[] labelOutSize, labelInSize;
+
+    /**
+     * The number of label entries built from scratch and the number added
+     * by patches since. Once the patches outgrow the built labels the index
+     * is rebuilt to keep the labels small.
+     */
+    private long builtEntries, patchedEntries;
+
+    private boolean stale;
+
+    private int[] queue, seen;
+    private int epoch;
+
+    /**
+     * Builds the index for the given graph.
+     *
+     * @param graph The graph being indexed
+     */
+    public ReachabilityIndex(Graph<Data> graph) {
+        source = graph;
+        rebuild();
+    }
+
+    /**
+     * Checks to see if there is a path from A to B. Every vertex has a path
+     * to itself.
+     *
+     * @param a From vertex
+     * @param b To vertex
+     * @return True if B can be reached from A
+     */
+    public boolean hasPath(Data a, Data b) {
+        if (stale) {
+            rebuild();
+        }
+        int u = graph.indexOf(a), v = graph.indexOf(b);
+        if (u < 0 || v < 0) {
+            return false;
+        }
+        return reaches(component[u], component[v]);
+    }
+
+    /**
+     * Patches the index after an edge from A to B was added to the graph.
+     * Every vertex that reaches A now reaches everything B reaches, so B's
+     * component is added as a hub to the labels of both sides. If B already
+     * reaches A the edge joins components and the index is rebuilt instead.
+     *
+     * @param a From vertex
+     * @param b To vertex
+     */
+    public void addEdge(Data a, Data b) {
+        if (stale) {
+            return;
+        }
+        int u = graph.indexOf(a), v = graph.indexOf(b);
+        if (u < 0 || v < 0) {
+            stale = true;
+            return;
+        }
+        int cu = component[u], cv = component[v];
+        if (reaches(cu, cv)) {
+            return;
+        }
+        if (reaches(cv, cu) || !source.isDirected()) {
+            stale = true;
+            return;
+        }
+        out[cu] = append(out[cu], outSize[cu]++, cv);
+        in[cv] = append(in[cv], inSize[cv]++, cu);
+        if (cu < cv) {
+            ordered = false;
+        }
+
+        int r = rank[cv];
+        epoch++;
+        int front = 0, back = 0;
+        queue[back++] = cv;
+        seen[cv] = epoch;
+        while (front < back) {
+            int c = queue[front++];
+            if (insert(labelIn, labelInSize, c, r)) {
+                patchedEntries++;
+            }
+            for (int i = 0; i < outSize[c]; i++) {
+                int next = out[c][i];
+                if (seen[next] != epoch) {
+                    seen[next] = epoch;
+                    queue[back++] = next;
+                }
+            }
+        }
+        epoch++;
+        front = back = 0;
+        queue[back++] = cu;
+        seen[cu] = epoch;
+        while (front < back) {
+            int c = queue[front++];
+            if (insert(labelOut, labelOutSize, c, r)) {
+                patchedEntries++;
+            }
+            for (int i = 0; i < inSize[c]; i++) {
+                int next = in[c][i];
+                if (seen[next] != epoch) {
+                    seen[next] = epoch;
+                    queue[back++] = next;
+                }
+            }
+        }
+        if (patchedEntries > builtEntries) {
+            stale = true;
+        }
+    }
+
+    /**
+     * Marks the index as out of date so it is rebuilt on the next query.
+     * Needed after deleting edges or vertices.
+     */
+    public void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * Rebuilds the whole index from the graph.
+     */
+    public final void rebuild() {
+        graph = new IndexedGraph<>(source);
+        findComponents();
+        buildCondensation();
+        buildLabels();
+        stale = false;
+    }
+
+    /**
+     * Gets the number of strongly connected components.
+     * @return The number of components in the graph
+     */
+    public int getComponentCount() {
+        if (stale) {
+            rebuild();
+        }
+        return components;
+    }
+
+    private boolean reaches(int cu, int cv) {
+        if (cu == cv) {
+            return true;
+        }
+        if (ordered && cu < cv) {
+            return false;
+        }
+        return intersects(labelOut[cu], labelOutSize[cu], labelIn[cv], labelInSize[cv]);
+    }
+
+    private static boolean intersects(int[] a, int sizeA, int[] b, int sizeB) {
+        int i = 0, j = 0;
+        while (i < sizeA && j < sizeB) {
+            if (a[i] == b[j]) {
+                return true;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tarjan's algorithm using explicit stacks so deep graphs don't
+     * overflow the call stack.
+     */
+    private void findComponents() {
+        int n = graph.getVertexCount();
+        int[] index = new int[n], low = new int[n];
+        int[] stack = new int[n], call = new int[n], position = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(index, -1);
+        component = new int[n];
+        components = 0;
+        int counter = 0, sp = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int cp = 0;
+            index[root] = low[root] = counter++;
+            stack[sp++] = root;
+            onStack[root] = true;
+            call[cp] = root;
+            position[cp++] = graph.begin(root);
+
+            while (cp > 0) {
+                int v = call[cp - 1];
+                if (position[cp - 1] < graph.end(v)) {
+                    int w = graph.target(position[cp - 1]++);
+                    if (index[w] < 0) {
+                        index[w] = low[w] = counter++;
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        call[cp] = w;
+                        position[cp++] = graph.begin(w);
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                } else {
+                    cp--;
+                    if (low[v] == index[v]) {
+                        int w;
+                        do {
+                            w = stack[--sp];
+                            onStack[w] = false;
+                            component[w] = components;
+                        } while (w != v);
+                        components++;
+                    }
+                    if (cp > 0) {
+                        int u = call[cp - 1];
+                        low[u] = Math.min(low[u], low[v]);
+                    }
+                }
+            }
+        }
+    }
+
+    private void buildCondensation() {
+        int n = graph.getVertexCount();
+        out = new int[components][];
+        in = new int[components][];
+        outSize = new int[components];
+        inSize = new int[components];
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int cu = component[u], cv = component[graph.target(e)];
+                if (cu != cv) {
+                    outSize[cu]++;
+                    inSize[cv]++;
+                }
+            }
+        }
+        for (int c = 0; c < components; c++) {
+            out[c] = new int[outSize[c]];
+            in[c] = new int[inSize[c]];
+            outSize[c] = inSize[c] = 0;
+        }
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int cu = component[u], cv = component[graph.target(e)];
+                if (cu != cv) {
+                    out[cu][outSize[cu]++] = cv;
+                    in[cv][inSize[cv]++] = cu;
+                }
+            }
+        }
+        for (int c = 0; c < components; c++) {
+            outSize[c] = unique(out[c], outSize[c]);
+            inSize[c] = unique(in[c], inSize[c]);
+        }
+        ordered = true;
+    }
+
+    private static int unique(int[] values, int size) {
+        Arrays.sort(values, 0, size);
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (kept == 0 || values[kept - 1] != values[i]) {
+                values[kept++] = values[i];
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Processes components as hubs from the most connected down. Each hub
+     * does a forward and a backward search that stops wherever the labels
+     * built so far already answer the query, which keeps the labels small.
+     */
+    private void buildLabels() {
+        final int c = components;
+        Integer[] order = new Integer[c];
+        for (int i = 0; i < c; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (Integer x, Integer y) -> Long.compare(
+                (long) (inSize[y] + 1) * (outSize[y] + 1),
+                (long) (inSize[x] + 1) * (outSize[x] + 1)));
+        rank = new int[c];
+        hub = new int[c];
+        for (int r = 0; r < c; r++) {
+            hub[r] = order[r];
+            rank[order[r]] = r;
+        }
+
+        labelOut = new int[c][];
+        labelIn = new int[c][];
+        labelOutSize = new int[c];
+        labelInSize = new int[c];
+        for (int i = 0; i < c; i++) {
+            labelOut[i] = new int[2];
+            labelIn[i] = new int[2];
+        }
+        queue = new int[c];
+        seen = new int[c];
+        epoch = 0;
+
+        for (int r = 0; r < c; r++) {
+            int h = hub[r];
+            prunedSearch(h, r, true);
+            prunedSearch(h, r, false);
+        }
+        builtEntries = 0;
+        for (int i = 0; i < c; i++) {
+            builtEntries += labelOutSize[i] + labelInSize[i];
+        }
+        patchedEntries = 0;
+    }
+
+    private void prunedSearch(int h, int r, boolean forward) {
+        epoch++;
+        int front = 0, back = 0;
+        queue[back++] = h;
+        seen[h] = epoch;
+        while (front < back) {
+            int c = queue[front++];
+            if (forward) {
+                if (intersects(labelOut[h], labelOutSize[h], labelIn[c], labelInSize[c])) {
+                    continue;
+                }
+                labelIn[c] = append(labelIn[c], labelInSize[c]++, r);
+            } else {
+                if (intersects(labelOut[c], labelOutSize[c], labelIn[h], labelInSize[h])) {
+                    continue;
+                }
+                labelOut[c] = append(labelOut[c], labelOutSize[c]++, r);
+            }
+            int[] next = forward ? out[c] : in[c];
+            int size = forward ? outSize[c] : inSize[c];
+            for (int i = 0; i < size; i++) {
+                if (seen[next[i]] != epoch) {
+                    seen[next[i]] = epoch;
+                    queue[back++] = next[i];
+                }
+            }
+        }
+    }
+
+    private static int[] append(int[] values, int size, int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(2, size * 2));
+        }
+        values[size] = value;
+        return values;
+    }
+
+    /**
+     * Inserts a hub rank into a sorted label.
+     *
+     * @return False if the label already had the rank
+     */
+    private static boolean insert(int[][] labels, int[] sizes, int c, int r) {
+        int size = sizes[c];
+        int position = Arrays.binarySearch(labels[c], 0, size, r);
+        if (position >= 0) {
+            return false;
+        }
+        position = -position - 1;
+        int[] values = labels[c];
+        if (size == values.length) {
+            values = labels[c] = Arrays.copyOf(values, Math.max(2, size * 2));
+        }
+        System.arraycopy(values, position, values, position + 1, size - position);
+        values[position] = r;
+        sizes[c]++;
+        return true;
+    }
+}
@@ -0,0 +1,237 @@
+package jgraph.algorithms;
+
+import java.util.Arrays;
+import jgraph.graph.Graph;
+import jgraph.graph.IndexedGraph;
+
+/**
+ * Gives the vertices of a graph new indices so that vertices which are
+ * walked together are stored together. The neighbors of a vertex then sit
+ * close to it in the arrays of the graph and a search that reads them finds
+ * more of them already in the cache. Only the indices change, the reordered
+ * graph holds the same vertex objects so they are still found by their data.
+ *
+ * A directed graph is ordered by the edges leaving each vertex. The same
+ * graph always gives the same order.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public class Reordering<Data extends Comparable> {
+
+    public enum Strategy {
+        /**
+         * Vertices from the highest degree to the lowest, the vertices most
+         * edges lead to are packed at the front.
+         */
+        DEGREE,
+        /**
+         * Breadth first order from the first vertex of each component.
+         */
+        BREADTH_FIRST,
+        /**
+         * Reverse Cuthill-McKee. Each component is walked breadth first from
+         * a vertex of the lowest degree, neighbors are taken from the lowest
+         * degree up and the whole order is reversed. This keeps the edges
+         * close to the diagonal, which suits meshes and road networks.
+         */
+        REVERSE_CUTHILL_MCKEE,
+        /**
+         * The communities Louvain finds are given consecutive indices, in
+         * the spirit of Rabbit order. Each community keeps the breadth first
+         * order of its vertices. Only for undirected graphs.
+         */
+        COMMUNITY
+    }
+
+    private final IndexedGraph<Data> graph;
+    private final int[] order;
+    private IndexedGraph<Data> reordered;
+
+    public Reordering(Graph<Data> graph, Strategy strategy) {
+        this(new IndexedGraph<>(graph), strategy);
+    }
+
+    /**
+     * Works out the new order of the vertices.
+     *
+     * @param graph The graph
+     * @param strategy How the vertices are ordered
+     */
+    public Reordering(IndexedGraph<Data> graph, Strategy strategy) {
+        this.graph = graph;
+        switch (strategy) {
+            case DEGREE:
+                order = degreeOrder();
+                break;
+            case BREADTH_FIRST:
+                order = breadthFirstOrder(false);
+                break;
+            case REVERSE_CUTHILL_MCKEE:
+                order = breadthFirstOrder(true);
+                for (int i = 0, j = order.length - 1; i < j; i++, j--) {
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                }
+                break;
+            case COMMUNITY:
+                order = communityOrder();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown strategy " + strategy);
+        }
+    }
+
+    /**
+     * Gets the order of the vertices.
+     * @return The old index of each vertex in new index order
+     */
+    public int[] getOrder() {
+        return order.clone();
+    }
+
+    /**
+     * Gets the graph with its vertices in the new order, it is made the
+     * first time it is asked for.
+     * @return The reordered graph
+     */
+    public IndexedGraph<Data> getGraph() {
+        if (reordered == null) {
+            reordered = graph.permute(order);
+        }
+        return reordered;
+    }
+
+    /**
+     * Measures how far apart the ends of the edges of a graph are stored.
+     *
+     * @param graph The graph
+     * @return The average difference between the indices of the two ends of
+     * an edge, 0 for a graph without edges
+     */
+    public static double averageGap(IndexedGraph<?> graph) {
+        long total = 0;
+        for (int u = 0; u < graph.getVertexCount(); u++) {
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                total += Math.abs(graph.target(e) - u);
+            }
+        }
+        return (graph.getArcCount() == 0) ? 0 : (double) total / graph.getArcCount();
+    }
+
+    /**
+     * Sorts the vertices by degree with a counting sort, vertices of the
+     * same degree keep their order.
+     */
+    private int[] degreeOrder() {
+        int n = graph.getVertexCount();
+        int maxDegree = 0;
+        for (int v = 0; v < n; v++) {
+            maxDegree = Math.max(maxDegree, graph.degree(v));
+        }
+        int[] start = new int[maxDegree + 2];
+        for (int v = 0; v < n; v++) {
+            start[maxDegree - graph.degree(v) + 1]++;
+        }
+        for (int d = 0; d <= maxDegree; d++) {
+            start[d + 1] += start[d];
+        }
+        int[] sorted = new int[n];
+        for (int v = 0; v < n; v++) {
+            sorted[start[maxDegree - graph.degree(v)]++] = v;
+        }
+        return sorted;
+    }
+
+    /**
+     * Walks every component breadth first, the order the vertices are
+     * reached in is the new order. Cuthill-McKee starts each component at
+     * the unvisited vertex of the lowest degree and takes the neighbors of a
+     * vertex from the lowest degree up.
+     */
+    private int[] breadthFirstOrder(boolean cuthillMcKee) {
+        int n = graph.getVertexCount();
+        int[] queue = new int[n];
+        boolean[] visited = new boolean[n];
+        int[] starts = cuthillMcKee ? degreeOrder() : null;
+        long[] neighbors = cuthillMcKee ? new long[16] : null;
+        int head = 0, tail = 0;
+        for (int s = n - 1; s >= 0; s--) {
+            // The degree order goes from the highest degree down
+            int source = cuthillMcKee ? starts[s] : n - 1 - s;
+            if (visited[source]) {
+                continue;
+            }
+            visited[source] = true;
+            queue[tail++] = source;
+            while (head < tail) {
+                int u = queue[head++];
+                if (!cuthillMcKee) {
+                    for (int e = graph.begin(u); e < graph.end(u); e++) {
+                        int v = graph.target(e);
+                        if (!visited[v]) {
+                            visited[v] = true;
+                            queue[tail++] = v;
+                        }
+                    }
+                    continue;
+                }
+                // The degree and index are packed in a long so the new
+                // neighbors can be sorted with a primitive sort
+                int count = 0;
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    int v = graph.target(e);
+                    if (!visited[v]) {
+                        visited[v] = true;
+                        if (count == neighbors.length) {
+                            neighbors = Arrays.copyOf(neighbors, count * 2);
+                        }
+                        neighbors[count++] = ((long) graph.degree(v) << 32) | v;
+                    }
+                }
+                Arrays.sort(neighbors, 0, count);
+                for (int i = 0; i < count; i++) {
+                    queue[tail++] = (int) neighbors[i];
+                }
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Gives each community the place of its first vertex in breadth first
+     * order and stably sorts the breadth first order by community.
+     */
+    private int[] communityOrder() {
+        int n = graph.getVertexCount();
+        int[] walk = breadthFirstOrder(false);
+        if (n == 0) {
+            return walk;
+        }
+        Louvain<Data> louvain = new Louvain<>(graph);
+        int communities = louvain.getCommunityCount();
+        int[] community = new int[n];
+        for (int v = 0; v < n; v++) {
+            community[v] = louvain.getCommunity(graph.getData(v));
+        }
+        int[] rank = new int[communities];
+        Arrays.fill(rank, -1);
+        int[] start = new int[communities + 1];
+        int ranked = 0;
+        for (int v : walk) {
+            int c = community[v];
+            if (rank[c] == -1) {
+                rank[c] = ranked++;
+            }
+            start[rank[c] + 1]++;
+        }
+        for (int c = 0; c < communities; c++) {
+            start[c + 1] += start[c];
+        }
+        int[] sorted = new int[n];
+        for (int v : walk) {
+            sorted[start[rank[community[v]]]++] = v;
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,145 @@
+package jgraph.algorithms;
+
+import java.util.ArrayList;
+import jgraph.graph.IndexedGraph;
+import jgraph.graph.Vertex;
+
+/**
+ * One part of a partitioned graph. Holds the subgraph induced by the
+ * vertices of the part and the edges that leave the part, so the part can be
+ * loaded on its own and still know where its neighbors live.
+ *
+ * Cut edges are kept on the side of the vertex they leave. An undirected cut
+ * edge is therefore listed by both of the parts it joins while a directed cut
+ * edge is only listed by the part it starts in. A vertex is on the boundary
+ * if any cut edge starts or ends at it.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public class Shard<Data extends Comparable> {
+
+    private final int part;
+    private final IndexedGraph<Data> graph;
+    private final IndexedGraph<Data> whole;
+
+    /**
+     * The index in the whole graph of each vertex of the shard.
+     */
+    private final int[] globalIndex;
+    private final boolean[] boundary;
+
+    /**
+     * The cut edges, the local vertex each one leaves, the vertex of the
+     * whole graph it goes to, the part of that vertex and its weight.
+     */
+    private final int[] cutFrom, cutTo, cutPart;
+    private final float[] cutWeight;
+
+    Shard(int part, IndexedGraph<Data> graph, IndexedGraph<Data> whole,
+            int[] globalIndex, boolean[] boundary, int[] cutFrom, int[] cutTo,
+            int[] cutPart, float[] cutWeight) {
+        this.part = part;
+        this.graph = graph;
+        this.whole = whole;
+        this.globalIndex = globalIndex;
+        this.boundary = boundary;
+        this.cutFrom = cutFrom;
+        this.cutTo = cutTo;
+        this.cutPart = cutPart;
+        this.cutWeight = cutWeight;
+    }
+
+    public int getPart() {
+        return part;
+    }
+
+    /**
+     * Gets the subgraph made of the vertices of this part and the edges
+     * between them.
+     * @return The induced subgraph
+     */
+    public IndexedGraph<Data> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Gets the index a vertex of the shard has in the whole graph.
+     * @param v The index of the vertex in the shard
+     * @return The index of the vertex in the partitioned graph
+     */
+    public int getGlobalIndex(int v) {
+        return globalIndex[v];
+    }
+
+    /**
+     * Tells if a vertex of the shard has an edge to or from another part.
+     * @param v The index of the vertex in the shard
+     * @return True if the vertex is on the boundary
+     */
+    public boolean isBoundary(int v) {
+        return boundary[v];
+    }
+
+    public ArrayList<Vertex<Data>> getBoundary() {
+        ArrayList<Vertex<Data>> vertices = new ArrayList<>();
+        for (int v = 0; v < boundary.length; v++) {
+            if (boundary[v]) {
+                vertices.add(graph.getVertex(v));
+            }
+        }
+        return vertices;
+    }
+
+    public int getCutEdgeCount() {
+        return cutFrom.length;
+    }
+
+    /**
+     * Gets the vertex of this shard a cut edge leaves from.
+     * @param i The cut edge
+     * @return The vertex inside this part
+     */
+    public Vertex<Data> getCutSource(int i) {
+        return graph.getVertex(cutFrom[i]);
+    }
+
+    /**
+     * Gets the index in the shard of the vertex a cut edge leaves from.
+     * @param i The cut edge
+     * @return The index of the vertex in the shard
+     */
+    public int getCutSourceIndex(int i) {
+        return cutFrom[i];
+    }
+
+    /**
+     * Gets the index in the whole graph of the vertex a cut edge goes to.
+     * @param i The cut edge
+     * @return The index of the vertex in the partitioned graph
+     */
+    public int getCutTargetIndex(int i) {
+        return cutTo[i];
+    }
+
+    /**
+     * Gets the vertex a cut edge goes to.
+     * @param i The cut edge
+     * @return The vertex in another part
+     */
+    public Vertex<Data> getCutTarget(int i) {
+        return whole.getVertex(cutTo[i]);
+    }
+
+    /**
+     * Gets the part the vertex a cut edge goes to was placed in.
+     * @param i The cut edge
+     * @return The part of the far end of the edge
+     */
+    public int getCutTargetPart(int i) {
+        return cutPart[i];
+    }
+
+    public float getCutWeight(int i) {
+        return cutWeight[i];
+    }
+}
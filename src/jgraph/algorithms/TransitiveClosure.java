@@ -0,0 +1,175 @@
+package jgraph.algorithms;
+
+import java.util.stream.IntStream;
+import jgraph.AdjMatrix.AdjacencyMatrix;
+import jgraph.graph.Graph;
+import jgraph.graph.IndexedGraph;
+import jgraph.graph.Vertex;
+
+/**
+ * The transitive closure of a graph stored as a bit matrix. Bit j of row i
+ * is set when there is a path from vertex i to vertex j. The closure is
+ * computed with Warshall's algorithm where the inner loop ORs whole rows
+ * together 64 vertices at a time, and for larger graphs the rows of each
+ * pass are updated in parallel.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public class TransitiveClosure<Data extends Comparable> {
+
+    /**
+     * Graphs with fewer vertices than this are closed on a single thread.
+     */
+    public static final int PARALLEL_THRESHOLD = 1024;
+
+    private final IndexedGraph<Data> graph;
+    private final long[][] rows;
+    private final int words;
+
+    public TransitiveClosure(Graph<Data> graph) {
+        this(new IndexedGraph<>(graph));
+    }
+
+    /**
+     * Computes the closure of the graph.
+     *
+     * @param graph The graph being closed
+     */
+    public TransitiveClosure(IndexedGraph<Data> graph) {
+        this.graph = graph;
+        final int n = graph.getVertexCount();
+        words = (n + 63) >>> 6;
+        rows = new long[n][words];
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int v = graph.target(e);
+                rows[u][v >>> 6] |= 1L << v;
+            }
+        }
+
+        for (int k = 0; k < n; k++) {
+            final long[] rowK = rows[k];
+            final int word = k >>> 6;
+            final long bit = 1L << k;
+            if (n < PARALLEL_THRESHOLD) {
+                for (int i = 0; i < n; i++) {
+                    if ((rows[i][word] & bit) != 0) {
+                        or(rows[i], rowK);
+                    }
+                }
+            } else {
+                IntStream.range(0, n).parallel().forEach((int i) -> {
+                    if ((rows[i][word] & bit) != 0) {
+                        or(rows[i], rowK);
+                    }
+                });
+            }
+        }
+    }
+
+    private void or(long[] row, long[] with) {
+        for (int w = 0; w < words; w++) {
+            row[w] |= with[w];
+        }
+    }
+
+    /**
+     * Checks to see if there is a path from A to B. Every vertex has a path
+     * to itself.
+     *
+     * @param a From vertex
+     * @param b To vertex
+     * @return True if B can be reached from A
+     */
+    public boolean hasPath(Data a, Data b) {
+        int u = graph.indexOf(a), v = graph.indexOf(b);
+        if (u < 0 || v < 0) {
+            return false;
+        }
+        return hasPath(u, v);
+    }
+
+    /**
+     * Checks to see if there is a path between two vertex indices.
+     *
+     * @param u From vertex index
+     * @param v To vertex index
+     * @return True if v can be reached from u
+     */
+    public boolean hasPath(int u, int v) {
+        return u == v || hasBit(u, v);
+    }
+
+    /**
+     * Counts the vertices that can be reached from A, not counting A itself
+     * unless it is on a cycle.
+     *
+     * @param a From vertex
+     * @return The number of reachable vertices
+     */
+    public int countReachable(Data a) {
+        int u = graph.indexOf(a);
+        if (u < 0) {
+            return 0;
+        }
+        int count = 0;
+        for (long word : rows[u]) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Creates an indexed graph with an edge from every vertex to every other
+     * vertex it can reach.
+     *
+     * @return The closure as an indexed graph
+     */
+    public IndexedGraph<Data> toIndexedGraph() {
+        int n = graph.getVertexCount();
+        int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            int count = 0;
+            for (long word : rows[u]) {
+                count += Long.bitCount(word);
+            }
+            if (hasBit(u, u)) {
+                count--;
+            }
+            offsets[u + 1] = offsets[u] + count;
+        }
+        int[] targets = new int[offsets[n]];
+        for (int u = 0; u < n; u++) {
+            int slot = offsets[u];
+            for (int w = 0; w < words; w++) {
+                long word = rows[u][w];
+                while (word != 0) {
+                    int v = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    if (v != u) {
+                        targets[slot++] = v;
+                    }
+                }
+            }
+        }
+        Vertex<Data>[] vertices = new Vertex[n];
+        for (int v = 0; v < n; v++) {
+            vertices[v] = new Vertex<>(graph.getData(v));
+        }
+        return new IndexedGraph<>(vertices, offsets, targets,
+                new float[targets.length], graph.isDirected(), false);
+    }
+
+    /**
+     * Creates an unweighted AdjacencyMatrix of the closure.
+     *
+     * @return A new matrix with an edge for every reachable pair
+     */
+    public AdjacencyMatrix<Data> toAdjacencyMatrix() {
+        return new AdjacencyMatrix<>(toIndexedGraph());
+    }
+
+    private boolean hasBit(int u, int v) {
+        return (rows[u][v >>> 6] & (1L << v)) != 0;
+    }
+}
@@ -0,0 +1,231 @@
+package jgraph.algorithms;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+import jgraph.graph.Graph;
+import jgraph.graph.IndexedGraph;
+
+/**
+ * Counts the triangles of an undirected graph, globally and for each vertex,
+ * and gives the local clustering coefficients. The counts are computed once
+ * in parallel when this object is created.
+ *
+ * Sparse graphs are counted by orienting every edge from the vertex with the
+ * lower degree to the one with the higher degree and intersecting the sorted
+ * out lists of both ends of each edge, which finds every triangle exactly
+ * once. Dense graphs, the kind an AdjacencyMatrix is meant for, are counted
+ * by storing each row as a bitset and intersecting rows 64 vertices at a
+ * time with a bitwise AND.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public class Triangles<Data extends Comparable> {
+
+    /**
+     * The bitset rows of a graph with more vertices than this would use too
+     * much memory, these graphs are always counted with the sorted lists.
+     */
+    public static final int MAX_BITSET_VERTICES = 1 << 16;
+
+    private final IndexedGraph<Data> graph;
+
+    /**
+     * The number of triangles each vertex is part of.
+     */
+    private final long[] triangles;
+
+    private final long total;
+
+    public Triangles(Graph<Data> graph) {
+        this(new IndexedGraph<>(graph));
+    }
+
+    /**
+     * Counts the triangles choosing bitsets when the average degree is high
+     * enough that an AND over whole rows costs less than merging the lists.
+     *
+     * @param graph An undirected graph
+     */
+    public Triangles(IndexedGraph<Data> graph) {
+        this(graph, useBitsets(graph));
+    }
+
+    /**
+     * Counts the triangles with the chosen method.
+     *
+     * @param graph An undirected graph
+     * @param bitsets True to intersect bitset rows, false to merge sorted
+     * lists
+     */
+    public Triangles(IndexedGraph<Data> graph, boolean bitsets) {
+        if (graph.isDirected()) {
+            throw new IllegalArgumentException("Triangles are only counted on undirected graphs");
+        }
+        this.graph = graph;
+        triangles = bitsets ? countBitsets(graph) : countMerge(graph);
+        long sum = 0;
+        for (long t : triangles) {
+            sum += t;
+        }
+        total = sum / 3;
+    }
+
+    /**
+     * Gets the number of triangles in the graph.
+     * @return The triangle count
+     */
+    public long count() {
+        return total;
+    }
+
+    /**
+     * Gets the number of triangles vertex v is a corner of.
+     * @param v The vertex
+     * @return The triangle count of v
+     */
+    public long count(Data v) {
+        return triangles[checkedIndex(v)];
+    }
+
+    /**
+     * The local clustering coefficient is the fraction of the pairs of
+     * neighbors of v that are also neighbors of each other.
+     *
+     * @param v The vertex
+     * @return A value from 0 to 1, zero if v has less than two neighbors
+     */
+    public double clusteringCoefficient(Data v) {
+        return coefficient(checkedIndex(v));
+    }
+
+    /**
+     * Gets the mean of the local clustering coefficients of every vertex.
+     * @return The average clustering coefficient
+     */
+    public double averageClustering() {
+        int n = graph.getVertexCount();
+        if (n == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int v = 0; v < n; v++) {
+            sum += coefficient(v);
+        }
+        return sum / n;
+    }
+
+    private double coefficient(int v) {
+        long d = graph.degree(v);
+        return (d < 2) ? 0 : (2.0 * triangles[v]) / (d * (d - 1));
+    }
+
+    private int checkedIndex(Data v) {
+        int index = graph.indexOf(v);
+        if (index < 0) {
+            throw new IllegalArgumentException("Vertex not found: " + v);
+        }
+        return index;
+    }
+
+    private static boolean useBitsets(IndexedGraph graph) {
+        int n = graph.getVertexCount();
+        return n > 0 && n <= MAX_BITSET_VERTICES
+                && (long) graph.getArcCount() * 64 >= (long) n * n;
+    }
+
+    /**
+     * Orients each edge towards the vertex of higher rank, ordered by degree
+     * and then by index, so no vertex has more than O(sqrt(m)) out
+     * neighbors. Each triangle is then found once at its lowest ranked
+     * corner by merging two sorted out lists.
+     */
+    private static long[] countMerge(IndexedGraph graph) {
+        final int n = graph.getVertexCount();
+        final int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                if (ranksBelow(graph, u, graph.target(e))) {
+                    offsets[u + 1]++;
+                }
+            }
+        }
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] += offsets[u];
+        }
+        final int[] targets = new int[offsets[n]];
+        for (int u = 0; u < n; u++) {
+            int slot = offsets[u];
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int v = graph.target(e);
+                if (ranksBelow(graph, u, v)) {
+                    targets[slot++] = v;
+                }
+            }
+        }
+
+        final AtomicLongArray counts = new AtomicLongArray(n);
+        IntStream.range(0, n).parallel().forEach((int u) -> {
+            long found = 0;
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                int i = offsets[u], j = offsets[v];
+                int endU = offsets[u + 1], endV = offsets[v + 1];
+                while (i < endU && j < endV) {
+                    if (targets[i] < targets[j]) {
+                        i++;
+                    } else if (targets[i] > targets[j]) {
+                        j++;
+                    } else {
+                        found++;
+                        counts.incrementAndGet(v);
+                        counts.incrementAndGet(targets[i]);
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            counts.addAndGet(u, found);
+        });
+
+        long[] triangles = new long[n];
+        for (int v = 0; v < n; v++) {
+            triangles[v] = counts.get(v);
+        }
+        return triangles;
+    }
+
+    private static boolean ranksBelow(IndexedGraph graph, int u, int v) {
+        int du = graph.degree(u), dv = graph.degree(v);
+        return du < dv || (du == dv && u < v);
+    }
+
+    /**
+     * Stores each row as a bitset. The number of triangles at u is half the
+     * sum over the neighbors v of the common neighbors of u and v.
+     */
+    private static long[] countBitsets(IndexedGraph graph) {
+        final int n = graph.getVertexCount();
+        final int words = (n + 63) >>> 6;
+        final long[][] rows = new long[n][words];
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int v = graph.target(e);
+                rows[u][v >>> 6] |= 1L << v;
+            }
+        }
+
+        final long[] triangles = new long[n];
+        IntStream.range(0, n).parallel().forEach((int u) -> {
+            long[] rowU = rows[u];
+            long common = 0;
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                long[] rowV = rows[graph.target(e)];
+                for (int w = 0; w < words; w++) {
+                    common += Long.bitCount(rowU[w] & rowV[w]);
+                }
+            }
+            triangles[u] = common / 2;
+        });
+        return triangles;
+    }
+}
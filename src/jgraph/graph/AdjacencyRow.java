@@ -0,0 +1,70 @@
+package jgraph.graph;
+
+/**
+ * The edges leaving one vertex of an indexed graph. The row reads the arrays
+ * of the graph instead of copying them, the neighbors are in index order.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public final class AdjacencyRow<Data extends Comparable> {
+
+    private final IndexedGraph<Data> graph;
+    private final int vertex;
+
+    AdjacencyRow(IndexedGraph<Data> graph, int vertex) {
+        this.graph = graph;
+        this.vertex = vertex;
+    }
+
+    public Vertex<Data> getVertex() {
+        return graph.getVertex(vertex);
+    }
+
+    /**
+     * Gets the number of edges leaving the vertex.
+     * @return The out degree
+     */
+    public int size() {
+        return graph.degree(vertex);
+    }
+
+    /**
+     * Gets the vertex an edge of the row goes to.
+     * @param i The edge, from zero up to the size of the row
+     * @return The neighbor
+     */
+    public Vertex<Data> getNeighbor(int i) {
+        return graph.getVertex(graph.target(edge(i)));
+    }
+
+    public float getWeight(int i) {
+        return graph.weight(edge(i));
+    }
+
+    private int edge(int i) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("Edge " + i + " of " + size());
+        }
+        return graph.begin(vertex) + i;
+    }
+
+    /**
+     * Formats the row the way printGraph prints a vertex of an adjacency
+     * list, weights are only shown for a weighted graph.
+     */
+    @Override
+    public String toString() {
+        StringBuilder row = new StringBuilder();
+        row.append(getVertex().getData()).append(" -> ");
+        for (int e = graph.begin(vertex); e < graph.end(vertex); e++) {
+            if (e > graph.begin(vertex)) {
+                row.append(" ");
+            }
+            row.append(graph.getData(graph.target(e)));
+            if (graph.isWeighted()) {
+                row.append("-").append(graph.weight(e));
+            }
+        }
+        return row.toString();
+    }
+}
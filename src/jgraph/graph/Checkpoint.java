@@ -0,0 +1,315 @@
+package jgraph.graph;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The file format graphs are checkpointed in. A checkpoint is a short header
+ * followed by whatever the graph writes, mostly whole arrays which are moved
+ * through a direct buffer in bulk instead of one value at a time. Vertex
+ * data is written with Java serialization so it has to be Serializable.
+ *
+ * A checkpoint is written to a temporary file that replaces the old
+ * checkpoint only once it is complete and forced to disk, so a crash while
+ * writing leaves the last good checkpoint in place.
+ */
+public final class Checkpoint {
+
+    /**
+     * The kinds of graphs that can be checkpointed.
+     */
+    public static final byte ADJACENCY_LIST = 1, ADJACENCY_MATRIX = 2;
+
+    private static final int MAGIC = 0x4A47434B, VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private Checkpoint() {
+    }
+
+    /**
+     * Moves a finished file over another in one step where the file system
+     * allows it.
+     *
+     * @param source The finished file
+     * @param target The file it replaces
+     * @throws IOException If the file can't be moved
+     */
+    static void replace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Writes a checkpoint file.
+     */
+    public static final class Writer implements Closeable {
+
+        private final Path target, temp;
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private boolean committed;
+
+        /**
+         * Starts a checkpoint.
+         *
+         * @param fileName The file the checkpoint replaces once it is done
+         * @param kind The kind of graph being written
+         * @throws IOException If the file can't be created
+         */
+        public Writer(String fileName, byte kind) throws IOException {
+            target = Paths.get(fileName).toAbsolutePath();
+            temp = target.resolveSibling(target.getFileName() + ".tmp");
+            channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            writeInt(MAGIC);
+            writeInt(VERSION);
+            writeByte(kind);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        public void writeByte(int value) throws IOException {
+            ensure(1);
+            buffer.put((byte) value);
+        }
+
+        public void writeBoolean(boolean value) throws IOException {
+            writeByte(value ? 1 : 0);
+        }
+
+        public void writeInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        /**
+         * Writes the first values of an array, the length is not written.
+         *
+         * @param array The values
+         * @param length The number of values to write
+         * @throws IOException If writing fails
+         */
+        public void writeInts(int[] array, int length) throws IOException {
+            for (int i = 0; i < length;) {
+                ensure(4);
+                int count = Math.min(length - i, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(array, i, count);
+                buffer.position(buffer.position() + count * 4);
+                i += count;
+            }
+        }
+
+        /**
+         * Writes the first values of an array, the length is not written.
+         *
+         * @param array The values
+         * @param length The number of values to write
+         * @throws IOException If writing fails
+         */
+        public void writeFloats(float[] array, int length) throws IOException {
+            for (int i = 0; i < length;) {
+                ensure(4);
+                int count = Math.min(length - i, buffer.remaining() / 4);
+                buffer.asFloatBuffer().put(array, i, count);
+                buffer.position(buffer.position() + count * 4);
+                i += count;
+            }
+        }
+
+        public void writeBooleans(boolean[] array, int length) throws IOException {
+            for (int i = 0; i < length; i++) {
+                writeByte(array[i] ? 1 : 0);
+            }
+        }
+
+        /**
+         * Writes a serialized object with its length in front.
+         *
+         * @param object The object
+         * @throws IOException If the object can't be serialized
+         */
+        public void writeObject(Object object) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(object);
+            }
+            writeInt(bytes.size());
+            byte[] array = bytes.toByteArray();
+            for (int i = 0; i < array.length;) {
+                ensure(1);
+                int count = Math.min(array.length - i, buffer.remaining());
+                buffer.put(array, i, count);
+                i += count;
+            }
+        }
+
+        /**
+         * Forces the checkpoint to disk and puts it in place of the old one.
+         *
+         * @throws IOException If the checkpoint can't be finished
+         */
+        public void commit() throws IOException {
+            flush();
+            channel.force(true);
+            channel.close();
+            replace(temp, target);
+            committed = true;
+        }
+
+        /**
+         * Closes the file, a checkpoint that wasn't committed is thrown away.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * Reads a checkpoint file.
+     */
+    public static final class Reader implements Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        /**
+         * Opens a checkpoint and checks its header.
+         *
+         * @param fileName The checkpoint file
+         * @param kind The kind of graph expected
+         * @throws IOException If the file can't be read or isn't a checkpoint
+         * of that kind of graph
+         */
+        public Reader(String fileName, byte kind) throws IOException {
+            channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.flip();
+            try {
+                if (readInt() != MAGIC || readInt() != VERSION || readByte() != kind) {
+                    throw new IOException(fileName + " is not a checkpoint of this kind of graph");
+                }
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private void fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("The checkpoint ended early");
+                }
+            }
+            buffer.flip();
+        }
+
+        public byte readByte() throws IOException {
+            fill(1);
+            return buffer.get();
+        }
+
+        public boolean readBoolean() throws IOException {
+            return readByte() != 0;
+        }
+
+        public int readInt() throws IOException {
+            fill(4);
+            return buffer.getInt();
+        }
+
+        public int[] readInts(int length) throws IOException {
+            int[] array = new int[length];
+            for (int i = 0; i < length;) {
+                fill(4);
+                int count = Math.min(length - i, buffer.remaining() / 4);
+                buffer.asIntBuffer().get(array, i, count);
+                buffer.position(buffer.position() + count * 4);
+                i += count;
+            }
+            return array;
+        }
+
+        public float[] readFloats(int length) throws IOException {
+            float[] array = new float[length];
+            for (int i = 0; i < length;) {
+                fill(4);
+                int count = Math.min(length - i, buffer.remaining() / 4);
+                buffer.asFloatBuffer().get(array, i, count);
+                buffer.position(buffer.position() + count * 4);
+                i += count;
+            }
+            return array;
+        }
+
+        public boolean[] readBooleans(int length) throws IOException {
+            boolean[] array = new boolean[length];
+            for (int i = 0; i < length; i++) {
+                array[i] = readByte() != 0;
+            }
+            return array;
+        }
+
+        /**
+         * Reads an object written by Writer.writeObject.
+         *
+         * @return The object
+         * @throws IOException If the object can't be read
+         */
+        public Object readObject() throws IOException {
+            byte[] array = new byte[readInt()];
+            for (int i = 0; i < array.length;) {
+                fill(1);
+                int count = Math.min(array.length - i, buffer.remaining());
+                buffer.get(array, i, count);
+                i += count;
+            }
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(array))) {
+                return in.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unknown vertex data class", e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
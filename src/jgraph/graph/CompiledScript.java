@@ -0,0 +1,552 @@
+package jgraph.graph;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Stack;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+/**
+ * A data file for readGraph parsed once into a list of commands that can be
+ * run against a graph any number of times. The output is the same as
+ * readGraph's but the commands aren't run one at a time.
+ *
+ * The commands between two changes to the graph only read it, so they are
+ * run in parallel and their output is printed in the order of the file once
+ * they are all done. The shortest path queries among them are grouped by
+ * their source and each source gets a single run of Dijkstra's algorithm on
+ * an indexed copy of the graph, no matter how many queries it answers.
+ * Queries of a source whose tree is already in the graph read that tree the
+ * way readGraph would. Paths of the same length may come out in a different
+ * order than the graph's own algorithm picks.
+ */
+public class CompiledScript {
+
+    private static final String NL = System.lineSeparator();
+
+    private enum Op {
+        COMMENT, HAS_EDGE, HAS_VERTEX, HAS_CIRCUIT, ADD_EDGE, ADD_VERTEX,
+        DELETE_VERTEX, DELETE_EDGE, IS_SPARSE, IS_DENSE, IS_CONNECTED,
+        IS_FULLY_CONNECTED, GET_EDGE, SHORTEST_PATH, SHORTEST_PATHS,
+        SHORTEST_DIST, GET_VERTEX_COUNT, PERMUTE_SHORTEST_PATHS, GET_EDGE_COUNT,
+        UNKNOWN;
+
+        /**
+         * True if the command changes the graph or prints straight to the
+         * stream, such commands are run in order on their own.
+         */
+        private boolean isSequential() {
+            return this == ADD_EDGE || this == ADD_VERTEX || this == DELETE_VERTEX
+                    || this == DELETE_EDGE || this == PERMUTE_SHORTEST_PATHS;
+        }
+    }
+
+    private static final class Command {
+
+        private final Op op;
+        private final String text;
+        private Comparable a, b;
+        private float weight;
+        private String test;
+
+        private Command(Op op, String text) {
+            this.op = op;
+            this.text = text;
+        }
+    }
+
+    private final boolean directed, weighted;
+    private final ArrayList<Comparable> vertices;
+    private final ArrayList<Comparable[]> edges;
+    private final ArrayList<Float> weights;
+    private final Command[] commands;
+
+    /**
+     * Compiles a data file using the names in the file as vertices.
+     *
+     * @param fileName The data file
+     * @return The compiled script
+     */
+    public static CompiledScript compile(String fileName) {
+        StringInterpreter vertInterp = (StringInterpreter<String>) (String o) -> (o);
+        return compile(fileName, vertInterp);
+    }
+
+    /**
+     * Compiles a data file.
+     *
+     * @param fileName The data file
+     * @param vertInterp Translates the names in the file into vertex data
+     * @return The compiled script
+     */
+    public static CompiledScript compile(String fileName, StringInterpreter vertInterp) {
+        Stack<String> stack = Graph.parseToStack(fileName);
+        Graph.checkSyntax((Stack<String>) stack.clone());
+        return new CompiledScript(stack, vertInterp);
+    }
+
+    private CompiledScript(Stack<String> stack, StringInterpreter vertInterp) {
+        VertexDictionary names = new VertexDictionary(vertInterp);
+        weighted = stack.pop().equalsIgnoreCase("weighted");
+        directed = stack.pop().equalsIgnoreCase("directed");
+        stack.pop();
+
+        // Like readGraph the vertices end at "end" or the first repeated name
+        vertices = new ArrayList<>();
+        TreeSet<Comparable> seen = new TreeSet<>();
+        String next;
+        while (true) {
+            next = stack.pop();
+            if (next.equalsIgnoreCase("end")) {
+                break;
+            }
+            Comparable vertex = names.vertex(next);
+            if (!seen.add(vertex)) {
+                break;
+            }
+            vertices.add(vertex);
+        }
+        stack.push(next);
+
+        edges = new ArrayList<>();
+        weights = new ArrayList<>();
+        while (!stack.isEmpty()) {
+            if (stack.peek().equalsIgnoreCase("end")) {
+                stack.pop();
+                break;
+            }
+            Comparable a = names.lookup(stack.pop());
+            Comparable b = names.lookup(stack.pop());
+            edges.add(new Comparable[]{a, b});
+            weights.add(weighted ? Float.parseFloat(stack.pop()) : 0);
+        }
+
+        ArrayList<Command> list = new ArrayList<>();
+        while (!stack.isEmpty()) {
+            list.add(parse(stack, names));
+        }
+        commands = list.toArray(new Command[list.size()]);
+    }
+
+    private Command parse(Stack<String> stack, VertexDictionary names) {
+        String next = stack.pop();
+        if (next.charAt(0) == '*') {
+            return new Command(Op.COMMENT, next);
+        }
+        Command command;
+        switch (next) {
+            case "hasEdge":
+                command = new Command(Op.HAS_EDGE, next);
+                break;
+            case "hasVertex":
+                command = new Command(Op.HAS_VERTEX, next);
+                break;
+            case "hasCircuit":
+                command = new Command(Op.HAS_CIRCUIT, next);
+                break;
+            case "addEdge":
+                command = new Command(Op.ADD_EDGE, next);
+                break;
+            case "addVertex":
+                command = new Command(Op.ADD_VERTEX, next);
+                break;
+            case "deleteVertex":
+                command = new Command(Op.DELETE_VERTEX, next);
+                break;
+            case "deleteEdge":
+                command = new Command(Op.DELETE_EDGE, next);
+                break;
+            case "isSparse":
+                command = new Command(Op.IS_SPARSE, next);
+                break;
+            case "isDense":
+                command = new Command(Op.IS_DENSE, next);
+                break;
+            case "isConnected":
+                command = new Command(Op.IS_CONNECTED, next);
+                break;
+            case "isFullyConnected":
+                command = new Command(Op.IS_FULLY_CONNECTED, next);
+                break;
+            case "getEdge":
+                command = new Command(Op.GET_EDGE, next);
+                break;
+            case "shortestPath":
+                command = new Command(Op.SHORTEST_PATH, next);
+                break;
+            case "shortestPaths":
+                command = new Command(Op.SHORTEST_PATHS, next);
+                break;
+            case "shortestDist":
+                command = new Command(Op.SHORTEST_DIST, next);
+                break;
+            case "getVertexCount":
+                command = new Command(Op.GET_VERTEX_COUNT, next);
+                break;
+            case "permuteShortestPaths":
+                command = new Command(Op.PERMUTE_SHORTEST_PATHS, next);
+                break;
+            case "getEdgeCount":
+                command = new Command(Op.GET_EDGE_COUNT, next);
+                break;
+            default:
+                return new Command(Op.UNKNOWN, next);
+        }
+        switch (command.op) {
+            case HAS_EDGE:
+            case ADD_EDGE:
+            case DELETE_EDGE:
+            case GET_EDGE:
+            case SHORTEST_PATH:
+                command.a = names.lookup(stack.pop());
+                command.b = names.lookup(stack.pop());
+                break;
+            case ADD_VERTEX:
+                command.a = names.vertex(stack.pop());
+                break;
+            case HAS_VERTEX:
+            case HAS_CIRCUIT:
+            case DELETE_VERTEX:
+            case SHORTEST_PATHS:
+            case SHORTEST_DIST:
+            case PERMUTE_SHORTEST_PATHS:
+                command.a = names.lookup(stack.pop());
+                break;
+        }
+        if (command.op == Op.ADD_EDGE && weighted) {
+            command.weight = Float.parseFloat(stack.pop());
+        }
+        if (command.op != Op.SHORTEST_PATH && command.op != Op.SHORTEST_PATHS
+                && command.op != Op.PERMUTE_SHORTEST_PATHS) {
+            command.test = stack.pop();
+        }
+        return command;
+    }
+
+    /**
+     * Gets the number of commands after the graph is built.
+     * @return The number of commands
+     */
+    public int size() {
+        return commands.length;
+    }
+
+    /**
+     * Builds the graph and runs the commands, printing the graph before and
+     * after the commands the way readGraph does.
+     *
+     * @param graph The graph being constructed
+     * @param stream The print stream where output is sent
+     */
+    public void run(Graph graph, PrintStream stream) {
+        graph.isDirected = directed;
+        graph.isWeighted = weighted;
+        for (Comparable vertex : vertices) {
+            graph.addVertex(new Vertex(vertex));
+        }
+        for (int i = 0; i < edges.size(); i++) {
+            Comparable[] edge = edges.get(i);
+            graph.addEdge(edge[0], edge[1], weighted ? new Edge(weights.get(i)) : new Edge());
+        }
+        graph.printGraph(stream);
+
+        int start = 0;
+        for (int i = 0; i <= commands.length; i++) {
+            if (i == commands.length || commands[i].op.isSequential()) {
+                runParallel(graph, stream, start, i);
+                if (i < commands.length) {
+                    runSequential(graph, stream, commands[i]);
+                }
+                start = i + 1;
+            }
+        }
+        stream.println();
+        graph.printGraph(stream);
+    }
+
+    private void runSequential(Graph graph, PrintStream stream, Command command) {
+        boolean value;
+        StringBuilder out = new StringBuilder();
+        switch (command.op) {
+            case ADD_EDGE:
+                value = graph.addEdge(command.a, command.b,
+                        weighted ? new Edge(command.weight) : new Edge());
+                line(out, "addEdge " + command.a + " " + command.b);
+                check(out, value, command.test);
+                break;
+            case ADD_VERTEX:
+                value = graph.addVertex(new Vertex(command.a));
+                line(out, "addVertex " + command.a);
+                check(out, value, command.test);
+                break;
+            case DELETE_VERTEX:
+                value = graph.deleteVertex(command.a);
+                line(out, "deleteVertex " + command.a);
+                check(out, value, command.test);
+                break;
+            case DELETE_EDGE:
+                value = graph.deleteEdge(command.a, command.b);
+                line(out, "deleteEdge " + command.a + " " + command.b);
+                check(out, value, command.test);
+                break;
+            case PERMUTE_SHORTEST_PATHS:
+                stream.println("permuteShortestPaths " + command.a);
+                graph.permuteShortestPaths(command.a, stream);
+                stream.println();
+                return;
+        }
+        stream.print(out);
+    }
+
+    /**
+     * Runs the read only commands from start to end. The source of the tree
+     * each shortest path command reads is worked out in order first, null
+     * standing for the tree already in the graph.
+     */
+    private void runParallel(Graph graph, PrintStream stream, int start, int end) {
+        if (start == end) {
+            return;
+        }
+        final int count = end - start;
+        final Comparable[] sourceOf = new Comparable[count];
+        final boolean[] ran = new boolean[count];
+        // Dijkstra's algorithm only runs on a connected weighted graph
+        Boolean canRun = null;
+
+        Comparable current = null;
+        TreeMap<Comparable, Integer> sources = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            Command command = commands[start + i];
+            if ((command.op == Op.SHORTEST_PATHS || command.op == Op.SHORTEST_PATH)
+                    && canRun == null) {
+                canRun = graph.isConnected() && graph.isWeighted();
+            }
+            if (command.op == Op.SHORTEST_PATHS) {
+                ran[i] = canRun && graph.hasVertex(command.a);
+                if (ran[i]) {
+                    current = command.a;
+                }
+            } else if (command.op == Op.SHORTEST_PATH && graph.hasVertex(command.a)) {
+                boolean isSource = (current == null)
+                        ? ((Vertex) graph.getVertex(command.a)).dijkstra().getDistance() == 0
+                        : current.compareTo(command.a) == 0;
+                if (!isSource && canRun) {
+                    current = command.a;
+                    isSource = true;
+                }
+                ran[i] = isSource;
+                sourceOf[i] = isSource ? current : null;
+            } else if (command.op == Op.SHORTEST_DIST) {
+                sourceOf[i] = current;
+            }
+            if (sourceOf[i] != null && !sources.containsKey(sourceOf[i])) {
+                sources.put(sourceOf[i], sources.size());
+            }
+        }
+
+        final String[] output = new String[count];
+        IntStream.range(0, count).parallel()
+                .filter(i -> sourceOf[i] == null)
+                .forEach(i -> output[i] = evaluate(graph, commands[start + i], null, null, ran[i]));
+
+        if (!sources.isEmpty()) {
+            final IndexedGraph indexed = new IndexedGraph(graph);
+            final int[][] groups = new int[sources.size()][];
+            int[] sizes = new int[groups.length];
+            for (int i = 0; i < count; i++) {
+                if (sourceOf[i] != null) {
+                    sizes[sources.get(sourceOf[i])]++;
+                }
+            }
+            for (int s = 0; s < groups.length; s++) {
+                groups[s] = new int[sizes[s]];
+                sizes[s] = 0;
+            }
+            for (int i = 0; i < count; i++) {
+                if (sourceOf[i] != null) {
+                    int s = sources.get(sourceOf[i]);
+                    groups[s][sizes[s]++] = i;
+                }
+            }
+            // Each tree lives only while its own queries are answered
+            IntStream.range(0, groups.length).parallel().forEach(s -> {
+                Comparable source = sourceOf[groups[s][0]];
+                ShortestPathTree tree = new ShortestPathTree(indexed, indexed.indexOf(source));
+                for (int i : groups[s]) {
+                    output[i] = evaluate(graph, commands[start + i], indexed, tree, ran[i]);
+                }
+            });
+        }
+
+        for (String out : output) {
+            stream.print(out);
+        }
+        // Leave the tree readGraph would have left for the commands after
+        if (current != null) {
+            graph.shortestPaths(current);
+        }
+    }
+
+    /**
+     * Gets the output of a read only command.
+     *
+     * @param tree The tree the command reads, null for the one in the graph
+     * @param ran True if a shortest path command found its source
+     */
+    private String evaluate(Graph graph, Command command, IndexedGraph indexed,
+            ShortestPathTree tree, boolean ran) {
+        StringBuilder out = new StringBuilder();
+        switch (command.op) {
+            case COMMENT:
+                line(out, command.text);
+                break;
+            case HAS_EDGE:
+                line(out, "hasEdge " + command.a + " " + command.b);
+                check(out, graph.hasEdge(command.a, command.b), command.test);
+                break;
+            case HAS_VERTEX:
+                line(out, "hasVertex " + command.a);
+                check(out, graph.hasVertex(command.a), command.test);
+                break;
+            case HAS_CIRCUIT:
+                line(out, "hasCircuit " + command.a);
+                check(out, graph.hasCircuit(command.a), command.test);
+                break;
+            case IS_SPARSE:
+                line(out, "isSparse");
+                check(out, graph.isSparse(), command.test);
+                break;
+            case IS_DENSE:
+                line(out, "isDense");
+                check(out, graph.isDense(), command.test);
+                break;
+            case IS_CONNECTED:
+                line(out, "isConnected");
+                check(out, graph.isConnected(), command.test);
+                break;
+            case IS_FULLY_CONNECTED:
+                line(out, "isFullyConnected");
+                check(out, graph.isFullyConnected(), command.test);
+                break;
+            case GET_EDGE:
+                Object edge = graph.getEdge(command.a, command.b);
+                String tail = " -> " + command.a + " to " + command.b + " " + edge;
+                line(out, "getEdge " + command.a + " " + command.b);
+                if (command.test.equals("?")) {
+                    line(out, "? = " + (edge != null) + tail);
+                } else {
+                    boolean fb = Boolean.parseBoolean(command.test);
+                    line(out, fb + " -> " + (((edge != null) == fb) ? "PASS" : "FAIL") + tail);
+                }
+                line(out, "");
+                break;
+            case SHORTEST_PATHS:
+                out.append("shortestPaths ").append(command.a).append(" -> ");
+                out.append(ran ? "DONE" : "FAIL").append("\n");
+                line(out, "");
+                break;
+            case SHORTEST_PATH:
+                line(out, "shortestPath " + command.a + " to " + command.b);
+                if (tree == null) {
+                    path(out, ran ? graph.shortestPath(command.a, command.b) : null);
+                } else {
+                    path(out, indexed, tree, indexed.indexOf(command.b));
+                }
+                break;
+            case SHORTEST_DIST:
+                float dist;
+                if (!graph.hasVertex(command.a)) {
+                    line(out, "shortestDist " + command.a + " -> NULL");
+                    break;
+                } else if (tree == null) {
+                    dist = ((Vertex) graph.getVertex(command.a)).dijkstra().getDistance();
+                } else {
+                    dist = tree.getDistance(indexed.indexOf(command.a));
+                }
+                out.append("shortestDist ").append(command.a);
+                if (command.test.equals("?")) {
+                    line(out, " = " + dist);
+                } else {
+                    float f = Float.parseFloat(command.test);
+                    line(out, "");
+                    line(out, f + " = (" + dist + ") -> " + ((dist == f) ? " PASS" : " FAIL"));
+                }
+                line(out, "");
+                break;
+            case GET_VERTEX_COUNT:
+                line(out, "getVertexCount");
+                count(out, graph.getVertexCount(), command.test);
+                break;
+            case GET_EDGE_COUNT:
+                line(out, "getEdgeCount");
+                count(out, graph.getEdgeCount(), command.test);
+                break;
+            default:
+                line(out, "Unable to process command: " + command.text);
+        }
+        return out.toString();
+    }
+
+    private static void line(StringBuilder out, String text) {
+        out.append(text).append(NL);
+    }
+
+    private static void check(StringBuilder out, boolean value, String test) {
+        if (test.equals("?")) {
+            line(out, "? = " + value);
+        } else {
+            boolean fb = Boolean.parseBoolean(test);
+            line(out, fb + " -> " + ((value == fb) ? "PASS" : "FAIL"));
+        }
+        line(out, "");
+    }
+
+    private static void count(StringBuilder out, int value, String test) {
+        if (test.equals("?")) {
+            line(out, "? = " + value);
+        } else {
+            int testCount = Integer.parseInt(test);
+            line(out, testCount + " -> " + ((testCount == value) ? "PASS" : "FAIL"));
+        }
+        line(out, "");
+    }
+
+    /**
+     * Prints a path of the graph the way Graph.printPath does.
+     */
+    private static void path(StringBuilder out, ArrayList<Vertex> path) {
+        if (path == null || path.size() < 2) {
+            line(out, "No Path Found");
+            return;
+        }
+        out.append("|{");
+        for (int i = 0; i < path.size() - 1; i++) {
+            out.append(path.get(i)).append(", ");
+        }
+        Vertex last = path.get(path.size() - 1);
+        out.append(last).append("}| = ");
+        line(out, String.valueOf(last.dijkstra().getDistance()));
+    }
+
+    /**
+     * Prints the path to v in a tree the way Graph.printPath does.
+     */
+    private static void path(StringBuilder out, IndexedGraph indexed,
+            ShortestPathTree tree, int v) {
+        if (v == -1 || tree.getParent(v) == -1) {
+            line(out, "No Path Found");
+            return;
+        }
+        Stack<Integer> predStack = new Stack<>();
+        for (int p = v; p != -1; p = tree.getParent(p)) {
+            predStack.push(p);
+        }
+        out.append("|{");
+        while (predStack.size() > 1) {
+            out.append(indexed.getVertex(predStack.pop())).append(", ");
+        }
+        out.append(indexed.getVertex(predStack.pop())).append("}| = ");
+        line(out, String.valueOf(tree.getDistance(v)));
+    }
+}
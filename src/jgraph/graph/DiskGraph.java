@@ -0,0 +1,589 @@
+package jgraph.graph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Compressed sparse rows kept in a file for graphs whose edges don't fit in
+ * memory. Only arrays with one value per vertex are held: the offsets of the
+ * rows and whatever a search keeps for each vertex. The edges are read from
+ * the file as a search needs them.
+ *
+ * The searches work one frontier at a time. The vertices of a frontier are
+ * visited in index order, so their rows are read in file order and the file
+ * is only ever read forwards. Reads are made in blocks and the block after
+ * the one being used is read in the background, so a sweep over the file
+ * rarely waits on the disk.
+ *
+ * The file is a header, the edges as (target, weight) pairs grouped by the
+ * vertex they leave, then the row offsets. A graph that is searched from
+ * more than one thread has its searches run one at a time.
+ */
+public final class DiskGraph implements Closeable {
+
+    /**
+     * The number of bytes read from the file at a time.
+     */
+    public static final int BLOCK_SIZE = 1 << 20;
+
+    private static final int MAGIC = 0x4A474453, VERSION = 1;
+
+    /**
+     * The magic number, version, flags, vertex count, edge count and total
+     * weight padded to a whole number of edges.
+     */
+    private static final int HEADER_SIZE = 32;
+
+    /**
+     * The bytes of one edge, its target then its weight.
+     */
+    private static final int EDGE_SIZE = 8;
+
+    private final AsynchronousFileChannel channel;
+    private final long[] offsets;
+    private final int vertexCount;
+    private final long arcCount;
+    private final boolean directed, weighted;
+    private final double totalWeight;
+    private final Scan scan;
+
+    /**
+     * Opens a graph file made by a Writer.
+     *
+     * @param fileName The file
+     * @throws UncheckedIOException If the file can't be read or isn't a graph
+     * file
+     */
+    public DiskGraph(String fileName) {
+        try {
+            channel = AsynchronousFileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(fileName + " is not a graph file");
+            }
+            byte flags = header.get();
+            directed = (flags & 1) != 0;
+            weighted = (flags & 2) != 0;
+            header.position(12);
+            vertexCount = header.getInt();
+            arcCount = header.getLong();
+            totalWeight = header.getDouble();
+
+            offsets = new long[vertexCount + 1];
+            ByteBuffer rows = ByteBuffer.allocateDirect(BLOCK_SIZE);
+            long position = HEADER_SIZE + arcCount * EDGE_SIZE;
+            for (int v = 0; v <= vertexCount;) {
+                rows.clear();
+                rows.limit((int) Math.min(BLOCK_SIZE, (long) (vertexCount + 1 - v) * 8));
+                readFully(rows, position);
+                position += rows.limit();
+                rows.flip();
+                while (rows.hasRemaining()) {
+                    offsets[v++] = rows.getLong();
+                }
+            }
+            if (offsets[vertexCount] != arcCount) {
+                throw new IOException(fileName + " is corrupt");
+            }
+        } catch (IOException e) {
+            try {
+                channel.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException(e);
+        }
+        scan = new Scan();
+    }
+
+    /**
+     * Writes an indexed graph to a file, the file is replaced if it exists.
+     *
+     * @param graph The graph
+     * @param fileName The file
+     * @throws UncheckedIOException If the file can't be written
+     */
+    public static void write(IndexedGraph<?> graph, String fileName) {
+        try (Writer writer = new Writer(fileName, graph.getVertexCount(),
+                graph.isDirected(), graph.isWeighted())) {
+            for (int u = 0; u < graph.getVertexCount(); u++) {
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    writer.addEdge(u, graph.target(e), graph.weight(e));
+                }
+            }
+            writer.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Gets the number of stored edges. An undirected edge is counted once
+     * for each direction.
+     * @return The number of stored edges
+     */
+    public long getArcCount() {
+        return arcCount;
+    }
+
+    public boolean isDirected() {
+        return directed;
+    }
+
+    public boolean isWeighted() {
+        return weighted;
+    }
+
+    public int degree(int v) {
+        return (int) (offsets[v + 1] - offsets[v]);
+    }
+
+    /**
+     * Breadth first search from one vertex, one pass over the file for each
+     * level.
+     *
+     * @param source The index of the source
+     * @return The number of edges on the shortest path to each vertex, -1 for
+     * vertices that can't be reached
+     * @throws UncheckedIOException If the file can't be read
+     * @throws CancellationException If the thread is interrupted
+     */
+    public synchronized int[] breadthFirst(int source) {
+        checkSource(source);
+        int[] level = new int[vertexCount];
+        int[] frontier = new int[vertexCount], next = new int[vertexCount];
+        Arrays.fill(level, -1);
+        level[source] = 0;
+        frontier[0] = source;
+        int size = 1;
+        for (int depth = 1; size > 0; depth++) {
+            scan.start();
+            int found = 0;
+            for (int i = 0; i < size; i++) {
+                int u = frontier[i];
+                if (offsets[u] == offsets[u + 1]) {
+                    continue;
+                }
+                scan.seek(offsets[u]);
+                for (long e = offsets[u]; e < offsets[u + 1]; e++) {
+                    int v = scan.next();
+                    if (level[v] < 0) {
+                        level[v] = depth;
+                        next[found++] = v;
+                    }
+                }
+            }
+            Arrays.sort(next, 0, found);
+            int[] swap = frontier;
+            frontier = next;
+            next = swap;
+            size = found;
+        }
+        return level;
+    }
+
+    /**
+     * Finds the length of the shortest path from one vertex to every other
+     * using the average edge weight as the width of the buckets.
+     *
+     * @param source The index of the source
+     * @param parent Filled with the vertex before each vertex on its path, -1
+     * for the source and vertices that can't be reached. May be null.
+     * @return The distance to each vertex or ShortestPathTree.UNREACHABLE
+     * @see #shortestPaths(int, int[], float)
+     */
+    public float[] shortestPaths(int source, int[] parent) {
+        float width = (arcCount == 0 || !weighted) ? 1 : (float) (totalWeight / arcCount);
+        return shortestPaths(source, parent, width);
+    }
+
+    /**
+     * Finds the length of the shortest path from one vertex to every other.
+     * The vertices are settled in buckets of distances the given width wide,
+     * each pass over the file relaxes the edges of the vertices in the
+     * lowest bucket that changed since the last pass. A bucket can take more
+     * than one pass, a wider bucket means fewer buckets but more vertices
+     * visited again. The distances are the ones Graph.shortestPaths and
+     * ShortestPathTree give, when two paths are as short the parent may be a
+     * different one.
+     *
+     * @param source The index of the source
+     * @param parent Filled with the vertex before each vertex on its path, -1
+     * for the source and vertices that can't be reached. May be null.
+     * @param width The width of a bucket
+     * @return The distance to each vertex or ShortestPathTree.UNREACHABLE
+     * @throws UncheckedIOException If the file can't be read
+     * @throws CancellationException If the thread is interrupted
+     */
+    public synchronized float[] shortestPaths(int source, int[] parent, float width) {
+        checkSource(source);
+        if (parent != null && parent.length != vertexCount) {
+            throw new IllegalArgumentException("One parent is needed for each vertex");
+        }
+        if (!(width > 0)) {
+            throw new IllegalArgumentException("The width of a bucket must be positive");
+        }
+        float[] dist = new float[vertexCount];
+        boolean[] changed = new boolean[vertexCount];
+        int[] frontier = new int[vertexCount];
+        Arrays.fill(dist, ShortestPathTree.UNREACHABLE);
+        if (parent != null) {
+            Arrays.fill(parent, -1);
+        }
+        dist[source] = 0;
+        changed[source] = true;
+        for (;;) {
+            float lowest = ShortestPathTree.UNREACHABLE;
+            for (int v = 0; v < vertexCount; v++) {
+                if (changed[v] && dist[v] < lowest) {
+                    lowest = dist[v];
+                }
+            }
+            if (lowest == ShortestPathTree.UNREACHABLE) {
+                return dist;
+            }
+            // The bound is inclusive so a bucket narrower than the float
+            // spacing at this distance still holds the lowest vertex
+            float bound = lowest + width;
+            for (;;) {
+                int size = 0;
+                for (int v = 0; v < vertexCount; v++) {
+                    if (changed[v] && dist[v] <= bound) {
+                        changed[v] = false;
+                        frontier[size++] = v;
+                    }
+                }
+                if (size == 0) {
+                    break;
+                }
+                scan.start();
+                for (int i = 0; i < size; i++) {
+                    int u = frontier[i];
+                    if (offsets[u] == offsets[u + 1]) {
+                        continue;
+                    }
+                    scan.seek(offsets[u]);
+                    for (long e = offsets[u]; e < offsets[u + 1]; e++) {
+                        int v = scan.next();
+                        float p = (weighted ? scan.weight() : 1) + dist[u];
+                        if (p < dist[v]) {
+                            dist[v] = p;
+                            changed[v] = true;
+                            if (parent != null) {
+                                parent[v] = u;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void checkSource(int source) {
+        if (source < 0 || source >= vertexCount) {
+            throw new IllegalArgumentException("The source isn't in the graph");
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = await(channel.read(buffer, position));
+            if (read < 0) {
+                throw new IOException("Unexpected end of the graph file");
+            }
+            position += read;
+        }
+    }
+
+    private static int await(Future<Integer> read) throws IOException {
+        try {
+            return read.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted reading the graph file");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Reads the edges forwards one block at a time with the next block read
+     * ahead. A seek inside the block in use or the one read ahead costs
+     * nothing, a seek past them starts reading again at the new edge.
+     */
+    private final class Scan {
+
+        private ByteBuffer current, ahead;
+
+        /**
+         * The first edge in each buffer.
+         */
+        private long currentEdge, aheadEdge;
+        private Future<Integer> pending;
+        private float weight;
+
+        private Scan() {
+            current = ByteBuffer.allocateDirect(BLOCK_SIZE);
+            ahead = ByteBuffer.allocateDirect(BLOCK_SIZE);
+            currentEdge = -1;
+            aheadEdge = -1;
+        }
+
+        /**
+         * Starts a new pass over the file. The blocks from the last pass are
+         * kept, a small graph is read once however many passes it takes.
+         */
+        private void start() {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Disk graph search interrupted");
+            }
+        }
+
+        private void seek(long edge) {
+            try {
+                if (currentEdge >= 0 && edge >= currentEdge
+                        && edge - currentEdge < current.limit() / EDGE_SIZE) {
+                    current.position((int) (edge - currentEdge) * EDGE_SIZE);
+                    return;
+                }
+                if (aheadEdge >= 0 && edge >= aheadEdge
+                        && edge - aheadEdge < BLOCK_SIZE / EDGE_SIZE) {
+                    swap();
+                    if (edge - currentEdge < current.limit() / EDGE_SIZE) {
+                        current.position((int) (edge - currentEdge) * EDGE_SIZE);
+                        return;
+                    }
+                }
+                discard();
+                currentEdge = edge;
+                fill(current, edge);
+                readFully(current, HEADER_SIZE + edge * EDGE_SIZE);
+                current.flip();
+                readAhead();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Reads the target of the next edge, its weight is kept for weight().
+         */
+        private int next() {
+            if (!current.hasRemaining()) {
+                seek(currentEdge + current.limit() / EDGE_SIZE);
+            }
+            int target = current.getInt();
+            weight = current.getFloat();
+            return target;
+        }
+
+        private float weight() {
+            return weight;
+        }
+
+        /**
+         * Prepares a buffer for the edges starting at the given one.
+         */
+        private void fill(ByteBuffer buffer, long edge) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BLOCK_SIZE, (arcCount - edge) * EDGE_SIZE));
+        }
+
+        private void readAhead() {
+            long edge = currentEdge + current.limit() / EDGE_SIZE;
+            if (edge < arcCount) {
+                aheadEdge = edge;
+                fill(ahead, edge);
+                pending = channel.read(ahead, HEADER_SIZE + edge * EDGE_SIZE);
+            }
+        }
+
+        /**
+         * Waits for the block read ahead and makes it the current one.
+         */
+        private void swap() throws IOException {
+            int read = await(pending);
+            pending = null;
+            if (read < 0) {
+                throw new IOException("Unexpected end of the graph file");
+            }
+            ahead.position(read);
+            readFully(ahead, HEADER_SIZE + (aheadEdge * EDGE_SIZE) + read);
+            ahead.flip();
+            ByteBuffer buffer = current;
+            current = ahead;
+            ahead = buffer;
+            currentEdge = aheadEdge;
+            aheadEdge = -1;
+            readAhead();
+        }
+
+        /**
+         * Drops the block read ahead, its buffer can't be used until the read
+         * is done.
+         */
+        private void discard() throws IOException {
+            if (pending != null) {
+                await(pending);
+                pending = null;
+            }
+            aheadEdge = -1;
+        }
+    }
+
+    /**
+     * Writes a graph file one edge at a time, the edges have to be given in
+     * the order of the vertex they leave. Only the row offsets are held in
+     * memory, so a graph can be written from a sorted edge list that doesn't
+     * fit. The file replaces the old one once the writer is committed,
+     * closing it without committing leaves the old file alone.
+     */
+    public static final class Writer implements Closeable {
+
+        private final Path target, temp;
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final long[] offsets;
+        private final boolean directed, weighted;
+        private long arcs;
+        private double totalWeight;
+        private int from;
+        private boolean committed;
+
+        /**
+         * Starts a graph file.
+         *
+         * @param fileName The file
+         * @param vertexCount The number of vertices, indexed 0 to n - 1
+         * @param directed If the graph is directed
+         * @param weighted If the graph is weighted
+         * @throws IOException If the file can't be created
+         */
+        public Writer(String fileName, int vertexCount, boolean directed, boolean weighted)
+                throws IOException {
+            target = Paths.get(fileName).toAbsolutePath();
+            temp = target.resolveSibling(target.getFileName() + ".tmp");
+            channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            buffer = ByteBuffer.allocateDirect(BLOCK_SIZE);
+            buffer.position(HEADER_SIZE);
+            offsets = new long[vertexCount + 1];
+            this.directed = directed;
+            this.weighted = weighted;
+        }
+
+        /**
+         * Adds an edge. An undirected edge is added once for each direction.
+         *
+         * @param u The vertex the edge leaves, no less than the last one
+         * @param v The vertex the edge goes to
+         * @param weight The weight of the edge
+         * @throws IOException If the file can't be written
+         */
+        public void addEdge(int u, int v, float weight) throws IOException {
+            if (u < from || u >= offsets.length - 1 || v < 0 || v >= offsets.length - 1) {
+                throw new IllegalArgumentException("Edge " + u + " -> " + v
+                        + " is out of order or not in the graph");
+            }
+            while (from < u) {
+                offsets[++from] = arcs;
+            }
+            if (buffer.remaining() < EDGE_SIZE) {
+                flush();
+            }
+            buffer.putInt(v).putFloat(weight);
+            totalWeight += weight;
+            arcs++;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Writes the row offsets and header, forces the file to disk and puts
+         * it in place of the old one.
+         *
+         * @throws IOException If the file can't be finished
+         */
+        public void commit() throws IOException {
+            if (committed) {
+                return;
+            }
+            while (from < offsets.length - 1) {
+                offsets[++from] = arcs;
+            }
+            for (long offset : offsets) {
+                if (buffer.remaining() < 8) {
+                    flush();
+                }
+                buffer.putLong(offset);
+            }
+            flush();
+            buffer.putInt(MAGIC).putInt(VERSION)
+                    .put((byte) ((directed ? 1 : 0) | (weighted ? 2 : 0)));
+            buffer.position(12);
+            buffer.putInt(offsets.length - 1).putLong(arcs).putDouble(totalWeight);
+            buffer.flip();
+            long position = 0;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(true);
+            channel.close();
+            Checkpoint.replace(temp, target);
+            committed = true;
+        }
+
+        /**
+         * Closes the file, a file that wasn't committed is thrown away and
+         * the old one is left as it was.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
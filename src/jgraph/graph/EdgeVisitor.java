@@ -0,0 +1,13 @@
+package jgraph.graph;
+
+/**
+ * The edge visitor is used to walk all the edges of a graph without needing
+ * to know how the graph is stored. Each edge is passed to the visit method
+ * along with the vertices it goes from and to.
+ *
+ * @param <Data> The object representation for a vertex
+ * @param <EdgeObject> The edge object
+ */
+public interface EdgeVisitor<Data, EdgeObject> {
+    public void visit(Data from, Data to, EdgeObject edge);
+}
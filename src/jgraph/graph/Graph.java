@@ -8,6 +8,8 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Stack;
 
 /**
@@ -45,6 +47,17 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
      */
     protected int numEdges;
     
+    /**
+     * Carries changes to the listeners, null until a listener is added.
+     */
+    private volatile EventRing<Data> events;
+    
+    /**
+     * Given what a listener throws, null for the event thread's uncaught
+     * exception handler.
+     */
+    private Thread.UncaughtExceptionHandler listenerErrorHandler;
+    
     /**
      * Sets up this graph as an undirected, and unweighted graph.
      */
@@ -96,6 +109,191 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
         return isDirected;
     }
     
+    /**
+     * Replaces the edge from A to B with a new edge, usually one with a
+     * different weight. Listeners see a single reweighted event instead of
+     * the edge being deleted and added again. The edge is deleted and then
+     * added, graphs that are changed by several threads at once override
+     * this to swap the edge in one step.
+     *
+     * @param a From Vertex
+     * @param b To Vertex
+     * @param edge The new edge
+     * @return True if this call put the new edge in place of an old one
+     */
+    public boolean updateEdge(Data a, Data b, Edge edge) {
+        if (isWeighted && edge.getWeight() < 1) {
+            throw new RuntimeException("Can't add a non-weighted edge to a "
+                    + "weighted graph");
+        }
+        Edge old = getEdge(a, b);
+        if (old == null) {
+            return false;
+        }
+        EventRing<Data> ring = events;
+        if (ring != null) {
+            ring.hold();
+        }
+        try {
+            if (!deleteEdge(a, b) || !addEdge(a, b, edge)) {
+                return false;
+            }
+        } finally {
+            if (ring != null) {
+                ring.resume();
+            }
+        }
+        edgeReweighted(a, b, edge, old);
+        return true;
+    }
+    
+    /**
+     * Streams the shortest path tree from a vertex, one entry for each
+     * vertex of the graph. Unlike permuteShortestPaths nothing is printed and
+     * the vertices of the graph are left untouched, the paths are found on an
+     * indexed copy of the graph.
+     *
+     * @param a The source vertex
+     * @return The entries in the order getVertices gives the vertices, none
+     * if A isn't in the graph
+     */
+    public Iterator<PathEntry<Data>> shortestPathTree(Data a) {
+        ShortestPathTree<Data> tree = shortestPathTreeFrom(a);
+        return (tree == null) ? Collections.emptyIterator() : tree.entries();
+    }
+    
+    /**
+     * Streams the shortest path from a vertex to every vertex of the graph,
+     * the same paths permuteShortestPaths prints. A path is only made when it
+     * is asked for so a consumer can stop early.
+     *
+     * @param a The source vertex
+     * @return The paths in the order getVertices gives the vertices, empty
+     * for a vertex that can't be reached, none if A isn't in the graph
+     */
+    public Iterator<ArrayList<Vertex<Data>>> shortestPathsFrom(Data a) {
+        ShortestPathTree<Data> tree = shortestPathTreeFrom(a);
+        return (tree == null) ? Collections.emptyIterator() : tree.paths();
+    }
+    
+    /**
+     * Streams the rows of the graph, the vertices and edges printGraph
+     * prints, without building the text of the whole graph.
+     *
+     * @return The row of each vertex in the order getVertices gives them
+     */
+    public Iterator<AdjacencyRow<Data>> adjacencyRows() {
+        return new IndexedGraph<>(this).rows();
+    }
+    
+    private ShortestPathTree<Data> shortestPathTreeFrom(Data a) {
+        IndexedGraph<Data> indexed = new IndexedGraph<>(this);
+        int source = indexed.indexOf(a);
+        return (source < 0) ? null : new ShortestPathTree<>(indexed, source);
+    }
+    
+    /**
+     * Registers a listener for the changes made to this graph. The first
+     * listener starts the thread that delivers the events.
+     * @param listener The listener
+     */
+    public synchronized void addGraphListener(GraphListener<Data> listener) {
+        if (events == null) {
+            events = new EventRing<>(listenerErrorHandler);
+        }
+        events.addListener(listener);
+    }
+    
+    /**
+     * Sets what is done with an exception thrown by a listener. The other
+     * listeners are still given the events either way. Without a handler
+     * the exception goes to the uncaught exception handler of the event
+     * thread.
+     * @param handler The handler, null for the default
+     */
+    public synchronized void setListenerErrorHandler(Thread.UncaughtExceptionHandler handler) {
+        listenerErrorHandler = handler;
+        if (events != null) {
+            events.setErrorHandler(handler);
+        }
+    }
+    
+    /**
+     * Removes a listener, once there are none left the event thread stops
+     * and changes cost nothing extra.
+     * @param listener The listener
+     */
+    public synchronized void removeGraphListener(GraphListener<Data> listener) {
+        if (events != null && events.removeListener(listener) 
+                && !events.hasListeners()) {
+            events.close();
+            events = null;
+        }
+    }
+    
+    /**
+     * Waits until the listeners have been given every change made so far.
+     */
+    public void flushEvents() {
+        EventRing<Data> ring = events;
+        if (ring != null) {
+            ring.flush();
+        }
+    }
+    
+    /**
+     * Called by a graph after a vertex was added.
+     * @param vertex The new vertex
+     */
+    protected final void vertexAdded(Data vertex) {
+        publish(GraphEvent.Type.VERTEX_ADDED, vertex, null, null, null);
+    }
+    
+    /**
+     * Called by a graph after a vertex and its edges were deleted.
+     * @param vertex The deleted vertex
+     */
+    protected final void vertexDeleted(Data vertex) {
+        publish(GraphEvent.Type.VERTEX_DELETED, vertex, null, null, null);
+    }
+    
+    /**
+     * Called by a graph after an edge was added.
+     * @param a From Vertex
+     * @param b To Vertex
+     * @param edge The new edge
+     */
+    protected final void edgeAdded(Data a, Data b, Edge edge) {
+        publish(GraphEvent.Type.EDGE_ADDED, a, b, edge, null);
+    }
+    
+    /**
+     * Called by a graph after an edge was replaced by updateEdge.
+     * @param a From Vertex
+     * @param b To Vertex
+     * @param edge The new edge
+     * @param previous The edge that was replaced
+     */
+    protected final void edgeReweighted(Data a, Data b, Edge edge, Edge previous) {
+        publish(GraphEvent.Type.EDGE_REWEIGHTED, a, b, edge, previous);
+    }
+    
+    /**
+     * Called by a graph after an edge was deleted.
+     * @param a From Vertex
+     * @param b To Vertex
+     */
+    protected final void edgeDeleted(Data a, Data b) {
+        publish(GraphEvent.Type.EDGE_DELETED, a, b, null, null);
+    }
+    
+    private void publish(GraphEvent.Type type, Data a, Data b, Edge edge, Edge previous) {
+        EventRing<Data> ring = events;
+        if (ring != null) {
+            ring.publish(new GraphEvent<>(type, a, b, edge, previous));
+        }
+    }
+    
     /**
      * Reads from a file using the fileName and constructs the graph performing
      * tests and printing out the graph before test functions are called and
@@ -135,6 +333,7 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
         Stack<String> commands = parseToStack(fileName);
 
         checkSyntax((Stack<String>) commands.clone());
+        VertexDictionary names = new VertexDictionary(vertInterp);
         
         boolean directed, weighted;
         String nextCommand;
@@ -156,7 +355,7 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
                 if (nextCommand.equalsIgnoreCase("end")) {
                     noDup = false;
                 }else{
-                    vertA = vertInterp.translate(nextCommand);
+                    vertA = names.vertex(nextCommand);
                     noDup = graph.addVertex(new Vertex((Comparable) vertA));
                 }
             }
@@ -167,8 +366,8 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
                     commands.pop();
                     break;
                 }
-                vertA = vertInterp.translate(commands.pop());
-                vertB = vertInterp.translate(commands.pop());
+                vertA = names.lookup(commands.pop());
+                vertB = names.lookup(commands.pop());
                 if (weighted) {
                     nextCommand = commands.pop();
                     weight = Float.parseFloat(nextCommand);
@@ -194,8 +393,8 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
                 switch (nextCommand) {
 
                     case "hasEdge":
-                        vertA = vertInterp.translate(commands.pop());
-                        vertB = vertInterp.translate(commands.pop());
+                        vertA = names.lookup(commands.pop());
+                        vertB = names.lookup(commands.pop());
                         boolean hasEdge = graph.hasEdge(vertA, vertB);
                         stream.println("hasEdge " + vertA + " " + vertB);
                         test = commands.pop();
@@ -210,7 +409,7 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
                         break;
 
                     case "hasVertex":
-                        vertA = vertInterp.translate(commands.pop());
+                        vertA = names.lookup(commands.pop());
                         boolean hasVertex = graph.hasVertex(vertA);
                         stream.println("hasVertex " + vertA);
                         test = commands.pop();
@@ -225,7 +424,7 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
                         break;
 
                     case "hasCircuit":
-                        vertA = vertInterp.translate(commands.pop());
+                        vertA = names.lookup(commands.pop());
                         boolean hasCircuit = graph.hasCircuit(vertA);
                         stream.println("hasCircuit " + vertA);
                         test = commands.pop();
@@ -240,8 +439,8 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
                         break;
 
                     case "addEdge":
-                        vertA = vertInterp.translate(commands.pop());
-                        vertB = vertInterp.translate(commands.pop());
+                        vertA = names.lookup(commands.pop());
+                        vertB = names.lookup(commands.pop());
                         boolean addEdge;
                         if (weighted) {
                             nextCommand = commands.pop();
@@ -263,7 +462,7 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
                         break;
 
                     case "addVertex":
-                        vertA = vertInterp.translate(commands.pop());
+                        vertA = names.vertex(commands.pop());
                         boolean addVertex;
                         addVertex = graph.addVertex(new Vertex((Comparable) vertA));
                         stream.println("addVertex " + vertA);
@@ -279,7 +478,7 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
                         break;
 
                     case "deleteVertex":
-                        vertA = vertInterp.translate(commands.pop());
+                        vertA = names.lookup(commands.pop());
                         boolean deleteVertex;
                         deleteVertex = graph.deleteVertex(vertA);
                         stream.println("deleteVertex " + vertA);
@@ -294,8 +493,8 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
                         stream.println();
                         break;
                     case "deleteEdge":
-                        vertA = vertInterp.translate(commands.pop());
-                        vertB = vertInterp.translate(commands.pop());
+                        vertA = names.lookup(commands.pop());
+                        vertB = names.lookup(commands.pop());
                         boolean deleteEdge;
                         deleteEdge = graph.deleteEdge(vertA, vertB);
                         stream.println("deleteEdge " + vertA + " " + vertB);
@@ -363,8 +562,8 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
                         break;
                         
                     case "getEdge":
-                        vertA = vertInterp.translate(commands.pop());
-                        vertB = vertInterp.translate(commands.pop());
+                        vertA = names.lookup(commands.pop());
+                        vertB = names.lookup(commands.pop());
                         Object edge = graph.getEdge(vertA, vertB);
                         stream.println("getEdge " + vertA + " " + vertB);
                         test = commands.pop();
@@ -380,8 +579,8 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
                         stream.println();
                         break;
                     case "shortestPath":
-                        vertA = vertInterp.translate(commands.pop());
-                        vertB = vertInterp.translate(commands.pop());
+                        vertA = names.lookup(commands.pop());
+                        vertB = names.lookup(commands.pop());
                         ArrayList<Vertex> path = graph.shortestPath(vertA, vertB);
                         stream.println("shortestPath " + vertA + " to "+vertB);
                         printPath(stream, path);
@@ -389,14 +588,14 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
                         break;
                         
                     case "shortestPaths":
-                        vertA = vertInterp.translate(commands.pop());
+                        vertA = names.lookup(commands.pop());
                         boolean shortestPaths = graph.shortestPaths(vertA);
                         stream.print("shortestPaths "+vertA+" -> ");
                         stream.print(shortestPaths ? "DONE" : "FAIL");
                         stream.println("\n");
                         break;
                     case "shortestDist":
-                        vertA = vertInterp.translate(commands.pop());
+                        vertA = names.lookup(commands.pop());
                         if (((Vertex)graph.getVertex(vertA)).dijkstra() == null){
                             stream.println("shortestDist " + vertA + " -> NULL");
                             test = commands.pop();
@@ -429,7 +628,7 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
                         stream.println();
                         break;
                     case "permuteShortestPaths":
-                        vertA = vertInterp.translate(commands.pop());
+                        vertA = names.lookup(commands.pop());
                         stream.println("permuteShortestPaths " + vertA);
                         graph.permuteShortestPaths(vertA, stream);
                         stream.println();
@@ -486,7 +685,7 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
      * @param fileName The file name for the datafile
      * @return The command stack
      */
-    private static Stack<String> parseToStack(String fileName){
+    static Stack<String> parseToStack(String fileName){
         
         Stack<String> commands = new Stack<>();
         String line = null;
@@ -496,23 +695,23 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
         try {
             reader = new BufferedReader(new FileReader(file));
             char cur;
-            String command = "";
+            StringBuilder command = new StringBuilder();
             while ((line = reader.readLine()) != null) {
                 
                 for (int c = 0; c < line.length(); c++){
                     cur = line.charAt(c);
                     
                     if (cur == ' ') {
-                        if (!command.isEmpty()) {
-                            commands.push(command);
-                            command = "";
+                        if (command.length() > 0) {
+                            commands.push(command.toString());
+                            command.setLength(0);
                         }
                         continue;
                     }
                     if (cur == '*') {
-                        if (!command.isEmpty()) {
-                            commands.push(command);
-                            command = "";
+                        if (command.length() > 0) {
+                            commands.push(command.toString());
+                            command.setLength(0);
                         }else{
                         
                             if ((c + 1) < line.length()){
@@ -523,11 +722,11 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
                         }
                         break;
                     }
-                    command += cur;
+                    command.append(cur);
                 }
-                if (!command.isEmpty()) {
-                    commands.push(command);
-                    command = "";
+                if (command.length() > 0) {
+                    commands.push(command.toString());
+                    command.setLength(0);
                 }
             }
         } catch (FileNotFoundException e) {
@@ -557,7 +756,7 @@ public abstract class Graph<Data extends Comparable> implements JGraphs<Vertex,
      * Quickly checks to make sure the data file is valid.
      * @param commands The copy of the original command stack.
      */
-    private static void checkSyntax(Stack<String> commands) {
+    static void checkSyntax(Stack<String> commands) {
         
         String nextCommand = commands.pop();
         
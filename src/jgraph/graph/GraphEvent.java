@@ -0,0 +1,78 @@
+package jgraph.graph;
+
+/**
+ * A change made to a graph. Vertex events only have a from vertex, edge
+ * events have both ends. Edges that are deleted don't carry the edge object,
+ * reweighted edges carry the new edge and the one it replaced. Deleting a
+ * vertex deletes its edges without an event for each of them.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public final class GraphEvent<Data extends Comparable> {
+
+    public enum Type {
+        VERTEX_ADDED, VERTEX_DELETED, EDGE_ADDED, EDGE_DELETED, EDGE_REWEIGHTED
+    }
+
+    private final Type type;
+    private final Data from, to;
+    private final Edge edge, previous;
+    private long sequence;
+
+    public GraphEvent(Type type, Data from, Data to, Edge edge, Edge previous) {
+        this.type = type;
+        this.from = from;
+        this.to = to;
+        this.edge = edge;
+        this.previous = previous;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the vertex added or deleted, or the vertex an edge leaves.
+     * @return The vertex data
+     */
+    public Data getFrom() {
+        return from;
+    }
+
+    /**
+     * Gets the vertex an edge enters.
+     * @return The vertex data or null for vertex events
+     */
+    public Data getTo() {
+        return to;
+    }
+
+    public Edge getEdge() {
+        return edge;
+    }
+
+    /**
+     * Gets the edge a reweighted edge replaced.
+     * @return The old edge or null for other events
+     */
+    public Edge getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Gets the position of this event in the order the graph published its
+     * events, starting at zero.
+     * @return The sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public String toString() {
+        return (to == null) ? type + " " + from : type + " " + from + " " + to;
+    }
+}
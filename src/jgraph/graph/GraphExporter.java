@@ -0,0 +1,317 @@
+package jgraph.graph;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Writes a graph out as text while walking it. Each line is written as soon
+ * as it is made, so the memory used does not grow with the number of edges
+ * the way building the whole text first does. The only thing held is the
+ * list of vertices the graph already gives out with getVertices.
+ *
+ * Vertices are named with toString. The edges are visited with forEachEdge,
+ * which for an adjacency matrix only looks at the slots that hold a vertex.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public class GraphExporter<Data extends Comparable> {
+
+    public enum Format {
+        /**
+         * The layout printGraph uses for an adjacency list, a header followed
+         * by one "vertex -> neighbor-weight ..." line per vertex.
+         */
+        TEXT,
+        /**
+         * One edge per line, "from to [weight]" the way GraphImporter reads
+         * it. Vertices without edges are left out and an undirected edge is
+         * written once.
+         */
+        EDGE_LIST,
+        /**
+         * A Graphviz graph or digraph with every vertex and edge.
+         */
+        DOT,
+        /**
+         * A GraphML document, weights are kept in a "weight" edge attribute.
+         */
+        GRAPHML
+    }
+
+    /**
+     * The size of the buffer used when writing to a file.
+     */
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    private final Format format;
+
+    /**
+     * Creates an exporter.
+     *
+     * @param format The format graphs are written in
+     */
+    public GraphExporter(Format format) {
+        this.format = format;
+    }
+
+    /**
+     * Writes a graph to a file, the file is replaced if it exists.
+     *
+     * @param graph The graph
+     * @param fileName The file
+     * @throws UncheckedIOException If the file can't be written
+     */
+    public void write(Graph<Data> graph, String fileName) {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                Writer out = new BufferedWriter(Channels.newWriter(channel,
+                        StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE)) {
+            write(graph, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a graph. The writer is flushed but not closed, it should be
+     * buffered since it is given many small writes.
+     *
+     * @param graph The graph
+     * @param out Where the graph is written
+     * @throws UncheckedIOException If writing fails
+     */
+    public void write(Graph<Data> graph, Writer out) {
+        Lines lines = new Lines(graph, out);
+        try {
+            switch (format) {
+                case TEXT:
+                    lines.text();
+                    break;
+                case EDGE_LIST:
+                    lines.edgeList();
+                    break;
+                case DOT:
+                    lines.dot();
+                    break;
+                case GRAPHML:
+                    lines.graphML();
+                    break;
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Builds one line at a time and writes it. The visitors can't throw an
+     * IOException, the first one is kept and thrown once the walk is done.
+     */
+    private final class Lines {
+
+        private final Graph<Data> graph;
+        private final Writer out;
+        private final StringBuilder line;
+        private IOException failure;
+
+        private ArrayList<Vertex> vertices;
+        private int row;
+
+        private Lines(Graph<Data> graph, Writer out) {
+            this.graph = graph;
+            this.out = out;
+            line = new StringBuilder();
+        }
+
+        private void text() throws IOException {
+            line.append(graph.isWeighted() ? "Weighted\n" : "Unweighted\n");
+            line.append(graph.isDirected() ? "Digraph\n" : "Undigraph\n");
+            emit();
+            vertices = graph.getVertices();
+            row = -1;
+            // The edges come grouped by the vertex they leave in the order
+            // getVertices gives the vertices, a vertex without edges gets
+            // an empty row when the walk passes it
+            graph.forEachEdge((Data from, Data to, Edge edge) -> {
+                if (row < 0 || vertices.get(row).getData().compareTo(from) != 0) {
+                    do {
+                        endRow();
+                        line.append(vertices.get(++row).getData()).append(" -> ");
+                    } while (vertices.get(row).getData().compareTo(from) != 0);
+                } else {
+                    line.append(" ");
+                }
+                line.append(to);
+                if (graph.isWeighted()) {
+                    line.append("-").append(edge.getWeight());
+                }
+            });
+            while (row < vertices.size() - 1) {
+                endRow();
+                line.append(vertices.get(++row).getData()).append(" -> ");
+            }
+            endRow();
+            check();
+        }
+
+        private void endRow() {
+            if (row >= 0) {
+                line.append("\n");
+                emitLater();
+            }
+        }
+
+        private void edgeList() throws IOException {
+            graph.forEachEdge((Data from, Data to, Edge edge) -> {
+                if (graph.isDirected() || from.compareTo(to) <= 0) {
+                    line.append(from).append(' ').append(to);
+                    if (graph.isWeighted()) {
+                        line.append(' ').append(edge.getWeight());
+                    }
+                    line.append('\n');
+                    emitLater();
+                }
+            });
+            check();
+        }
+
+        private void dot() throws IOException {
+            line.append(graph.isDirected() ? "digraph G {\n" : "graph G {\n");
+            emit();
+            for (Vertex vertex : graph.getVertices()) {
+                line.append("  ");
+                quote(vertex.getData());
+                line.append(";\n");
+                emit();
+            }
+            String arrow = graph.isDirected() ? " -> " : " -- ";
+            graph.forEachEdge((Data from, Data to, Edge edge) -> {
+                if (graph.isDirected() || from.compareTo(to) <= 0) {
+                    line.append("  ");
+                    quote(from);
+                    line.append(arrow);
+                    quote(to);
+                    if (graph.isWeighted()) {
+                        line.append(" [weight=").append(edge.getWeight())
+                                .append(", label=\"").append(edge.getWeight()).append("\"]");
+                    }
+                    line.append(";\n");
+                    emitLater();
+                }
+            });
+            check();
+            line.append("}\n");
+            emit();
+        }
+
+        private void graphML() throws IOException {
+            line.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            line.append("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+            if (graph.isWeighted()) {
+                line.append("  <key id=\"weight\" for=\"edge\" attr.name=\"weight\" attr.type=\"float\"/>\n");
+            }
+            line.append("  <graph id=\"G\" edgedefault=\"")
+                    .append(graph.isDirected() ? "directed" : "undirected").append("\">\n");
+            emit();
+            for (Vertex vertex : graph.getVertices()) {
+                line.append("    <node id=\"");
+                escape(vertex.getData());
+                line.append("\"/>\n");
+                emit();
+            }
+            graph.forEachEdge((Data from, Data to, Edge edge) -> {
+                if (graph.isDirected() || from.compareTo(to) <= 0) {
+                    line.append("    <edge source=\"");
+                    escape(from);
+                    line.append("\" target=\"");
+                    escape(to);
+                    if (graph.isWeighted()) {
+                        line.append("\"><data key=\"weight\">").append(edge.getWeight())
+                                .append("</data></edge>\n");
+                    } else {
+                        line.append("\"/>\n");
+                    }
+                    emitLater();
+                }
+            });
+            check();
+            line.append("  </graph>\n</graphml>\n");
+            emit();
+        }
+
+        /**
+         * Writes a DOT identifier in quotes.
+         */
+        private void quote(Object data) {
+            String name = String.valueOf(data);
+            line.append('"');
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (c == '"' || c == '\\') {
+                    line.append('\\');
+                }
+                line.append(c);
+            }
+            line.append('"');
+        }
+
+        /**
+         * Writes a name as XML attribute text.
+         */
+        private void escape(Object data) {
+            String name = String.valueOf(data);
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                switch (c) {
+                    case '<':
+                        line.append("&lt;");
+                        break;
+                    case '>':
+                        line.append("&gt;");
+                        break;
+                    case '&':
+                        line.append("&amp;");
+                        break;
+                    case '"':
+                        line.append("&quot;");
+                        break;
+                    default:
+                        line.append(c);
+                }
+            }
+        }
+
+        private void emit() throws IOException {
+            out.append(line);
+            line.setLength(0);
+        }
+
+        /**
+         * Writes the line from inside a visitor.
+         */
+        private void emitLater() {
+            if (failure == null) {
+                try {
+                    out.append(line);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            line.setLength(0);
+        }
+
+        private void check() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,828 @@
+package jgraph.graph;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * Reads large graph files that are not in the readGraph format. The file is
+ * split into byte ranges that end at line breaks and the ranges are parsed in
+ * parallel straight from their bytes. Numbers are never made into strings and
+ * a vertex name is only made into a string the first time its range sees it,
+ * each distinct name is then passed through the StringInterpreter once so
+ * custom vertex types work the same way they do with readGraph.
+ *
+ * The result is an IndexedGraph, the bulk constructors of AdjacencyList and
+ * AdjacencyMatrix turn it into a graph without adding the edges one at a time.
+ * Vertices keep the order they first appear in the file and an edge that is
+ * given more than once keeps the weight it was first given. The graph is
+ * weighted if any edge in the file has a weight, every edge then needs one
+ * and a line without a weight is rejected with its line number.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public class GraphImporter<Data extends Comparable> {
+
+    public enum Format {
+        /**
+         * One edge per line, "from to [weight]" separated by spaces or tabs.
+         * Lines starting with # or % are comments.
+         */
+        EDGE_LIST,
+        /**
+         * One edge per line, "from,to[,weight]". Names may be quoted.
+         */
+        CSV,
+        /**
+         * A coordinate Matrix Market file, the vertices are named 1 to n. A
+         * symmetric file always gives an undirected graph.
+         */
+        MATRIX_MARKET,
+        /**
+         * A DIMACS file with a problem line followed by "a" or "e" lines, the
+         * vertices are named 1 to n.
+         */
+        DIMACS
+    }
+
+    /**
+     * The default number of bytes parsed by one task.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 24;
+
+    /**
+     * Exact powers of ten for parsing short decimals without a string.
+     */
+    private static final double[] POWERS = new double[16];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++) {
+            POWERS[i] = POWERS[i - 1] * 10;
+        }
+    }
+
+    private final Format format;
+    private final boolean directed;
+    private final StringInterpreter<Data> interpreter;
+    private int chunkSize;
+    private boolean header;
+
+    /**
+     * Creates an importer that uses the names in the file as vertices.
+     *
+     * @param format The format of the files
+     * @param directed If the edges in the files are directed
+     */
+    public GraphImporter(Format format, boolean directed) {
+        this(format, directed, (StringInterpreter) (String o) -> (o));
+    }
+
+    /**
+     * Creates an importer.
+     *
+     * @param format The format of the files
+     * @param directed If the edges in the files are directed
+     * @param interpreter Translates the names in the file into vertex data
+     */
+    public GraphImporter(Format format, boolean directed, StringInterpreter<Data> interpreter) {
+        this.format = format;
+        this.directed = directed;
+        this.interpreter = interpreter;
+        chunkSize = DEFAULT_CHUNK_SIZE;
+        header = false;
+    }
+
+    /**
+     * Sets the number of bytes parsed by one task. A chunk is extended to the
+     * end of the line it stops in.
+     *
+     * @param chunkSize The size of a chunk in bytes
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1 || chunkSize > (1 << 30)) {
+            throw new IllegalArgumentException("Chunk size must be from 1 to 2^30: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets if the first line of a CSV file is a header that is skipped.
+     *
+     * @param header True if CSV files start with a header
+     */
+    public void setHeader(boolean header) {
+        this.header = header;
+    }
+
+    /**
+     * Reads a graph file.
+     *
+     * @param fileName The file being read
+     * @return The graph in the file
+     * @throws UncheckedIOException If the file can't be read
+     * @throws IllegalArgumentException If the file isn't in the format
+     */
+    public IndexedGraph<Data> read(String fileName) {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            Header head = readHeader(channel);
+            long[] bounds = split(channel, head.bodyStart);
+            Chunk[] chunks = new Chunk[bounds.length - 1];
+            IntStream.range(0, chunks.length).parallel().forEach((int c) -> {
+                chunks[c] = new Chunk(format, head, readRange(channel, bounds[c], bounds[c + 1]), bounds[c]);
+                chunks[c].parse();
+            });
+            return build(head, chunks);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * What the start of a file says about the rest of it.
+     */
+    private static class Header {
+
+        private long bodyStart = 0;
+        private int bodyLine = 0;
+        private int vertexCount = -1;
+        private boolean directed, pattern;
+    }
+
+    /**
+     * Reads the lines before the edges. Matrix Market files start with a
+     * banner and a size line and DIMACS files with a problem line, these are
+     * few enough to be read as strings.
+     */
+    private Header readHeader(FileChannel channel) throws IOException {
+        Header head = new Header();
+        head.directed = directed;
+        if (format == Format.EDGE_LIST || (format == Format.CSV && !header)) {
+            return head;
+        }
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(0)));
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        String text;
+        if (format == Format.CSV) {
+            head.bodyStart = readLine(in, line);
+            head.bodyLine = 1;
+            return head;
+        }
+        if (format == Format.MATRIX_MARKET) {
+            head.bodyStart = readLine(in, line);
+            head.bodyLine = 1;
+            text = line.toString("UTF-8").trim();
+            String[] banner = text.toLowerCase().split("\\s+");
+            if (banner.length < 5 || !banner[0].equals("%%matrixmarket")
+                    || !banner[1].equals("matrix") || !banner[2].equals("coordinate")
+                    || !(banner[3].equals("real") || banner[3].equals("double")
+                    || banner[3].equals("integer") || banner[3].equals("pattern"))
+                    || !(banner[4].equals("general") || banner[4].equals("symmetric"))) {
+                throw new IllegalArgumentException("Unsupported Matrix Market file: " + text);
+            }
+            head.pattern = banner[3].equals("pattern");
+            if (banner[4].equals("symmetric")) {
+                head.directed = false;
+            }
+        }
+        while (true) {
+            long read = readLine(in, line);
+            if (read == 0) {
+                throw new IllegalArgumentException("Missing "
+                        + ((format == Format.DIMACS) ? "problem" : "size") + " line");
+            }
+            head.bodyStart += read;
+            head.bodyLine++;
+            text = line.toString("UTF-8").trim();
+            if (text.isEmpty() || text.charAt(0) == ((format == Format.DIMACS) ? 'c' : '%')) {
+                continue;
+            }
+            String[] tokens = text.split("\\s+");
+            try {
+                if (format == Format.MATRIX_MARKET && tokens.length == 3) {
+                    head.vertexCount = Math.max(Integer.parseInt(tokens[0]),
+                            Integer.parseInt(tokens[1]));
+                } else if (format == Format.DIMACS && tokens.length >= 4 && tokens[0].equals("p")) {
+                    head.vertexCount = Integer.parseInt(tokens[2]);
+                } else {
+                    throw new IllegalArgumentException("Expected the "
+                            + ((format == Format.DIMACS) ? "problem" : "size") + " line: " + text);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed line: " + text);
+            }
+            return head;
+        }
+    }
+
+    /**
+     * Reads one line into the buffer without the line break.
+     *
+     * @return The number of bytes read including the line break, zero at the
+     * end of the file
+     */
+    private static long readLine(InputStream in, ByteArrayOutputStream line) throws IOException {
+        line.reset();
+        long read = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            read++;
+            if (b == '\n') {
+                break;
+            }
+            line.write(b);
+        }
+        return read;
+    }
+
+    /**
+     * Splits the body of the file into chunks that start at the beginning of
+     * a line.
+     *
+     * @return The start of each chunk followed by the size of the file
+     */
+    private long[] split(FileChannel channel, long start) throws IOException {
+        long size = channel.size();
+        ArrayList<Long> bounds = new ArrayList<>();
+        bounds.add(start);
+        long next = start + chunkSize;
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (next < size) {
+            // Move the bound to just after the line break at or after next - 1
+            long at = next - 1;
+            long bound = size;
+            while (at < size && bound == size) {
+                buffer.clear();
+                int read = channel.read(buffer, at);
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        bound = at + i + 1;
+                        break;
+                    }
+                }
+                at += Math.max(read, 0);
+            }
+            if (bound >= size) {
+                break;
+            }
+            bounds.add(bound);
+            next = bound + chunkSize;
+        }
+        bounds.add(size);
+        long[] array = new long[bounds.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = bounds.get(i);
+        }
+        return array;
+    }
+
+    private static byte[] readRange(FileChannel channel, long from, long to) {
+        byte[] bytes = new byte[(int) (to - from)];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0) {
+                    throw new IOException("The file ended early");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes;
+    }
+
+    /**
+     * Gives every vertex its index, the names in the chunks are translated in
+     * file order, and groups the edges by the vertex they leave from.
+     */
+    private IndexedGraph<Data> build(Header head, Chunk[] chunks) {
+        Vertex<Data>[] vertices;
+        if (head.vertexCount >= 0) {
+            vertices = new Vertex[head.vertexCount];
+            for (int v = 0; v < vertices.length; v++) {
+                vertices[v] = new Vertex<>(interpreter.translate(Integer.toString(v + 1)));
+            }
+        } else {
+            // Names are strings so they can be hashed, the data they become
+            // is only Comparable. Two names may translate to the same data.
+            HashMap<String, Integer> names = new HashMap<>();
+            TreeMap<Data, Integer> ids = new TreeMap<>();
+            ArrayList<Vertex<Data>> list = new ArrayList<>();
+            for (Chunk chunk : chunks) {
+                chunk.global = new int[chunk.labels.size()];
+                for (int l = 0; l < chunk.global.length; l++) {
+                    String name = chunk.labels.get(l);
+                    Integer id = names.get(name);
+                    if (id == null) {
+                        Data data = interpreter.translate(name);
+                        id = ids.get(data);
+                        if (id == null) {
+                            id = list.size();
+                            ids.put(data, id);
+                            list.add(new Vertex<>(data));
+                        }
+                        names.put(name, id);
+                    }
+                    chunk.global[l] = id;
+                }
+            }
+            vertices = list.toArray(new Vertex[list.size()]);
+            Arrays.stream(chunks).parallel().forEach(Chunk::relabel);
+        }
+
+        int n = vertices.length;
+        boolean undirected = !head.directed, weighted = false;
+        long arcs = 0;
+        for (Chunk chunk : chunks) {
+            arcs += undirected ? 2L * chunk.size : chunk.size;
+            weighted |= chunk.weighted;
+        }
+        if (arcs > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many edges: " + arcs);
+        }
+        if (weighted) {
+            int lineNumber = head.bodyLine;
+            for (Chunk chunk : chunks) {
+                if (chunk.unweightedLine >= 0) {
+                    throw new IllegalArgumentException("Missing weight on line "
+                            + (lineNumber + chunk.unweightedLine + 1) + ": " + chunk.unweightedText);
+                }
+                lineNumber += chunk.lineCount;
+            }
+        }
+
+        int[] offsets = new int[n + 1];
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.size; i++) {
+                offsets[chunk.from[i] + 1]++;
+                if (undirected) {
+                    offsets[chunk.to[i] + 1]++;
+                }
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] targets = new int[(int) arcs];
+        float[] weights = new float[(int) arcs];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.size; i++) {
+                int u = chunk.from[i], v = chunk.to[i], slot = next[u]++;
+                targets[slot] = v;
+                weights[slot] = chunk.weights[i];
+                if (undirected) {
+                    slot = next[v]++;
+                    targets[slot] = u;
+                    weights[slot] = chunk.weights[i];
+                }
+            }
+        }
+
+        // Drop repeated edges, then close the gaps they left
+        int[] degree = new int[n];
+        IntStream.range(0, n).parallel().forEach((int v) -> {
+            degree[v] = dedupe(targets, weights, offsets[v], offsets[v + 1]);
+        });
+        int write = 0;
+        for (int v = 0; v < n; v++) {
+            int from = offsets[v];
+            offsets[v] = write;
+            if (write != from) {
+                System.arraycopy(targets, from, targets, write, degree[v]);
+                System.arraycopy(weights, from, weights, write, degree[v]);
+            }
+            write += degree[v];
+        }
+        offsets[n] = write;
+        return new IndexedGraph<>(vertices, offsets,
+                (write == arcs) ? targets : Arrays.copyOf(targets, write),
+                (write == arcs) ? weights : Arrays.copyOf(weights, write),
+                head.directed, weighted);
+    }
+
+    /**
+     * Sorts a row by target keeping only the first edge to each target. The
+     * position of an edge is packed under its target so the sort keeps the
+     * file order of equal targets.
+     *
+     * @return The number of edges left in the row
+     */
+    private static int dedupe(int[] targets, float[] weights, int from, int to) {
+        boolean increasing = true;
+        for (int e = from + 1; e < to && increasing; e++) {
+            increasing = targets[e - 1] < targets[e];
+        }
+        if (increasing) {
+            return to - from;
+        }
+        long[] packed = new long[to - from];
+        for (int e = from; e < to; e++) {
+            packed[e - from] = ((long) targets[e] << 32) | (e - from);
+        }
+        Arrays.sort(packed);
+        float[] row = Arrays.copyOfRange(weights, from, to);
+        int write = from, last = -1;
+        for (long p : packed) {
+            int target = (int) (p >>> 32);
+            if (target != last) {
+                targets[write] = target;
+                weights[write] = row[(int) p];
+                write++;
+                last = target;
+            }
+        }
+        return write - from;
+    }
+
+    /**
+     * The edges of one byte range of the file. Vertex names are interned in
+     * a table keyed on their bytes, the edges hold local ids until the names
+     * of every chunk have been given their index.
+     */
+    private static final class Chunk {
+
+        private final Format format;
+        private final Header head;
+        private final byte[] bytes;
+        private final long position;
+        private int at, limit, line;
+
+        private int[] from = new int[256], to = new int[256];
+        private float[] weights = new float[256];
+        private int size;
+        private boolean weighted;
+
+        /**
+         * The lines in this chunk, and the first one, counted from zero, that
+         * gave an edge without a weight along with its text.
+         */
+        private int lineCount, unweightedLine = -1;
+        private String unweightedText;
+
+        private final ArrayList<String> labels = new ArrayList<>();
+        /**
+         * The hash of a name in the high half of a slot and its id plus one
+         * in the low half, so most slots that don't match are passed over
+         * without looking at the name.
+         */
+        private long[] table = new long[64];
+        private int[] labelStart = new int[32], labelLength = new int[32];
+        private boolean[] labelQuoted = new boolean[32];
+        private int[] global;
+
+        private Chunk(Format format, Header head, byte[] bytes, long position) {
+            this.format = format;
+            this.head = head;
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        private void parse() {
+            line = 0;
+            while (line < bytes.length) {
+                int end = line;
+                while (end < bytes.length && bytes[end] != '\n') {
+                    end++;
+                }
+                at = line;
+                limit = (end > line && bytes[end - 1] == '\r') ? end - 1 : end;
+                parseLine();
+                line = end + 1;
+                lineCount++;
+            }
+        }
+
+        private void parseLine() {
+            skipBlanks();
+            if (at == limit) {
+                return;
+            }
+            byte first = bytes[at];
+            int u, v;
+            switch (format) {
+                case EDGE_LIST:
+                    if (first == '#' || first == '%') {
+                        return;
+                    }
+                    u = name();
+                    v = name();
+                    if (at < limit) {
+                        add(u, v, number(), true);
+                    } else {
+                        add(u, v, 0, false);
+                    }
+                    break;
+                case CSV:
+                    u = field();
+                    expectComma();
+                    v = field();
+                    if (at < limit && bytes[at] == ',') {
+                        at++;
+                        skipBlanks();
+                    }
+                    if (at < limit && bytes[at] != ',') {
+                        add(u, v, number(), true);
+                    } else {
+                        add(u, v, 0, false);
+                    }
+                    break;
+                case MATRIX_MARKET:
+                    if (first == '%') {
+                        return;
+                    }
+                    u = index();
+                    v = index();
+                    if (head.pattern) {
+                        add(u, v, 0, false);
+                    } else {
+                        if (at == limit) {
+                            throw malformed();
+                        }
+                        add(u, v, number(), true);
+                    }
+                    break;
+                case DIMACS:
+                    if (first == 'c') {
+                        return;
+                    }
+                    if (first != 'a' && first != 'e') {
+                        // Problem lines belong at the top, other line
+                        // types don't describe edges
+                        if (first == 'p') {
+                            throw malformed();
+                        }
+                        return;
+                    }
+                    at++;
+                    if (at == limit || !isBlank(bytes[at])) {
+                        throw malformed();
+                    }
+                    skipBlanks();
+                    u = index();
+                    v = index();
+                    if (at < limit) {
+                        add(u, v, number(), true);
+                    } else {
+                        add(u, v, 0, false);
+                    }
+                    break;
+            }
+        }
+
+        private void add(int u, int v, float weight, boolean hasWeight) {
+            if (size == from.length) {
+                int capacity = size * 2;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            from[size] = u;
+            to[size] = v;
+            weights[size] = weight;
+            size++;
+            weighted |= hasWeight;
+            if (!hasWeight && unweightedLine < 0) {
+                unweightedLine = lineCount;
+                unweightedText = new String(bytes, line, limit - line, StandardCharsets.UTF_8).trim();
+            }
+        }
+
+        private void relabel() {
+            for (int i = 0; i < size; i++) {
+                from[i] = global[from[i]];
+                to[i] = global[to[i]];
+            }
+        }
+
+        private boolean isBlank(byte b) {
+            return b == ' ' || b == '\t';
+        }
+
+        private void skipBlanks() {
+            while (at < limit && isBlank(bytes[at])) {
+                at++;
+            }
+        }
+
+        private void expectComma() {
+            if (at == limit || bytes[at] != ',') {
+                throw malformed();
+            }
+            at++;
+        }
+
+        /**
+         * Reads a name separated by blanks.
+         */
+        private int name() {
+            int start = at;
+            while (at < limit && !isBlank(bytes[at])) {
+                at++;
+            }
+            if (start == at) {
+                throw malformed();
+            }
+            int id = intern(start, at - start, false);
+            skipBlanks();
+            return id;
+        }
+
+        /**
+         * Reads a CSV field, leaving the position at the comma after it.
+         */
+        private int field() {
+            skipBlanks();
+            int id;
+            if (at < limit && bytes[at] == '"') {
+                int start = ++at;
+                while (true) {
+                    if (at == limit) {
+                        throw malformed();
+                    }
+                    if (bytes[at] == '"') {
+                        if (at + 1 < limit && bytes[at + 1] == '"') {
+                            at += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    at++;
+                }
+                id = intern(start, at - start, true);
+                at++;
+            } else {
+                int start = at;
+                while (at < limit && bytes[at] != ',') {
+                    at++;
+                }
+                int end = at;
+                while (end > start && isBlank(bytes[end - 1])) {
+                    end--;
+                }
+                if (start == end) {
+                    throw malformed();
+                }
+                id = intern(start, end - start, false);
+            }
+            skipBlanks();
+            return id;
+        }
+
+        /**
+         * Reads a vertex number from 1 to n and gives its index.
+         */
+        private int index() {
+            int start = at;
+            long value = 0;
+            while (at < limit && bytes[at] >= '0' && bytes[at] <= '9' && value <= head.vertexCount) {
+                value = value * 10 + (bytes[at++] - '0');
+            }
+            if (start == at || value < 1 || value > head.vertexCount
+                    || (at < limit && !isBlank(bytes[at]))) {
+                throw malformed();
+            }
+            skipBlanks();
+            return (int) value - 1;
+        }
+
+        /**
+         * Reads a number. Short decimals are worked out from their digits,
+         * anything else goes through Float.parseFloat.
+         */
+        private float number() {
+            int start = at;
+            while (at < limit && !isBlank(bytes[at]) && bytes[at] != ',') {
+                at++;
+            }
+            int end = at;
+            skipBlanks();
+            int i = start;
+            boolean negative = false, point = false;
+            if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+                negative = bytes[i++] == '-';
+            }
+            long mantissa = 0;
+            int digits = 0, scale = 0;
+            for (; i < end; i++) {
+                byte b = bytes[i];
+                if (b >= '0' && b <= '9') {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    if (point) {
+                        scale++;
+                    }
+                } else if (b == '.' && !point) {
+                    point = true;
+                } else {
+                    break;
+                }
+            }
+            if (i == end && digits > 0 && digits < POWERS.length) {
+                double value = mantissa / POWERS[scale];
+                return (float) (negative ? -value : value);
+            }
+            try {
+                return Float.parseFloat(new String(bytes, start, end - start,
+                        StandardCharsets.ISO_8859_1));
+            } catch (NumberFormatException e) {
+                throw malformed();
+            }
+        }
+
+        /**
+         * Finds the local id of a name, the string is only made when the name
+         * is new to this chunk.
+         */
+        private int intern(int start, int length, boolean quoted) {
+            int hash = hash(start, length, quoted), mask = table.length - 1;
+            for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+                long entry = table[slot];
+                if (entry == 0) {
+                    int id = labels.size();
+                    table[slot] = ((long) hash << 32) | (id + 1);
+                    store(id, start, length, quoted);
+                    if (labels.size() * 2 > table.length) {
+                        rehash();
+                    }
+                    return id;
+                }
+                int id = (int) entry - 1;
+                if ((int) (entry >>> 32) == hash && labelLength[id] == length
+                        && labelQuoted[id] == quoted && equal(labelStart[id], start, length)) {
+                    return id;
+                }
+            }
+        }
+
+        private int hash(int start, int length, boolean quoted) {
+            int hash = quoted ? 1 : 0;
+            for (int i = start; i < start + length; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            // Names often differ only in their last digits, spread them out
+            // before they are masked into a slot
+            hash *= 0x9E3779B9;
+            return hash ^ (hash >>> 15);
+        }
+
+        private boolean equal(int a, int b, int length) {
+            for (int i = 0; i < length; i++) {
+                if (bytes[a + i] != bytes[b + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void store(int id, int start, int length, boolean quoted) {
+            if (id == labelStart.length) {
+                labelStart = Arrays.copyOf(labelStart, id * 2);
+                labelLength = Arrays.copyOf(labelLength, id * 2);
+                labelQuoted = Arrays.copyOf(labelQuoted, id * 2);
+            }
+            labelStart[id] = start;
+            labelLength[id] = length;
+            labelQuoted[id] = quoted;
+            String name = new String(bytes, start, length, StandardCharsets.UTF_8);
+            labels.add(quoted ? name.replace("\"\"", "\"") : name);
+        }
+
+        private void rehash() {
+            long[] old = table;
+            table = new long[old.length * 2];
+            int mask = table.length - 1;
+            for (long entry : old) {
+                if (entry != 0) {
+                    int slot = (int) (entry >>> 32) & mask;
+                    while (table[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    table[slot] = entry;
+                }
+            }
+        }
+
+        private IllegalArgumentException malformed() {
+            int end = line;
+            while (end < bytes.length && bytes[end] != '\n') {
+                end++;
+            }
+            return new IllegalArgumentException("Malformed line at byte " + (position + line)
+                    + ": " + new String(bytes, line, end - line, StandardCharsets.UTF_8).trim());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package jgraph.graph;
+
+import java.util.List;
+
+/**
+ * Listens to the changes made to a graph. Events are handed over in batches
+ * on the graph's event thread, in the order they were published, so a
+ * listener should hand off any slow work instead of holding up the others.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public interface GraphListener<Data extends Comparable> {
+    public void graphChanged(List<GraphEvent<Data>> events);
+}
@@ -0,0 +1,374 @@
+package jgraph.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * An immutable, index based copy of a graph. Each vertex is given an index
+ * from 0 to n - 1 and the edges leaving a vertex are stored next to each
+ * other in a single array sorted by the index of the vertex they go to
+ * (compressed sparse rows). The edges leaving vertex v are found in the range
+ * begin(v) to end(v) which makes walking neighbors a simple loop over arrays
+ * instead of following linked nodes or scanning a matrix row.
+ *
+ * An undirected graph stores each edge twice, once in each direction, the
+ * same way AdjacencyList and AdjacencyMatrix do.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public class IndexedGraph<Data extends Comparable> {
+
+    /**
+     * The vertices in index order.
+     */
+    private final Vertex<Data>[] vertices;
+
+    /**
+     * Maps the data of a vertex to its index. Data is only required to be
+     * Comparable so a tree map is used instead of a hash map.
+     */
+    private final TreeMap<Data, Integer> indices;
+
+    /**
+     * The edges of vertex v are in the range offsets[v] to offsets[v + 1].
+     */
+    private final int[] offsets;
+
+    /**
+     * The index of the vertex each edge goes to.
+     */
+    private final int[] targets;
+
+    /**
+     * The weight of each edge.
+     */
+    private final float[] weights;
+
+    private final boolean directed, weighted;
+
+    /**
+     * Copies the given graph into index form. Vertices keep the order that
+     * the graph stores them in.
+     *
+     * @param graph The graph being copied
+     */
+    public IndexedGraph(Graph<Data> graph) {
+        ArrayList<Vertex> list = graph.getVertices();
+        vertices = list.toArray(new Vertex[list.size()]);
+        indices = new TreeMap<>();
+        for (int i = 0; i < vertices.length; i++) {
+            indices.put(vertices[i].getData(), i);
+        }
+        directed = graph.isDirected();
+        weighted = graph.isWeighted();
+
+        final EdgeCollector collector = new EdgeCollector();
+        graph.forEachEdge((Data from, Data to, Edge edge) -> {
+            Integer u = indices.get(from), v = indices.get(to);
+            // An edge left pointing at a deleted vertex isn't copied
+            if (u != null && v != null) {
+                collector.add(u, v, edge.getWeight());
+            }
+        });
+
+        offsets = new int[vertices.length + 1];
+        targets = new int[collector.size];
+        weights = new float[collector.size];
+        collector.fill(offsets, targets, weights);
+        sortRows();
+    }
+
+    /**
+     * Creates an indexed graph directly from arrays. The arrays are used as
+     * they are and must not be changed afterwards, the rows are sorted in
+     * place.
+     *
+     * @param vertices The vertices in index order
+     * @param offsets The start of the edges of each vertex, length n + 1
+     * @param targets The index each edge goes to
+     * @param weights The weight of each edge
+     * @param directed If the graph is directed
+     * @param weighted If the graph is weighted
+     */
+    public IndexedGraph(Vertex<Data>[] vertices, int[] offsets, int[] targets,
+            float[] weights, boolean directed, boolean weighted) {
+
+        if (offsets.length != vertices.length + 1
+                || targets.length != offsets[vertices.length]
+                || weights.length != targets.length) {
+            throw new IllegalArgumentException("Edge arrays do not match the vertices");
+        }
+        this.vertices = vertices;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.directed = directed;
+        this.weighted = weighted;
+        indices = new TreeMap<>();
+        for (int i = 0; i < vertices.length; i++) {
+            if (indices.put(vertices[i].getData(), i) != null) {
+                throw new IllegalArgumentException("Duplicate vertex: " + vertices[i]);
+            }
+        }
+        sortRows();
+    }
+
+    /**
+     * Gets the number of vertices.
+     * @return The number of vertices
+     */
+    public int getVertexCount() {
+        return vertices.length;
+    }
+
+    /**
+     * Gets the number of stored edges. An undirected edge is counted once
+     * for each direction.
+     * @return The number of stored edges
+     */
+    public int getArcCount() {
+        return targets.length;
+    }
+
+    public boolean isDirected() {
+        return directed;
+    }
+
+    public boolean isWeighted() {
+        return weighted;
+    }
+
+    /**
+     * Gets the index of a vertex.
+     * @param v The data of the vertex
+     * @return The index of the vertex or -1 if it isn't in this graph
+     */
+    public int indexOf(Data v) {
+        Integer index = indices.get(v);
+        return (index == null) ? -1 : index;
+    }
+
+    public Vertex<Data> getVertex(int v) {
+        return vertices[v];
+    }
+
+    public Data getData(int v) {
+        return vertices[v].getData();
+    }
+
+    /**
+     * The first edge leaving vertex v.
+     * @param v The vertex index
+     * @return The index of the first edge
+     */
+    public int begin(int v) {
+        return offsets[v];
+    }
+
+    /**
+     * One past the last edge leaving vertex v.
+     * @param v The vertex index
+     * @return The index after the last edge
+     */
+    public int end(int v) {
+        return offsets[v + 1];
+    }
+
+    public int degree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    /**
+     * Gets the vertex an edge goes to.
+     * @param e The edge index
+     * @return The index of the vertex
+     */
+    public int target(int e) {
+        return targets[e];
+    }
+
+    public float weight(int e) {
+        return weights[e];
+    }
+
+    /**
+     * Finds the edge going from u to v using a binary search over the sorted
+     * row of u.
+     *
+     * @param u The from vertex
+     * @param v The to vertex
+     * @return The edge index or -1 if there is no edge
+     */
+    public int find(int u, int v) {
+        int index = Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v);
+        return (index < 0) ? -1 : index;
+    }
+
+    /**
+     * Walks the rows of the graph one vertex at a time. A row is only made
+     * when it is asked for.
+     *
+     * @return The rows in index order
+     */
+    public Iterator<AdjacencyRow<Data>> rows() {
+        return new Iterator<AdjacencyRow<Data>>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < vertices.length;
+            }
+
+            @Override
+            public AdjacencyRow<Data> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return new AdjacencyRow<>(IndexedGraph.this, next++);
+            }
+        };
+    }
+
+    /**
+     * Copies this graph with its vertices given new indices. The copy holds
+     * the same vertices and edges, only the indices change, so indexOf still
+     * finds every vertex by its data.
+     *
+     * @param order The old index of each vertex in new index order, a
+     * permutation of 0 to n - 1
+     * @return The reordered graph
+     */
+    public IndexedGraph<Data> permute(int[] order) {
+        int n = vertices.length;
+        if (order.length != n) {
+            throw new IllegalArgumentException("The order must hold every vertex once");
+        }
+        int[] rank = new int[n];
+        Arrays.fill(rank, -1);
+        for (int i = 0; i < n; i++) {
+            if (order[i] < 0 || order[i] >= n || rank[order[i]] != -1) {
+                throw new IllegalArgumentException("The order must hold every vertex once");
+            }
+            rank[order[i]] = i;
+        }
+        Vertex<Data>[] permuted = new Vertex[n];
+        int[] newOffsets = new int[n + 1];
+        int[] newTargets = new int[targets.length];
+        float[] newWeights = new float[weights.length];
+        for (int i = 0; i < n; i++) {
+            int u = order[i];
+            permuted[i] = vertices[u];
+            int e = newOffsets[i];
+            for (int f = offsets[u]; f < offsets[u + 1]; f++, e++) {
+                newTargets[e] = rank[targets[f]];
+                newWeights[e] = weights[f];
+            }
+            newOffsets[i + 1] = e;
+        }
+        return new IndexedGraph<>(permuted, newOffsets, newTargets, newWeights, directed, weighted);
+    }
+
+    /**
+     * Adds every vertex and edge of this graph to the given graph. The graph
+     * is given the same directed and weighted modifiers as this one.
+     *
+     * @param graph An empty graph
+     * @return The graph that was filled
+     */
+    public Graph<Data> toGraph(Graph<Data> graph) {
+        graph.isDirected = directed;
+        graph.isWeighted = weighted;
+        for (Vertex<Data> v : vertices) {
+            graph.addVertex(new Vertex(v.getData()));
+        }
+        for (int u = 0; u < vertices.length; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                if (directed || u < v) {
+                    graph.addEdge(vertices[u].getData(), vertices[v].getData(),
+                            weighted ? new Edge(weights[e]) : new Edge());
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Sorts the edges of every row by the index they go to. The target and
+     * the bits of the weight are packed in a long so a row can be sorted
+     * with a primitive sort.
+     */
+    private void sortRows() {
+        long[] packed = null;
+        for (int v = 0; v < vertices.length; v++) {
+            int from = offsets[v], to = offsets[v + 1];
+            if (isSorted(from, to)) {
+                continue;
+            }
+            if (packed == null || packed.length < to - from) {
+                packed = new long[to - from];
+            }
+            for (int e = from; e < to; e++) {
+                packed[e - from] = ((long) targets[e] << 32)
+                        | (Float.floatToRawIntBits(weights[e]) & 0xFFFFFFFFL);
+            }
+            Arrays.sort(packed, 0, to - from);
+            for (int e = from; e < to; e++) {
+                targets[e] = (int) (packed[e - from] >>> 32);
+                weights[e] = Float.intBitsToFloat((int) packed[e - from]);
+            }
+        }
+    }
+
+    private boolean isSorted(int from, int to) {
+        for (int e = from + 1; e < to; e++) {
+            if (targets[e - 1] > targets[e]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects edges in visiting order then groups them by the vertex they
+     * leave from using a counting sort.
+     */
+    private static class EdgeCollector {
+
+        private int[] from = new int[16], to = new int[16];
+        private float[] weight = new float[16];
+        private int size;
+
+        private void add(int u, int v, float w) {
+            if (size == from.length) {
+                int capacity = size * 2;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+            }
+            from[size] = u;
+            to[size] = v;
+            weight[size] = w;
+            size++;
+        }
+
+        private void fill(int[] offsets, int[] targets, float[] weights) {
+            int n = offsets.length - 1;
+            for (int i = 0; i < size; i++) {
+                offsets[from[i] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] next = Arrays.copyOf(offsets, n);
+            for (int i = 0; i < size; i++) {
+                int slot = next[from[i]]++;
+                targets[slot] = to[i];
+                weights[slot] = weight[i];
+            }
+        }
+    }
+}
@@ -99,6 +99,21 @@ public interface JGraphs<VertexObject, EdgeObject, Data> {
      */
     public VertexObject getVertex(Data v);
     
+    /**
+     * Gets every vertex in this graph in the order they are stored
+     * internally.
+     * @return The list of vertices in this graph.
+     */
+    public ArrayList<VertexObject> getVertices();
+    
+    /**
+     * Walks every edge in this graph handing each one to the visitor. An
+     * undirected graph stores an edge in both directions so the visitor
+     * will see A to B and B to A with the same edge object.
+     * @param visitor The visitor that receives each edge
+     */
+    public void forEachEdge(EdgeVisitor<Data, EdgeObject> visitor);
+    
     /**
      * Deletes the edge between vertex A and B using the representation 
      * for the vertices.
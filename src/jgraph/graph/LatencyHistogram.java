@@ -0,0 +1,115 @@
+package jgraph.graph;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in buckets whose width grows with the value, 32 buckets
+ * for each power of two, so any percentile is known to within about three
+ * percent without keeping every sample. Recording is a couple of atomic
+ * adds and can be done from any number of threads.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 32, SHIFT = 5;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong count, total, max;
+
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(bucket(Long.MAX_VALUE) + 1);
+        count = new AtomicLong();
+        total = new AtomicLong();
+        max = new AtomicLong();
+    }
+
+    /**
+     * Records one latency.
+     * @param nanos The latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        long m = max.get();
+        while (nanos > m && !max.compareAndSet(m, nanos)) {
+            m = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.get();
+        return (n == 0) ? 0 : total.get() / (double) n;
+    }
+
+    /**
+     * Gets the latency that the given percent of the recorded latencies are
+     * at or below.
+     *
+     * @param percent The percentile from 0 to 100
+     * @return The latency in nanoseconds, 0 if nothing was recorded
+     */
+    public long getPercentile(double percent) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percent / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Clears the recorded latencies.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    public String toString() {
+        return "n=" + getCount() + " p50=" + getPercentile(50) + "ns p90="
+                + getPercentile(90) + "ns p99=" + getPercentile(99) + "ns p99.9="
+                + getPercentile(99.9) + "ns max=" + getMax() + "ns";
+    }
+
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SHIFT)) & (SUB_BUCKETS - 1);
+        return (exponent - SHIFT + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SHIFT - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SHIFT);
+        return ((SUB_BUCKETS + sub) << (exponent - SHIFT)) + width - 1;
+    }
+}
@@ -12,35 +12,17 @@ public class ParamCollector {
     /**
      * Parses a string in the form "(ABC,ABC,...,ABC)" where ABC is some string
      * and returns a stack of each parameter value. Spaces are allowed.
+     * ParamParser reads the same format without making a String for each
+     * parameter.
      * @param str The string being parsed
      * @return The stack of parameter values.
      */
     public static Stack<String> getParams(String str){
         Stack<String> params = new Stack();
-        StringBuilder paramBuilder = new StringBuilder();
-        
-        for (int i = 1;; i++){
-            
-            if (i >= str.length()){
-                throw new IllegalStateException("Empty Params or end of Param not found ')'");
-            }
-            
-            if (str.charAt(i) == ',' || str.charAt(i) == ' '){
-                if (paramBuilder.length() > 0){
-                    params.push(paramBuilder.toString());
-                    paramBuilder.delete(0, paramBuilder.length());
-                }else{
-                    throw new IllegalArgumentException("No Param found");
-                }
-                continue;
-            }else if (str.charAt(i) == ')'){
-                if (paramBuilder.length() > 0){
-                    params.push(paramBuilder.toString());
-                    paramBuilder.delete(0, paramBuilder.length());
-                }
-                break;
-            }
-            paramBuilder.append(str.charAt(i));
+        ParamParser parser = new ParamParser();
+        parser.parse(str);
+        for (int i = 0; i < parser.size(); i++){
+            params.push(parser.getString(i));
         }
         return params;
     }
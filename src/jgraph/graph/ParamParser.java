@@ -0,0 +1,252 @@
+package jgraph.graph;
+
+/**
+ * Parses parameters in the format ParamCollector reads, "(ABC,ABC,...,ABC)",
+ * without making a String for each of them. The parser only records where
+ * each parameter starts and ends in the text it was given, the typed getters
+ * read the characters in place, so numeric parameters are read without any
+ * garbage. One parser can be reused for any number of strings but it is not
+ * safe to share between threads.
+ */
+public final class ParamParser {
+
+    /**
+     * Powers of ten that are exact floats.
+     */
+    private static final float[] POWERS = new float[11];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++) {
+            POWERS[i] = POWERS[i - 1] * 10;
+        }
+    }
+
+    private CharSequence text;
+    private final Chars chars;
+    private int[] starts, ends;
+    private int size;
+
+    public ParamParser() {
+        chars = new Chars();
+        starts = new int[4];
+        ends = new int[4];
+    }
+
+    /**
+     * Parses the parameters of a string, the first character is where the
+     * opening parenthesis goes.
+     *
+     * @param str The string being parsed
+     * @return The number of parameters
+     * @throws IllegalStateException If there is no ')'
+     * @throws IllegalArgumentException If a parameter is empty
+     */
+    public int parse(CharSequence str) {
+        return parse(str, 0, str.length());
+    }
+
+    /**
+     * Parses the parameters in part of a string.
+     *
+     * @param str The text
+     * @param from Where the opening parenthesis goes
+     * @param to The end of the part, exclusive
+     * @return The number of parameters
+     * @throws IllegalStateException If there is no ')' before the end
+     * @throws IllegalArgumentException If a parameter is empty
+     */
+    public int parse(CharSequence str, int from, int to) {
+        text = str;
+        size = 0;
+        int start = from + 1;
+        for (int i = from + 1;; i++) {
+            if (i >= to) {
+                throw new IllegalStateException("Empty Params or end of Param not found ')'");
+            }
+            char c = str.charAt(i);
+            if (c == ',' || c == ' ') {
+                if (i == start) {
+                    throw new IllegalArgumentException("No Param found");
+                }
+                add(start, i);
+                start = i + 1;
+            } else if (c == ')') {
+                if (i > start) {
+                    add(start, i);
+                }
+                return size;
+            }
+        }
+    }
+
+    /**
+     * Parses the parameters in part of a character array. The array is read
+     * in place and must not change while the parameters are used.
+     *
+     * @param array The text
+     * @param from Where the opening parenthesis goes
+     * @param to The end of the part, exclusive
+     * @return The number of parameters
+     */
+    public int parse(char[] array, int from, int to) {
+        chars.array = array;
+        return parse(chars, from, to);
+    }
+
+    private void add(int start, int end) {
+        if (size == starts.length) {
+            starts = java.util.Arrays.copyOf(starts, size * 2);
+            ends = java.util.Arrays.copyOf(ends, size * 2);
+        }
+        starts[size] = start;
+        ends[size++] = end;
+    }
+
+    /**
+     * Gets the number of parameters last parsed.
+     * @return The number of parameters
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets where a parameter starts in the text.
+     * @param i The parameter, in the order they are written
+     * @return The index of its first character
+     */
+    public int start(int i) {
+        check(i);
+        return starts[i];
+    }
+
+    /**
+     * Gets where a parameter ends in the text.
+     * @param i The parameter, in the order they are written
+     * @return The index after its last character
+     */
+    public int end(int i) {
+        check(i);
+        return ends[i];
+    }
+
+    /**
+     * Copies a parameter into a new String.
+     * @param i The parameter, in the order they are written
+     * @return The parameter
+     */
+    public String getString(int i) {
+        check(i);
+        return text.subSequence(starts[i], ends[i]).toString();
+    }
+
+    /**
+     * Reads a parameter as a float, the value is the one Float.parseFloat
+     * gives. Decimals of up to seven digits are worked out from their
+     * characters, anything else is handed to Float.parseFloat.
+     *
+     * @param i The parameter, in the order they are written
+     * @return The value
+     * @throws NumberFormatException If the parameter is not a number
+     */
+    public float getFloat(int i) {
+        check(i);
+        int at = starts[i], end = ends[i];
+        boolean negative = false, point = false;
+        char c = text.charAt(at);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            at++;
+        }
+        int mantissa = 0, digits = 0, scale = 0;
+        for (; at < end; at++) {
+            c = text.charAt(at);
+            if (c >= '0' && c <= '9') {
+                if (mantissa >= (1 << 24) / 10) {
+                    break;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (point) {
+                    scale++;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        // Both numbers are exact floats so the one rounding is the
+        // division's, the same one Float.parseFloat makes
+        if (at == end && digits > 0 && scale < POWERS.length) {
+            float value = mantissa / POWERS[scale];
+            return negative ? -value : value;
+        }
+        return Float.parseFloat(getString(i));
+    }
+
+    /**
+     * Reads a parameter as an int the way Integer.parseInt does.
+     *
+     * @param i The parameter, in the order they are written
+     * @return The value
+     * @throws NumberFormatException If the parameter is not an int
+     */
+    public int getInt(int i) {
+        check(i);
+        int at = starts[i], end = ends[i];
+        boolean negative = false;
+        char c = text.charAt(at);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            if (++at == end) {
+                throw new NumberFormatException("For input string: \"" + getString(i) + "\"");
+            }
+        }
+        // Added up as a negative number so Integer.MIN_VALUE fits
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE, value = 0;
+        for (; at < end; at++) {
+            int digit = Character.digit(text.charAt(at), 10);
+            if (digit < 0 || value < limit / 10 || value * 10 < limit + digit) {
+                throw new NumberFormatException("For input string: \"" + getString(i) + "\"");
+            }
+            value = value * 10 - digit;
+        }
+        return negative ? value : -value;
+    }
+
+    private void check(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Param " + i + " of " + size);
+        }
+    }
+
+    /**
+     * Lets a character array be read as a CharSequence without copying it.
+     */
+    private static final class Chars implements CharSequence {
+
+        private char[] array;
+
+        @Override
+        public int length() {
+            return array.length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return array[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(array, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(array);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package jgraph.graph;
+
+/**
+ * One vertex of a shortest path tree: the vertex, the vertex before it on
+ * its shortest path and the length of that path.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public final class PathEntry<Data extends Comparable> {
+
+    private final Vertex<Data> vertex, predecessor;
+    private final float distance;
+
+    public PathEntry(Vertex<Data> vertex, Vertex<Data> predecessor, float distance) {
+        this.vertex = vertex;
+        this.predecessor = predecessor;
+        this.distance = distance;
+    }
+
+    public Vertex<Data> getVertex() {
+        return vertex;
+    }
+
+    /**
+     * Gets the vertex before this one on its shortest path.
+     * @return The predecessor, null for the source and for vertices that
+     * can't be reached
+     */
+    public Vertex<Data> getPredecessor() {
+        return predecessor;
+    }
+
+    /**
+     * Gets the length of the shortest path to the vertex.
+     * @return The distance or ShortestPathTree.UNREACHABLE
+     */
+    public float getDistance() {
+        return distance;
+    }
+
+    public boolean hasPath() {
+        return distance != ShortestPathTree.UNREACHABLE;
+    }
+
+    @Override
+    public String toString() {
+        if (!hasPath()) {
+            return vertex + " unreachable";
+        }
+        return vertex + " <- " + ((predecessor == null) ? "" : predecessor) + " = " + distance;
+    }
+}
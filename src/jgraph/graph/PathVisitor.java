@@ -0,0 +1,20 @@
+package jgraph.graph;
+
+/**
+ * The path visitor is used to walk every path of a shortest path tree. The
+ * path is handed over in an array that is shared between calls and changed
+ * after visit returns, so it must be copied if it is kept.
+ *
+ * @param <Data> The object representation for a vertex
+ */
+public interface PathVisitor<Data extends Comparable> {
+    
+    /**
+     * Visits the shortest path to one vertex.
+     * @param path The vertices of the path from the source, only the first
+     * length entries belong to it
+     * @param length The number of vertices on the path
+     * @param distance The length of the path
+     */
+    public void visit(Vertex<Data>[] path, int length, float distance);
+}
@@ -0,0 +1,323 @@
+package jgraph.graph;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs large numbers of small queries against a graph, each on its own
+ * thread. On a JVM with virtual threads every query gets a virtual thread
+ * so waiting queries cost almost nothing, older JVMs fall back to a pool of
+ * platform threads, one for each processor.
+ *
+ * At most maxInFlight queries are running or waiting at once, submitting
+ * more blocks the caller until one finishes. A query that runs past its
+ * timeout is cancelled. Cancelling a query interrupts its thread which stops
+ * a shortest path search where it is. The time from submitting a query to
+ * its end is recorded in a latency histogram.
+ *
+ * Queries run against the graph while other threads may change it, so the
+ * graph needs to handle reads alongside writes, the way
+ * ConcurrentAdjacencyList and VersionedAdjacencyList do. Shortest paths are
+ * searched on an indexed copy of the graph that is rebuilt after the graph
+ * changes, so searches never touch the vertices of the graph.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public class QueryExecutor<Data extends Comparable> implements AutoCloseable {
+
+    /**
+     * A query that can be waited on or cancelled.
+     *
+     * @param <R> The result of the query
+     */
+    public final class Query<R> extends FutureTask<R> {
+
+        private final long submitted;
+        private volatile ScheduledFuture<?> timer;
+        private volatile boolean admitted, timedOut;
+
+        private Query(Callable<R> task) {
+            super(task);
+            submitted = System.nanoTime();
+        }
+
+        /**
+         * Tells if the query was cancelled because it ran past its timeout.
+         * @return True if the query timed out
+         */
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        private void timeout() {
+            if (!isDone()) {
+                timedOut = true;
+                if (!cancel(true)) {
+                    timedOut = false;
+                }
+            }
+        }
+
+        @Override
+        protected void done() {
+            ScheduledFuture<?> t = timer;
+            if (t != null) {
+                t.cancel(false);
+            }
+            latency.record(System.nanoTime() - submitted);
+            if (admitted) {
+                outstanding.remove(this);
+                permits.release();
+            }
+        }
+    }
+
+    private final Graph<Data> graph;
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final ScheduledThreadPoolExecutor timers;
+    private final Semaphore permits;
+    private final Set<Query<?>> outstanding;
+    private final int maxInFlight;
+    private final long timeoutNanos;
+    private final LatencyHistogram latency;
+
+    private final GraphListener<Data> listener;
+
+    /**
+     * Counts the batches of changes the graph has sent. The indexed copy
+     * holds the count it was made at.
+     */
+    private final AtomicLong changes;
+    private final AtomicReference<Indexed<Data>> indexed;
+
+    /**
+     * Creates an executor with no timeout and up to 10,000 queries in
+     * flight.
+     *
+     * @param graph The graph being queried
+     */
+    public QueryExecutor(Graph<Data> graph) {
+        this(graph, 10000, 0);
+    }
+
+    /**
+     * Creates an executor.
+     *
+     * @param graph The graph being queried
+     * @param maxInFlight The most queries running or waiting at once
+     * @param timeoutMillis The longest a query may take, 0 for no limit
+     */
+    public QueryExecutor(Graph<Data> graph, int maxInFlight, long timeoutMillis) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.graph = graph;
+        this.maxInFlight = maxInFlight;
+        permits = new Semaphore(maxInFlight);
+        outstanding = ConcurrentHashMap.newKeySet();
+        timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        latency = new LatencyHistogram();
+
+        ExecutorService service = virtualThreadExecutor();
+        virtual = service != null;
+        if (service == null) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            service = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), (Runnable r) -> {
+                        Thread thread = new Thread(r, "graph-query");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        executor = service;
+
+        timers = new ScheduledThreadPoolExecutor(1, (Runnable r) -> {
+            Thread thread = new Thread(r, "graph-query-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timers.setRemoveOnCancelPolicy(true);
+
+        changes = new AtomicLong();
+        indexed = new AtomicReference<>();
+        listener = (List<GraphEvent<Data>> events) -> changes.incrementAndGet();
+        graph.addGraphListener(listener);
+    }
+
+    /**
+     * Looks up Executors.newVirtualThreadPerTaskExecutor, which only exists
+     * on Java 21 and later.
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Tells if queries run on virtual threads.
+     * @return False if the platform thread pool is used
+     */
+    public boolean usesVirtualThreads() {
+        return virtual;
+    }
+
+    /**
+     * Gets the time from submitting each query to its end, including
+     * queries that failed, timed out or were cancelled.
+     * @return The latency histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Gets the number of queries running or waiting.
+     * @return The number of queries in flight
+     */
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    public Query<Boolean> hasEdge(Data a, Data b) {
+        return submit(() -> graph.hasEdge(a, b));
+    }
+
+    public Query<Edge> getEdge(Data a, Data b) {
+        return submit(() -> graph.getEdge(a, b));
+    }
+
+    public Query<Boolean> hasVertex(Data v) {
+        return submit(() -> graph.hasVertex(v));
+    }
+
+    /**
+     * Finds the shortest path between two vertices, stopping the search as
+     * soon as the end is reached.
+     *
+     * @param a The start of the path
+     * @param b The end of the path
+     * @return The query giving the vertices of the path, empty if there is no
+     * path or a vertex isn't in the graph
+     */
+    public Query<ArrayList<Vertex<Data>>> shortestPath(Data a, Data b) {
+        return submit(() -> {
+            IndexedGraph<Data> copy = indexed();
+            int from = copy.indexOf(a), to = copy.indexOf(b);
+            if (from == -1 || to == -1) {
+                return new ArrayList<>();
+            }
+            return new ShortestPathTree<>(copy, from, to).getPath(to);
+        });
+    }
+
+    /**
+     * Runs any query against the graph.
+     *
+     * @param <R> The result of the query
+     * @param task The query
+     * @return The query, already cancelled if the caller was interrupted
+     * while waiting for room
+     */
+    public <R> Query<R> submit(Callable<R> task) {
+        Query<R> query = new Query<>(task);
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            query.cancel(false);
+            return query;
+        }
+        query.admitted = true;
+        outstanding.add(query);
+        // Cancelling the query hands its permit back if it can't be started
+        try {
+            if (timeoutNanos > 0) {
+                query.timer = timers.schedule(query::timeout, timeoutNanos, TimeUnit.NANOSECONDS);
+            }
+            executor.execute(query);
+        } catch (RejectedExecutionException e) {
+            query.cancel(false);
+        } catch (RuntimeException | Error e) {
+            query.cancel(false);
+            throw e;
+        }
+        return query;
+    }
+
+    /**
+     * Gets the indexed copy of the graph, copying the graph again if it
+     * changed since the last copy. The copy is made without holding a lock
+     * so queries don't wait on each other, a newer copy replaces the one in
+     * use and an older one is dropped.
+     */
+    private IndexedGraph<Data> indexed() {
+        graph.flushEvents();
+        long count = changes.get();
+        Indexed<Data> current = indexed.get();
+        if (current != null && current.changes >= count) {
+            return current.graph;
+        }
+        Indexed<Data> copy = new Indexed<>(new IndexedGraph<>(graph), count);
+        while (current == null || current.changes < count) {
+            if (indexed.compareAndSet(current, copy)) {
+                break;
+            }
+            current = indexed.get();
+        }
+        return copy.graph;
+    }
+
+    /**
+     * An indexed copy of the graph and the change count it was made at.
+     */
+    private static final class Indexed<Data extends Comparable> {
+
+        private final IndexedGraph<Data> graph;
+        private final long changes;
+
+        private Indexed(IndexedGraph<Data> graph, long changes) {
+            this.graph = graph;
+            this.changes = changes;
+        }
+    }
+
+    /**
+     * Stops taking queries, cancels the ones still running or waiting for a
+     * thread and stops listening to the graph. Anyone waiting on a cancelled
+     * query gets a CancellationException.
+     */
+    @Override
+    public void close() {
+        graph.removeGraphListener(listener);
+        for (Query<?> query : outstanding) {
+            query.cancel(true);
+        }
+        for (Runnable queued : executor.shutdownNow()) {
+            if (queued instanceof Query) {
+                ((Query<?>) queued).cancel(false);
+            }
+        }
+        timers.shutdownNow();
+    }
+}
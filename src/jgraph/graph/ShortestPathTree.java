@@ -0,0 +1,310 @@
+package jgraph.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Stack;
+import java.util.concurrent.CancellationException;
+
+/**
+ * The shortest paths from one source over an indexed graph, kept as two
+ * arrays: the distance to each vertex and the vertex before it on its path.
+ * Unlike Graph.shortestPaths nothing is written into the vertices, so any
+ * number of trees can be built from the same graph at once.
+ *
+ * Building a tree checks the interrupt flag of its thread as it goes and
+ * gives up with a CancellationException once the thread is interrupted.
+ * Edges of an unweighted graph count as a weight of one.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public class ShortestPathTree<Data extends Comparable> {
+
+    /**
+     * The distance of a vertex that can't be reached, the same value
+     * Dijkstra's algorithm leaves on an unreached vertex.
+     */
+    public static final float UNREACHABLE = Float.MAX_VALUE;
+
+    /**
+     * The number of vertices settled between checks for an interrupt.
+     */
+    private static final int CHECK_INTERVAL = 256;
+
+    private final IndexedGraph<Data> graph;
+    private final int source;
+    private final float[] dist;
+    private final int[] parent;
+
+    /**
+     * Builds the tree to every vertex.
+     *
+     * @param graph The graph
+     * @param source The index of the source
+     */
+    public ShortestPathTree(IndexedGraph<Data> graph, int source) {
+        this(graph, source, -1);
+    }
+
+    /**
+     * Builds the tree until the target is reached. Only the vertices closer
+     * to the source than the target are sure to have their final distance.
+     *
+     * @param graph The graph
+     * @param source The index of the source
+     * @param target The index of the vertex to stop at, -1 for none
+     */
+    public ShortestPathTree(IndexedGraph<Data> graph, int source, int target) {
+        int n = graph.getVertexCount();
+        if (source < 0 || source >= n) {
+            throw new IllegalArgumentException("The source isn't in the graph");
+        }
+        this.graph = graph;
+        this.source = source;
+        dist = new float[n];
+        parent = new int[n];
+        Arrays.fill(dist, UNREACHABLE);
+        Arrays.fill(parent, -1);
+        build(target);
+    }
+
+    /**
+     * Dijkstra's algorithm. The heap holds the distance and the vertex packed
+     * in a long, the bits of a positive float sort the same way the float
+     * does.
+     */
+    private void build(int target) {
+        boolean weighted = graph.isWeighted();
+        boolean[] visited = new boolean[dist.length];
+        long[] heap = new long[Math.max(16, dist.length)];
+        int size = 0, settled = 0;
+
+        dist[source] = 0;
+        heap[size++] = source;
+        while (size > 0) {
+            int u = (int) heap[0];
+            heap[0] = heap[--size];
+            siftDown(heap, size);
+            if (visited[u]) {
+                continue;
+            }
+            visited[u] = true;
+            if (u == target) {
+                return;
+            }
+            if (++settled % CHECK_INTERVAL == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Shortest path search interrupted");
+            }
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int v = graph.target(e);
+                float p = (weighted ? graph.weight(e) : 1) + dist[u];
+                if (!visited[v] && p < dist[v]) {
+                    dist[v] = p;
+                    parent[v] = u;
+                    if (size == heap.length) {
+                        heap = Arrays.copyOf(heap, size * 2);
+                    }
+                    heap[size] = ((long) Float.floatToIntBits(p) << 32) | v;
+                    siftUp(heap, size++);
+                }
+            }
+        }
+    }
+
+    public IndexedGraph<Data> getGraph() {
+        return graph;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the length of the shortest path to a vertex.
+     * @param v The index of the vertex
+     * @return The distance or UNREACHABLE
+     */
+    public float getDistance(int v) {
+        return dist[v];
+    }
+
+    /**
+     * Gets the vertex before v on its shortest path.
+     * @param v The index of the vertex
+     * @return The index of the parent or -1 for the source and vertices that
+     * can't be reached
+     */
+    public int getParent(int v) {
+        return parent[v];
+    }
+
+    /**
+     * Gets the distance to every vertex.
+     * @return A copy of the distances in index order
+     */
+    public float[] getDistances() {
+        return dist.clone();
+    }
+
+    /**
+     * Gets the parent of every vertex, -1 for the source and vertices that
+     * can't be reached.
+     * @return A copy of the parents in index order
+     */
+    public int[] getParents() {
+        return parent.clone();
+    }
+
+    public boolean hasPath(int v) {
+        return dist[v] != UNREACHABLE;
+    }
+
+    /**
+     * Gets the shortest path to a vertex.
+     *
+     * @param v The index of the vertex
+     * @return The vertices from the source to v, empty if v can't be reached
+     */
+    public ArrayList<Vertex<Data>> getPath(int v) {
+        ArrayList<Vertex<Data>> path = new ArrayList<>();
+        if (!hasPath(v)) {
+            return path;
+        }
+        Stack<Vertex<Data>> predStack = new Stack<>();
+        for (int p = v; p != -1; p = parent[p]) {
+            predStack.push(graph.getVertex(p));
+        }
+        while (!predStack.isEmpty()) {
+            path.add(predStack.pop());
+        }
+        return path;
+    }
+
+    /**
+     * Walks the tree one vertex at a time in index order.
+     * @return An entry for every vertex, reachable or not
+     */
+    public Iterator<PathEntry<Data>> entries() {
+        return new Iterator<PathEntry<Data>>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < dist.length;
+            }
+
+            @Override
+            public PathEntry<Data> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int v = next++;
+                Vertex<Data> pred = (parent[v] == -1) ? null : graph.getVertex(parent[v]);
+                return new PathEntry<>(graph.getVertex(v), pred, dist[v]);
+            }
+        };
+    }
+
+    /**
+     * Walks the shortest path to each vertex in index order, each path is
+     * only made when it is asked for.
+     * @return The path to every vertex, empty if it can't be reached
+     */
+    public Iterator<ArrayList<Vertex<Data>>> paths() {
+        return new Iterator<ArrayList<Vertex<Data>>>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < dist.length;
+            }
+
+            @Override
+            public ArrayList<Vertex<Data>> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return getPath(next++);
+            }
+        };
+    }
+
+    /**
+     * Visits the path to every vertex that can be reached, the source
+     * included. The tree is walked depth first so the path to a vertex is
+     * the path to its parent with one vertex added, no path is built from
+     * scratch and the whole walk takes time in proportion to the number of
+     * vertices.
+     *
+     * @param visitor Called with the path to each vertex
+     */
+    public void forEachPath(PathVisitor<Data> visitor) {
+        int n = dist.length;
+        int[] childStart = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            if (parent[v] != -1) {
+                childStart[parent[v] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            childStart[v + 1] += childStart[v];
+        }
+        int[] children = new int[childStart[n]];
+        int[] next = Arrays.copyOf(childStart, n);
+        for (int v = 0; v < n; v++) {
+            if (parent[v] != -1) {
+                children[next[parent[v]]++] = v;
+            }
+        }
+
+        // next[v] now walks the children of v left to visit
+        System.arraycopy(childStart, 0, next, 0, n);
+        Vertex<Data>[] path = new Vertex[n];
+        int[] stack = new int[n];
+        int depth = 0;
+        stack[depth] = source;
+        path[depth++] = graph.getVertex(source);
+        visitor.visit(path, depth, dist[source]);
+        while (depth > 0) {
+            int u = stack[depth - 1];
+            if (next[u] == childStart[u + 1]) {
+                depth--;
+                continue;
+            }
+            int v = children[next[u]++];
+            stack[depth] = v;
+            path[depth++] = graph.getVertex(v);
+            visitor.visit(path, depth, dist[v]);
+        }
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        long key = heap[i];
+        while (i > 0 && heap[(i - 1) / 2] > key) {
+            heap[i] = heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[i] = key;
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        if (size == 0) {
+            return;
+        }
+        long key = heap[0];
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int c = 2 * i + 1;
+            if (c + 1 < size && heap[c + 1] < heap[c]) {
+                c++;
+            }
+            if (heap[c] >= key) {
+                break;
+            }
+            heap[i] = heap[c];
+            i = c;
+        }
+        heap[i] = key;
+    }
+}
@@ -0,0 +1,67 @@
+package jgraph.graph;
+
+import java.util.HashMap;
+import java.util.TreeMap;
+
+/**
+ * Turns the vertex names of a data file into vertex data. Each distinct name
+ * is passed through the StringInterpreter once, every later use of the name
+ * is a single hash lookup that gives back the same object. Data that
+ * compares equal to a vertex already added is replaced by that vertex's
+ * data, so the names on edge and command lines share the objects held by the
+ * vertices instead of making copies of them.
+ */
+final class VertexDictionary {
+
+    private final StringInterpreter interpreter;
+    private final HashMap<String, Comparable> names;
+
+    /**
+     * The data of the vertices added so far, keyed by itself.
+     */
+    private final TreeMap<Comparable, Comparable> vertices;
+
+    VertexDictionary(StringInterpreter interpreter) {
+        this.interpreter = interpreter;
+        names = new HashMap<>();
+        vertices = new TreeMap<>();
+    }
+
+    /**
+     * Gets the data a name refers to.
+     *
+     * @param name The name in the file
+     * @return The data of the vertex with that name if one was added,
+     * otherwise the translated name
+     */
+    Comparable lookup(String name) {
+        Comparable data = names.get(name);
+        if (data == null) {
+            data = (Comparable) interpreter.translate(name);
+            Comparable vertex = vertices.get(data);
+            if (vertex != null) {
+                data = vertex;
+            }
+            names.put(name, data);
+        }
+        return data;
+    }
+
+    /**
+     * Gets the data for a vertex being added. The name keeps its own data
+     * and unless an equal vertex was added before, later names that compare
+     * equal to it resolve to that data.
+     *
+     * @param name The name in the file
+     * @return The data for the new vertex
+     */
+    Comparable vertex(String name) {
+        Comparable data = names.get(name);
+        if (data == null) {
+            data = (Comparable) interpreter.translate(name);
+            names.put(name, data);
+        }
+        vertices.putIfAbsent(data, data);
+        return data;
+    }
+}
@@ -0,0 +1,432 @@
+package jgraph.graph;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Makes the changes to a graph durable. The log listens to the graph and
+ * appends each batch of events the graph publishes as one frame, so the
+ * threads changing the graph never wait on the disk. Frames are forced to
+ * disk together once every sync interval (group commit) instead of once per
+ * change, sync forces everything changed so far when a caller needs it.
+ *
+ * The log belongs to a checkpoint: its header holds the length and checksum
+ * of the checkpoint it was started over. Recovery restores the checkpoint and
+ * replays the log only if the two still belong together, a log left behind by
+ * a crash in the middle of checkpointing is older than the checkpoint and is
+ * skipped. A frame torn by a crash fails its checksum and ends the log.
+ *
+ * Vertex data is written with Java serialization so it has to be
+ * Serializable.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public final class WriteAheadLog<Data extends Comparable> implements GraphListener<Data>, Closeable {
+
+    /**
+     * How long changes may wait to be forced to disk by default.
+     */
+    public static final long DEFAULT_SYNC_INTERVAL = 10;
+
+    private static final int MAGIC = 0x4A47574C, VERSION = 1;
+    private static final int HEADER_SIZE = 24, FRAME_HEADER_SIZE = 8;
+
+    private final Graph<Data> graph;
+    private final Path logFile, checkpointFile;
+    private final ByteArrayOutputStream bytes;
+    private final CRC32 checksum;
+    private final Thread flusher;
+
+    private FileChannel channel;
+    private volatile long syncInterval;
+    private volatile boolean open;
+    private boolean dirty;
+
+    /**
+     * The first error writing the log, reported by sync and close.
+     */
+    private IOException failure;
+
+    /**
+     * Starts logging the changes made to a graph. An existing log that
+     * belongs to the checkpoint is appended to, it should already have been
+     * replayed into the graph with recover. Otherwise a new log is started
+     * over the checkpoint.
+     *
+     * @param graph The graph to log
+     * @param logFile The log file
+     * @param checkpointFile The checkpoint the log is replayed over, it
+     * doesn't need to exist
+     * @throws UncheckedIOException If the log can't be opened
+     */
+    public WriteAheadLog(Graph<Data> graph, String logFile, String checkpointFile) {
+        this.graph = graph;
+        this.logFile = Paths.get(logFile).toAbsolutePath();
+        this.checkpointFile = Paths.get(checkpointFile).toAbsolutePath();
+        bytes = new ByteArrayOutputStream();
+        checksum = new CRC32();
+        syncInterval = DEFAULT_SYNC_INTERVAL;
+        try {
+            long[] mark = fingerprint(this.checkpointFile);
+            if (Files.exists(this.logFile)) {
+                channel = FileChannel.open(this.logFile, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                if (matches(channel, mark)) {
+                    // Cut off a frame torn by a crash so new frames follow
+                    // the last good one
+                    long end = replay(channel, null);
+                    channel.truncate(end);
+                    channel.position(end);
+                } else {
+                    channel.close();
+                    channel = null;
+                }
+            }
+            if (channel == null) {
+                start(mark);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        open = true;
+        flusher = new Thread(this::flushLoop, "graph-log");
+        flusher.setDaemon(true);
+        flusher.start();
+        graph.addGraphListener(this);
+    }
+
+    /**
+     * Sets how long changes may wait before they are forced to disk, changes
+     * written within the interval are forced together.
+     *
+     * @param millis The interval, zero forces every batch of events as soon
+     * as it is written
+     */
+    public void setSyncInterval(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("The sync interval can't be negative");
+        }
+        syncInterval = millis;
+        LockSupport.unpark(flusher);
+    }
+
+    public long getSyncInterval() {
+        return syncInterval;
+    }
+
+    @Override
+    public synchronized void graphChanged(List<GraphEvent<Data>> events) {
+        if (!open || failure != null) {
+            return;
+        }
+        try {
+            bytes.reset();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeInt(events.size());
+                for (GraphEvent<Data> event : events) {
+                    GraphEvent.Type type = event.getType();
+                    out.writeByte(type.ordinal());
+                    out.writeObject(event.getFrom());
+                    if (type != GraphEvent.Type.VERTEX_ADDED && type != GraphEvent.Type.VERTEX_DELETED) {
+                        out.writeObject(event.getTo());
+                    }
+                    if (type == GraphEvent.Type.EDGE_ADDED || type == GraphEvent.Type.EDGE_REWEIGHTED) {
+                        out.writeFloat(event.getEdge().getWeight());
+                    }
+                }
+            }
+            byte[] payload = bytes.toByteArray();
+            checksum.reset();
+            checksum.update(payload, 0, payload.length);
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.length);
+            frame.putInt(payload.length).putInt((int) checksum.getValue()).put(payload);
+            frame.flip();
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+            dirty = true;
+            if (syncInterval == 0) {
+                force();
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Waits until every change made to the graph so far is written and
+     * forced to disk.
+     *
+     * @throws UncheckedIOException If the log couldn't be written
+     */
+    public void sync() {
+        graph.flushEvents();
+        synchronized (this) {
+            try {
+                force();
+            } catch (IOException e) {
+                failure = (failure == null) ? e : failure;
+            }
+            if (failure != null) {
+                throw new UncheckedIOException(failure);
+            }
+        }
+    }
+
+    /**
+     * Writes a checkpoint of the graph and starts a new log over it. The
+     * graph must not change until this returns, the same as when writing any
+     * checkpoint.
+     *
+     * @param writer Writes the graph to the file name it is given, for
+     * instance the checkpoint method of the graph
+     * @throws UncheckedIOException If the checkpoint or the new log can't be
+     * written
+     */
+    public void checkpoint(Consumer<String> writer) {
+        graph.flushEvents();
+        synchronized (this) {
+            if (failure != null) {
+                throw new UncheckedIOException(failure);
+            }
+            writer.accept(checkpointFile.toString());
+            try {
+                start(fingerprint(checkpointFile));
+                dirty = false;
+            } catch (IOException e) {
+                failure = e;
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Stops logging, everything changed so far is forced to disk first.
+     *
+     * @throws UncheckedIOException If the log couldn't be written
+     */
+    @Override
+    public void close() {
+        graph.flushEvents();
+        graph.removeGraphListener(this);
+        synchronized (this) {
+            if (!open) {
+                return;
+            }
+            open = false;
+            LockSupport.unpark(flusher);
+            try {
+                force();
+                channel.close();
+            } catch (IOException e) {
+                failure = (failure == null) ? e : failure;
+            }
+            if (failure != null) {
+                throw new UncheckedIOException(failure);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds a graph from its checkpoint and log, the way it was when the
+     * last change that reached the disk was made.
+     *
+     * @param <Data> The type of data representing each vertex
+     * @param <G> The kind of graph
+     * @param logFile The log file
+     * @param checkpointFile The checkpoint file
+     * @param restore Reads the checkpoint, for instance AdjacencyList::restore
+     * @param empty Makes the graph to replay into when there is no checkpoint
+     * @return The recovered graph
+     * @throws UncheckedIOException If the log can't be read
+     */
+    public static <Data extends Comparable, G extends Graph<Data>> G recover(String logFile,
+            String checkpointFile, Function<String, G> restore, Supplier<G> empty) {
+        Path log = Paths.get(logFile), checkpoint = Paths.get(checkpointFile);
+        G graph = Files.exists(checkpoint) ? restore.apply(checkpointFile) : empty.get();
+        if (!Files.exists(log)) {
+            return graph;
+        }
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            if (matches(channel, fingerprint(checkpoint))) {
+                replay(channel, graph);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return graph;
+    }
+
+    private void force() throws IOException {
+        if (dirty && channel.isOpen()) {
+            channel.force(true);
+            dirty = false;
+        }
+    }
+
+    private void flushLoop() {
+        while (open) {
+            long interval = syncInterval;
+            LockSupport.parkNanos((interval == 0 ? 1000 : interval) * 1000000);
+            synchronized (this) {
+                if (open && failure == null) {
+                    try {
+                        force();
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the log with an empty one over a checkpoint.
+     *
+     * @param mark The length and checksum of the checkpoint
+     */
+    private void start(long[] mark) throws IOException {
+        Path temp = logFile.resolveSibling(logFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(mark[0]).putLong(mark[1]);
+            header.flip();
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+            out.force(true);
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        Checkpoint.replace(temp, logFile);
+        channel = FileChannel.open(logFile, StandardOpenOption.WRITE);
+        channel.position(HEADER_SIZE);
+    }
+
+    /**
+     * Gets the length and checksum of a checkpoint, a length of -1 if there
+     * is none.
+     */
+    private static long[] fingerprint(Path checkpoint) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return new long[]{-1, 0};
+        }
+        CRC32 crc = new CRC32();
+        long length = 0;
+        try (FileChannel in = FileChannel.open(checkpoint, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+                length += read;
+            }
+        }
+        return new long[]{length, crc.getValue()};
+    }
+
+    private static boolean matches(FileChannel channel, long[] mark) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (channel.size() < HEADER_SIZE) {
+            return false;
+        }
+        readFully(channel, header, 0);
+        header.flip();
+        return header.getInt() == MAGIC
+                && header.getInt() == VERSION && header.getLong() == mark[0]
+                && header.getLong() == mark[1];
+    }
+
+    /**
+     * Reads the frames of a log in order and applies their changes.
+     *
+     * @param graph The graph to change, null to only find the end
+     * @return The offset after the last whole frame
+     */
+    private static <Data extends Comparable> long replay(FileChannel channel,
+            Graph<Data> graph) throws IOException {
+        long position = HEADER_SIZE, size = channel.size();
+        CRC32 crc = new CRC32();
+        ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        while (position + FRAME_HEADER_SIZE <= size) {
+            frameHeader.clear();
+            readFully(channel, frameHeader, position);
+            int length = frameHeader.getInt(0), sum = frameHeader.getInt(4);
+            if (length < 0 || position + FRAME_HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, position + FRAME_HEADER_SIZE);
+            crc.reset();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != sum) {
+                break;
+            }
+            if (graph != null) {
+                apply(payload.array(), graph);
+            }
+            position += FRAME_HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("The log ended early");
+            }
+        }
+    }
+
+    private static <Data extends Comparable> void apply(byte[] frame, Graph<Data> graph)
+            throws IOException {
+        GraphEvent.Type[] types = GraphEvent.Type.values();
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(frame))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                GraphEvent.Type type = types[in.readByte()];
+                Data from = (Data) in.readObject();
+                switch (type) {
+                    case VERTEX_ADDED:
+                        graph.addVertex(new Vertex<>(from));
+                        break;
+                    case VERTEX_DELETED:
+                        graph.deleteVertex(from);
+                        break;
+                    case EDGE_ADDED:
+                        graph.addEdge(from, (Data) in.readObject(), new Edge(in.readFloat()));
+                        break;
+                    case EDGE_DELETED:
+                        graph.deleteEdge(from, (Data) in.readObject());
+                        break;
+                    case EDGE_REWEIGHTED:
+                        graph.updateEdge(from, (Data) in.readObject(), new Edge(in.readFloat()));
+                        break;
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown vertex data class", e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package jgraph.pregel;
+
+/**
+ * Breadth first search from one source. The value of each vertex is the
+ * number of edges on the shortest path to it, whatever the weights of the
+ * edges.
+ */
+public class BreadthFirstSearch extends ShortestPaths {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param source The index of the source in the graph
+     */
+    public BreadthFirstSearch(int source) {
+        super(source);
+    }
+
+    @Override
+    protected double length(VertexContext vertex, int edge) {
+        return 1;
+    }
+}
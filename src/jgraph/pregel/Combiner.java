@@ -0,0 +1,28 @@
+package jgraph.pregel;
+
+/**
+ * Merges two messages sent to the same vertex into one, so a vertex that
+ * only needs the smallest or the sum of its messages gets a single message
+ * and fewer messages cross between workers. A combiner must be associative
+ * and commutative, messages are combined in no particular order.
+ */
+@FunctionalInterface
+public interface Combiner {
+
+    /**
+     * Keeps the smallest message.
+     */
+    Combiner MIN = (double a, double b) -> Math.min(a, b);
+
+    /**
+     * Keeps the largest message.
+     */
+    Combiner MAX = (double a, double b) -> Math.max(a, b);
+
+    /**
+     * Adds the messages together.
+     */
+    Combiner SUM = (double a, double b) -> a + b;
+
+    double combine(double a, double b);
+}
@@ -0,0 +1,32 @@
+package jgraph.pregel;
+
+/**
+ * Labels each vertex with the smallest id in its connected component by
+ * passing the smallest id seen along the edges until nothing changes.
+ * Labels only travel the way edges point, so the components of a directed
+ * graph are only found if every edge also has its reverse.
+ */
+public class ConnectedComponents extends VertexProgram {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public void compute(VertexContext vertex, Messages messages) {
+        if (vertex.getSuperstep() == 0) {
+            vertex.setValue(vertex.getId());
+            vertex.sendMessageToAllNeighbors(vertex.getId());
+        } else {
+            double label = messages.min();
+            if (label < vertex.getValue()) {
+                vertex.setValue(label);
+                vertex.sendMessageToAllNeighbors(label);
+            }
+        }
+        vertex.voteToHalt();
+    }
+
+    @Override
+    public Combiner getCombiner() {
+        return Combiner.MIN;
+    }
+}
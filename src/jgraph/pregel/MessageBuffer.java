@@ -0,0 +1,114 @@
+package jgraph.pregel;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Messages going to the vertices of one worker, each a vertex index local
+ * to that worker and a value. With a combiner a message to a vertex that
+ * already has one is merged into it, found through an open addressing table
+ * from vertex to slot.
+ */
+final class MessageBuffer {
+
+    private final Combiner combiner;
+    int[] targets;
+    double[] values;
+    int size;
+
+    /**
+     * The slot of each vertex plus one, zero for an empty entry.
+     */
+    private int[] table;
+
+    MessageBuffer(Combiner combiner) {
+        this.combiner = combiner;
+        targets = new int[16];
+        values = new double[16];
+        if (combiner != null) {
+            table = new int[32];
+        }
+    }
+
+    void add(int target, double value) {
+        if (combiner == null) {
+            append(target, value);
+            return;
+        }
+        int mask = table.length - 1;
+        int entry = hash(target) & mask;
+        while (table[entry] != 0) {
+            int slot = table[entry] - 1;
+            if (targets[slot] == target) {
+                values[slot] = combiner.combine(values[slot], value);
+                return;
+            }
+            entry = (entry + 1) & mask;
+        }
+        append(target, value);
+        table[entry] = size;
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+    }
+
+    void addAll(MessageBuffer other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.targets[i], other.values[i]);
+        }
+    }
+
+    void clear() {
+        size = 0;
+        if (table != null) {
+            Arrays.fill(table, 0);
+        }
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeInt(targets[i]);
+            out.writeDouble(values[i]);
+        }
+    }
+
+    /**
+     * Adds the messages written by write.
+     */
+    void read(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int target = in.readInt();
+            add(target, in.readDouble());
+        }
+    }
+
+    private void append(int target, double value) {
+        if (size == targets.length) {
+            targets = Arrays.copyOf(targets, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        targets[size] = target;
+        values[size++] = value;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int slot = 0; slot < size; slot++) {
+            int entry = hash(targets[slot]) & mask;
+            while (table[entry] != 0) {
+                entry = (entry + 1) & mask;
+            }
+            table[entry] = slot + 1;
+        }
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,59 @@
+package jgraph.pregel;
+
+/**
+ * The messages sent to a vertex during the last superstep. The object is
+ * reused for every vertex so it must not be kept after compute returns.
+ */
+public final class Messages {
+
+    private double[] values;
+    private int from, size;
+
+    Messages() {
+    }
+
+    void set(double[] values, int from, int to) {
+        this.values = values;
+        this.from = from;
+        size = to - from;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public double get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Message " + i + " of " + size);
+        }
+        return values[from + i];
+    }
+
+    /**
+     * Gets the smallest message.
+     * @return The smallest message or positive infinity if there are none
+     */
+    public double min() {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = from; i < from + size; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    /**
+     * Gets the sum of the messages.
+     * @return The sum or zero if there are none
+     */
+    public double sum() {
+        double sum = 0;
+        for (int i = from; i < from + size; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+}
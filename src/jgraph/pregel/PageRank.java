@@ -0,0 +1,59 @@
+package jgraph.pregel;
+
+/**
+ * PageRank by power iteration. Every vertex starts with a rank of 1 / n and
+ * in each superstep shares its rank evenly between the vertices it links
+ * to. The rank a vertex keeps is (1 - d) / n plus d times what it was sent.
+ * The rank of a vertex without links is not passed on, so on a graph with
+ * such vertices the ranks add up to less than one.
+ */
+public class PageRank extends VertexProgram {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final double DEFAULT_DAMPING = 0.85;
+    public static final int DEFAULT_ITERATIONS = 30;
+
+    private final double damping;
+    private final int iterations;
+
+    public PageRank() {
+        this(DEFAULT_DAMPING, DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * @param damping The chance of following a link rather than jumping to
+     * a random vertex
+     * @param iterations The number of times the ranks are passed on
+     */
+    public PageRank(double damping, int iterations) {
+        if (damping < 0 || damping > 1) {
+            throw new IllegalArgumentException("The damping must be from 0 to 1");
+        }
+        this.damping = damping;
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void compute(VertexContext vertex, Messages messages) {
+        double n = vertex.getVertexCount();
+        if (vertex.getSuperstep() == 0) {
+            vertex.setValue(1 / n);
+        } else {
+            vertex.setValue((1 - damping) / n + damping * messages.sum());
+        }
+        if (vertex.getSuperstep() < iterations && vertex.getOutDegree() > 0) {
+            vertex.sendMessageToAllNeighbors(vertex.getValue() / vertex.getOutDegree());
+        }
+    }
+
+    @Override
+    public Combiner getCombiner() {
+        return Combiner.SUM;
+    }
+
+    @Override
+    public int getMaxSupersteps() {
+        return iterations + 1;
+    }
+}
@@ -0,0 +1,184 @@
+package jgraph.pregel;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The vertices one worker owns, their edges and values. Each edge knows the
+ * worker that owns the vertex it goes to and the local index of that vertex
+ * there, so a message is put straight into the buffer for that worker.
+ *
+ * Outgoing messages are kept in two sets of buffers that take turns, the
+ * messages of one superstep are read by the other workers while the next
+ * superstep fills the other set.
+ */
+final class Partition {
+
+    final int worker, workers, totalVertices;
+    final int[] globalIds;
+    final int[] offsets;
+    final int[] edgeWorker, edgeLocal, edgeGlobal;
+    final double[] weights;
+
+    double[] values;
+    boolean[] halted;
+    int superstep, current;
+
+    private VertexProgram program;
+    private MessageBuffer inbox;
+    private MessageBuffer[][] outboxes;
+    private MessageBuffer[] sending;
+    private long sent;
+
+    Partition(int worker, int workers, int totalVertices, int[] globalIds,
+            int[] offsets, int[] edgeWorker, int[] edgeLocal, int[] edgeGlobal,
+            double[] weights) {
+        this.worker = worker;
+        this.workers = workers;
+        this.totalVertices = totalVertices;
+        this.globalIds = globalIds;
+        this.offsets = offsets;
+        this.edgeWorker = edgeWorker;
+        this.edgeLocal = edgeLocal;
+        this.edgeGlobal = edgeGlobal;
+        this.weights = weights;
+    }
+
+    int size() {
+        return globalIds.length;
+    }
+
+    /**
+     * Gets ready to run a program, every vertex starts active with a value
+     * of zero.
+     */
+    void start(VertexProgram program) {
+        this.program = program;
+        Combiner combiner = program.getCombiner();
+        values = new double[size()];
+        halted = new boolean[size()];
+        inbox = new MessageBuffer(combiner);
+        outboxes = new MessageBuffer[2][workers];
+        for (int w = 0; w < workers; w++) {
+            outboxes[0][w] = new MessageBuffer(combiner);
+            outboxes[1][w] = new MessageBuffer(combiner);
+        }
+    }
+
+    /**
+     * Runs a superstep on the vertices that are active or have messages.
+     *
+     * @param step The superstep
+     * @param incoming The messages sent to this worker in the last superstep
+     * @return The number of vertices that did not vote to halt
+     */
+    int superstep(int step, List<MessageBuffer> incoming) {
+        superstep = step;
+        for (MessageBuffer batch : incoming) {
+            inbox.addAll(batch);
+        }
+        sending = outboxes[step & 1];
+        for (MessageBuffer buffer : sending) {
+            buffer.clear();
+        }
+        sent = 0;
+
+        // Group the messages by vertex with a counting sort
+        int n = size();
+        int[] start = new int[n + 1];
+        for (int i = 0; i < inbox.size; i++) {
+            start[inbox.targets[i] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            start[v + 1] += start[v];
+        }
+        double[] delivered = new double[inbox.size];
+        int[] next = new int[n];
+        for (int i = 0; i < inbox.size; i++) {
+            int v = inbox.targets[i];
+            delivered[start[v] + next[v]++] = inbox.values[i];
+        }
+        inbox.clear();
+
+        VertexContext context = new VertexContext(this);
+        Messages messages = new Messages();
+        int active = 0;
+        for (int v = 0; v < n; v++) {
+            if (halted[v] && start[v] == start[v + 1]) {
+                continue;
+            }
+            halted[v] = false;
+            current = v;
+            messages.set(delivered, start[v], start[v + 1]);
+            program.compute(context, messages);
+            if (!halted[v]) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    void send(int edge, double message) {
+        sending[edgeWorker[edge]].add(edgeLocal[edge], message);
+        sent++;
+    }
+
+    /**
+     * Gets the messages the last superstep sent to each worker.
+     */
+    MessageBuffer[] getSent() {
+        return sending;
+    }
+
+    /**
+     * Gets the number of messages the last superstep sent, before they were
+     * combined.
+     */
+    long getSentCount() {
+        return sent;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(worker);
+        out.writeInt(workers);
+        out.writeInt(totalVertices);
+        writeInts(out, globalIds);
+        writeInts(out, offsets);
+        writeInts(out, edgeWorker);
+        writeInts(out, edgeLocal);
+        writeInts(out, edgeGlobal);
+        out.writeInt(weights.length);
+        for (double w : weights) {
+            out.writeDouble(w);
+        }
+    }
+
+    static Partition read(DataInputStream in) throws IOException {
+        int worker = in.readInt(), workers = in.readInt(), totalVertices = in.readInt();
+        int[] globalIds = readInts(in), offsets = readInts(in);
+        int[] edgeWorker = readInts(in), edgeLocal = readInts(in), edgeGlobal = readInts(in);
+        double[] weights = new double[in.readInt()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = in.readDouble();
+        }
+        return new Partition(worker, workers, totalVertices, globalIds, offsets,
+                edgeWorker, edgeLocal, edgeGlobal, weights);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] array) throws IOException {
+        out.writeInt(array.length);
+        for (int i : array) {
+            out.writeInt(i);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        int[] array = new int[in.readInt()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = in.readInt();
+        }
+        return array;
+    }
+}
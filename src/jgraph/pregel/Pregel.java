@@ -0,0 +1,499 @@
+package jgraph.pregel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import jgraph.algorithms.Partitioner;
+import jgraph.algorithms.Shard;
+import jgraph.graph.Graph;
+import jgraph.graph.IndexedGraph;
+
+/**
+ * Runs vertex programs over a graph in bulk synchronous supersteps, the
+ * model of Google's Pregel. The graph is split into one part for each worker
+ * with the Partitioner, so most messages stay inside a worker. Workers are
+ * either threads of this JVM or separate JVMs on this machine that talk to
+ * the engine over loopback sockets, so the vertex values and the messages of
+ * a large graph can be spread over the heaps of several processes.
+ *
+ * In each superstep every worker runs compute on its active vertices and
+ * sends back the messages they sent, grouped by the worker that owns the
+ * target. Once every worker is done the engine hands each worker the
+ * messages for its vertices and starts the next superstep.
+ *
+ * @param <Data> The object representation of a vertex
+ */
+public class Pregel<Data extends Comparable> implements AutoCloseable {
+
+    /**
+     * How long to wait for a worker process to connect.
+     */
+    public static final int CONNECT_TIMEOUT = 60000;
+
+    private final IndexedGraph<Data> graph;
+    private final List<WorkerHandle> workers;
+    private final ExecutorService pool;
+    private int superstepCount;
+    private long messageCount;
+
+    public Pregel(Graph<Data> graph) {
+        this(new IndexedGraph<>(graph), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an engine that runs each worker on its own thread.
+     *
+     * @param graph The graph
+     * @param workers The number of workers
+     */
+    public Pregel(IndexedGraph<Data> graph, int workers) {
+        this.graph = graph;
+        this.workers = new ArrayList<>();
+        pool = newPool(workers);
+        for (Partition partition : partition(graph, workers)) {
+            this.workers.add(new LocalWorker(partition));
+        }
+    }
+
+    /**
+     * Creates an engine that starts a JVM on this machine for each worker.
+     * The workers use the class path of this JVM.
+     *
+     * @param graph The graph
+     * @param workers The number of workers
+     * @param jvmOptions Options given to each worker JVM, such as "-Xmx4g"
+     */
+    public Pregel(IndexedGraph<Data> graph, int workers, List<String> jvmOptions) {
+        this.graph = graph;
+        this.workers = new ArrayList<>();
+        pool = newPool(workers);
+        ArrayList<Process> processes = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(CONNECT_TIMEOUT);
+            ArrayList<String> command = new ArrayList<>();
+            command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+            command.addAll(jvmOptions);
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(Worker.class.getName());
+            command.add(Integer.toString(server.getLocalPort()));
+
+            ArrayList<Partition> partitions = partition(graph, workers);
+            for (int w = 0; w < partitions.size(); w++) {
+                ArrayList<String> arguments = new ArrayList<>(command);
+                arguments.add(Integer.toString(w));
+                processes.add(new ProcessBuilder(arguments).inheritIO().start());
+            }
+            // Workers connect in any order, each one names itself first
+            RemoteWorker[] connected = new RemoteWorker[partitions.size()];
+            for (int w = 0; w < partitions.size(); w++) {
+                Socket socket = server.accept();
+                int id;
+                try {
+                    socket.setSoTimeout(CONNECT_TIMEOUT);
+                    id = new DataInputStream(socket.getInputStream()).readInt();
+                    socket.setSoTimeout(0);
+                    if (id < 0 || id >= connected.length || connected[id] != null) {
+                        throw new IOException("Unexpected worker id " + id);
+                    }
+                } catch (IOException e) {
+                    socket.close();
+                    throw e;
+                }
+                connected[id] = new RemoteWorker(socket, processes.get(id), partitions.get(id));
+                this.workers.add(connected[id]);
+            }
+            this.workers.sort((WorkerHandle a, WorkerHandle b) -> Integer.compare(a.getId(), b.getId()));
+        } catch (IOException e) {
+            close();
+            for (Process process : processes) {
+                process.destroyForcibly();
+            }
+            throw new UncheckedIOException("Could not start the worker processes", e);
+        }
+    }
+
+    private static ExecutorService newPool(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("There must be at least one worker");
+        }
+        return Executors.newFixedThreadPool(workers, (Runnable r) -> {
+            Thread thread = new Thread(r, "pregel-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Splits the graph into one partition for each worker. The edges of a
+     * vertex inside its part come first, then its cut edges.
+     */
+    private static <Data extends Comparable> ArrayList<Partition> partition(
+            IndexedGraph<Data> graph, int workers) {
+
+        int n = graph.getVertexCount();
+        ArrayList<Shard<Data>> shards = new Partitioner<>(graph, workers,
+                Partitioner.DEFAULT_IMBALANCE).getShards();
+        int[] local = new int[n];
+        for (Shard<Data> shard : shards) {
+            for (int i = 0; i < shard.getGraph().getVertexCount(); i++) {
+                local[shard.getGlobalIndex(i)] = i;
+            }
+        }
+
+        ArrayList<Partition> partitions = new ArrayList<>(workers);
+        for (Shard<Data> shard : shards) {
+            IndexedGraph<Data> sub = shard.getGraph();
+            int size = sub.getVertexCount(), cuts = shard.getCutEdgeCount();
+            int arcs = sub.getArcCount() + cuts;
+            int[] globalIds = new int[size], offsets = new int[size + 1];
+            int[] edgeWorker = new int[arcs], edgeLocal = new int[arcs], edgeGlobal = new int[arcs];
+            double[] weights = new double[arcs];
+            int e = 0, c = 0;
+            for (int v = 0; v < size; v++) {
+                globalIds[v] = shard.getGlobalIndex(v);
+                for (int i = sub.begin(v); i < sub.end(v); i++, e++) {
+                    edgeWorker[e] = shard.getPart();
+                    edgeLocal[e] = sub.target(i);
+                    edgeGlobal[e] = shard.getGlobalIndex(sub.target(i));
+                    weights[e] = graph.isWeighted() ? sub.weight(i) : 1;
+                }
+                for (; c < cuts && shard.getCutSourceIndex(c) == v; c++, e++) {
+                    edgeWorker[e] = shard.getCutTargetPart(c);
+                    edgeLocal[e] = local[shard.getCutTargetIndex(c)];
+                    edgeGlobal[e] = shard.getCutTargetIndex(c);
+                    weights[e] = graph.isWeighted() ? shard.getCutWeight(c) : 1;
+                }
+                offsets[v + 1] = e;
+            }
+            partitions.add(new Partition(shard.getPart(), workers, n, globalIds,
+                    offsets, edgeWorker, edgeLocal, edgeGlobal, weights));
+        }
+        return partitions;
+    }
+
+    public IndexedGraph<Data> getGraph() {
+        return graph;
+    }
+
+    public int getWorkerCount() {
+        return workers.size();
+    }
+
+    /**
+     * Gets the number of supersteps the last run took.
+     * @return The superstep count
+     */
+    public int getSuperstepCount() {
+        return superstepCount;
+    }
+
+    /**
+     * Gets the number of messages the last run sent, counted before they
+     * were combined.
+     * @return The message count
+     */
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * Runs a vertex program until every vertex has halted and no messages
+     * are left, or until the program's superstep limit.
+     *
+     * @param program The program
+     * @return The final value of each vertex in the index order of the graph
+     */
+    public synchronized double[] run(VertexProgram program) {
+        superstepCount = 0;
+        messageCount = 0;
+        int k = workers.size();
+        invokeAll((WorkerHandle worker) -> {
+            worker.start(program);
+            return null;
+        });
+
+        List<List<MessageBuffer>> incoming = new ArrayList<>();
+        for (int w = 0; w < k; w++) {
+            incoming.add(Collections.emptyList());
+        }
+        for (int step = 0; step < program.getMaxSupersteps(); step++) {
+            final int superstep = step;
+            final List<List<MessageBuffer>> inboxes = incoming;
+            List<Reply> replies = invokeAll((WorkerHandle worker) -> {
+                return worker.superstep(superstep, inboxes.get(worker.getId()));
+            });
+            superstepCount++;
+            long active = 0, sent = 0;
+            incoming = new ArrayList<>();
+            for (int w = 0; w < k; w++) {
+                incoming.add(new ArrayList<>(k));
+            }
+            for (Reply reply : replies) {
+                active += reply.active;
+                sent += reply.sent;
+                for (int w = 0; w < k; w++) {
+                    incoming.get(w).add(reply.outboxes[w]);
+                }
+            }
+            messageCount += sent;
+            if (active == 0 && sent == 0) {
+                break;
+            }
+        }
+
+        double[] values = new double[graph.getVertexCount()];
+        List<double[]> parts = invokeAll(WorkerHandle::values);
+        for (int w = 0; w < k; w++) {
+            int[] ids = workers.get(w).getGlobalIds();
+            double[] part = parts.get(w);
+            for (int i = 0; i < ids.length; i++) {
+                values[ids[i]] = part[i];
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Calls every worker at once and waits for all of them.
+     */
+    private <R> List<R> invokeAll(WorkerCall<R> call) {
+        ArrayList<Callable<R>> tasks = new ArrayList<>();
+        for (WorkerHandle worker : workers) {
+            tasks.add(() -> call.apply(worker));
+        }
+        ArrayList<R> results = new ArrayList<>();
+        try {
+            for (Future<R> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the workers", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        return results;
+    }
+
+    /**
+     * Stops the worker threads and processes.
+     */
+    @Override
+    public void close() {
+        for (WorkerHandle worker : workers) {
+            worker.close();
+        }
+        pool.shutdownNow();
+    }
+
+    @FunctionalInterface
+    private interface WorkerCall<R> {
+
+        R apply(WorkerHandle worker) throws IOException;
+    }
+
+    /**
+     * What a worker sends back after a superstep.
+     */
+    private static class Reply {
+
+        private final int active;
+        private final long sent;
+        private final MessageBuffer[] outboxes;
+
+        private Reply(int active, long sent, MessageBuffer[] outboxes) {
+            this.active = active;
+            this.sent = sent;
+            this.outboxes = outboxes;
+        }
+    }
+
+    private interface WorkerHandle {
+
+        int getId();
+
+        /**
+         * Gets the index in the graph of each vertex of the worker.
+         */
+        int[] getGlobalIds();
+
+        void start(VertexProgram program) throws IOException;
+
+        Reply superstep(int step, List<MessageBuffer> incoming) throws IOException;
+
+        double[] values() throws IOException;
+
+        void close();
+    }
+
+    private static class LocalWorker implements WorkerHandle {
+
+        private final Partition partition;
+
+        private LocalWorker(Partition partition) {
+            this.partition = partition;
+        }
+
+        @Override
+        public int getId() {
+            return partition.worker;
+        }
+
+        @Override
+        public int[] getGlobalIds() {
+            return partition.globalIds;
+        }
+
+        @Override
+        public void start(VertexProgram program) {
+            partition.start(program);
+        }
+
+        @Override
+        public Reply superstep(int step, List<MessageBuffer> incoming) {
+            int active = partition.superstep(step, incoming);
+            return new Reply(active, partition.getSentCount(), partition.getSent());
+        }
+
+        @Override
+        public double[] values() {
+            return partition.values;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * A worker in another JVM. Its partition is sent to it when it connects,
+     * only the ids of its vertices are kept here.
+     */
+    private static class RemoteWorker implements WorkerHandle {
+
+        private final Socket socket;
+        private final Process process;
+        private final int id, workers;
+        private final int[] globalIds;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private RemoteWorker(Socket socket, Process process, Partition partition)
+                throws IOException {
+            this.socket = socket;
+            this.process = process;
+            id = partition.worker;
+            workers = partition.workers;
+            globalIds = partition.globalIds;
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            partition.write(out);
+            out.flush();
+        }
+
+        @Override
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public int[] getGlobalIds() {
+            return globalIds;
+        }
+
+        @Override
+        public void start(VertexProgram program) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream object = new ObjectOutputStream(bytes)) {
+                object.writeObject(program);
+            }
+            out.writeByte(Worker.START);
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+            out.flush();
+            readStatus();
+        }
+
+        @Override
+        public Reply superstep(int step, List<MessageBuffer> incoming) throws IOException {
+            out.writeByte(Worker.SUPERSTEP);
+            out.writeInt(step);
+            out.writeInt(incoming.size());
+            for (MessageBuffer batch : incoming) {
+                batch.write(out);
+            }
+            out.flush();
+            readStatus();
+            int active = in.readInt();
+            long sent = in.readLong();
+            MessageBuffer[] outboxes = new MessageBuffer[workers];
+            for (int w = 0; w < outboxes.length; w++) {
+                outboxes[w] = new MessageBuffer(null);
+                outboxes[w].read(in);
+            }
+            return new Reply(active, sent, outboxes);
+        }
+
+        @Override
+        public double[] values() throws IOException {
+            out.writeByte(Worker.VALUES);
+            out.flush();
+            readStatus();
+            double[] values = new double[globalIds.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = in.readDouble();
+            }
+            return values;
+        }
+
+        private void readStatus() throws IOException {
+            if (in.readByte() != Worker.OK) {
+                throw new IllegalStateException(in.readUTF());
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                out.writeByte(Worker.CLOSE);
+                out.flush();
+                socket.close();
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (IOException e) {
+                process.destroyForcibly();
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package jgraph.pregel;
+
+/**
+ * Single source shortest paths. A vertex that learns of a shorter distance
+ * passes the distance plus the weight of each edge on to its neighbors, the
+ * smallest of the messages to a vertex is all that matters so they are
+ * combined with MIN. Edges of an unweighted graph count as a weight of one.
+ */
+public class ShortestPaths extends VertexProgram {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The value of a vertex that can't be reached.
+     */
+    public static final double UNREACHABLE = Double.POSITIVE_INFINITY;
+
+    private final int source;
+
+    /**
+     * @param source The index of the source in the graph
+     */
+    public ShortestPaths(int source) {
+        this.source = source;
+    }
+
+    @Override
+    public void compute(VertexContext vertex, Messages messages) {
+        if (vertex.getSuperstep() == 0) {
+            vertex.setValue(UNREACHABLE);
+        }
+        double best = messages.min();
+        if (vertex.getSuperstep() == 0 && vertex.getId() == source) {
+            best = 0;
+        }
+        if (best < vertex.getValue()) {
+            vertex.setValue(best);
+            for (int i = 0; i < vertex.getOutDegree(); i++) {
+                vertex.sendMessage(i, best + length(vertex, i));
+            }
+        }
+        vertex.voteToHalt();
+    }
+
+    /**
+     * The length an edge adds to a path.
+     */
+    protected double length(VertexContext vertex, int edge) {
+        return vertex.getEdgeWeight(edge);
+    }
+
+    @Override
+    public Combiner getCombiner() {
+        return Combiner.MIN;
+    }
+}
@@ -0,0 +1,111 @@
+package jgraph.pregel;
+
+/**
+ * The vertex compute is being called on. Vertices are named by their index
+ * in the indexed graph the engine was given, edges by their position among
+ * the edges leaving the vertex. The object is reused for every vertex so it
+ * must not be kept after compute returns.
+ */
+public final class VertexContext {
+
+    private final Partition partition;
+
+    VertexContext(Partition partition) {
+        this.partition = partition;
+    }
+
+    /**
+     * Gets the index of the vertex in the whole graph.
+     * @return The vertex id
+     */
+    public int getId() {
+        return partition.globalIds[partition.current];
+    }
+
+    /**
+     * Gets the number of the superstep being run, the first is zero.
+     * @return The superstep
+     */
+    public int getSuperstep() {
+        return partition.superstep;
+    }
+
+    /**
+     * Gets the number of vertices in the whole graph.
+     * @return The vertex count
+     */
+    public int getVertexCount() {
+        return partition.totalVertices;
+    }
+
+    /**
+     * Gets the value of the vertex, zero before it is first set.
+     * @return The value
+     */
+    public double getValue() {
+        return partition.values[partition.current];
+    }
+
+    public void setValue(double value) {
+        partition.values[partition.current] = value;
+    }
+
+    public int getOutDegree() {
+        int v = partition.current;
+        return partition.offsets[v + 1] - partition.offsets[v];
+    }
+
+    /**
+     * Gets the id of the vertex an edge goes to.
+     * @param i The edge, from zero up to the out degree
+     * @return The id of the vertex at the other end
+     */
+    public int getEdgeTarget(int i) {
+        return partition.edgeGlobal[edge(i)];
+    }
+
+    /**
+     * Gets the weight of an edge, one if the graph is not weighted.
+     * @param i The edge, from zero up to the out degree
+     * @return The weight of the edge
+     */
+    public double getEdgeWeight(int i) {
+        return partition.weights[edge(i)];
+    }
+
+    /**
+     * Sends a message along an edge, it is read in the next superstep.
+     * @param i The edge, from zero up to the out degree
+     * @param message The message
+     */
+    public void sendMessage(int i, double message) {
+        partition.send(edge(i), message);
+    }
+
+    /**
+     * Sends the same message along every edge leaving the vertex.
+     * @param message The message
+     */
+    public void sendMessageToAllNeighbors(double message) {
+        int v = partition.current;
+        for (int e = partition.offsets[v]; e < partition.offsets[v + 1]; e++) {
+            partition.send(e, message);
+        }
+    }
+
+    /**
+     * Stops calling compute on the vertex until it is sent a message.
+     */
+    public void voteToHalt() {
+        partition.halted[partition.current] = true;
+    }
+
+    private int edge(int i) {
+        int v = partition.current;
+        int e = partition.offsets[v] + i;
+        if (i < 0 || e >= partition.offsets[v + 1]) {
+            throw new IndexOutOfBoundsException("Edge " + i + " of " + getOutDegree());
+        }
+        return e;
+    }
+}
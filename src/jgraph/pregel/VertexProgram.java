@@ -0,0 +1,46 @@
+package jgraph.pregel;
+
+import java.io.Serializable;
+
+/**
+ * The code run at every vertex in each superstep of a Pregel computation.
+ * In the first superstep compute is called on every vertex. After that it is
+ * only called on vertices that have not voted to halt or that were sent a
+ * message, a message wakes a halted vertex up. The computation ends once
+ * every vertex has halted and no messages are left, or after the most
+ * supersteps the program allows.
+ *
+ * A vertex holds a single double and messages are doubles. The same program
+ * object is used by every worker thread at once, so compute must keep its
+ * state in the vertex value rather than in fields. A program run in worker
+ * processes is serialized and sent to them, so its fields must be
+ * serializable and its class must be on the class path of the workers.
+ */
+public abstract class VertexProgram implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Runs one superstep at a vertex.
+     *
+     * @param vertex The vertex, with its value and edges
+     * @param messages The messages sent to the vertex in the last superstep
+     */
+    public abstract void compute(VertexContext vertex, Messages messages);
+
+    /**
+     * Gets the combiner used to merge messages going to the same vertex.
+     * @return The combiner or null to deliver every message
+     */
+    public Combiner getCombiner() {
+        return null;
+    }
+
+    /**
+     * Gets the most supersteps the computation may take.
+     * @return The superstep limit
+     */
+    public int getMaxSupersteps() {
+        return Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,105 @@
+package jgraph.pregel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+
+/**
+ * A worker process of a Pregel computation. It connects back to the engine
+ * over a loopback socket, receives its partition of the graph and then runs
+ * supersteps when told to, sending the messages each superstep produces back
+ * to the engine which passes them on to the workers that own their targets.
+ *
+ * The engine starts the workers itself, the arguments are the port the
+ * engine listens on and the id of the worker. The worker sends its id as
+ * soon as it connects so the engine can tell the workers apart whatever
+ * order they connect in.
+ */
+public final class Worker {
+
+    static final byte START = 1, SUPERSTEP = 2, VALUES = 3, CLOSE = 4;
+    static final byte OK = 0, FAILED = 1;
+
+    private Worker() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = Integer.parseInt(args[0]);
+        int id = Integer.parseInt(args[1]);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            out.writeInt(id);
+            out.flush();
+            serve(Partition.read(in), in, out);
+        }
+    }
+
+    private static void serve(Partition partition, DataInputStream in,
+            DataOutputStream out) throws IOException {
+        Combiner combiner = null;
+        while (true) {
+            byte command = in.readByte();
+            try {
+                switch (command) {
+                    case START:
+                        byte[] bytes = new byte[in.readInt()];
+                        in.readFully(bytes);
+                        VertexProgram program = readProgram(bytes);
+                        combiner = program.getCombiner();
+                        partition.start(program);
+                        out.writeByte(OK);
+                        break;
+                    case SUPERSTEP:
+                        int step = in.readInt();
+                        ArrayList<MessageBuffer> incoming = new ArrayList<>();
+                        MessageBuffer batch = new MessageBuffer(combiner);
+                        int batches = in.readInt();
+                        for (int i = 0; i < batches; i++) {
+                            batch.read(in);
+                        }
+                        incoming.add(batch);
+                        int active = partition.superstep(step, incoming);
+                        out.writeByte(OK);
+                        out.writeInt(active);
+                        out.writeLong(partition.getSentCount());
+                        for (MessageBuffer buffer : partition.getSent()) {
+                            buffer.write(out);
+                        }
+                        break;
+                    case VALUES:
+                        out.writeByte(OK);
+                        for (double value : partition.values) {
+                            out.writeDouble(value);
+                        }
+                        break;
+                    case CLOSE:
+                        return;
+                    default:
+                        throw new IOException("Unknown command: " + command);
+                }
+            } catch (RuntimeException | ClassNotFoundException e) {
+                out.writeByte(FAILED);
+                out.writeUTF("Worker " + partition.worker + ": " + e);
+            }
+            out.flush();
+        }
+    }
+
+    private static VertexProgram readProgram(byte[] bytes)
+            throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (VertexProgram) in.readObject();
+        }
+    }
+}
@@ -1,15 +1,67 @@
 
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 import java.util.Stack;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import jgraph.AdjList.AdjacencyList;
 import jgraph.AdjList.City;
+import jgraph.AdjList.CompressedAdjacencyList;
+import jgraph.AdjList.ConcurrentAdjacencyList;
+import jgraph.AdjList.Snapshot;
+import jgraph.AdjList.VersionedAdjacencyList;
 import jgraph.AdjMatrix.AdjacencyMatrix;
+import jgraph.algorithms.DynamicShortestPaths;
+import jgraph.algorithms.FlowResult;
+import jgraph.algorithms.Louvain;
+import jgraph.algorithms.MaxFlow;
+import jgraph.algorithms.Partitioner;
+import jgraph.algorithms.ReachabilityIndex;
+import jgraph.algorithms.Reordering;
+import jgraph.algorithms.Shard;
+import jgraph.algorithms.TransitiveClosure;
+import jgraph.algorithms.Triangles;
+import jgraph.graph.CompiledScript;
+import jgraph.graph.AdjacencyRow;
+import jgraph.graph.DiskGraph;
+import jgraph.graph.Edge;
 import jgraph.graph.Graph;
+import jgraph.graph.GraphEvent;
+import jgraph.graph.GraphExporter;
+import jgraph.graph.GraphImporter;
+import jgraph.graph.GraphListener;
+import jgraph.graph.IndexedGraph;
 import jgraph.graph.ParamCollector;
+import jgraph.graph.ParamParser;
+import jgraph.graph.PathEntry;
+import jgraph.graph.ShortestPathTree;
+import jgraph.graph.QueryExecutor;
 import jgraph.graph.StringInterpreter;
+import jgraph.graph.Vertex;
+import jgraph.graph.WriteAheadLog;
+import jgraph.pregel.ConnectedComponents;
+import jgraph.pregel.PageRank;
+import jgraph.pregel.Pregel;
+import jgraph.pregel.ShortestPaths;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -21,6 +73,11 @@ import static org.junit.Assert.*;
  */
 public class GraphTest {
     
+    /**
+     * Data files are translated one name at a time so one parser is shared.
+     */
+    private static final ParamParser PARAMS = new ParamParser();
+    
     /**
      * Creates a Lambda expression that handles each city name that is found in
      * a data file. Any parameter found will be used to initialize the
@@ -32,12 +89,9 @@ public class GraphTest {
             if (str.charAt(c) == '(') {
                 city = new City(str.substring(0, c));
 
-                String strParams = str.substring(c, str.length());
-                Stack<String> params = ParamCollector.getParams(strParams);
-
-                if (!params.isEmpty()) {
-                    float pop = Float.parseFloat(params.pop());
-                    city.setPopulation(pop);
+                // The parameters are read in place, the last one is the population
+                if (PARAMS.parse(str, c, str.length()) > 0) {
+                    city.setPopulation(PARAMS.getFloat(PARAMS.size() - 1));
                 }
 
             }
@@ -104,4 +158,1099 @@ public class GraphTest {
         output.close();
     }
     
+    @Test
+    public void maxFlowTest(){
+        Graph<String> graph = new AdjacencyList<>(true, true);
+        for (String v : new String[]{"s", "a", "b", "c", "d", "t"}){
+            graph.addVertex(new Vertex<>(v));
+        }
+        graph.addEdge("s", "a", new Edge(16));
+        graph.addEdge("s", "b", new Edge(13));
+        graph.addEdge("a", "c", new Edge(12));
+        graph.addEdge("b", "a", new Edge(4));
+        graph.addEdge("b", "d", new Edge(14));
+        graph.addEdge("c", "b", new Edge(9));
+        graph.addEdge("c", "t", new Edge(20));
+        graph.addEdge("d", "c", new Edge(7));
+        graph.addEdge("d", "t", new Edge(4));
+        
+        MaxFlow<String> maxFlow = new MaxFlow<>(graph);
+        FlowResult<String> pushRelabel = maxFlow.pushRelabel("s", "t");
+        FlowResult<String> dinic = maxFlow.dinic("s", "t");
+        
+        assertEquals(23, pushRelabel.getValue(), 0);
+        assertEquals(23, dinic.getValue(), 0);
+        assertEquals(pushRelabel.getFlow("c", "t") + pushRelabel.getFlow("d", "t"), 23, 0);
+        assertTrue(dinic.isSourceSide("d"));
+        assertFalse(dinic.isSourceSide("c"));
+        assertEquals(4, pushRelabel.getSourceSide().size());
+    }
+    
+    @Test
+    public void trianglesTest(){
+        Graph<String> graph = new AdjacencyMatrix<>();
+        for (String v : new String[]{"A", "B", "C", "D", "E"}){
+            graph.addVertex(new Vertex<>(v));
+        }
+        graph.addEdge("A", "B", new Edge());
+        graph.addEdge("A", "C", new Edge());
+        graph.addEdge("A", "D", new Edge());
+        graph.addEdge("B", "C", new Edge());
+        graph.addEdge("B", "D", new Edge());
+        graph.addEdge("D", "E", new Edge());
+        
+        IndexedGraph<String> indexed = new IndexedGraph<>(graph);
+        Triangles<String> merge = new Triangles<>(indexed, false);
+        Triangles<String> bitsets = new Triangles<>(indexed, true);
+        
+        assertEquals(2, merge.count());
+        assertEquals(2, bitsets.count());
+        assertEquals(2, merge.count("A"));
+        assertEquals(1, bitsets.count("C"));
+        assertEquals(0, merge.count("E"));
+        assertEquals(2.0 / 3.0, merge.clusteringCoefficient("A"), 1e-9);
+        assertEquals(merge.averageClustering(), bitsets.averageClustering(), 1e-9);
+    }
+    
+    @Test
+    public void reachabilityTest(){
+        Graph<String> graph = new AdjacencyList<>(true, false);
+        for (String v : new String[]{"A", "B", "C", "D", "E"}){
+            graph.addVertex(new Vertex<>(v));
+        }
+        graph.addEdge("A", "B", new Edge());
+        graph.addEdge("B", "C", new Edge());
+        graph.addEdge("C", "A", new Edge());
+        graph.addEdge("C", "D", new Edge());
+        
+        ReachabilityIndex<String> index = new ReachabilityIndex<>(graph);
+        assertEquals(3, index.getComponentCount());
+        assertTrue(index.hasPath("B", "A"));
+        assertTrue(index.hasPath("A", "D"));
+        assertFalse(index.hasPath("D", "A"));
+        assertFalse(index.hasPath("A", "E"));
+        
+        graph.addEdge("D", "E", new Edge());
+        index.addEdge("D", "E");
+        assertTrue(index.hasPath("B", "E"));
+        
+        graph.addEdge("E", "B", new Edge());
+        index.addEdge("E", "B");
+        assertTrue(index.hasPath("E", "D"));
+        assertEquals(1, index.getComponentCount());
+    }
+    
+    @Test
+    public void transitiveClosureTest(){
+        // Large enough to close rows in parallel and span many words
+        int n = TransitiveClosure.PARALLEL_THRESHOLD + 100;
+        Graph<Integer> graph = new AdjacencyList<>(true, false);
+        for (int v = 0; v < n; v++){
+            graph.addVertex(new Vertex<>(v));
+        }
+        Random random = new Random(29);
+        for (int i = 0; i < n; i++){
+            int u = random.nextInt(n), v = random.nextInt(n);
+            if (u != v && !graph.hasEdge(u, v)){
+                graph.addEdge(u, v, new Edge());
+            }
+        }
+        IndexedGraph<Integer> indexed = new IndexedGraph<>(graph);
+        TransitiveClosure<Integer> closure = new TransitiveClosure<>(indexed);
+        
+        // Breadth first search from the successors of each vertex, so a
+        // vertex only reaches itself when it is on a cycle
+        for (int u = 0; u < n; u++){
+            boolean[] seen = new boolean[n];
+            int[] queue = new int[n];
+            int head = 0, tail = 0;
+            for (int e = indexed.begin(u); e < indexed.end(u); e++){
+                seen[indexed.target(e)] = true;
+                queue[tail++] = indexed.target(e);
+            }
+            while (head < tail){
+                int x = queue[head++];
+                for (int e = indexed.begin(x); e < indexed.end(x); e++){
+                    int y = indexed.target(e);
+                    if (!seen[y]){
+                        seen[y] = true;
+                        queue[tail++] = y;
+                    }
+                }
+            }
+            for (int v = 0; v < n; v++){
+                if (v != u){
+                    assertEquals(seen[v], closure.hasPath(u, v));
+                }
+            }
+            assertTrue(closure.hasPath(u, u));
+            assertEquals(tail, closure.countReachable(indexed.getData(u)));
+        }
+        assertFalse(closure.hasPath(indexed.getData(0), Integer.valueOf(n)));
+    }
+    
+    @Test
+    public void deletedVertexIndexTest(){
+        Graph<String> graph = new AdjacencyList<>(true, false);
+        for (String v : new String[] {"A", "B", "C", "D"}){
+            graph.addVertex(new Vertex<>(v));
+        }
+        graph.addEdge("A", "B", new Edge());
+        graph.addEdge("C", "B", new Edge());
+        graph.addEdge("B", "D", new Edge());
+        graph.addEdge("A", "C", new Edge());
+        graph.deleteVertex("B");
+        
+        // The edges into B are not visited once B is gone
+        final ArrayList<String> visited = new ArrayList<>();
+        graph.forEachEdge((String from, String to, Edge edge) -> visited.add(from + to));
+        assertEquals(Arrays.asList("AC"), visited);
+        
+        IndexedGraph<String> indexed = new IndexedGraph<>(graph);
+        assertEquals(3, indexed.getVertexCount());
+        assertEquals(1, indexed.getArcCount());
+        assertEquals(-1, indexed.indexOf("B"));
+        ReachabilityIndex<String> index = new ReachabilityIndex<>(graph);
+        assertTrue(index.hasPath("A", "C"));
+        assertFalse(index.hasPath("C", "D"));
+    }
+    
+    @Test
+    public void adjacencyMatrixConversionTest(){
+        Graph<String> graph = new AdjacencyList<>(true, true);
+        for (String v : new String[] {"A", "B", "C", "D"}){
+            graph.addVertex(new Vertex<>(v));
+        }
+        graph.addEdge("A", "B", new Edge(2));
+        graph.addEdge("B", "C", new Edge(3));
+        graph.addEdge("C", "A", new Edge(4));
+        graph.addEdge("A", "D", new Edge(7));
+        IndexedGraph<String> indexed = new IndexedGraph<>(graph);
+        
+        AdjacencyMatrix<String> matrix = new AdjacencyMatrix<>(indexed);
+        assertEquals(4, matrix.getVertexCount());
+        assertEquals(4, matrix.getEdgeCount());
+        assertEquals(7, matrix.getEdge("A", "D").getWeight(), 0);
+        assertFalse(matrix.hasEdge("D", "A"));
+        
+        // Back to an indexed graph with the same edges and weights
+        IndexedGraph<String> copy = new IndexedGraph<>(matrix);
+        assertEquals(indexed.getArcCount(), copy.getArcCount());
+        for (int u = 0; u < indexed.getVertexCount(); u++){
+            int cu = copy.indexOf(indexed.getData(u));
+            assertEquals(indexed.degree(u), copy.degree(cu));
+            for (int e = indexed.begin(u); e < indexed.end(u); e++){
+                int f = copy.find(cu, copy.indexOf(indexed.getData(indexed.target(e))));
+                assertTrue(f >= 0);
+                assertEquals(indexed.weight(e), copy.weight(f), 0);
+            }
+        }
+        
+        // The closure matrix has an edge for every reachable pair
+        AdjacencyMatrix<String> closed = new TransitiveClosure<>(indexed).toAdjacencyMatrix();
+        assertEquals(9, closed.getEdgeCount());
+        assertTrue(closed.hasEdge("B", "D"));
+        assertTrue(closed.hasEdge("C", "B"));
+        assertFalse(closed.hasEdge("D", "A"));
+        assertFalse(closed.hasEdge("A", "A"));
+    }
+    
+    @Test
+    public void louvainTest(){
+        Graph<Integer> graph = new AdjacencyList<>(false, true);
+        for (int v = 0; v < 10; v++){
+            graph.addVertex(new Vertex<>(v));
+        }
+        for (int a = 0; a < 5; a++){
+            for (int b = a + 1; b < 5; b++){
+                graph.addEdge(a, b, new Edge(2));
+                graph.addEdge(a + 5, b + 5, new Edge(2));
+            }
+        }
+        graph.addEdge(0, 5, new Edge(1));
+        
+        Louvain<Integer> louvain = new Louvain<>(graph);
+        assertEquals(2, louvain.getCommunityCount());
+        assertEquals(louvain.getCommunity(1), louvain.getCommunity(4));
+        assertNotEquals(louvain.getCommunity(0), louvain.getCommunity(5));
+        assertTrue(louvain.getModularity() > 0.4);
+        assertEquals(1, louvain.getLevels().size());
+    }
+    
+    @Test
+    public void concurrentWritersTest() throws InterruptedException{
+        final Graph<Integer> graph = new ConcurrentAdjacencyList<>(false, true);
+        final int n = 200, threads = 4;
+        for (int v = 0; v < n; v++){
+            graph.addVertex(new Vertex<>(v));
+        }
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++){
+            final int offset = t;
+            writers[t] = new Thread(() -> {
+                for (int a = offset; a < n; a += threads){
+                    for (int b = 0; b < n; b++){
+                        graph.addEdge(a, b, new Edge(1 + (a + b) % 7));
+                        graph.hasEdge(b, a);
+                    }
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers){
+            writer.join();
+        }
+        assertEquals(n * (n - 1) / 2, graph.getEdgeCount());
+        assertTrue(graph.isFullyConnected());
+        
+        graph.deleteVertex(0);
+        assertEquals(n - 1, graph.getVertexCount());
+        assertEquals((n - 1) * (n - 2) / 2, graph.getEdgeCount());
+        assertFalse(graph.hasEdge(1, 0));
+        assertTrue(graph.shortestPaths(1));
+    }
+    
+    @Test
+    public void concurrentShortestPathTest(){
+        Graph<String> graph = new ConcurrentAdjacencyList<>(false, true);
+        for (String v : new String[] {"A", "B", "C"}){
+            graph.addVertex(new Vertex<>(v));
+        }
+        graph.addEdge("A", "B", new Edge(1));
+        graph.addEdge("B", "C", new Edge(1));
+        assertEquals(3, graph.shortestPath("A", "C").size());
+        
+        // A change made after the search is seen by the next path
+        graph.addEdge("A", "C", new Edge(1));
+        assertEquals(2, graph.shortestPath("A", "C").size());
+        graph.updateEdge("A", "C", new Edge(5));
+        assertEquals(3, graph.shortestPath("A", "C").size());
+    }
+    
+    @Test
+    public void snapshotTest(){
+        VersionedAdjacencyList<Integer> graph = new VersionedAdjacencyList<>(true, true);
+        for (int v = 0; v < 4; v++){
+            graph.addVertex(v);
+        }
+        graph.addEdge(0, 1, new Edge(2));
+        graph.addEdge(1, 2, new Edge(2));
+        graph.addEdge(2, 3, new Edge(2));
+        
+        try (Snapshot<Integer> snapshot = graph.snapshot()){
+            graph.addEdge(0, 3, new Edge(1));
+            graph.deleteVertex(1);
+            assertEquals(1, graph.getOpenSnapshotCount());
+            
+            assertEquals(3, graph.getVertexCount());
+            assertEquals(2, graph.getEdgeCount());
+            assertEquals(4, snapshot.getVertexCount());
+            assertEquals(3, snapshot.getEdgeCount());
+            assertTrue(snapshot.hasEdge(0, 1));
+            assertFalse(snapshot.hasEdge(0, 3));
+            
+            assertTrue(snapshot.shortestPaths(0));
+            assertTrue(graph.shortestPaths(0));
+            assertEquals(6, snapshot.getVertex(3).dijkstra().getDistance(), 0);
+            assertEquals(1, graph.getVertex(3).dijkstra().getDistance(), 0);
+            assertEquals(4, snapshot.shortestPath(0, 3).size());
+        }
+        assertEquals(0, graph.getOpenSnapshotCount());
+    }
+    
+    @Test
+    public void versionedShortestPathTest(){
+        VersionedAdjacencyList<String> graph = new VersionedAdjacencyList<>(false, true);
+        for (String v : new String[] {"A", "B", "C"}){
+            graph.addVertex(v);
+        }
+        graph.addEdge("A", "B", new Edge(1));
+        graph.addEdge("B", "C", new Edge(1));
+        assertEquals(3, graph.shortestPath("A", "C").size());
+        
+        // The search left on the shared vertices is from the old version
+        try (Snapshot<String> snapshot = graph.snapshot()){
+            graph.addEdge("A", "C", new Edge(1));
+            assertEquals(2, graph.shortestPath("A", "C").size());
+            assertEquals(3, snapshot.shortestPath("A", "C").size());
+            graph.deleteEdge("A", "C");
+            assertEquals(3, graph.shortestPath("A", "C").size());
+        }
+    }
+    
+    @Test
+    public void dynamicShortestPathsTest(){
+        Graph<Integer> graph = new AdjacencyList<>(true, true);
+        for (int v = 0; v < 5; v++){
+            graph.addVertex(new Vertex<>(v));
+        }
+        graph.addEdge(0, 1, new Edge(1));
+        graph.addEdge(1, 2, new Edge(1));
+        graph.addEdge(2, 3, new Edge(1));
+        graph.addEdge(0, 3, new Edge(5));
+        graph.addEdge(3, 4, new Edge(1));
+        
+        DynamicShortestPaths<Integer> paths = new DynamicShortestPaths<>(graph, 0);
+        assertEquals(4, paths.getDistance(4), 0);
+        
+        assertTrue(paths.deleteEdge(1, 2));
+        assertFalse(graph.hasEdge(1, 2));
+        assertEquals(6, paths.getDistance(4), 0);
+        assertFalse(paths.hasPath(2));
+        
+        assertTrue(paths.updateEdge(0, 3, new Edge(2)));
+        assertEquals(3, paths.getDistance(4), 0);
+        assertEquals(3, paths.getPath(4).size());
+        
+        assertTrue(paths.addEdge(1, 4, new Edge(1)));
+        assertEquals(2, paths.getDistance(4), 0);
+        assertEquals(1, paths.getPath(4).get(1).getData().intValue());
+    }
+    
+    @Test
+    public void graphListenerTest(){
+        Graph<Integer> graph = new AdjacencyList<>(false, true);
+        final ArrayList<GraphEvent<Integer>> events = new ArrayList<>();
+        GraphListener<Integer> listener = (batch) -> events.addAll(batch);
+        graph.addGraphListener(listener);
+        
+        graph.addVertex(new Vertex<>(1));
+        graph.addVertex(new Vertex<>(2));
+        graph.addVertex(new Vertex<>(2));
+        graph.addEdge(1, 2, new Edge(3));
+        graph.updateEdge(1, 2, new Edge(5));
+        graph.deleteEdge(1, 2);
+        graph.deleteVertex(2);
+        graph.flushEvents();
+        
+        GraphEvent.Type[] expected = {GraphEvent.Type.VERTEX_ADDED, 
+            GraphEvent.Type.VERTEX_ADDED, GraphEvent.Type.EDGE_ADDED, 
+            GraphEvent.Type.EDGE_REWEIGHTED, GraphEvent.Type.EDGE_DELETED, 
+            GraphEvent.Type.VERTEX_DELETED};
+        assertEquals(expected.length, events.size());
+        for (int i = 0; i < expected.length; i++){
+            assertEquals(expected[i], events.get(i).getType());
+            assertEquals(i, events.get(i).getSequence());
+        }
+        assertEquals(5, events.get(3).getEdge().getWeight(), 0);
+        assertEquals(3, events.get(3).getPrevious().getWeight(), 0);
+        
+        graph.removeGraphListener(listener);
+        graph.addVertex(new Vertex<>(3));
+        assertEquals(expected.length, events.size());
+    }
+    
+    @Test
+    public void concurrentUpdateEdgeTest() throws InterruptedException{
+        ArrayList<Graph<Integer>> graphs = new ArrayList<>();
+        graphs.add(new ConcurrentAdjacencyList<>(true, true));
+        graphs.add(new VersionedAdjacencyList<>(true, true));
+        for (final Graph<Integer> graph : graphs){
+            graph.addVertex(new Vertex<>(0));
+            graph.addVertex(new Vertex<>(1));
+            final List<GraphEvent<Integer>> events = new CopyOnWriteArrayList<>();
+            graph.addGraphListener((batch) -> events.addAll(batch));
+            assertFalse(graph.updateEdge(0, 1, new Edge(5)));
+            
+            // One thread reweights the edge while another replaces it
+            Thread updater = new Thread(() -> {
+                for (int i = 0; i < 2000; i++){
+                    graph.updateEdge(0, 1, new Edge(5));
+                }
+            });
+            Thread replacer = new Thread(() -> {
+                for (int i = 0; i < 2000; i++){
+                    graph.deleteEdge(0, 1);
+                    graph.addEdge(0, 1, new Edge(7));
+                }
+            });
+            updater.start();
+            replacer.start();
+            updater.join();
+            replacer.join();
+            graph.flushEvents();
+            
+            // Replaying the events gives the edge the graph ended with
+            Edge last = null;
+            for (GraphEvent<Integer> event : events){
+                switch (event.getType()){
+                    case EDGE_ADDED:
+                        assertNull(last);
+                        last = event.getEdge();
+                        break;
+                    case EDGE_REWEIGHTED:
+                        assertSame(last, event.getPrevious());
+                        last = event.getEdge();
+                        break;
+                    case EDGE_DELETED:
+                        assertNotNull(last);
+                        last = null;
+                        break;
+                    default:
+                        fail("Unexpected event " + event);
+                }
+            }
+            assertSame(graph.getEdge(0, 1), last);
+            assertEquals(1, graph.getEdgeCount());
+        }
+    }
+    
+    @Test
+    public void listenerErrorHandlerTest() throws InterruptedException{
+        Graph<Integer> graph = new AdjacencyList<>(false, true);
+        final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        final List<GraphEvent<Integer>> events = new CopyOnWriteArrayList<>();
+        graph.setListenerErrorHandler((thread, e) -> errors.add(e));
+        graph.addGraphListener((batch) -> {
+            throw new IllegalStateException("listener failed");
+        });
+        graph.addGraphListener((batch) -> events.addAll(batch));
+        
+        graph.addVertex(new Vertex<>(1));
+        graph.flushEvents();
+        assertEquals(1, events.size());
+        assertFalse(errors.isEmpty());
+        assertEquals("listener failed", errors.get(0).getMessage());
+        
+        // An error thrown by a listener doesn't stop the event thread, so
+        // writers can keep publishing past the size of the ring
+        graph.addGraphListener((batch) -> {
+            throw new AssertionError("listener error");
+        });
+        graph.addVertex(new Vertex<>(2));
+        for (int i = 0; i < 20000; i++){
+            graph.addEdge(1, 2, new Edge(1));
+            graph.deleteEdge(1, 2);
+        }
+        graph.flushEvents();
+        assertEquals(40002, events.size());
+        assertTrue(errors.get(errors.size() - 1) instanceof AssertionError);
+        
+        // The event thread sleeps until the next change wakes it
+        Thread.sleep(50);
+        graph.addVertex(new Vertex<>(3));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (events.size() < 40003 && System.currentTimeMillis() < deadline){
+            Thread.sleep(1);
+        }
+        assertEquals(40003, events.size());
+    }
+    
+    @Test
+    public void compiledScriptTest(){
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        
+        Graph.readGraph("RichardSPT.txt", new AdjacencyList<>(), new PrintStream(expected));
+        CompiledScript script = CompiledScript.compile("RichardSPT.txt");
+        script.run(new AdjacencyList<>(), new PrintStream(actual));
+        
+        assertTrue(script.size() > 0);
+        assertEquals(expected.toString(), actual.toString());
+    }
+    
+    @Test
+    public void queryExecutorTest() throws InterruptedException, ExecutionException{
+        ConcurrentAdjacencyList<Integer> graph = new ConcurrentAdjacencyList<>(true, true);
+        for (int v = 0; v < 4; v++){
+            graph.addVertex(v);
+        }
+        graph.addEdge(0, 1, new Edge(1));
+        graph.addEdge(1, 2, new Edge(1));
+        graph.addEdge(0, 2, new Edge(5));
+        
+        try (QueryExecutor<Integer> queries = new QueryExecutor<>(graph)){
+            assertTrue(queries.hasEdge(0, 1).get());
+            assertFalse(queries.hasEdge(2, 0).get());
+            assertEquals(3, queries.shortestPath(0, 2).get().size());
+            assertTrue(queries.shortestPath(0, 3).get().isEmpty());
+            
+            graph.addEdge(2, 3, new Edge(1));
+            assertEquals(4, queries.shortestPath(0, 3).get().size());
+            
+            QueryExecutor<Integer>.Query<Integer> stuck = queries.submit(() -> {
+                Thread.sleep(60000);
+                return 0;
+            });
+            stuck.cancel(true);
+            try {
+                stuck.get();
+                fail("A cancelled query has no result");
+            } catch (CancellationException e) {
+                assertFalse(stuck.isTimedOut());
+            }
+            assertTrue(queries.getLatency().getCount() > 0);
+        }
+    }
+    
+    @Test
+    public void queryExecutorCloseTest() throws InterruptedException, ExecutionException, TimeoutException{
+        ConcurrentAdjacencyList<Integer> graph = new ConcurrentAdjacencyList<>(true, true);
+        int count = Runtime.getRuntime().availableProcessors() + 5;
+        CountDownLatch gate = new CountDownLatch(1);
+        ArrayList<QueryExecutor<Integer>.Query<Integer>> blocked = new ArrayList<>();
+        
+        QueryExecutor<Integer> queries = new QueryExecutor<>(graph);
+        for (int i = 0; i < count; i++){
+            blocked.add(queries.submit(() -> {
+                gate.await();
+                return 0;
+            }));
+        }
+        queries.close();
+        
+        for (QueryExecutor<Integer>.Query<Integer> query : blocked){
+            try {
+                query.get(5, TimeUnit.SECONDS);
+                fail("A query left when the executor closed is cancelled");
+            } catch (CancellationException e) {
+                assertTrue(query.isCancelled());
+            }
+        }
+        assertEquals(0, queries.getInFlight());
+        gate.countDown();
+        
+        // Queries submitted after closing give their permits back, even
+        // when their timeout can't be scheduled
+        QueryExecutor<Integer> timed = new QueryExecutor<>(graph, 2, 1000);
+        timed.close();
+        for (int i = 0; i < 3; i++){
+            assertTrue(timed.hasVertex(0).isCancelled());
+        }
+        assertEquals(0, timed.getInFlight());
+    }
+    
+    @Test
+    public void partitionerTest(){
+        Graph<Integer> graph = new AdjacencyList<>(false, true);
+        for (int v = 0; v < 8; v++){
+            graph.addVertex(new Vertex<>(v));
+        }
+        for (int c = 0; c < 8; c += 4){
+            for (int a = c; a < c + 4; a++){
+                for (int b = a + 1; b < c + 4; b++){
+                    graph.addEdge(a, b, new Edge(3));
+                }
+            }
+        }
+        graph.addEdge(3, 4, new Edge(1));
+        
+        Partitioner<Integer> partitioner = new Partitioner<>(graph, 2);
+        assertEquals(1, partitioner.getEdgeCut(), 0);
+        assertEquals(4, partitioner.getPartSize(0));
+        assertEquals(partitioner.getPart(0), partitioner.getPart(3));
+        assertNotEquals(partitioner.getPart(3), partitioner.getPart(4));
+        
+        for (Shard<Integer> shard : partitioner.getShards()){
+            assertEquals(4, shard.getGraph().getVertexCount());
+            assertEquals(12, shard.getGraph().getArcCount());
+            assertEquals(1, shard.getBoundary().size());
+            assertEquals(1, shard.getCutEdgeCount());
+            assertNotEquals(shard.getPart(), shard.getCutTargetPart(0));
+        }
+    }
+    
+    @Test
+    public void pregelTest(){
+        Graph<Integer> graph = new AdjacencyList<>(false, true);
+        for (int v = 0; v < 6; v++){
+            graph.addVertex(new Vertex<>(v));
+        }
+        graph.addEdge(0, 1, new Edge(2));
+        graph.addEdge(1, 2, new Edge(2));
+        graph.addEdge(0, 2, new Edge(5));
+        graph.addEdge(3, 4, new Edge(1));
+        IndexedGraph<Integer> indexed = new IndexedGraph<>(graph);
+        
+        try (Pregel<Integer> pregel = new Pregel<>(indexed, 2)){
+            double[] distances = pregel.run(new ShortestPaths(indexed.indexOf(0)));
+            assertEquals(4, distances[indexed.indexOf(2)], 0);
+            assertEquals(ShortestPaths.UNREACHABLE, distances[indexed.indexOf(3)], 0);
+            
+            double[] labels = pregel.run(new ConnectedComponents());
+            assertEquals(labels[indexed.indexOf(0)], labels[indexed.indexOf(2)], 0);
+            assertEquals(labels[indexed.indexOf(3)], labels[indexed.indexOf(4)], 0);
+            assertNotEquals(labels[indexed.indexOf(0)], labels[indexed.indexOf(5)], 0);
+            
+            double[] ranks = pregel.run(new PageRank());
+            assertEquals(ranks[indexed.indexOf(3)], ranks[indexed.indexOf(4)], 1e-9);
+            assertEquals(0.15 / 6, ranks[indexed.indexOf(5)], 1e-9);
+        }
+    }
+    
+    @Test
+    public void pregelProcessTest(){
+        Graph<Integer> graph = new AdjacencyList<>(false, true);
+        for (int v = 0; v < 12; v++){
+            graph.addVertex(new Vertex<>(v));
+        }
+        for (int v = 0; v < 11; v++){
+            if (v != 5){
+                graph.addEdge(v, v + 1, new Edge(1));
+            }
+        }
+        IndexedGraph<Integer> indexed = new IndexedGraph<>(graph);
+        double[] expected;
+        try (Pregel<Integer> pregel = new Pregel<>(indexed, 4)){
+            expected = pregel.run(new ConnectedComponents());
+        }
+        
+        Pregel<Integer> pregel = new Pregel<>(indexed, 4, Arrays.asList("-Xmx64m"));
+        try {
+            assertEquals(4, pregel.getWorkerCount());
+            assertArrayEquals(expected, pregel.run(new ConnectedComponents()), 0);
+            double[] distances = pregel.run(new ShortestPaths(indexed.indexOf(0)));
+            assertEquals(5, distances[indexed.indexOf(5)], 0);
+            assertEquals(ShortestPaths.UNREACHABLE, distances[indexed.indexOf(6)], 0);
+        } finally {
+            // Each socket is paired with its own process, so no worker is
+            // left running until close gives up on it
+            long start = System.nanoTime();
+            pregel.close();
+            assertTrue(System.nanoTime() - start < 4000000000L);
+        }
+    }
+    
+    @Test
+    public void streamingResultsTest(){
+        Graph<Integer> graph = new AdjacencyMatrix<>(2, 8, true, true);
+        for (int v = 0; v < 4; v++){
+            graph.addVertex(new Vertex<>(v));
+        }
+        graph.addEdge(0, 1, new Edge(1));
+        graph.addEdge(1, 2, new Edge(2));
+        graph.addEdge(0, 2, new Edge(4));
+        
+        Iterator<PathEntry<Integer>> entries = graph.shortestPathTree(0);
+        PathEntry<Integer> source = entries.next();
+        assertEquals(0, source.getDistance(), 0);
+        assertNull(source.getPredecessor());
+        assertEquals(0, entries.next().getPredecessor().getData().intValue());
+        PathEntry<Integer> two = entries.next();
+        assertEquals(3, two.getDistance(), 0);
+        assertEquals(1, two.getPredecessor().getData().intValue());
+        assertFalse(entries.next().hasPath());
+        assertFalse(entries.hasNext());
+        
+        Iterator<ArrayList<Vertex<Integer>>> paths = graph.shortestPathsFrom(0);
+        paths.next();
+        paths.next();
+        assertEquals(3, paths.next().size());
+        assertTrue(paths.next().isEmpty());
+        assertFalse(graph.shortestPathsFrom(9).hasNext());
+        
+        Iterator<AdjacencyRow<Integer>> rows = graph.adjacencyRows();
+        AdjacencyRow<Integer> row = rows.next();
+        assertEquals(2, row.size());
+        assertEquals("0 -> 1-1.0 2-4.0", row.toString());
+    }
+    
+    @Test
+    public void pathTreeTest(){
+        Graph<Integer> graph = new AdjacencyList<>(false, true);
+        for (int v = 0; v < 6; v++){
+            graph.addVertex(new Vertex<>(v));
+        }
+        graph.addEdge(0, 1, new Edge(1));
+        graph.addEdge(1, 2, new Edge(1));
+        graph.addEdge(1, 3, new Edge(2));
+        graph.addEdge(3, 4, new Edge(1));
+        IndexedGraph<Integer> indexed = new IndexedGraph<>(graph);
+        ShortestPathTree<Integer> tree = new ShortestPathTree<>(indexed, indexed.indexOf(0));
+        
+        assertEquals(-1, tree.getParents()[indexed.indexOf(5)]);
+        assertEquals(4, tree.getDistances()[indexed.indexOf(4)], 0);
+        
+        final ArrayList<ArrayList<Vertex<Integer>>> paths = new ArrayList<>();
+        tree.forEachPath((Vertex<Integer>[] path, int length, float distance) -> {
+            paths.add(new ArrayList<>(Arrays.asList(path).subList(0, length)));
+        });
+        assertEquals(5, paths.size());
+        for (ArrayList<Vertex<Integer>> path : paths){
+            int last = indexed.indexOf(path.get(path.size() - 1).getData());
+            assertEquals(tree.getPath(last), path);
+        }
+    }
+
+    @Test
+    public void importerTest() throws IOException{
+        File dimacs = File.createTempFile("importerTest", ".gr");
+        dimacs.deleteOnExit();
+        try (PrintStream out = new PrintStream(dimacs)){
+            out.println("c a small road network");
+            out.println("p sp 4 5");
+            out.println("a 1 2 7");
+            out.println("a 2 3 1.5");
+            out.println("a 1 2 9");
+            out.println("a 3 1 2");
+            out.print("a 4 4 1\r\n");
+        }
+        GraphImporter<String> importer = new GraphImporter<>(GraphImporter.Format.DIMACS, true);
+        importer.setChunkSize(8);
+        IndexedGraph<String> indexed = importer.read(dimacs.getPath());
+        assertEquals(4, indexed.getVertexCount());
+        assertEquals(4, indexed.getArcCount());
+        assertTrue(indexed.isDirected() && indexed.isWeighted());
+        assertEquals(7, indexed.weight(indexed.find(indexed.indexOf("1"), indexed.indexOf("2"))), 0);
+        
+        Graph<String> graph = new AdjacencyList<>(indexed);
+        assertEquals(3, graph.getEdgeCount());
+        assertEquals(1.5f, graph.getEdge("2", "3").getWeight(), 0);
+        assertFalse(graph.isConnected());
+        
+        // A weighted file can't have an edge without a weight
+        try (PrintStream out = new PrintStream(dimacs)){
+            out.println("p sp 4 3");
+            out.println("c the weights");
+            out.println("a 1 2 7");
+            out.println("a 2 3");
+            out.println("a 3 4 2");
+        }
+        try {
+            importer.read(dimacs.getPath());
+            fail("The edge 2 -> 3 has no weight");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Missing weight on line 4: a 2 3", e.getMessage());
+        }
+        
+        File csv = File.createTempFile("importerTest", ".csv");
+        csv.deleteOnExit();
+        try (PrintStream out = new PrintStream(csv)){
+            out.println("from,to");
+            out.println("\"Fresno(500)\",Merced");
+            out.println("Merced , \"Modesto\"");
+        }
+        GraphImporter<City> cities = new GraphImporter<>(GraphImporter.Format.CSV, false, cityString);
+        cities.setHeader(true);
+        IndexedGraph<City> cityIndex = cities.read(csv.getPath());
+        assertEquals(500, cityIndex.getData(0).getPopulation(), 0);
+        
+        Graph<City> cityGraph = new AdjacencyList<>(cityIndex);
+        assertEquals(3, cityGraph.getVertexCount());
+        assertTrue(cityGraph.hasEdge(new City("Modesto"), new City("Merced")));
+        assertTrue(cityGraph.isConnected());
+    }
+
+    @Test
+    public void compressedListTest(){
+        Graph<Integer> graph = new AdjacencyList<>(true, true);
+        for (int v = 0; v < 40; v++){
+            graph.addVertex(new Vertex<>(v));
+        }
+        // Neighboring vertices share most of their neighbors and every
+        // vertex has a run of consecutive neighbors
+        for (int v = 0; v < 40; v++){
+            for (int k = 1; k <= 5; k++){
+                graph.addEdge(v, (v / 4 * 4 + 10 + k) % 40, new Edge(k));
+            }
+            graph.addEdge(v, (v + 1) % 40, new Edge(6));
+        }
+        IndexedGraph<Integer> indexed = new IndexedGraph<>(graph);
+        CompressedAdjacencyList<Integer> compressed = new CompressedAdjacencyList<>(indexed);
+        
+        assertEquals(graph.getEdgeCount(), compressed.getEdgeCount());
+        assertTrue(compressed.getBitsPerEdge() < 32);
+        for (int v = 0; v < indexed.getVertexCount(); v++){
+            int[] neighbors = compressed.neighbors(v);
+            float[] weights = compressed.weights(v);
+            assertEquals(indexed.degree(v), neighbors.length);
+            for (int i = 0; i < neighbors.length; i++){
+                assertEquals(indexed.target(indexed.begin(v) + i), neighbors[i]);
+                assertEquals(indexed.weight(indexed.begin(v) + i), weights[i], 0);
+            }
+        }
+        assertEquals(3, compressed.getEdge(7, 7 / 4 * 4 + 13).getWeight(), 0);
+        assertNull(compressed.getEdge(7, 30));
+        assertTrue(compressed.isConnected());
+        int[] hops = compressed.breadthFirst(compressed.indexOf(0));
+        assertEquals(0, hops[compressed.indexOf(0)]);
+        assertEquals(1, hops[compressed.indexOf(1)]);
+        assertEquals(2, hops[compressed.indexOf(2)]);
+        
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        new AdjacencyList<>(indexed).printGraph(new PrintStream(expected));
+        compressed.printGraph(new PrintStream(actual));
+        assertEquals(expected.toString(), actual.toString());
+        
+        try {
+            compressed.addEdge(0, 1, new Edge(1));
+            fail("Compressed lists are read only");
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+
+    @Test
+    public void checkpointTest() throws IOException{
+        File file = File.createTempFile("checkpointTest", ".ckpt");
+        file.deleteOnExit();
+        
+        AdjacencyList<City> list = new AdjacencyList<>();
+        Graph.readGraph("RichardCGP.txt", list, new PrintStream(new ByteArrayOutputStream()), cityString);
+        list.checkpoint(file.getPath());
+        AdjacencyList<City> restoredList = AdjacencyList.restore(file.getPath());
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        list.printGraph(new PrintStream(expected));
+        restoredList.printGraph(new PrintStream(actual));
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(list.getEdgeCount(), restoredList.getEdgeCount());
+        assertEquals(list.isConnected(), restoredList.isConnected());
+        
+        // An undirected edge is still one object after a restore
+        restoredList.forEachEdge((City from, City to, Edge edge) -> {
+            assertSame(edge, restoredList.getEdge(to, from));
+        });
+        
+        AdjacencyMatrix<Integer> matrix = new AdjacencyMatrix<>(2, 2, true, true);
+        for (int v = 0; v < 5; v++){
+            matrix.addVertex(new Vertex<>(v));
+        }
+        matrix.addEdge(0, 1, new Edge(3));
+        matrix.addEdge(1, 4, new Edge(2));
+        matrix.deleteVertex(2);
+        matrix.checkpoint(file.getPath());
+        AdjacencyMatrix<Integer> restoredMatrix = AdjacencyMatrix.restore(file.getPath());
+        assertEquals(4, restoredMatrix.getVertexCount());
+        assertEquals(3, restoredMatrix.getEdge(0, 1).getWeight(), 0);
+        assertFalse(restoredMatrix.hasEdge(4, 1));
+        restoredMatrix.addEdge(3, 0, new Edge(1));
+        assertTrue(restoredMatrix.hasEdge(3, 0));
+        
+        try {
+            AdjacencyList.restore(file.getPath());
+            fail("A matrix checkpoint is not a list");
+        } catch (UncheckedIOException e) {
+        }
+    }
+
+    @Test
+    public void writeAheadLogTest() throws IOException{
+        File log = File.createTempFile("writeAheadLogTest", ".log");
+        File checkpoint = new File(log.getPath() + ".ckpt");
+        log.delete();
+        log.deleteOnExit();
+        checkpoint.deleteOnExit();
+        
+        AdjacencyList<Integer> graph = new AdjacencyList<>(true, true);
+        WriteAheadLog<Integer> wal = new WriteAheadLog<>(graph, log.getPath(), checkpoint.getPath());
+        for (int v = 0; v < 4; v++){
+            graph.addVertex(new Vertex<>(v));
+        }
+        graph.addEdge(0, 1, new Edge(2));
+        graph.addEdge(1, 2, new Edge(3));
+        wal.checkpoint(graph::checkpoint);
+        graph.addEdge(2, 3, new Edge(4));
+        graph.updateEdge(0, 1, new Edge(5));
+        graph.deleteEdge(1, 2);
+        wal.sync();
+        
+        // Recover without closing the log, the way a crash would leave it
+        AdjacencyList<Integer> recovered = WriteAheadLog.recover(log.getPath(), 
+                checkpoint.getPath(), AdjacencyList::restore, AdjacencyList::new);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        graph.printGraph(new PrintStream(expected));
+        recovered.printGraph(new PrintStream(actual));
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(5, recovered.getEdge(0, 1).getWeight(), 0);
+        assertFalse(recovered.hasEdge(1, 2));
+        wal.close();
+        
+        // A torn frame at the end is left out and cut off when logging
+        // starts again
+        try (FileOutputStream out = new FileOutputStream(log, true)){
+            out.write(new byte[]{0, 0, 0, 9, 1});
+        }
+        recovered = WriteAheadLog.recover(log.getPath(), checkpoint.getPath(), 
+                AdjacencyList::restore, AdjacencyList::new);
+        wal = new WriteAheadLog<>(recovered, log.getPath(), checkpoint.getPath());
+        recovered.deleteVertex(3);
+        wal.close();
+        recovered = WriteAheadLog.recover(log.getPath(), checkpoint.getPath(), 
+                AdjacencyList::restore, AdjacencyList::new);
+        assertEquals(3, recovered.getVertexCount());
+        assertEquals(5, recovered.getEdge(0, 1).getWeight(), 0);
+    }
+
+    @Test
+    public void exporterTest(){
+        AdjacencyMatrix<String> graph = new AdjacencyMatrix<>(8, 64, false, true);
+        graph.addVertex(new Vertex<>("a"));
+        graph.addVertex(new Vertex<>("b\""));
+        graph.addVertex(new Vertex<>("c"));
+        graph.addEdge("a", "b\"", new Edge(2));
+        graph.addEdge("c", "a", new Edge(3));
+        
+        StringWriter edges = new StringWriter();
+        new GraphExporter<String>(GraphExporter.Format.EDGE_LIST).write(graph, edges);
+        assertEquals(2, edges.toString().split("\n").length);
+        assertTrue(edges.toString().contains("a b\" 2.0\n"));
+        
+        StringWriter dot = new StringWriter();
+        new GraphExporter<String>(GraphExporter.Format.DOT).write(graph, dot);
+        assertTrue(dot.toString().startsWith("graph G {\n"));
+        assertTrue(dot.toString().contains("\"a\" -- \"b\\\"\" [weight=2.0"));
+        
+        StringWriter graphML = new StringWriter();
+        new GraphExporter<String>(GraphExporter.Format.GRAPHML).write(graph, graphML);
+        assertTrue(graphML.toString().contains("<node id=\"b&quot;\"/>"));
+        assertTrue(graphML.toString().contains("edgedefault=\"undirected\""));
+        
+        // The text layout is printGraph of an adjacency list
+        AdjacencyList<City> cities = new AdjacencyList<>();
+        Graph.readGraph("RichardCGP.txt", cities, new PrintStream(new ByteArrayOutputStream()), cityString);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        cities.printGraph(new PrintStream(expected));
+        StringWriter text = new StringWriter();
+        new GraphExporter<City>(GraphExporter.Format.TEXT).write(cities, text);
+        assertEquals(expected.toString(), text.toString() + System.lineSeparator());
+    }
+
+    @Test
+    public void vertexDictionaryTest(){
+        // Every name is translated once however many lines it is on
+        ArrayList<String> translated = new ArrayList<>();
+        StringInterpreter<City> counting = (String str) -> {
+            translated.add(str);
+            return cityString.translate(str);
+        };
+        AdjacencyList<City> graph = new AdjacencyList<>();
+        Graph.readGraph("RichardCGP.txt", graph, new PrintStream(new ByteArrayOutputStream()), counting);
+        assertEquals(new TreeSet<>(translated).size(), translated.size());
+        
+        // Names on edge lines resolve to the data of the vertex
+        City denver = (City) graph.getVertex(new City("Denver")).getData();
+        assertEquals(0.6f, denver.getPopulation(), 0);
+        graph.forEachEdge((City from, City to, Edge edge) -> {
+            if (from.compareTo(denver) == 0){
+                assertSame(denver, from);
+            }
+        });
+    }
+
+    @Test
+    public void paramParserTest(){
+        ParamParser parser = new ParamParser();
+        assertEquals(3, parser.parse("x(0.14,-25,abc)", 1, 15));
+        assertEquals(0.14f, parser.getFloat(0), 0);
+        assertEquals(-25, parser.getInt(1));
+        assertEquals("abc", parser.getString(2));
+        assertEquals(11, parser.start(2));
+        assertEquals(0, parser.parse("()".toCharArray(), 0, 2));
+        
+        // Values the fast path doesn't take give what Float.parseFloat does
+        String[] floats = {"1e3", "123456789.123", "-0", ".5", "4.2f", "0.0000000001"};
+        for (String f : floats){
+            parser.parse("(" + f + ")");
+            assertEquals(Float.parseFloat(f), parser.getFloat(0), 0);
+        }
+        parser.parse("(2147483648)");
+        try {
+            parser.getInt(0);
+            fail("Expected NumberFormatException");
+        } catch (NumberFormatException e) {
+        }
+        
+        // ParamCollector still hands the last parameter out first
+        Stack<String> params = ParamCollector.getParams("(a,b c)");
+        assertEquals("c", params.pop());
+        assertEquals(2, params.size());
+        try {
+            ParamCollector.getParams("(a,,b)");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void diskGraphTest() throws IOException{
+        AdjacencyList<String> graph = new AdjacencyList<>();
+        Graph.readGraph("RichardSPT.txt", graph, new PrintStream(new ByteArrayOutputStream()));
+        IndexedGraph<String> indexed = new IndexedGraph<>(graph);
+        File file = File.createTempFile("diskGraphTest", ".bin");
+        file.deleteOnExit();
+        DiskGraph.write(indexed, file.getPath());
+        int a = indexed.indexOf("A");
+        float[] dist;
+        int[] levels;
+        try (DiskGraph disk = new DiskGraph(file.getPath())){
+            assertEquals(indexed.getArcCount(), disk.getArcCount());
+            assertTrue(disk.isWeighted());
+            dist = disk.shortestPaths(a, null);
+            levels = disk.breadthFirst(a);
+        }
+        assertEquals(0, levels[a]);
+        assertEquals(3, levels[indexed.indexOf("F")]);
+        assertEquals(11, dist[indexed.indexOf("F")], 0);
+        
+        // A rewrite that fails before it is committed leaves the file alone
+        try (DiskGraph.Writer writer = new DiskGraph.Writer(file.getPath(),
+                indexed.getVertexCount(), true, true)){
+            writer.addEdge(1, 0, 1);
+            writer.addEdge(0, 1, 1);
+            fail("Edges must be added in order");
+        } catch (IllegalArgumentException e) {
+        }
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+        try (DiskGraph disk = new DiskGraph(file.getPath())){
+            assertEquals(indexed.getArcCount(), disk.getArcCount());
+            assertArrayEquals(levels, disk.breadthFirst(a));
+        }
+        
+        // The distances pass the shortestDist checks of the same graph
+        File checks = File.createTempFile("diskGraphTest", ".txt");
+        checks.deleteOnExit();
+        try (PrintStream script = new PrintStream(checks)){
+            for (String line : Files.readAllLines(Paths.get("RichardSPT.txt"))){
+                script.println(line);
+                if (line.trim().equals("end")){
+                    break;
+                }
+            }
+            script.println("shortestPaths A");
+            for (int v = 0; v < indexed.getVertexCount(); v++){
+                script.println("shortestDist " + indexed.getData(v) + " " + dist[v]);
+            }
+        }
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+        Graph.readGraph(checks.getPath(), new AdjacencyList<>(), new PrintStream(results));
+        assertFalse(results.toString().contains("FAIL"));
+        assertTrue(results.toString().contains("PASS"));
+    }
+
+    @Test
+    public void reorderingTest(){
+        // A path whose vertices are added out of order
+        AdjacencyList<Integer> graph = new AdjacencyList<>(false, true);
+        int[] shuffled = {7, 2, 9, 0, 5, 3, 8, 1, 6, 4};
+        for (int v : shuffled){
+            graph.addVertex(v);
+        }
+        for (int v = 0; v < 9; v++){
+            graph.addEdge(v, v + 1, new Edge(v + 1));
+        }
+        IndexedGraph<Integer> indexed = new IndexedGraph<>(graph);
+        ShortestPathTree<Integer> expected = new ShortestPathTree<>(indexed, indexed.indexOf(0));
+        
+        for (Reordering.Strategy strategy : Reordering.Strategy.values()){
+            IndexedGraph<Integer> reordered = new Reordering<>(indexed, strategy).getGraph();
+            assertEquals(indexed.getArcCount(), reordered.getArcCount());
+            ShortestPathTree<Integer> tree = new ShortestPathTree<>(reordered, reordered.indexOf(0));
+            for (int v = 0; v < 10; v++){
+                assertSame(indexed.getVertex(indexed.indexOf(v)), reordered.getVertex(reordered.indexOf(v)));
+                assertEquals(expected.getDistance(indexed.indexOf(v)), tree.getDistance(reordered.indexOf(v)), 0);
+            }
+        }
+        // Walking the path in order puts every edge next to the diagonal
+        IndexedGraph<Integer> banded = new Reordering<>(indexed, 
+                Reordering.Strategy.REVERSE_CUTHILL_MCKEE).getGraph();
+        assertEquals(1, Reordering.averageGap(banded), 0);
+        assertTrue(Reordering.averageGap(indexed) > 1);
+        try {
+            indexed.permute(new int[]{0, 0, 1, 2, 3, 4, 5, 6, 7, 8});
+            fail("An order must hold every vertex once");
+        } catch (IllegalArgumentException e) {
+        }
+    }
 }